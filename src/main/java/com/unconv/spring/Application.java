@@ -1,20 +1,31 @@
 package com.unconv.spring;
 
 import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.mapper.DTOMapper;
 import java.util.TimeZone;
 import javax.annotation.PostConstruct;
-import org.modelmapper.ModelMapper;
+import org.mapstruct.factory.Mappers;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
-@SpringBootApplication
+// R2DBC is only used by the opt-in reactive endpoints, which configure their own pool in
+// ReactiveDatabaseConfig. The auto-configured one would replace the DataSource
+@SpringBootApplication(
+        exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 @EnableConfigurationProperties({ApplicationProperties.class})
 public class Application {
 
+    private static final int STARTUP_STEPS_CAPACITY = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(Application.class, args);
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
+        application.run(args);
     }
 
     @PostConstruct
@@ -23,7 +34,7 @@ public class Application {
     }
 
     @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
+    public DTOMapper dtoMapper() {
+        return Mappers.getMapper(DTOMapper.class);
     }
 }
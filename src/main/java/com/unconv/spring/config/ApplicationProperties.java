@@ -1,12 +1,36 @@
 package com.unconv.spring.config;
 
+import com.unconv.spring.consts.IngestMode;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @Data
 @ConfigurationProperties("application")
 public class ApplicationProperties {
     private Cors cors = new Cors();
+    private Tracing tracing = new Tracing();
+    private Startup startup = new Startup();
+    private Stream stream = new Stream();
+    private Ingest ingest = new Ingest();
+    private Archive archive = new Archive();
+    private RecentWindow recentWindow = new RecentWindow();
+    private Aggregate aggregate = new Aggregate();
+    private ClosedBuckets closedBuckets = new ClosedBuckets();
+    private HttpCache httpCache = new HttpCache();
+    private Threads threads = new Threads();
+    private Http2 http2 = new Http2();
+    private Reactive reactive = new Reactive();
+    private Replicas replicas = new Replicas();
+    private Pools pools = new Pools();
+    private SecondLevelCache secondLevelCache = new SecondLevelCache();
+    private Invalidation invalidation = new Invalidation();
 
     @Data
     public static class Cors {
@@ -16,4 +40,171 @@ public class ApplicationProperties {
         private String allowedOriginPatterns = "*";
         private boolean allowCredentials = true;
     }
+
+    @Data
+    public static class Tracing {
+        private boolean enabled = false;
+        private boolean serverTiming = false;
+    }
+
+    @Data
+    public static class Startup {
+        private List<String> lazyPackages = List.of("org.springdoc");
+        private boolean exitAfterReady = false;
+    }
+
+    @Data
+    public static class Stream {
+        private int bufferSize = 64;
+        private int maxSubscribers = 20_000;
+        private int dispatchThreads = 2;
+        private int sendThreads = 8;
+        private Duration sendTimeLimit = Duration.ofSeconds(10);
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+        private Duration emitterTimeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Ingest {
+        private IngestMode httpMode = IngestMode.SYNC;
+        private Duration maxBatchDelay = Duration.ofMillis(5);
+        private Duration ackTimeout = Duration.ofSeconds(5);
+        private int queueCapacity = 20_000;
+        private int batchSize = 500;
+        private int maxInFlightPerConnection = 2_000;
+        private int maxFrameSize = 64 * 1024;
+        private DataSize maxUploadSize = DataSize.ofMegabytes(16);
+        private Wal wal = new Wal();
+        private SensorCache sensorCache = new SensorCache();
+    }
+
+    @Data
+    public static class Wal {
+        private boolean enabled = false;
+        private String directory = "data/ingest-wal";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private int maxSegments = 16;
+        private Duration recoveryTimeout = Duration.ofSeconds(30);
+        private Duration maxRetryBackoff = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class SensorCache {
+        private long maxEntries = 100_000;
+        private Duration refreshAfter = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Archive {
+        private boolean enabled = false;
+        private Duration archiveAfter = Duration.ofDays(28);
+        private Duration interval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class RecentWindow {
+        private boolean enabled = true;
+        private Duration span = Duration.ofHours(24);
+        private int maxReadingsPerSensor = 86_400;
+        private long maxReadings = 2_000_000;
+        private Duration idleTimeout = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Aggregate {
+        private int maxBuckets = 5_000;
+        private Duration maxRange = Duration.ofDays(366);
+        private int maxSensors = 100;
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class ClosedBuckets {
+        private boolean enabled = true;
+        private long maxEntries = 200_000;
+    }
+
+    @Data
+    public static class HttpCache {
+        private Duration quarterHourlyMaxAge = Duration.ofSeconds(30);
+        private Duration hourlyMaxAge = Duration.ofMinutes(2);
+        private Duration dailyMaxAge = Duration.ofMinutes(10);
+        private Duration aggregateMaxAge = Duration.ofSeconds(30);
+        private Duration sensorSystemMaxAge = Duration.ZERO;
+        private long maxVersionedSensors = 100_000;
+    }
+
+    @Data
+    public static class Threads {
+        private boolean virtual = false;
+        private Duration pinnedThreshold = Duration.ofMillis(20);
+    }
+
+    @Data
+    public static class Http2 {
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Reactive {
+        private boolean enabled = false;
+        private String url = "r2dbc:h2:mem:///testdb";
+        private String username;
+        private String password;
+        private int maxPoolSize = 10;
+    }
+
+    @Data
+    public static class Replicas {
+        private boolean enabled = false;
+        private List<String> urls = List.of();
+        private String username;
+        private String password;
+        private int maxPoolSize = 10;
+        private String lagQuery;
+        private Duration maxLag = Duration.ofSeconds(5);
+        private Duration checkInterval = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Pools {
+        private boolean enabled = true;
+        private Pool ingestion = new Pool(4, Duration.ofSeconds(2), Duration.ofSeconds(10));
+        private Pool bulk = new Pool(2, Duration.ofSeconds(30), Duration.ofMinutes(10));
+        private Pool analytics = new Pool(4, Duration.ofSeconds(10), Duration.ofMinutes(2));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        private int maxPoolSize;
+        private Duration connectionTimeout;
+        private Duration leakDetectionThreshold;
+    }
+
+    @Data
+    public static class SecondLevelCache {
+        private boolean enabled = true;
+        private String provider = "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider";
+        private String uri;
+        private boolean statistics = false;
+        private Map<String, CacheRegion> regions = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class CacheRegion {
+        private long maxEntries;
+        private Duration ttl = Duration.ZERO;
+    }
+
+    @Data
+    public static class Invalidation {
+        private String transport = "local";
+        private Duration pollInterval = Duration.ofMillis(500);
+        private int batchSize = 500;
+        private Duration gapTimeout = Duration.ofMinutes(1);
+        private Duration retention = Duration.ofHours(1);
+        private Duration readingsAddedInterval = Duration.ofSeconds(5);
+    }
 }
@@ -0,0 +1,38 @@
+package com.unconv.spring.config;
+
+import com.unconv.spring.web.socket.EnvironmentalReadingIngestHandler;
+import com.unconv.spring.web.socket.SensorSystemHandshakeInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+    private final ApplicationProperties properties;
+
+    private final EnvironmentalReadingIngestHandler environmentalReadingIngestHandler;
+
+    private final SensorSystemHandshakeInterceptor sensorSystemHandshakeInterceptor;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(
+                        environmentalReadingIngestHandler,
+                        "/EnvironmentalReading/Ingest/SensorSystem/*")
+                .addInterceptors(sensorSystemHandshakeInterceptor)
+                .setAllowedOriginPatterns(properties.getCors().getAllowedOriginPatterns());
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(properties.getIngest().getMaxFrameSize());
+        return container;
+    }
+}
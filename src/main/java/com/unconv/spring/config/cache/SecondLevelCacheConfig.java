@@ -0,0 +1,105 @@
+package com.unconv.spring.config.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.unconv.spring.config.ApplicationProperties;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.EternalExpiryPolicy;
+import javax.cache.expiry.ModifiedExpiryPolicy;
+import javax.cache.spi.CachingProvider;
+import javax.persistence.SharedCacheMode;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+// Hands Hibernate a JCache manager with one cache per configured region. Regions the provider
+// already knows from its own configuration, e.g. the config file of a clustered provider at
+// application.second-level-cache.uri, are left as they are. Hibernate closes the manager
+// together with the EntityManagerFactory
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "application.second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    private static final String CAFFEINE_PROVIDER =
+            "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider";
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            ApplicationProperties applicationProperties) {
+        ApplicationProperties.SecondLevelCache properties =
+                applicationProperties.getSecondLevelCache();
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager(properties));
+            hibernateProperties.put(
+                    ConfigSettings.MISSING_CACHE_STRATEGY,
+                    MissingCacheStrategy.CREATE_WARN.getExternalRepresentation());
+            hibernateProperties.put(
+                    AvailableSettings.JPA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+        };
+    }
+
+    private CacheManager cacheManager(ApplicationProperties.SecondLevelCache properties) {
+        CachingProvider provider = Caching.getCachingProvider(properties.getProvider());
+        // Without a configuration URI each context gets a manager of its own, so two contexts in
+        // one JVM never share cached entities
+        URI uri =
+                StringUtils.hasText(properties.getUri())
+                        ? URI.create(properties.getUri())
+                        : URI.create("urn:unconv-spring:second-level-cache:" + UUID.randomUUID());
+        CacheManager cacheManager = provider.getCacheManager(uri, getClass().getClassLoader());
+
+        properties
+                .getRegions()
+                .forEach(
+                        (region, limits) -> {
+                            if (cacheManager.getCache(region) != null) {
+                                log.info("Using the provider's configuration of region {}", region);
+                                return;
+                            }
+                            cacheManager.createCache(
+                                    region, configuration(properties.getProvider(), limits));
+                        });
+        return cacheManager;
+    }
+
+    // A max-entries or ttl of 0 leaves the region unbounded. The JCache API has no size limit, so
+    // other providers take it from their own configuration
+    private static CompleteConfiguration<Object, Object> configuration(
+            String provider, ApplicationProperties.CacheRegion limits) {
+        if (CAFFEINE_PROVIDER.equals(provider)) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            // Hibernate caches disassembled state, copying it on every read gains nothing
+            configuration.setStoreByValue(false);
+            if (limits.getMaxEntries() > 0) {
+                configuration.setMaximumSize(OptionalLong.of(limits.getMaxEntries()));
+            }
+            if (!limits.getTtl().isZero()) {
+                configuration.setExpireAfterWrite(OptionalLong.of(limits.getTtl().toNanos()));
+            }
+            return configuration;
+        }
+
+        MutableConfiguration<Object, Object> configuration = new MutableConfiguration<>();
+        configuration.setExpiryPolicyFactory(
+                limits.getTtl().isZero()
+                        ? EternalExpiryPolicy.factoryOf()
+                        : ModifiedExpiryPolicy.factoryOf(
+                                new Duration(TimeUnit.MILLISECONDS, limits.getTtl().toMillis())));
+        return configuration;
+    }
+}
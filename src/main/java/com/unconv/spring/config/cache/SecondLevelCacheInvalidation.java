@@ -0,0 +1,49 @@
+package com.unconv.spring.config.cache;
+
+import com.unconv.spring.domain.Fruit;
+import com.unconv.spring.domain.Heater;
+import com.unconv.spring.domain.Offer;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.UnconvRole;
+import com.unconv.spring.service.cache.EntityChange;
+import com.unconv.spring.service.cache.EntityChangesMissedEvent;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Each node has a second-level cache of its own. Changes announced on the invalidation bus evict
+// the entity and the cached listings, the update timestamps that would otherwise discard those
+// are local as well
+@Component
+@ConditionalOnProperty(name = "application.second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheInvalidation {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public SecondLevelCacheInvalidation(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChange change) {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        switch (change.entity()) {
+            case SENSOR_LOCATION -> cache.evictEntityData(SensorLocation.class, change.uuid());
+            case UNCONV_ROLE -> cache.evictEntityData(UnconvRole.class, change.uuid());
+            case FRUIT -> cache.evictEntityData(Fruit.class, Long.valueOf(change.id()));
+            case OFFER -> cache.evictEntityData(Offer.class, Long.valueOf(change.id()));
+            case HEATER -> cache.evictEntityData(Heater.class, Long.valueOf(change.id()));
+            default -> {
+                return;
+            }
+        }
+        cache.evictDefaultQueryRegion();
+    }
+
+    @EventListener(EntityChangesMissedEvent.class)
+    public void onEntityChangesMissed() {
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+    }
+}
@@ -0,0 +1,40 @@
+package com.unconv.spring.config.datasource;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Marker;
+
+// Hikari only logs a connection held longer than leak-detection-threshold, this counts those
+// warnings so they can be alerted on. The log line does not name the pool
+final class ConnectionLeakCounter extends TurboFilter {
+
+    private static final String LEAK_TASK_LOGGER = "com.zaxxer.hikari.pool.ProxyLeakTask";
+
+    private static final String LEAK_MESSAGE = "Connection leak detection triggered";
+
+    private final Counter leaks;
+
+    ConnectionLeakCounter(Counter leaks) {
+        this.leaks = leaks;
+    }
+
+    @Override
+    public FilterReply decide(
+            Marker marker,
+            Logger logger,
+            Level level,
+            String format,
+            Object[] params,
+            Throwable t) {
+        if (level == Level.WARN
+                && format != null
+                && format.startsWith(LEAK_MESSAGE)
+                && LEAK_TASK_LOGGER.equals(logger.getName())) {
+            leaks.increment();
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,18 @@
+package com.unconv.spring.config.datasource;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+// Connections opened while the annotated method runs come from the workload's pool. A transaction
+// that already holds a connection keeps it
+@Target({TYPE, METHOD})
+@Retention(RUNTIME)
+@Inherited
+public @interface DatabaseWorkload {
+    Workload value();
+}
@@ -0,0 +1,43 @@
+package com.unconv.spring.config.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Runs outside the transaction interceptor, whose order is the lowest, so the workload is set
+// before the transaction borrows its connection. Tracing stays the outermost advice
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class DatabaseWorkloadAspect {
+
+    @Around(
+            "@within(com.unconv.spring.config.datasource.DatabaseWorkload) || "
+                    + "@annotation(com.unconv.spring.config.datasource.DatabaseWorkload)")
+    public Object withWorkload(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        DatabaseWorkload workload =
+                AnnotatedElementUtils.findMergedAnnotation(
+                        signature.getMethod(), DatabaseWorkload.class);
+        if (workload == null) {
+            workload =
+                    AnnotatedElementUtils.findMergedAnnotation(
+                            joinPoint.getTarget().getClass(), DatabaseWorkload.class);
+        }
+        if (workload == null) {
+            return joinPoint.proceed();
+        }
+
+        Workload previous = DatabaseWorkloads.swap(workload.value());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            DatabaseWorkloads.swap(previous);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.unconv.spring.config.datasource;
+
+import java.util.function.Supplier;
+
+// The workload of the current thread, set by DatabaseWorkloadAspect or by code running on threads
+// of its own
+public final class DatabaseWorkloads {
+
+    private static final ThreadLocal<Workload> CURRENT =
+            ThreadLocal.withInitial(() -> Workload.DEFAULT);
+
+    private DatabaseWorkloads() {}
+
+    public static Workload current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T call(Workload workload, Supplier<T> supplier) {
+        Workload previous = swap(workload);
+        try {
+            return supplier.get();
+        } finally {
+            swap(previous);
+        }
+    }
+
+    public static void run(Workload workload, Runnable runnable) {
+        call(
+                workload,
+                () -> {
+                    runnable.run();
+                    return null;
+                });
+    }
+
+    // Returns the workload that was current before
+    static Workload swap(Workload workload) {
+        Workload previous = CURRENT.get();
+        CURRENT.set(workload);
+        return previous;
+    }
+}
@@ -0,0 +1,258 @@
+package com.unconv.spring.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Sends read-only transactions to the replicas in turn and everything else to the pool of the
+// current DatabaseWorkload, or the primary pool for workloads without one. Replicas that cannot
+// be reached or lag more than maxLag are skipped until the next check, with none left read-only
+// transactions use the workload's pool as well. Has to be wrapped in a
+// LazyConnectionDataSourceProxy, the transaction is only marked read-only after it has begun
+@Slf4j
+class RoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, AutoCloseable {
+
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+
+    private final Map<Workload, HikariDataSource> pools;
+
+    private final List<Replica> replicas;
+
+    private final String lagQuery;
+
+    private final long maxLagSeconds;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    private final ScheduledExecutorService lagChecker;
+
+    // pools has to hold Workload.DEFAULT
+    RoutingDataSource(
+            Map<Workload, HikariDataSource> pools,
+            List<HikariDataSource> replicaPools,
+            String lagQuery,
+            Duration maxLag,
+            Duration checkInterval) {
+        this.pools = new EnumMap<>(pools);
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.getSeconds();
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (HikariDataSource pool : this.pools.values()) {
+            targets.put(pool.getPoolName(), pool);
+        }
+        for (Replica replica : replicas) {
+            targets.put(replica.name(), replica.pool);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(pools.get(Workload.DEFAULT));
+        setLenientFallback(false);
+        afterPropertiesSet();
+
+        if (replicas.isEmpty()) {
+            this.lagChecker = null;
+            return;
+        }
+        this.lagChecker =
+                Executors.newSingleThreadScheduledExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "replica-lag-checker");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        checkReplicas();
+        lagChecker.scheduleWithFixedDelay(
+                this::checkReplicas,
+                checkInterval.toMillis(),
+                checkInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = route();
+        return replica != null ? replica.name() : workloadPool().getPoolName();
+    }
+
+    // A replica that fails to hand out a connection is skipped until it passes a check again,
+    // the transaction continues on the workload's pool
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = route();
+        if (replica == null) {
+            return workloadPool().getConnection();
+        }
+        try {
+            return replica.pool.getConnection();
+        } catch (SQLException e) {
+            log.warn("Replica {} is unavailable, reading from the primary", replica.name(), e);
+            replica.available = false;
+            fallbacks.increment();
+            return workloadPool().getConnection();
+        }
+    }
+
+    private HikariDataSource workloadPool() {
+        HikariDataSource pool = pools.get(DatabaseWorkloads.current());
+        return pool != null ? pool : pools.get(Workload.DEFAULT);
+    }
+
+    // Null for the primary
+    private Replica route() {
+        if (replicas.isEmpty()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        Replica replica = nextAvailableReplica();
+        if (replica == null) {
+            fallbacks.increment();
+        }
+        return replica;
+    }
+
+    private Replica nextAvailableReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.available) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean wasAvailable = replica.available;
+            try {
+                replica.lagSeconds = measureLag(replica.pool);
+                replica.available = replica.lagSeconds <= maxLagSeconds;
+            } catch (SQLException | RuntimeException e) {
+                replica.lagSeconds = Double.NaN;
+                replica.available = false;
+                log.debug("Checking replica {} failed", replica.name(), e);
+            }
+            if (wasAvailable != replica.available) {
+                log.warn(
+                        "Replica {} is {} (lag {} s)",
+                        replica.name(),
+                        replica.available ? "available again" : "skipped",
+                        replica.lagSeconds);
+            }
+        }
+    }
+
+    // Without a lag query a reachable replica counts as up to date. Otherwise the query has to
+    // return one row with the lag in seconds, either in a column named like in SHOW REPLICA
+    // STATUS or in the first one. No row or NULL means replication is not running
+    private double measureLag(HikariDataSource pool) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            if (lagQuery == null || lagQuery.isBlank()) {
+                return connection.isValid(1) ? 0 : Double.POSITIVE_INFINITY;
+            }
+            try (Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if (!resultSet.next()) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                Object lag = resultSet.getObject(lagColumn(resultSet.getMetaData()));
+                return lag instanceof Number number
+                        ? number.doubleValue()
+                        : Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            for (String name : LAG_COLUMNS) {
+                if (name.equalsIgnoreCase(metaData.getColumnLabel(column))) {
+                    return column;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // Bound once the registry exists, which itself depends on the DataSource for its JDBC metrics
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        MicrometerMetricsTrackerFactory metricsTrackerFactory =
+                new MicrometerMetricsTrackerFactory(registry);
+        for (HikariDataSource pool : pools.values()) {
+            pool.setMetricsTrackerFactory(metricsTrackerFactory);
+        }
+        for (Replica replica : replicas) {
+            replica.pool.setMetricsTrackerFactory(metricsTrackerFactory);
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Seconds the replica was behind the primary at the last check")
+                    .baseUnit("seconds")
+                    .tag("pool", replica.name())
+                    .register(registry);
+            Gauge.builder("datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .description("Whether read-only transactions are sent to the replica")
+                    .tag("pool", replica.name())
+                    .register(registry);
+        }
+        FunctionCounter.builder("datasource.replica.fallbacks", fallbacks, LongAdder::sum)
+                .description("Read-only transactions sent to the primary, no replica was usable")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+        for (HikariDataSource pool : pools.values()) {
+            pool.close();
+        }
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource pool;
+
+        // Checked once before the first connection is handed out, starting as available only
+        // makes a replica that fails that check log like one that fails later
+        private volatile boolean available = true;
+
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        private String name() {
+            return pool.getPoolName();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.unconv.spring.config.datasource;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.unconv.spring.config.ApplicationProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+// Replaces the auto-configured DataSource with a primary pool, a pool per workload and one pool
+// per replica URL. All pools take spring.datasource.hikari.* with their own size and timeouts,
+// and publish the usual hikaricp.* metrics tagged with their pool name. Replicas log in like the
+// primary unless application.replicas.username is set
+@Configuration
+@ConditionalOnExpression(
+        "${application.replicas.enabled:false} or ${application.pools.enabled:false}")
+public class RoutingDataSourceConfig {
+
+    private final List<ConnectionLeakCounter> leakCounters = new ArrayList<>();
+
+    private RoutingDataSource routingDataSource;
+
+    @Bean
+    public DataSource dataSource(
+            DataSourceProperties dataSourceProperties,
+            ApplicationProperties applicationProperties,
+            Environment environment) {
+        Map<Workload, HikariDataSource> pools = new EnumMap<>(Workload.class);
+        pools.put(
+                Workload.DEFAULT, primaryPool(dataSourceProperties, environment, Workload.DEFAULT));
+        ApplicationProperties.Pools poolProperties = applicationProperties.getPools();
+        if (poolProperties.isEnabled()) {
+            pools.put(
+                    Workload.INGESTION,
+                    workloadPool(
+                            dataSourceProperties,
+                            environment,
+                            Workload.INGESTION,
+                            poolProperties.getIngestion()));
+            pools.put(
+                    Workload.BULK,
+                    workloadPool(
+                            dataSourceProperties,
+                            environment,
+                            Workload.BULK,
+                            poolProperties.getBulk()));
+            pools.put(
+                    Workload.ANALYTICS,
+                    workloadPool(
+                            dataSourceProperties,
+                            environment,
+                            Workload.ANALYTICS,
+                            poolProperties.getAnalytics()));
+        }
+
+        ApplicationProperties.Replicas properties = applicationProperties.getReplicas();
+        List<HikariDataSource> replicas = new ArrayList<>();
+        if (properties.isEnabled()) {
+            for (String url : properties.getUrls()) {
+                HikariDataSource replica =
+                        pool(dataSourceProperties, environment, "replica-" + replicas.size());
+                replica.setJdbcUrl(url);
+                replica.setUsername(
+                        StringUtils.hasText(properties.getUsername())
+                                ? properties.getUsername()
+                                : dataSourceProperties.determineUsername());
+                replica.setPassword(
+                        StringUtils.hasText(properties.getUsername())
+                                ? properties.getPassword()
+                                : dataSourceProperties.determinePassword());
+                replica.setMaximumPoolSize(properties.getMaxPoolSize());
+                replica.setReadOnly(true);
+                replicas.add(replica);
+            }
+        }
+
+        routingDataSource =
+                new RoutingDataSource(
+                        pools,
+                        replicas,
+                        properties.getLagQuery(),
+                        properties.getMaxLag(),
+                        properties.getCheckInterval());
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    // Takes the DataSource so it is created after the pools
+    @Bean
+    public MeterBinder routingDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            routingDataSource.bindTo(registry);
+            if (LoggerFactory.getILoggerFactory() instanceof LoggerContext loggerContext) {
+                ConnectionLeakCounter leakCounter =
+                        new ConnectionLeakCounter(
+                                Counter.builder("hikaricp.connections.leaks")
+                                        .description(
+                                                "Connections held longer than the pool's leak-detection-threshold")
+                                        .register(registry));
+                loggerContext.addTurboFilter(leakCounter);
+                leakCounters.add(leakCounter);
+            }
+        };
+    }
+
+    private static HikariDataSource primaryPool(
+            DataSourceProperties dataSourceProperties, Environment environment, Workload workload) {
+        HikariDataSource pool = pool(dataSourceProperties, environment, workload.poolName());
+        pool.setJdbcUrl(dataSourceProperties.determineUrl());
+        pool.setUsername(dataSourceProperties.determineUsername());
+        pool.setPassword(dataSourceProperties.determinePassword());
+        return pool;
+    }
+
+    // Workload pools keep a single idle connection, they are sized for their peaks
+    private static HikariDataSource workloadPool(
+            DataSourceProperties dataSourceProperties,
+            Environment environment,
+            Workload workload,
+            ApplicationProperties.Pool properties) {
+        HikariDataSource pool = primaryPool(dataSourceProperties, environment, workload);
+        pool.setMaximumPoolSize(properties.getMaxPoolSize());
+        pool.setMinimumIdle(1);
+        pool.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        pool.setLeakDetectionThreshold(properties.getLeakDetectionThreshold().toMillis());
+        return pool;
+    }
+
+    private static HikariDataSource pool(
+            DataSourceProperties dataSourceProperties, Environment environment, String name) {
+        HikariDataSource pool = new HikariDataSource();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pool.setPoolName(name);
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext loggerContext) {
+            loggerContext.getTurboFilterList().removeAll(leakCounters);
+        }
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.unconv.spring.config.datasource;
+
+import java.util.Locale;
+
+public enum Workload {
+    // Everything not marked otherwise, on spring.datasource.hikari.*
+    DEFAULT,
+    // Short writes of single readings and batches, latency sensitive
+    INGESTION,
+    // Long transactions such as CSV uploads, exports and archiving
+    BULK,
+    // Scans for averages and aggregates
+    ANALYTICS;
+
+    public String poolName() {
+        return this == DEFAULT ? "primary" : name().toLowerCase(Locale.ROOT);
+    }
+}
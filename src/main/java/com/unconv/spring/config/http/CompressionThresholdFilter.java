@@ -0,0 +1,44 @@
+package com.unconv.spring.config.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Tomcat decides on compression when a response is committed and only applies
+// server.compression.min-response-size if the length is known by then. Message converters
+// flush right after writing, which committed every response without a length, so even a few
+// bytes were gzipped. Their flushes of compressible responses are now skipped until the response
+// buffer fills, and Tomcat sets the length of any response that fits into it
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    private final List<MimeType> compressibleMimeTypes = new ArrayList<>();
+
+    public CompressionThresholdFilter(ServerProperties serverProperties) {
+        for (String mimeType : serverProperties.getCompression().getMimeTypes()) {
+            compressibleMimeTypes.add(MimeTypeUtils.parseMimeType(mimeType));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(
+                request, new DeferredFlushResponseWrapper(response, compressibleMimeTypes));
+    }
+}
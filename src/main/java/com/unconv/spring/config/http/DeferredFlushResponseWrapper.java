@@ -0,0 +1,97 @@
+package com.unconv.spring.config.http;
+
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+// Ignores flushes of the output stream, which message converters call after writing, while the
+// response is uncommitted, of a compressible type and not already encoded by the application.
+// An explicit flushBuffer always commits the response. Streamed responses still go out whenever
+// the buffer fills, and the reading stream is not compressible so its events are flushed as
+// before
+class DeferredFlushResponseWrapper extends HttpServletResponseWrapper {
+
+    private final List<MimeType> compressibleMimeTypes;
+
+    private ServletOutputStream outputStream;
+
+    DeferredFlushResponseWrapper(
+            HttpServletResponse response, List<MimeType> compressibleMimeTypes) {
+        super(response);
+        this.compressibleMimeTypes = compressibleMimeTypes;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new DeferredFlushOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    private boolean deferFlush() {
+        String contentType = getContentType();
+        if (isCommitted() || contentType == null || containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        try {
+            MimeType mimeType = MimeTypeUtils.parseMimeType(contentType);
+            for (MimeType compressibleMimeType : compressibleMimeTypes) {
+                if (compressibleMimeType.equalsTypeAndSubtype(mimeType)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+        return false;
+    }
+
+    private class DeferredFlushOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        DeferredFlushOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!deferFlush()) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
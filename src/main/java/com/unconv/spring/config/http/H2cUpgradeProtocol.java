@@ -0,0 +1,18 @@
+package com.unconv.spring.config.http;
+
+import org.apache.coyote.Request;
+import org.apache.coyote.http2.Http2Protocol;
+
+// Tomcat keeps the body of a request that upgrades to h2c in maxSavePostSize (4 KB) and answers
+// 413 once it is larger. Java's HttpClient asks for the upgrade on the first request of every
+// connection, so a bulk upload opening one was refused. Requests with a body stay on HTTP/1.1
+// and the connection upgrades with the next one without
+class H2cUpgradeProtocol extends Http2Protocol {
+
+    @Override
+    public boolean accept(Request request) {
+        return request.getContentLengthLong() <= 0
+                && request.getHeader("transfer-encoding") == null
+                && super.accept(request);
+    }
+}
@@ -0,0 +1,36 @@
+package com.unconv.spring.config.http;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// HTTP/2 next to HTTP/1.1 on the same connector: h2 over TLS, h2c with prior knowledge or by
+// upgrading a request without a body. Used instead of server.http2.enabled, whose protocol also
+// upgrades requests with a body. Tomcat compresses HTTP/2 responses with its own settings, so
+// server.compression is copied onto it
+@Configuration
+@ConditionalOnProperty(name = "application.http2.enabled", havingValue = "true")
+public class Http2Config {
+
+    @Bean
+    public TomcatConnectorCustomizer http2ConnectorCustomizer(ServerProperties serverProperties) {
+        return connector -> {
+            H2cUpgradeProtocol http2Protocol = new H2cUpgradeProtocol();
+            Compression compression = serverProperties.getCompression();
+            if (compression.getEnabled()) {
+                http2Protocol.setCompression("on");
+                http2Protocol.setCompressionMinSize(
+                        (int) compression.getMinResponseSize().toBytes());
+                http2Protocol.setCompressibleMimeType(String.join(",", compression.getMimeTypes()));
+                if (compression.getExcludedUserAgents() != null) {
+                    http2Protocol.setNoCompressionUserAgents(
+                            String.join(",", compression.getExcludedUserAgents()));
+                }
+            }
+            connector.addUpgradeProtocol(http2Protocol);
+        };
+    }
+}
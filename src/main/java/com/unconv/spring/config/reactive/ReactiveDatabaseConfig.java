@@ -0,0 +1,51 @@
+package com.unconv.spring.config.reactive;
+
+import com.unconv.spring.config.ApplicationProperties;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import javax.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+// Non-blocking connections for the reactive reading endpoints, pooled separately from Hikari.
+// application.reactive.url has to point at the database of spring.datasource.url. The pool is
+// not a bean: a ConnectionFactory bean makes Spring Boot back off from creating the DataSource
+@Configuration
+@ConditionalOnProperty(name = "application.reactive.enabled", havingValue = "true")
+public class ReactiveDatabaseConfig {
+
+    private final ConnectionPool connectionPool;
+
+    public ReactiveDatabaseConfig(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Reactive properties = applicationProperties.getReactive();
+        ConnectionFactoryOptions.Builder options =
+                ConnectionFactoryOptions.parse(properties.getUrl()).mutate();
+        if (properties.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, properties.getUsername());
+        }
+        if (properties.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        }
+        this.connectionPool =
+                new ConnectionPool(
+                        ConnectionPoolConfiguration.builder(
+                                        ConnectionFactories.get(options.build()))
+                                .name("reactive")
+                                .maxSize(properties.getMaxPoolSize())
+                                .build());
+    }
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionPool.dispose();
+    }
+}
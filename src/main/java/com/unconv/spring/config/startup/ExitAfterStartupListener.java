@@ -0,0 +1,22 @@
+package com.unconv.spring.config.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+// Used for the AppCDS training run in the Docker build, which only needs the classes loaded
+// during startup and must then terminate so the JVM can dump the archive
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.startup.exit-after-ready", havingValue = "true")
+public class ExitAfterStartupListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("Startup completed, exiting as requested by application.startup.exit-after-ready");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
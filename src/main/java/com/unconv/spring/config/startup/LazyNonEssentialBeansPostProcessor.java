@@ -0,0 +1,73 @@
+package com.unconv.spring.config.startup;
+
+import com.unconv.spring.config.ApplicationProperties;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class LazyNonEssentialBeansPostProcessor
+        implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private List<String> lazyPackages = List.of();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        // Runs before configuration properties beans exist, so bind the settings directly
+        this.lazyPackages =
+                Binder.get(environment)
+                        .bind("application.startup", ApplicationProperties.Startup.class)
+                        .orElseGet(ApplicationProperties.Startup::new)
+                        .getLazyPackages();
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory)
+            throws BeansException {
+        if (lazyPackages.isEmpty()) {
+            return;
+        }
+        int lazyBeans = 0;
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            // Beans declaring @Lazy(false) have to exist at startup, e.g. resource handlers
+            if (beanDefinition instanceof AbstractBeanDefinition abstractBeanDefinition
+                    && abstractBeanDefinition.getLazyInit() == null
+                    && isInLazyPackage(beanDefinition)) {
+                beanDefinition.setLazyInit(true);
+                lazyBeans++;
+            }
+        }
+        log.debug("Marked {} beans from {} for lazy initialization", lazyBeans, lazyPackages);
+    }
+
+    private boolean isInLazyPackage(BeanDefinition beanDefinition) {
+        String className = beanDefinition.getBeanClassName();
+        if (beanDefinition instanceof AnnotatedBeanDefinition annotatedBeanDefinition) {
+            MethodMetadata factoryMethod = annotatedBeanDefinition.getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                className = factoryMethod.getDeclaringClassName();
+            }
+        }
+        if (className == null) {
+            return false;
+        }
+        for (String lazyPackage : lazyPackages) {
+            if (className.startsWith(lazyPackage + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
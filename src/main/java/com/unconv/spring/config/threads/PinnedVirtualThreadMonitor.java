@@ -0,0 +1,62 @@
+package com.unconv.spring.config.threads;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+// Reports virtual threads that stayed pinned to their carrier for at least the threshold, e.g.
+// by blocking inside a synchronized block. Uses the JFR event the JDK emits for this, so
+// nothing is reported on JDKs without virtual threads
+@Slf4j
+class PinnedVirtualThreadMonitor implements AutoCloseable {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int LOGGED_FRAMES = 8;
+
+    private final RecordingStream recordingStream = new RecordingStream();
+
+    private final Counter pinnedThreads;
+
+    PinnedVirtualThreadMonitor(Duration threshold, MeterRegistry meterRegistry) {
+        this.pinnedThreads =
+                Counter.builder("threads.virtual.pinned")
+                        .description(
+                                "Virtual threads pinned to their carrier for at least the"
+                                        + " threshold")
+                        .register(meterRegistry);
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedThreads.increment();
+        List<RecordedFrame> frames =
+                event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        log.warn(
+                "Virtual thread pinned for {} ms at\n\t{}",
+                event.getDuration().toMillis(),
+                frames.stream()
+                        .limit(LOGGED_FRAMES)
+                        .map(
+                                frame ->
+                                        frame.getMethod().getType().getName()
+                                                + "."
+                                                + frame.getMethod().getName()
+                                                + ":"
+                                                + frame.getLineNumber())
+                        .collect(Collectors.joining("\n\t")));
+    }
+
+    @Override
+    public void close() {
+        recordingStream.close();
+    }
+}
@@ -0,0 +1,70 @@
+package com.unconv.spring.config.threads;
+
+import com.unconv.spring.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Serves requests, and the async parts of streamed responses, on one virtual thread each. The
+// number of requests waiting on JDBC is then bounded by the Hikari pool instead of
+// server.tomcat.threads.max. Falls back to Tomcat's platform threads on JDKs without virtual
+// threads
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "application.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private final ExecutorService virtualThreadExecutor;
+
+    private final PinnedVirtualThreadMonitor pinnedVirtualThreadMonitor;
+
+    public VirtualThreadConfig(
+            ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.virtualThreadExecutor =
+                VirtualThreads.newThreadPerTaskExecutor("http-virtual-").orElse(null);
+        if (virtualThreadExecutor == null) {
+            log.warn(
+                    "application.threads.virtual is set, but Java {} has no virtual threads."
+                            + " Requests are served on platform threads",
+                    Runtime.version());
+            this.pinnedVirtualThreadMonitor = null;
+            return;
+        }
+        log.info("Serving requests on virtual threads");
+        this.pinnedVirtualThreadMonitor =
+                new PinnedVirtualThreadMonitor(
+                        applicationProperties.getThreads().getPinnedThreshold(), meterRegistry);
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtualThreadExecutor != null) {
+                protocolHandler.setExecutor(virtualThreadExecutor);
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (virtualThreadExecutor != null) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+            pinnedVirtualThreadMonitor.close();
+        }
+    }
+}
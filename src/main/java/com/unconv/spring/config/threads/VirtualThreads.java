@@ -0,0 +1,41 @@
+package com.unconv.spring.config.threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+// The build targets a JDK without virtual threads, so they are only reached through reflection.
+// Empty on JDKs before 21, and on 19 and 20 unless preview features are enabled
+@Slf4j
+public final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder =
+                    builderType
+                            .getMethod("name", String.class, long.class)
+                            .invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory =
+                    (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return Optional.of(
+                    (ExecutorService)
+                            Executors.class
+                                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                                    .invoke(null, threadFactory));
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            log.debug("Virtual threads are not available on Java {}", Runtime.version());
+        } catch (InvocationTargetException e) {
+            log.debug("Virtual threads could not be created", e.getCause());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Virtual threads could not be created", e);
+        }
+        return Optional.empty();
+    }
+}
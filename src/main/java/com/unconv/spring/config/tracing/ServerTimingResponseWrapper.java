@@ -0,0 +1,70 @@
+package com.unconv.spring.config.tracing;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+// Adds the Server-Timing header right before the body is first written, which is after the
+// controller, service and repository spans have finished but before the response is committed
+class ServerTimingResponseWrapper extends HttpServletResponseWrapper {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final Trace trace;
+
+    private boolean headerWritten;
+
+    ServerTimingResponseWrapper(HttpServletResponse response, Trace trace) {
+        super(response);
+        this.trace = trace;
+    }
+
+    void writeServerTimingHeader() {
+        if (headerWritten || isCommitted()) {
+            return;
+        }
+        headerWritten = true;
+        String serverTiming = trace.toServerTiming();
+        if (!serverTiming.isEmpty()) {
+            setHeader(SERVER_TIMING_HEADER, serverTiming);
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        writeServerTimingHeader();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        writeServerTimingHeader();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        writeServerTimingHeader();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        writeServerTimingHeader();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        writeServerTimingHeader();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        writeServerTimingHeader();
+        super.sendRedirect(location);
+    }
+}
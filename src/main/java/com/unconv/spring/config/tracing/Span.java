@@ -0,0 +1,63 @@
+package com.unconv.spring.config.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+
+@Getter
+public class Span implements AutoCloseable {
+
+    static final Span NOOP = new Span(null, null, null, null, null);
+
+    private final Trace trace;
+
+    private final String id;
+
+    private final String parentId;
+
+    private final String name;
+
+    private final SpanLayer layer;
+
+    private final long startEpochMicros;
+
+    private final long startNanos;
+
+    private final Map<String, String> tags = new LinkedHashMap<>();
+
+    private long durationNanos = -1;
+
+    Span(Trace trace, String id, String parentId, String name, SpanLayer layer) {
+        this.trace = trace;
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.layer = layer;
+        this.startEpochMicros = System.currentTimeMillis() * 1000;
+        this.startNanos = System.nanoTime();
+    }
+
+    public Span tag(String key, String value) {
+        if (trace != null && value != null) {
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    public boolean isFinished() {
+        return durationNanos >= 0;
+    }
+
+    public long getDurationMicros() {
+        return durationNanos / 1000;
+    }
+
+    @Override
+    public void close() {
+        if (trace == null || isFinished()) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        trace.finish(this);
+    }
+}
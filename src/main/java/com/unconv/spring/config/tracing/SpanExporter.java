@@ -0,0 +1,8 @@
+package com.unconv.spring.config.tracing;
+
+import java.util.List;
+
+public interface SpanExporter {
+
+    void export(Trace trace, List<Span> spans);
+}
@@ -0,0 +1,19 @@
+package com.unconv.spring.config.tracing;
+
+public enum SpanLayer {
+    HTTP("http"),
+    FILTER("filter"),
+    CONTROLLER("controller"),
+    SERVICE("service"),
+    REPOSITORY("repository");
+
+    private final String metricName;
+
+    SpanLayer(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
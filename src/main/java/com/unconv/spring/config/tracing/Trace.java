@@ -0,0 +1,90 @@
+package com.unconv.spring.config.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class Trace {
+
+    private final String traceId;
+
+    private final String remoteParentId;
+
+    private final Deque<Span> activeSpans = new ArrayDeque<>();
+
+    private final List<Span> finishedSpans = new ArrayList<>();
+
+    Trace(String traceId, String remoteParentId) {
+        this.traceId = traceId != null ? traceId : newTraceId();
+        this.remoteParentId = remoteParentId;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public List<Span> getFinishedSpans() {
+        return Collections.unmodifiableList(finishedSpans);
+    }
+
+    Span start(String name, SpanLayer layer) {
+        Span parent = activeSpans.peek();
+        String parentId = parent != null ? parent.getId() : remoteParentId;
+        Span span = new Span(this, newSpanId(), parentId, name, layer);
+        activeSpans.push(span);
+        return span;
+    }
+
+    void finish(Span span) {
+        // Spans are closed in LIFO order by try-with-resources, so remove is a cheap pop
+        activeSpans.remove(span);
+        finishedSpans.add(span);
+    }
+
+    // Each layer reports its exclusive time, so the entries add up to the request time so far
+    public String toServerTiming() {
+        Map<String, Long> childNanos = new HashMap<>();
+        for (Span span : finishedSpans) {
+            if (span.getParentId() != null) {
+                childNanos.merge(span.getParentId(), span.getDurationNanos(), Long::sum);
+            }
+        }
+
+        Map<SpanLayer, Long> selfNanosByLayer = new EnumMap<>(SpanLayer.class);
+        Map<SpanLayer, Integer> countByLayer = new EnumMap<>(SpanLayer.class);
+        for (Span span : finishedSpans) {
+            long selfNanos = span.getDurationNanos() - childNanos.getOrDefault(span.getId(), 0L);
+            selfNanosByLayer.merge(span.getLayer(), Math.max(selfNanos, 0L), Long::sum);
+            countByLayer.merge(span.getLayer(), 1, Integer::sum);
+        }
+
+        StringJoiner serverTiming = new StringJoiner(", ");
+        selfNanosByLayer.forEach(
+                (layer, nanos) ->
+                        serverTiming.add(
+                                String.format(
+                                        Locale.ROOT,
+                                        "%s;dur=%.2f;desc=\"%d spans\"",
+                                        layer.getMetricName(),
+                                        nanos / 1_000_000.0,
+                                        countByLayer.get(layer))));
+        return serverTiming.toString();
+    }
+
+    private static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+
+    private static String newSpanId() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+}
@@ -0,0 +1,33 @@
+package com.unconv.spring.config.tracing;
+
+public final class Tracer {
+
+    private static final ThreadLocal<Trace> CURRENT_TRACE = new ThreadLocal<>();
+
+    private Tracer() {
+        // Utility class
+    }
+
+    public static Trace begin(String traceId, String remoteParentId) {
+        Trace trace = new Trace(traceId, remoteParentId);
+        CURRENT_TRACE.set(trace);
+        return trace;
+    }
+
+    public static Trace current() {
+        return CURRENT_TRACE.get();
+    }
+
+    public static void end() {
+        CURRENT_TRACE.remove();
+    }
+
+    // Outside of a traced request a shared no-op span is returned
+    public static Span startSpan(String name, SpanLayer layer) {
+        Trace trace = CURRENT_TRACE.get();
+        if (trace == null) {
+            return Span.NOOP;
+        }
+        return trace.start(name, layer);
+    }
+}
@@ -0,0 +1,69 @@
+package com.unconv.spring.config.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "application.tracing.enabled", havingValue = "true")
+public class TracingAspect {
+
+    @Pointcut("within(@org.springframework.web.bind.annotation.RestController *)")
+    public void controllerPointcut() {
+        // pointcut definition
+    }
+
+    @Pointcut("within(@org.springframework.stereotype.Service *)")
+    public void servicePointcut() {
+        // pointcut definition
+    }
+
+    @Pointcut("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public void repositoryPointcut() {
+        // pointcut definition
+    }
+
+    @Around("controllerPointcut()")
+    public Object traceController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return proceedInSpan(joinPoint, SpanLayer.CONTROLLER);
+    }
+
+    @Around("servicePointcut()")
+    public Object traceService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return proceedInSpan(joinPoint, SpanLayer.SERVICE);
+    }
+
+    @Around("repositoryPointcut()")
+    public Object traceRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return proceedInSpan(joinPoint, SpanLayer.REPOSITORY);
+    }
+
+    private Object proceedInSpan(ProceedingJoinPoint joinPoint, SpanLayer layer) throws Throwable {
+        if (Tracer.current() == null) {
+            return joinPoint.proceed();
+        }
+        // Spring Data methods are declared on CrudRepository and friends, so name repository
+        // spans after the application interface the proxy implements
+        Class<?> spanType =
+                layer == SpanLayer.REPOSITORY
+                        ? AopProxyUtils.proxiedUserInterfaces(joinPoint.getThis())[0]
+                        : joinPoint.getSignature().getDeclaringType();
+        String spanName = spanType.getSimpleName() + "." + joinPoint.getSignature().getName();
+        try (Span span = Tracer.startSpan(spanName, layer)) {
+            try {
+                return joinPoint.proceed();
+            } catch (Throwable e) {
+                span.tag("error", e.getClass().getSimpleName());
+                throw e;
+            }
+        }
+    }
+}
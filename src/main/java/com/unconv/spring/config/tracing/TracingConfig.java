@@ -0,0 +1,18 @@
+package com.unconv.spring.config.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "application.tracing.enabled", havingValue = "true")
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SpanExporter spanExporter(@Value("${spring.application.name}") String serviceName) {
+        return new ZipkinLoggingSpanExporter(serviceName);
+    }
+}
@@ -0,0 +1,73 @@
+package com.unconv.spring.config.tracing;
+
+import com.unconv.spring.config.ApplicationProperties;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "application.tracing.enabled", havingValue = "true")
+public class TracingFilter extends OncePerRequestFilter {
+
+    static final String TRACEPARENT_HEADER = "traceparent";
+
+    private final ApplicationProperties properties;
+
+    private final SpanExporter spanExporter;
+
+    public TracingFilter(ApplicationProperties properties, SpanExporter spanExporter) {
+        this.properties = properties;
+        this.spanExporter = spanExporter;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String[] traceparent = parseTraceparent(request.getHeader(TRACEPARENT_HEADER));
+        Trace trace = Tracer.begin(traceparent[0], traceparent[1]);
+
+        ServerTimingResponseWrapper responseWrapper = null;
+        HttpServletResponse tracedResponse = response;
+        if (properties.getTracing().isServerTiming()) {
+            responseWrapper = new ServerTimingResponseWrapper(response, trace);
+            tracedResponse = responseWrapper;
+        }
+
+        Span rootSpan =
+                Tracer.startSpan(
+                        request.getMethod() + " " + request.getRequestURI(), SpanLayer.HTTP);
+        try {
+            filterChain.doFilter(request, tracedResponse);
+        } finally {
+            if (responseWrapper != null) {
+                responseWrapper.writeServerTimingHeader();
+            }
+            rootSpan.tag("http.status_code", String.valueOf(response.getStatus()));
+            rootSpan.close();
+            Tracer.end();
+            List<Span> spans = trace.getFinishedSpans();
+            spanExporter.export(trace, spans);
+        }
+    }
+
+    // W3C trace context: version-traceid-parentid-flags
+    private String[] parseTraceparent(String header) {
+        if (header != null) {
+            String[] parts = header.trim().split("-");
+            if (parts.length == 4 && parts[1].length() == 32 && parts[2].length() == 16) {
+                return new String[] {parts[1], parts[2]};
+            }
+        }
+        return new String[] {null, null};
+    }
+}
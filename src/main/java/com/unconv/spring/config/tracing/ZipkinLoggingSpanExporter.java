@@ -0,0 +1,64 @@
+package com.unconv.spring.config.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Writes each finished trace as a Zipkin v2 JSON array to a dedicated logger, which stands in
+// for a collector until one is deployed
+public class ZipkinLoggingSpanExporter implements SpanExporter {
+
+    public static final String LOGGER_NAME = "com.unconv.spring.tracing.spans";
+
+    private final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, String> localEndpoint;
+
+    public ZipkinLoggingSpanExporter(String serviceName) {
+        this.localEndpoint = Map.of("serviceName", serviceName);
+    }
+
+    @Override
+    public void export(Trace trace, List<Span> spans) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        List<Map<String, Object>> zipkinSpans = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            zipkinSpans.add(toZipkinSpan(trace, span));
+        }
+        try {
+            log.info(objectMapper.writeValueAsString(zipkinSpans));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not export trace {}", trace.getTraceId(), e);
+        }
+    }
+
+    private Map<String, Object> toZipkinSpan(Trace trace, Span span) {
+        Map<String, Object> zipkinSpan = new LinkedHashMap<>();
+        zipkinSpan.put("traceId", trace.getTraceId());
+        zipkinSpan.put("id", span.getId());
+        if (span.getParentId() != null) {
+            zipkinSpan.put("parentId", span.getParentId());
+        }
+        zipkinSpan.put("name", span.getName());
+        if (span.getLayer() == SpanLayer.HTTP) {
+            zipkinSpan.put("kind", "SERVER");
+        }
+        zipkinSpan.put("timestamp", span.getStartEpochMicros());
+        zipkinSpan.put("duration", Math.max(span.getDurationMicros(), 1L));
+        zipkinSpan.put("localEndpoint", localEndpoint);
+
+        Map<String, String> tags = new LinkedHashMap<>(span.getTags());
+        tags.put("layer", span.getLayer().getMetricName());
+        zipkinSpan.put("tags", tags);
+        return zipkinSpan;
+    }
+}
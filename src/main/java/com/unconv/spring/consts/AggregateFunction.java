@@ -0,0 +1,9 @@
+package com.unconv.spring.consts;
+
+public enum AggregateFunction {
+    AVG,
+    MIN,
+    MAX,
+    COUNT,
+    LAST,
+}
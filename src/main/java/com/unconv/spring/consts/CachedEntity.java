@@ -0,0 +1,16 @@
+package com.unconv.spring.consts;
+
+// Entities whose changes are announced on the cache invalidation bus. SENSOR_READINGS carries
+// the id of the sensor whose readings were changed or deleted, SENSOR_READINGS_ADDED that of a
+// sensor that only got new readings, which the writing node has already applied to its caches
+public enum CachedEntity {
+    SENSOR_SYSTEM,
+    SENSOR_READINGS,
+    SENSOR_READINGS_ADDED,
+    SENSOR_LOCATION,
+    UNCONV_USER,
+    UNCONV_ROLE,
+    FRUIT,
+    OFFER,
+    HEATER
+}
@@ -0,0 +1,7 @@
+package com.unconv.spring.consts;
+
+public enum IngestMode {
+    SYNC,
+    DURABLE,
+    BEST_EFFORT,
+}
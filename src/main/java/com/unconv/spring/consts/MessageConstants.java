@@ -12,11 +12,22 @@ public final class MessageConstants {
     public static final String ENVT_RECORD_REJ_SENS = "Unknown SensorSystem on request";
     public static final String ENVT_RECORD_REJ_DLTD = "Invalid Sensor system on request";
     public static final String ENVT_RECORD_REJ_INAT = "Inactive sensor system on request";
+    public static final String ENVT_RECORD_QUEUED = "Record queued for writing";
+    public static final String ENVT_RECORD_REJ_BUSY = "Ingestion queue is full, retry later";
+    public static final String ENVT_RECORD_REJ_WRITE = "Record could not be written, retry later";
+    // Marks a 202 whose reading is queued but not yet confirmed as written
+    public static final String ENVT_RECORD_STATUS_HEADER = "Ingest-Status";
+    public static final String ENVT_RECORD_STATUS_QUEUED = "queued";
 
     public static final String ENVT_FILE_REJ_ERR = "Could not upload the file: %s!";
     public static final String ENVT_FILE_FORMAT_ERROR = "Please upload a csv file!";
+    public static final String ENVT_CSV_REJ_ERR = "Could not upload the csv!";
+    public static final String ENVT_CSV_REJ_SIZE = "The csv exceeds the upload limit of %s!";
+    public static final String ENVT_CSV_REJ_ENCODING = "Unsupported Content-Encoding: %s!";
 
     public static final String ENVT_VALID_SENSOR_SYSTEM = "Sensor system cannot be empty";
+    public static final String ENVT_VALID_SENSOR_SYSTEM_REFERENCE =
+            "Exactly one of sensorSystem and sensorSystemId must name the sensor system";
 
     // Unconv user
     public static final String USER_NAME_IN_USE = "Username already taken";
@@ -0,0 +1,6 @@
+package com.unconv.spring.consts;
+
+public enum ReadingMetric {
+    TEMPERATURE,
+    HUMIDITY,
+}
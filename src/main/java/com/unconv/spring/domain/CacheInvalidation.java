@@ -0,0 +1,44 @@
+package com.unconv.spring.domain;
+
+import com.unconv.spring.consts.CachedEntity;
+import java.time.OffsetDateTime;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// An entity change written by the jdbc invalidation transport in the transaction of the change
+// and polled by every node
+@Entity
+@Table(name = "cache_invalidations")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private CachedEntity entity;
+
+    @Column(nullable = false, length = 64)
+    private String entityId;
+
+    @Column(nullable = false, length = 36)
+    private String origin;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+}
@@ -9,6 +9,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -21,7 +22,12 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "environmental_readings")
+@Table(
+        name = "environmental_readings",
+        indexes =
+                @Index(
+                        name = "idx_environmental_readings_sensor_timestamp",
+                        columnList = "sensor_id, timestamp"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,54 @@
+package com.unconv.spring.domain;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// The readings of one sensor for one UTC day, moved out of environmental_readings and encoded
+// by ReadingBlockCodec
+@Entity
+@Table(
+        name = "environmental_reading_archives",
+        uniqueConstraints =
+                @UniqueConstraint(
+                        name = "uk_environmental_reading_archives_sensor_day",
+                        columnNames = {"sensor_id", "archive_day"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvironmentalReadingArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "id", columnDefinition = "BINARY(16)")
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sensor_id")
+    private SensorSystem sensorSystem;
+
+    @Column(name = "archive_day", nullable = false)
+    private LocalDate archiveDay;
+
+    @Column(nullable = false)
+    private int readingCount;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] block;
+}
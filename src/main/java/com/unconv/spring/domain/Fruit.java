@@ -1,5 +1,6 @@
 package com.unconv.spring.domain;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -11,9 +12,15 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.URL;
 
 @Entity
+@Cacheable
+@BatchSize(size = 25)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "fruits")
 @Table(name = "fruits")
 @Getter
 @Setter
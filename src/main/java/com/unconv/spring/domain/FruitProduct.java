@@ -15,6 +15,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 @Entity
 @Table(name = "fruit_products")
@@ -32,6 +34,9 @@ public class FruitProduct {
     @NotNull(message = "Cost price cannot be empty")
     private float costPrice;
 
+    // Fruits and offers are loaded by id so the second-level cache can answer, the ones it misses
+    // are selected 25 at a time (@BatchSize on Fruit and Offer)
+    @Fetch(FetchMode.SELECT)
     @ManyToOne(
             optional = false,
             fetch = FetchType.EAGER,
@@ -40,6 +45,7 @@ public class FruitProduct {
     @NotNull(message = "Fruit cannot be empty")
     private Fruit fruit;
 
+    @Fetch(FetchMode.SELECT)
     @ManyToOne(
             fetch = FetchType.EAGER,
             cascade = {CascadeType.MERGE, CascadeType.REFRESH})
@@ -1,5 +1,6 @@
 package com.unconv.spring.domain;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -12,8 +13,14 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@BatchSize(size = 25)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "offers")
 @Table(name = "offers")
 @Getter
 @Setter
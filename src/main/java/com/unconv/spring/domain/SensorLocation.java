@@ -2,6 +2,7 @@ package com.unconv.spring.domain;
 
 import com.unconv.spring.consts.SensorLocationType;
 import java.util.UUID;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
@@ -18,8 +19,14 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@BatchSize(size = 25)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sensor-locations")
 @Table(name = "sensor_locations")
 @Getter
 @Setter
@@ -20,6 +20,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 @Entity
 @Table(name = "sensor_systems")
@@ -63,6 +65,9 @@ public class SensorSystem {
     @NotNull(message = "Sensor status cannot be null")
     private SensorStatus sensorStatus;
 
+    // Loaded by id so the second-level cache can answer, locations it misses are selected 25 at a
+    // time (@BatchSize on SensorLocation) instead of one per sensor
+    @Fetch(FetchMode.SELECT)
     @ManyToOne(
             fetch = FetchType.EAGER,
             cascade = {CascadeType.MERGE, CascadeType.REFRESH})
@@ -1,16 +1,18 @@
 package com.unconv.spring.dto;
 
-import static com.unconv.spring.consts.MessageConstants.ENVT_VALID_SENSOR_SYSTEM;
+import static com.unconv.spring.consts.MessageConstants.ENVT_VALID_SENSOR_SYSTEM_REFERENCE;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.unconv.spring.domain.SensorSystem;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.UUID;
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -18,7 +20,6 @@ import lombok.Setter;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class EnvironmentalReadingDTO {
     private UUID id;
 
@@ -34,9 +35,52 @@ public class EnvironmentalReadingDTO {
 
     private OffsetDateTime timestamp;
 
-    @NotNull(message = ENVT_VALID_SENSOR_SYSTEM)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private SensorSystem sensorSystem;
 
+    // Sensors may refer to themselves by id instead of sending the whole sensor system, which is
+    // all ingestion reads from it. The reading is then written back with the id as well
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private UUID sensorSystemId;
+
+    public EnvironmentalReadingDTO(
+            UUID id,
+            double temperature,
+            double humidity,
+            OffsetDateTime timestamp,
+            SensorSystem sensorSystem) {
+        this.id = id;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.timestamp = timestamp;
+        this.sensorSystem = sensorSystem;
+    }
+
+    // Either names the sensor, never both and never without an id
+    @JsonIgnore
+    @AssertTrue(message = ENVT_VALID_SENSOR_SYSTEM_REFERENCE)
+    public boolean isSensorSystemReferencedOnce() {
+        if (sensorSystem == null) {
+            return sensorSystemId != null;
+        }
+        return sensorSystemId == null && sensorSystem.getId() != null;
+    }
+
+    @JsonIgnore
+    public UUID getReferencedSensorSystemId() {
+        return sensorSystem == null ? sensorSystemId : sensorSystem.getId();
+    }
+
+    @JsonIgnore
+    public SensorSystem getReferencedSensorSystem() {
+        if (sensorSystem != null || sensorSystemId == null) {
+            return sensorSystem;
+        }
+        SensorSystem referencedSensorSystem = new SensorSystem();
+        referencedSensorSystem.setId(sensorSystemId);
+        return referencedSensorSystem;
+    }
+
     public void setTimestamp() {
         this.timestamp = OffsetDateTime.of(LocalDateTime.now(), ZoneOffset.UTC);
     }
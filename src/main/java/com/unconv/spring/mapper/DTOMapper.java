@@ -0,0 +1,96 @@
+package com.unconv.spring.mapper;
+
+import com.unconv.spring.domain.Booking;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.Fruit;
+import com.unconv.spring.domain.FruitProduct;
+import com.unconv.spring.domain.Heater;
+import com.unconv.spring.domain.Offer;
+import com.unconv.spring.domain.OrderProduct;
+import com.unconv.spring.domain.Passenger;
+import com.unconv.spring.domain.Route;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.domain.UnconvRole;
+import com.unconv.spring.domain.UnconvUser;
+import com.unconv.spring.dto.BookingDTO;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.dto.FruitDTO;
+import com.unconv.spring.dto.FruitProductDTO;
+import com.unconv.spring.dto.HeaterDTO;
+import com.unconv.spring.dto.OfferDTO;
+import com.unconv.spring.dto.OrderProductDTO;
+import com.unconv.spring.dto.PassengerDTO;
+import com.unconv.spring.dto.RouteDTO;
+import com.unconv.spring.dto.SensorLocationDTO;
+import com.unconv.spring.dto.SensorSystemDTO;
+import com.unconv.spring.dto.UnconvRoleDTO;
+import com.unconv.spring.dto.UnconvUserDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface DTOMapper {
+
+    Booking toBooking(BookingDTO bookingDTO);
+
+    BookingDTO toBookingDTO(Booking booking);
+
+    @Mapping(target = "sensorSystem", source = "referencedSensorSystem")
+    EnvironmentalReading toEnvironmentalReading(EnvironmentalReadingDTO environmentalReadingDTO);
+
+    @Mapping(target = "sensorSystemId", ignore = true)
+    EnvironmentalReadingDTO toEnvironmentalReadingDTO(EnvironmentalReading environmentalReading);
+
+    Fruit toFruit(FruitDTO fruitDTO);
+
+    FruitDTO toFruitDTO(Fruit fruit);
+
+    @Mapping(target = "offer", source = "offerDTO")
+    FruitProduct toFruitProduct(FruitProductDTO fruitProductDTO);
+
+    @Mapping(target = "offerDTO", source = "offer")
+    FruitProductDTO toFruitProductDTO(FruitProduct fruitProduct);
+
+    Heater toHeater(HeaterDTO heaterDTO);
+
+    HeaterDTO toHeaterDTO(Heater heater);
+
+    Offer toOffer(OfferDTO offerDTO);
+
+    OfferDTO toOfferDTO(Offer offer);
+
+    OrderProduct toOrderProduct(OrderProductDTO orderProductDTO);
+
+    OrderProductDTO toOrderProductDTO(OrderProduct orderProduct);
+
+    // age is only writable through setAge(LocalDate), which derives it from the date of birth
+    @Mapping(target = "age", source = "dateOfBirth")
+    Passenger toPassenger(PassengerDTO passengerDTO);
+
+    @Mapping(target = "age", source = "dateOfBirth")
+    PassengerDTO toPassengerDTO(Passenger passenger);
+
+    Route toRoute(RouteDTO routeDTO);
+
+    RouteDTO toRouteDTO(Route route);
+
+    SensorLocation toSensorLocation(SensorLocationDTO sensorLocationDTO);
+
+    SensorLocationDTO toSensorLocationDTO(SensorLocation sensorLocation);
+
+    SensorSystem toSensorSystem(SensorSystemDTO sensorSystemDTO);
+
+    @Mapping(target = "readingCount", ignore = true)
+    @Mapping(target = "latestReading", ignore = true)
+    SensorSystemDTO toSensorSystemDTO(SensorSystem sensorSystem);
+
+    UnconvRole toUnconvRole(UnconvRoleDTO unconvRoleDTO);
+
+    UnconvRoleDTO toUnconvRoleDTO(UnconvRole unconvRole);
+
+    UnconvUser toUnconvUser(UnconvUserDTO unconvUserDTO);
+
+    UnconvUserDTO toUnconvUserDTO(UnconvUser unconvUser);
+}
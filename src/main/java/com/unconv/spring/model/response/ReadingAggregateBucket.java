@@ -0,0 +1,10 @@
+package com.unconv.spring.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+// One entry per requested function, keyed by its lower case name
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReadingAggregateBucket(
+        OffsetDateTime start, Map<String, Number> temperature, Map<String, Number> humidity) {}
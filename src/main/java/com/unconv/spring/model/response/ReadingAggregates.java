@@ -0,0 +1,13 @@
+package com.unconv.spring.model.response;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record ReadingAggregates(
+        UUID sensorSystemId,
+        OffsetDateTime from,
+        OffsetDateTime to,
+        String interval,
+        String source,
+        List<ReadingAggregateBucket> buckets) {}
@@ -0,0 +1,7 @@
+package com.unconv.spring.model.response;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.unconv.spring.projection.SensorSystemProjection;
+
+public record SensorSystemPagedResult<T>(
+        SensorSystemProjection sensorSystem, @JsonUnwrapped PagedResult<T> page) {}
@@ -0,0 +1,12 @@
+package com.unconv.spring.model.response;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record UnconvUserReadingAggregates(
+        UUID unconvUserId,
+        OffsetDateTime from,
+        OffsetDateTime to,
+        String interval,
+        List<ReadingAggregates> sensorSystems) {}
@@ -0,0 +1,28 @@
+package com.unconv.spring.persistence;
+
+import com.unconv.spring.domain.CacheInvalidation;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.lang.Nullable;
+
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+    List<CacheInvalidation> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    List<CacheInvalidation> findByIdInOrderById(Collection<Long> ids);
+
+    @Nullable
+    @Query("SELECT MAX(ci.id) FROM CacheInvalidation ci")
+    Long findMaxId();
+
+    @Modifying
+    @Query("DELETE FROM CacheInvalidation ci WHERE ci.createdAt < :before AND ci.id < :maxId")
+    int deleteByCreatedAtBeforeAndIdLessThan(
+            @Param("before") OffsetDateTime before, @Param("maxId") Long maxId);
+}
@@ -0,0 +1,64 @@
+package com.unconv.spring.persistence;
+
+import com.unconv.spring.domain.EnvironmentalReadingArchive;
+import com.unconv.spring.projection.SensorSystemArchiveBlock;
+import com.unconv.spring.projection.SensorSystemReadingCount;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.lang.Nullable;
+
+public interface EnvironmentalReadingArchiveRepository
+        extends JpaRepository<EnvironmentalReadingArchive, UUID> {
+
+    Optional<EnvironmentalReadingArchive> findBySensorSystemIdAndArchiveDay(
+            UUID sensorSystemId, LocalDate archiveDay);
+
+    @Query(
+            "SELECT a.archiveDay FROM EnvironmentalReadingArchive a "
+                    + "WHERE a.sensorSystem.id = :sensorSystemId "
+                    + "AND a.archiveDay BETWEEN :from AND :to ORDER BY a.archiveDay")
+    List<LocalDate> findArchiveDays(
+            @Param("sensorSystemId") UUID sensorSystemId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    @Query(
+            "SELECT new com.unconv.spring.projection.SensorSystemArchiveBlock("
+                    + "a.sensorSystem.id, a.block) FROM EnvironmentalReadingArchive a "
+                    + "WHERE a.sensorSystem.id IN :sensorSystemIds "
+                    + "AND a.archiveDay BETWEEN :from AND :to")
+    Stream<SensorSystemArchiveBlock> streamBlocksBySensorSystemIds(
+            @Param("sensorSystemIds") Collection<UUID> sensorSystemIds,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    // Only the block is selected, so nothing is kept in the persistence context while a long
+    // range is read day by day
+    @Nullable
+    @Query(
+            "SELECT a.block FROM EnvironmentalReadingArchive a "
+                    + "WHERE a.sensorSystem.id = :sensorSystemId AND a.archiveDay = :archiveDay")
+    byte[] findBlock(
+            @Param("sensorSystemId") UUID sensorSystemId,
+            @Param("archiveDay") LocalDate archiveDay);
+
+    @Query(
+            "SELECT COALESCE(SUM(a.readingCount), 0) FROM EnvironmentalReadingArchive a "
+                    + "WHERE a.sensorSystem.id = :sensorSystemId")
+    long countReadingsBySensorSystemId(@Param("sensorSystemId") UUID sensorSystemId);
+
+    @Query(
+            "SELECT new com.unconv.spring.projection.SensorSystemReadingCount("
+                    + "a.sensorSystem.id, SUM(a.readingCount)) "
+                    + "FROM EnvironmentalReadingArchive a WHERE a.sensorSystem.id IN :sensorSystemIds "
+                    + "GROUP BY a.sensorSystem.id")
+    List<SensorSystemReadingCount> countReadingsBySensorSystemIds(
+            @Param("sensorSystemIds") Collection<UUID> sensorSystemIds);
+}
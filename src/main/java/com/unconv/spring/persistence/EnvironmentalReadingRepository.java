@@ -1,12 +1,21 @@
 package com.unconv.spring.persistence;
 
 import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.projection.SensorSystemReadingCount;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.Nullable;
 
 public interface EnvironmentalReadingRepository extends JpaRepository<EnvironmentalReading, UUID> {
@@ -22,4 +31,84 @@ public interface EnvironmentalReadingRepository extends JpaRepository<Environmen
 
     @Nullable
     EnvironmentalReading findFirstBySensorSystemIdOrderByTimestampDesc(UUID sensorSystemId);
+
+    @Query(
+            value =
+                    "SELECT new com.unconv.spring.projection.EnvironmentalReadingProjection("
+                            + "er.id, er.temperature, er.humidity, er.timestamp, er.sensorSystem.id) "
+                            + "FROM EnvironmentalReading er",
+            countQuery = "SELECT COUNT(er) FROM EnvironmentalReading er")
+    Page<EnvironmentalReadingProjection> findAllProjectedBy(Pageable pageable);
+
+    @Query(
+            value =
+                    "SELECT new com.unconv.spring.projection.EnvironmentalReadingProjection("
+                            + "er.id, er.temperature, er.humidity, er.timestamp, er.sensorSystem.id) "
+                            + "FROM EnvironmentalReading er WHERE er.sensorSystem.id = :sensorSystemId",
+            countQuery =
+                    "SELECT COUNT(er) FROM EnvironmentalReading er "
+                            + "WHERE er.sensorSystem.id = :sensorSystemId")
+    Page<EnvironmentalReadingProjection> findProjectedBySensorSystemId(
+            @Param("sensorSystemId") UUID sensorSystemId, Pageable pageable);
+
+    @Query(
+            "SELECT new com.unconv.spring.projection.SensorSystemReadingCount("
+                    + "er.sensorSystem.id, COUNT(er)) "
+                    + "FROM EnvironmentalReading er WHERE er.sensorSystem.id IN :sensorSystemIds "
+                    + "GROUP BY er.sensorSystem.id")
+    List<SensorSystemReadingCount> countBySensorSystemIds(
+            @Param("sensorSystemIds") Collection<UUID> sensorSystemIds);
+
+    @Query(
+            "SELECT new com.unconv.spring.projection.EnvironmentalReadingProjection("
+                    + "er.id, er.temperature, er.humidity, er.timestamp, er.sensorSystem.id) "
+                    + "FROM EnvironmentalReading er WHERE er.sensorSystem.id IN :sensorSystemIds "
+                    + "AND er.timestamp = (SELECT MAX(latest.timestamp) FROM EnvironmentalReading latest "
+                    + "WHERE latest.sensorSystem = er.sensorSystem)")
+    List<EnvironmentalReadingProjection> findLatestProjectedBySensorSystemIds(
+            @Param("sensorSystemIds") Collection<UUID> sensorSystemIds);
+
+    @Query("SELECT er.id FROM EnvironmentalReading er WHERE er.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    // Forward-only read for exports. MySQL only honours the fetch size with useCursorFetch=true
+    // on the connection URL, otherwise the driver buffers the whole result
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(
+            "SELECT new com.unconv.spring.projection.EnvironmentalReadingProjection("
+                    + "er.id, er.temperature, er.humidity, er.timestamp, er.sensorSystem.id) "
+                    + "FROM EnvironmentalReading er WHERE er.sensorSystem.id = :sensorSystemId "
+                    + "AND er.timestamp >= :from AND er.timestamp < :to ORDER BY er.timestamp")
+    Stream<EnvironmentalReadingProjection> streamProjectedBySensorSystemIdAndTimestampBetween(
+            @Param("sensorSystemId") UUID sensorSystemId,
+            @Param("from") OffsetDateTime from,
+            @Param("to") OffsetDateTime to);
+
+    // The readings of several sensors in [from, to) in one pass, not ordered
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(
+            "SELECT new com.unconv.spring.projection.EnvironmentalReadingProjection("
+                    + "er.id, er.temperature, er.humidity, er.timestamp, er.sensorSystem.id) "
+                    + "FROM EnvironmentalReading er WHERE er.sensorSystem.id IN :sensorSystemIds "
+                    + "AND er.timestamp >= :from AND er.timestamp < :to")
+    Stream<EnvironmentalReadingProjection> streamProjectedBySensorSystemIdInAndTimestampBetween(
+            @Param("sensorSystemIds") Collection<UUID> sensorSystemIds,
+            @Param("from") OffsetDateTime from,
+            @Param("to") OffsetDateTime to);
+
+    @Nullable
+    @Query(
+            "SELECT MIN(er.timestamp) FROM EnvironmentalReading er "
+                    + "WHERE er.sensorSystem.id = :sensorSystemId AND er.timestamp < :before")
+    OffsetDateTime findFirstTimestampBefore(
+            @Param("sensorSystemId") UUID sensorSystemId, @Param("before") OffsetDateTime before);
+
+    @Modifying
+    @Query(
+            "DELETE FROM EnvironmentalReading er WHERE er.sensorSystem.id = :sensorSystemId "
+                    + "AND er.timestamp >= :from AND er.timestamp < :to")
+    int deleteBySensorSystemIdAndTimestampRange(
+            @Param("sensorSystemId") UUID sensorSystemId,
+            @Param("from") OffsetDateTime from,
+            @Param("to") OffsetDateTime to);
 }
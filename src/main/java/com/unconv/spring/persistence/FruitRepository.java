@@ -1,6 +1,14 @@
 package com.unconv.spring.persistence;
 
 import com.unconv.spring.domain.Fruit;
+import java.util.List;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface FruitRepository extends JpaRepository<Fruit, Long> {}
+public interface FruitRepository extends JpaRepository<Fruit, Long> {
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    @Override
+    List<Fruit> findAll();
+}
@@ -1,6 +1,14 @@
 package com.unconv.spring.persistence;
 
 import com.unconv.spring.domain.Heater;
+import java.util.List;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface HeaterRepository extends JpaRepository<Heater, Long> {}
+public interface HeaterRepository extends JpaRepository<Heater, Long> {
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    @Override
+    List<Heater> findAll();
+}
@@ -1,6 +1,14 @@
 package com.unconv.spring.persistence;
 
 import com.unconv.spring.domain.Offer;
+import java.util.List;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface OfferRepository extends JpaRepository<Offer, Long> {}
+public interface OfferRepository extends JpaRepository<Offer, Long> {
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    @Override
+    List<Offer> findAll();
+}
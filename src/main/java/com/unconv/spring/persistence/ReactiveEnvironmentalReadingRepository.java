@@ -0,0 +1,207 @@
+package com.unconv.spring.persistence;
+
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.consts.SensorStatus;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.projection.SensorSystemOwnership;
+import com.unconv.spring.projection.SensorSystemProjection;
+import io.r2dbc.spi.Row;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking access to the tables JPA maps for EnvironmentalReading and SensorSystem. Ids are
+// BINARY(16) and timestamps are stored in UTC without an offset, as Hibernate writes them
+@Repository
+@ConditionalOnProperty(name = "application.reactive.enabled", havingValue = "true")
+public class ReactiveEnvironmentalReadingRepository {
+
+    private static final String READING_COLUMNS = "id, temperature, humidity, timestamp";
+
+    // Sortable properties of EnvironmentalReading, anything else would end up in the query
+    private static final Map<String, String> SORT_COLUMNS =
+            Map.of(
+                    "id", "id",
+                    "temperature", "temperature",
+                    "humidity", "humidity",
+                    "timestamp", "timestamp");
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveEnvironmentalReadingRepository(DatabaseClient reactiveDatabaseClient) {
+        this.databaseClient = reactiveDatabaseClient;
+    }
+
+    public Mono<SensorSystemOwnership> findSensorSystemOwnershipById(UUID sensorSystemId) {
+        return databaseClient
+                .sql(
+                        "SELECT s.deleted, s.sensor_status, u.username FROM sensor_systems s"
+                                + " JOIN unconv_users u ON u.id = s.unconv_user_id"
+                                + " WHERE s.id = :id")
+                .bind("id", toBytes(sensorSystemId))
+                .map(
+                        row ->
+                                new SensorSystemOwnership(
+                                        sensorSystemId,
+                                        row.get("username", String.class),
+                                        row.get("deleted", Boolean.class),
+                                        SensorStatus.values()[
+                                                row.get("sensor_status", Integer.class)]))
+                .one();
+    }
+
+    public Mono<SensorSystemProjection> findSensorSystemProjectedById(UUID sensorSystemId) {
+        return databaseClient
+                .sql(
+                        "SELECT s.sensor_name, s.description, s.deleted, s.sensor_status,"
+                                + " s.unconv_user_id, l.id AS location_id, l.sensor_location_text,"
+                                + " l.latitude, l.longitude, l.sensor_location_type"
+                                + " FROM sensor_systems s"
+                                + " LEFT JOIN sensor_locations l ON l.id = s.sensor_location_id"
+                                + " WHERE s.id = :id")
+                .bind("id", toBytes(sensorSystemId))
+                .map(
+                        row -> {
+                            Integer locationType = row.get("sensor_location_type", Integer.class);
+                            return new SensorSystemProjection(
+                                    sensorSystemId,
+                                    row.get("sensor_name", String.class),
+                                    row.get("description", String.class),
+                                    row.get("deleted", Boolean.class),
+                                    SensorStatus.values()[row.get("sensor_status", Integer.class)],
+                                    toUuid(row, "location_id"),
+                                    row.get("sensor_location_text", String.class),
+                                    row.get("latitude", Double.class),
+                                    row.get("longitude", Double.class),
+                                    locationType == null
+                                            ? null
+                                            : SensorLocationType.values()[locationType],
+                                    toUuid(row, "unconv_user_id"));
+                        })
+                .one();
+    }
+
+    public Mono<Boolean> existsSensorSystemById(UUID sensorSystemId) {
+        return databaseClient
+                .sql("SELECT COUNT(*) AS matches FROM sensor_systems WHERE id = :id")
+                .bind("id", toBytes(sensorSystemId))
+                .map(row -> row.get("matches", Long.class) > 0)
+                .one();
+    }
+
+    public Mono<Void> insert(EnvironmentalReadingProjection reading) {
+        return databaseClient
+                .sql(
+                        "INSERT INTO environmental_readings"
+                                + " (id, temperature, humidity, timestamp, sensor_id)"
+                                + " VALUES (:id, :temperature, :humidity, :timestamp, :sensorId)")
+                .bind("id", toBytes(reading.id()))
+                .bind("temperature", reading.temperature())
+                .bind("humidity", reading.humidity())
+                .bind("timestamp", toUtc(reading.timestamp()))
+                .bind("sensorId", toBytes(reading.sensorSystemId()))
+                .then();
+    }
+
+    // Fails with IllegalArgumentException for properties that cannot be sorted by
+    public Flux<EnvironmentalReadingProjection> findBySensorSystemId(
+            UUID sensorSystemId, Sort.Order order, int limit, long offset) {
+        String column = SORT_COLUMNS.get(order.getProperty());
+        if (column == null) {
+            return Flux.error(
+                    new IllegalArgumentException("Cannot sort by " + order.getProperty()));
+        }
+        return databaseClient
+                .sql(
+                        "SELECT "
+                                + READING_COLUMNS
+                                + " FROM environmental_readings WHERE sensor_id = :sensorId"
+                                + " ORDER BY "
+                                + column
+                                + (order.isAscending() ? " ASC" : " DESC")
+                                + " LIMIT :limit OFFSET :offset")
+                .bind("sensorId", toBytes(sensorSystemId))
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(row -> toReading(row, sensorSystemId))
+                .all();
+    }
+
+    public Mono<Long> countBySensorSystemId(UUID sensorSystemId) {
+        return databaseClient
+                .sql(
+                        "SELECT COUNT(*) AS readings FROM environmental_readings"
+                                + " WHERE sensor_id = :sensorId")
+                .bind("sensorId", toBytes(sensorSystemId))
+                .map(row -> row.get("readings", Long.class))
+                .one();
+    }
+
+    // Readings in [from, to), not ordered
+    public Flux<EnvironmentalReadingProjection> findBySensorSystemIdAndTimestampBetween(
+            UUID sensorSystemId, OffsetDateTime from, OffsetDateTime to) {
+        return databaseClient
+                .sql(
+                        "SELECT "
+                                + READING_COLUMNS
+                                + " FROM environmental_readings WHERE sensor_id = :sensorId"
+                                + " AND timestamp >= :from AND timestamp < :to")
+                .bind("sensorId", toBytes(sensorSystemId))
+                .bind("from", toUtc(from))
+                .bind("to", toUtc(to))
+                .map(row -> toReading(row, sensorSystemId))
+                .all();
+    }
+
+    public Flux<byte[]> findArchiveBlocks(UUID sensorSystemId, LocalDate fromDay, LocalDate toDay) {
+        return databaseClient
+                .sql(
+                        "SELECT block FROM environmental_reading_archives"
+                                + " WHERE sensor_id = :sensorId"
+                                + " AND archive_day BETWEEN :fromDay AND :toDay")
+                .bind("sensorId", toBytes(sensorSystemId))
+                .bind("fromDay", fromDay)
+                .bind("toDay", toDay)
+                .map(row -> row.get("block", byte[].class))
+                .all();
+    }
+
+    private static EnvironmentalReadingProjection toReading(Row row, UUID sensorSystemId) {
+        return new EnvironmentalReadingProjection(
+                toUuid(row, "id"),
+                row.get("temperature", Double.class),
+                row.get("humidity", Double.class),
+                row.get("timestamp", LocalDateTime.class).atOffset(ZoneOffset.UTC),
+                sensorSystemId);
+    }
+
+    private static LocalDateTime toUtc(OffsetDateTime timestamp) {
+        return timestamp.atZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    private static UUID toUuid(Row row, String column) {
+        byte[] bytes = row.get(column, byte[].class);
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -2,6 +2,15 @@ package com.unconv.spring.persistence;
 
 import com.unconv.spring.domain.SensorLocation;
 import java.util.UUID;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface SensorLocationRepository extends JpaRepository<SensorLocation, UUID> {}
+public interface SensorLocationRepository extends JpaRepository<SensorLocation, UUID> {
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    @Override
+    Page<SensorLocation> findAll(Pageable pageable);
+}
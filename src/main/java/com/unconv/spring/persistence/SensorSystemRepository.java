@@ -1,8 +1,11 @@
 package com.unconv.spring.persistence;
 
-import com.unconv.spring.domain.SensorLocation;
 import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.projection.SensorLocationProjection;
+import com.unconv.spring.projection.SensorSystemOwnership;
+import com.unconv.spring.projection.SensorSystemProjection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,13 +15,53 @@ import org.springframework.data.repository.query.Param;
 
 public interface SensorSystemRepository extends JpaRepository<SensorSystem, UUID> {
 
+    String SENSOR_SYSTEM_PROJECTION =
+            "SELECT new com.unconv.spring.projection.SensorSystemProjection("
+                    + "s.id, s.sensorName, s.description, s.deleted, s.sensorStatus, "
+                    + "sl.id, sl.sensorLocationText, sl.latitude, sl.longitude, sl.sensorLocationType, "
+                    + "s.unconvUser.id) "
+                    + "FROM SensorSystem s LEFT JOIN s.sensorLocation sl";
+
     SensorSystem findSensorSystemById(UUID id);
 
     @Query(
-            "SELECT DISTINCT s.sensorLocation FROM SensorSystem s WHERE s.unconvUser.id = :unconvUserId")
-    List<SensorLocation> findDistinctByUnconvUserId(@Param("unconvUserId") UUID unconvUserId);
+            "SELECT new com.unconv.spring.projection.SensorSystemOwnership("
+                    + "s.id, s.unconvUser.username, s.deleted, s.sensorStatus) "
+                    + "FROM SensorSystem s WHERE s.id = :id")
+    Optional<SensorSystemOwnership> findOwnershipById(@Param("id") UUID id);
+
+    @Query("SELECT s.id FROM SensorSystem s")
+    List<UUID> findAllIds();
+
+    @Query(
+            "SELECT DISTINCT new com.unconv.spring.projection.SensorLocationProjection("
+                    + "sl.id, sl.sensorLocationText, sl.latitude, sl.longitude, sl.sensorLocationType) "
+                    + "FROM SensorSystem s JOIN s.sensorLocation sl WHERE s.unconvUser.id = :unconvUserId")
+    List<SensorLocationProjection> findDistinctByUnconvUserId(
+            @Param("unconvUserId") UUID unconvUserId);
+
+    @Query(
+            "SELECT s.id FROM SensorSystem s "
+                    + "WHERE s.unconvUser.id = :unconvUserId AND s.deleted = false")
+    List<UUID> findIdsByUnconvUserIdAndDeletedFalse(@Param("unconvUserId") UUID unconvUserId);
 
     Page<SensorSystem> findAllByUnconvUserId(UUID unconvUserId, Pageable pageable);
 
     Page<SensorSystem> findByUnconvUserIdAndDeletedFalse(UUID unconvUserId, Pageable pageable);
+
+    @Query(value = SENSOR_SYSTEM_PROJECTION, countQuery = "SELECT COUNT(s) FROM SensorSystem s")
+    Page<SensorSystemProjection> findAllProjectedBy(Pageable pageable);
+
+    @Query(
+            value =
+                    SENSOR_SYSTEM_PROJECTION
+                            + " WHERE s.unconvUser.id = :unconvUserId AND s.deleted = false",
+            countQuery =
+                    "SELECT COUNT(s) FROM SensorSystem s "
+                            + "WHERE s.unconvUser.id = :unconvUserId AND s.deleted = false")
+    Page<SensorSystemProjection> findProjectedByUnconvUserIdAndDeletedFalse(
+            @Param("unconvUserId") UUID unconvUserId, Pageable pageable);
+
+    @Query(SENSOR_SYSTEM_PROJECTION + " WHERE s.id = :id")
+    Optional<SensorSystemProjection> findProjectedById(@Param("id") UUID id);
 }
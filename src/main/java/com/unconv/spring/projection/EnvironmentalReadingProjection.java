@@ -0,0 +1,11 @@
+package com.unconv.spring.projection;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public record EnvironmentalReadingProjection(
+        UUID id,
+        double temperature,
+        double humidity,
+        OffsetDateTime timestamp,
+        UUID sensorSystemId) {}
@@ -0,0 +1,11 @@
+package com.unconv.spring.projection;
+
+import com.unconv.spring.consts.SensorLocationType;
+import java.util.UUID;
+
+public record SensorLocationProjection(
+        UUID id,
+        String sensorLocationText,
+        Double latitude,
+        Double longitude,
+        SensorLocationType sensorLocationType) {}
@@ -0,0 +1,5 @@
+package com.unconv.spring.projection;
+
+import java.util.UUID;
+
+public record SensorSystemArchiveBlock(UUID sensorSystemId, byte[] block) {}
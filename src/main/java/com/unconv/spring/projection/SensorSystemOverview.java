@@ -0,0 +1,8 @@
+package com.unconv.spring.projection;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+public record SensorSystemOverview(
+        @JsonUnwrapped SensorSystemProjection sensorSystem,
+        long readingCount,
+        EnvironmentalReadingProjection latestReading) {}
@@ -0,0 +1,7 @@
+package com.unconv.spring.projection;
+
+import com.unconv.spring.consts.SensorStatus;
+import java.util.UUID;
+
+public record SensorSystemOwnership(
+        UUID id, String ownerUsername, boolean deleted, SensorStatus sensorStatus) {}
@@ -0,0 +1,45 @@
+package com.unconv.spring.projection;
+
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.consts.SensorStatus;
+import java.util.UUID;
+
+public record SensorSystemProjection(
+        UUID id,
+        String sensorName,
+        String description,
+        boolean deleted,
+        SensorStatus sensorStatus,
+        SensorLocationProjection sensorLocation,
+        UUID unconvUserId) {
+
+    // Used by JPQL constructor expressions, which cannot build the nested location themselves
+    public SensorSystemProjection(
+            UUID id,
+            String sensorName,
+            String description,
+            boolean deleted,
+            SensorStatus sensorStatus,
+            UUID sensorLocationId,
+            String sensorLocationText,
+            Double latitude,
+            Double longitude,
+            SensorLocationType sensorLocationType,
+            UUID unconvUserId) {
+        this(
+                id,
+                sensorName,
+                description,
+                deleted,
+                sensorStatus,
+                sensorLocationId == null
+                        ? null
+                        : new SensorLocationProjection(
+                                sensorLocationId,
+                                sensorLocationText,
+                                latitude,
+                                longitude,
+                                sensorLocationType),
+                unconvUserId);
+    }
+}
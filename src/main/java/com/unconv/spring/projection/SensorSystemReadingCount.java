@@ -0,0 +1,5 @@
+package com.unconv.spring.projection;
+
+import java.util.UUID;
+
+public record SensorSystemReadingCount(UUID sensorSystemId, long readingCount) {}
@@ -1,6 +1,9 @@
 package com.unconv.spring.security.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unconv.spring.config.tracing.Span;
+import com.unconv.spring.config.tracing.SpanLayer;
+import com.unconv.spring.config.tracing.Tracer;
 import com.unconv.spring.domain.UnconvUser;
 import com.unconv.spring.service.UnconvUserService;
 import java.io.IOException;
@@ -36,7 +39,8 @@ public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
     public Authentication attemptAuthentication(
             HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException {
-        try {
+        try (Span ignored =
+                Tracer.startSpan("AuthenticationFilter.authenticate", SpanLayer.FILTER)) {
             UnconvUser unconvUser =
                     new ObjectMapper().readValue(request.getInputStream(), UnconvUser.class);
             Authentication authentication =
@@ -1,5 +1,8 @@
 package com.unconv.spring.security.filter;
 
+import com.unconv.spring.config.tracing.Span;
+import com.unconv.spring.config.tracing.SpanLayer;
+import com.unconv.spring.config.tracing.Tracer;
 import java.io.IOException;
 import java.util.List;
 import javax.servlet.FilterChain;
@@ -36,7 +39,10 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
                 header.startsWith(BEARER_PREFIX_STRING)
                         ? header.replace(BEARER_PREFIX_STRING, "")
                         : header;
-        String contextUser = jwtUtil.validateTokenAndRetrieveSubject(token);
+        String contextUser;
+        try (Span ignored = Tracer.startSpan("JWTAuthenticationFilter.verify", SpanLayer.FILTER)) {
+            contextUser = jwtUtil.validateTokenAndRetrieveSubject(token);
+        }
 
         Authentication authentication =
                 new UsernamePasswordAuthenticationToken(contextUser, null, List.of());
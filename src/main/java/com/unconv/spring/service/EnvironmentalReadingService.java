@@ -5,6 +5,9 @@ import com.unconv.spring.domain.SensorSystem;
 import com.unconv.spring.dto.EnvironmentalReadingDTO;
 import com.unconv.spring.model.response.MessageResponse;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.model.response.SensorSystemPagedResult;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import java.io.InputStream;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
@@ -15,11 +18,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface EnvironmentalReadingService {
-    PagedResult<EnvironmentalReading> findAllEnvironmentalReadings(
+    PagedResult<EnvironmentalReadingProjection> findAllEnvironmentalReadings(
             int pageNo, int pageSize, String sortBy, String sortDir);
 
-    PagedResult<EnvironmentalReading> findAllEnvironmentalReadingsBySensorSystemId(
-            UUID sensorSystemId, int pageNo, int pageSize, String sortBy, String sortDir);
+    SensorSystemPagedResult<EnvironmentalReadingProjection>
+            findAllEnvironmentalReadingsBySensorSystemId(
+                    UUID sensorSystemId, int pageNo, int pageSize, String sortBy, String sortDir);
 
     Optional<EnvironmentalReading> findEnvironmentalReadingById(UUID id);
 
@@ -47,4 +51,7 @@ public interface EnvironmentalReadingService {
 
     ResponseEntity<String> verifyCSVFileAndValidateSensorSystemAndParseEnvironmentalReadings(
             UUID sensorSystemId, MultipartFile file);
+
+    ResponseEntity<String> validateSensorSystemAndParseEnvironmentalReadings(
+            UUID sensorSystemId, InputStream csv);
 }
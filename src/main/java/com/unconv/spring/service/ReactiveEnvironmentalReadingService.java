@@ -0,0 +1,40 @@
+package com.unconv.spring.service;
+
+import com.unconv.spring.consts.AggregateFunction;
+import com.unconv.spring.consts.ReadingMetric;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.model.response.MessageResponse;
+import com.unconv.spring.model.response.ReadingAggregates;
+import com.unconv.spring.model.response.SensorSystemPagedResult;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveEnvironmentalReadingService {
+    Mono<SensorSystemPagedResult<EnvironmentalReadingProjection>>
+            findAllEnvironmentalReadingsBySensorSystemId(
+                    UUID sensorSystemId, int pageNo, int pageSize, String sortBy, String sortDir);
+
+    Mono<ResponseEntity<MessageResponse<EnvironmentalReadingDTO>>>
+            generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
+                    EnvironmentalReadingDTO environmentalReadingDTO, String username);
+
+    Mono<ReadingAggregates> aggregateEnvironmentalReadings(
+            UUID sensorSystemId,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            Duration interval,
+            Set<ReadingMetric> metrics,
+            Set<AggregateFunction> functions);
+
+    Mono<Boolean> existsSensorSystemById(UUID sensorSystemId);
+
+    Flux<ServerSentEvent<EnvironmentalReadingProjection>> streamEnvironmentalReadings(
+            UUID sensorSystemId);
+}
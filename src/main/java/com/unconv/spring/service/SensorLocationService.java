@@ -2,6 +2,7 @@ package com.unconv.spring.service;
 
 import com.unconv.spring.domain.SensorLocation;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.projection.SensorLocationProjection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -10,7 +11,7 @@ public interface SensorLocationService {
     PagedResult<SensorLocation> findAllSensorLocations(
             int pageNo, int pageSize, String sortBy, String sortDir);
 
-    List<SensorLocation> findAllSensorLocationsByUnconvUserId(UUID unconvUserId);
+    List<SensorLocationProjection> findAllSensorLocationsByUnconvUserId(UUID unconvUserId);
 
     Optional<SensorLocation> findSensorLocationById(UUID id);
 
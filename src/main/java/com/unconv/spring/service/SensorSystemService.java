@@ -3,16 +3,20 @@ package com.unconv.spring.service;
 import com.unconv.spring.domain.SensorSystem;
 import com.unconv.spring.dto.SensorSystemDTO;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.projection.SensorSystemOverview;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface SensorSystemService {
-    PagedResult<SensorSystemDTO> findAllSensorSystems(
+    PagedResult<SensorSystemOverview> findAllSensorSystems(
             int pageNo, int pageSize, String sortBy, String sortDir);
 
-    PagedResult<SensorSystemDTO> findAllSensorSystemsByUnconvUserId(
+    PagedResult<SensorSystemOverview> findAllSensorSystemsByUnconvUserId(
             UUID unconvUserId, int pageNo, int pageSize, String sortBy, String sortDir);
 
+    List<UUID> findSensorSystemIdsByUnconvUserId(UUID unconvUserId);
+
     Optional<SensorSystem> findSensorSystemById(UUID id);
 
     Optional<SensorSystemDTO> findSensorSystemDTOById(UUID id);
@@ -0,0 +1,178 @@
+package com.unconv.spring.service.aggregate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntToDoubleFunction;
+
+// Count, sum, min, max, mean and standard deviation of one metric per time bucket, kept in
+// primitive arrays and updated in a single pass without boxing. Percentiles additionally keep
+// every value of a bucket and are only available when requested up front
+public final class BucketAggregation {
+
+    private final TimeBuckets buckets;
+
+    private final long[] counts;
+
+    private final double[] sums;
+
+    private final double[] mins;
+
+    private final double[] maxs;
+
+    // Running mean and sum of squared deviations (Welford), stable for large buckets
+    private final double[] means;
+
+    private final double[] squaredDeviations;
+
+    // The value with the latest timestamp, or the last one added of values in the same second
+    private final long[] lastSeconds;
+
+    private final double[] lasts;
+
+    private final double[][] values;
+
+    private final boolean[] sorted;
+
+    public BucketAggregation(TimeBuckets buckets) {
+        this(buckets, false);
+    }
+
+    public BucketAggregation(TimeBuckets buckets, boolean withPercentiles) {
+        int count = buckets.count();
+        this.buckets = buckets;
+        this.counts = new long[count];
+        this.sums = new double[count];
+        this.mins = new double[count];
+        this.maxs = new double[count];
+        this.means = new double[count];
+        this.squaredDeviations = new double[count];
+        this.lastSeconds = new long[count];
+        this.lasts = new double[count];
+        this.values = withPercentiles ? new double[count][] : null;
+        this.sorted = withPercentiles ? new boolean[count] : null;
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+    }
+
+    public TimeBuckets buckets() {
+        return buckets;
+    }
+
+    // Values outside the buckets are ignored
+    public void add(long epochSecond, double value) {
+        int bucket = buckets.indexOf(epochSecond);
+        if (bucket < 0) {
+            return;
+        }
+        long count = ++counts[bucket];
+        if (count == 1 || epochSecond >= lastSeconds[bucket]) {
+            lastSeconds[bucket] = epochSecond;
+            lasts[bucket] = value;
+        }
+        sums[bucket] += value;
+        if (value < mins[bucket]) {
+            mins[bucket] = value;
+        }
+        if (value > maxs[bucket]) {
+            maxs[bucket] = value;
+        }
+        double delta = value - means[bucket];
+        means[bucket] += delta / count;
+        squaredDeviations[bucket] += delta * (value - means[bucket]);
+
+        if (values != null) {
+            double[] bucketValues = values[bucket];
+            if (bucketValues == null) {
+                bucketValues = values[bucket] = new double[16];
+            } else if (count > bucketValues.length) {
+                bucketValues =
+                        values[bucket] = Arrays.copyOf(bucketValues, bucketValues.length * 2);
+            }
+            bucketValues[(int) count - 1] = value;
+            sorted[bucket] = false;
+        }
+    }
+
+    public long count(int bucket) {
+        return counts[bucket];
+    }
+
+    public double sum(int bucket) {
+        return sums[bucket];
+    }
+
+    public double min(int bucket) {
+        return counts[bucket] == 0 ? Double.NaN : mins[bucket];
+    }
+
+    public double max(int bucket) {
+        return counts[bucket] == 0 ? Double.NaN : maxs[bucket];
+    }
+
+    public double last(int bucket) {
+        return counts[bucket] == 0 ? Double.NaN : lasts[bucket];
+    }
+
+    // The sum divided by the count, like the averages computed before this class existed
+    public double mean(int bucket) {
+        return counts[bucket] == 0 ? Double.NaN : sums[bucket] / counts[bucket];
+    }
+
+    // Population standard deviation
+    public double stddev(int bucket) {
+        return counts[bucket] == 0
+                ? Double.NaN
+                : Math.sqrt(Math.max(squaredDeviations[bucket], 0) / counts[bucket]);
+    }
+
+    // Linear interpolation between the closest ranks, percentile between 0 and 100
+    public double percentile(int bucket, double percentile) {
+        if (values == null) {
+            throw new IllegalStateException("Percentiles were not requested");
+        }
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        int count = (int) counts[bucket];
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double[] bucketValues = values[bucket];
+        if (!sorted[bucket]) {
+            Arrays.sort(bucketValues, 0, count);
+            sorted[bucket] = true;
+        }
+        double rank = percentile / 100 * (count - 1);
+        int lower = (int) rank;
+        int upper = Math.min(lower + 1, count - 1);
+        return bucketValues[lower] + (rank - lower) * (bucketValues[upper] - bucketValues[lower]);
+    }
+
+    // One entry per bucket holding values, keyed by bucket start and rounded half up
+    public Map<OffsetDateTime, Double> toMap(IntToDoubleFunction statistic, int scale) {
+        Map<OffsetDateTime, Double> result = new TreeMap<>();
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] > 0) {
+                result.put(buckets.start(bucket), round(statistic.applyAsDouble(bucket), scale));
+            }
+        }
+        return result;
+    }
+
+    public Map<OffsetDateTime, Double> means(int scale) {
+        return toMap(this::mean, scale);
+    }
+
+    // BigDecimal.valueOf rounds the shortest decimal representation of the value, so 1.0005
+    // becomes 1.001 as before. It only runs once per bucket
+    public static double round(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return value;
+        }
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,135 @@
+package com.unconv.spring.service.aggregate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.cache.EntityChange;
+import com.unconv.spring.service.cache.EntityChangesMissedEvent;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Average temperatures of buckets that lie entirely in the past, shared by every request for a
+// sensor. A reading that arrives late for such a bucket removes it, changed or deleted readings
+// remove all buckets of their sensor. Empty buckets are cached as NaN
+@Component
+public class ClosedBucketAverages {
+
+    private final boolean enabled;
+
+    private final Cache<BucketKey, Double> averages;
+
+    private final Map<UUID, Set<Long>> widthsBySensorSystemId = new ConcurrentHashMap<>();
+
+    private final Map<UUID, AtomicLong> invalidations = new ConcurrentHashMap<>();
+
+    private final AtomicLong allInvalidations = new AtomicLong();
+
+    public ClosedBucketAverages(
+            ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.ClosedBuckets properties = applicationProperties.getClosedBuckets();
+        this.enabled = properties.isEnabled();
+        this.averages =
+                Caffeine.newBuilder().maximumSize(properties.getMaxEntries()).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, averages, "closed-bucket-averages");
+    }
+
+    // Taken before loading the buckets and handed to put, which drops what it stored if the
+    // sensor's buckets were invalidated in between
+    public long stamp(UUID sensorSystemId) {
+        AtomicLong stamp = invalidations.get(sensorSystemId);
+        return allInvalidations.get() + (stamp == null ? 0 : stamp.get());
+    }
+
+    public Double get(UUID sensorSystemId, long widthSeconds, long startSecond) {
+        return enabled
+                ? averages.getIfPresent(new BucketKey(sensorSystemId, widthSeconds, startSecond))
+                : null;
+    }
+
+    public void put(
+            UUID sensorSystemId, long stamp, long widthSeconds, long startSecond, double average) {
+        if (!enabled) {
+            return;
+        }
+        widthsBySensorSystemId
+                .computeIfAbsent(sensorSystemId, id -> ConcurrentHashMap.newKeySet())
+                .add(widthSeconds);
+        BucketKey key = new BucketKey(sensorSystemId, widthSeconds, startSecond);
+        averages.put(key, average);
+        if (stamp(sensorSystemId) != stamp) {
+            averages.invalidate(key);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnvironmentalReadingsAccepted(EnvironmentalReadingsAcceptedEvent event) {
+        Set<Long> widths = widthsBySensorSystemId.get(event.sensorSystemId());
+        if (widths == null) {
+            return;
+        }
+        invalidations
+                .computeIfAbsent(event.sensorSystemId(), id -> new AtomicLong())
+                .incrementAndGet();
+        for (EnvironmentalReadingProjection reading : event.readings()) {
+            long epochSecond = reading.timestamp().toEpochSecond();
+            for (long width : widths) {
+                averages.invalidate(
+                        new BucketKey(
+                                event.sensorSystemId(),
+                                width,
+                                TimeBuckets.align(epochSecond, width)));
+            }
+        }
+    }
+
+    // Readings changed or deleted on any node, this one included, or added on another node
+    @EventListener
+    public void onEntityChanged(EntityChange change) {
+        if (change.entity() == CachedEntity.SENSOR_READINGS
+                || change.entity() == CachedEntity.SENSOR_READINGS_ADDED) {
+            invalidate(change.uuid());
+        }
+    }
+
+    @EventListener(EntityChangesMissedEvent.class)
+    public void onEntityChangesMissed() {
+        allInvalidations.incrementAndGet();
+        averages.invalidateAll();
+    }
+
+    // For readings that are changed or deleted rather than added
+    public void invalidateAfterCommit(UUID sensorSystemId) {
+        invalidate(sensorSystemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            invalidate(sensorSystemId);
+                        }
+                    });
+        }
+    }
+
+    private void invalidate(UUID sensorSystemId) {
+        invalidations.computeIfAbsent(sensorSystemId, id -> new AtomicLong()).incrementAndGet();
+        if (widthsBySensorSystemId.containsKey(sensorSystemId)) {
+            averages.asMap().keySet().removeIf(key -> key.sensorSystemId().equals(sensorSystemId));
+        }
+    }
+
+    private record BucketKey(UUID sensorSystemId, long widthSeconds, long startSecond) {}
+}
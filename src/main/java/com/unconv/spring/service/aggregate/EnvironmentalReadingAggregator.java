@@ -0,0 +1,338 @@
+package com.unconv.spring.service.aggregate;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.config.datasource.DatabaseWorkload;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.consts.AggregateFunction;
+import com.unconv.spring.consts.ReadingMetric;
+import com.unconv.spring.model.response.ReadingAggregateBucket;
+import com.unconv.spring.model.response.ReadingAggregates;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.archive.EnvironmentalReadingHistory;
+import com.unconv.spring.service.window.RecentReadingWindows;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Aggregates a sensor's readings over any range and bucket width. Ranges the recent reading
+// window can answer are served from memory, everything else is streamed from the readings and
+// the archive without holding them, so memory use only depends on the number of buckets
+@Component
+@DatabaseWorkload(Workload.ANALYTICS)
+public class EnvironmentalReadingAggregator {
+
+    public static final String SOURCE_RECENT_WINDOW = "recent-window";
+
+    public static final String SOURCE_DATABASE = "database";
+
+    private static final int AVERAGE_SCALE = 3;
+
+    static final int DATABASE_CHUNK_SIZE = 4096;
+
+    private final ApplicationProperties.Aggregate properties;
+
+    private final RecentReadingWindows recentReadingWindows;
+
+    private final EnvironmentalReadingHistory environmentalReadingHistory;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // Bounds the sensors of one multi-sensor request that are aggregated at the same time, and
+    // the window loads they may trigger
+    private final ForkJoinPool forkJoinPool;
+
+    public EnvironmentalReadingAggregator(
+            ApplicationProperties applicationProperties,
+            RecentReadingWindows recentReadingWindows,
+            EnvironmentalReadingHistory environmentalReadingHistory,
+            PlatformTransactionManager transactionManager) {
+        this.properties = applicationProperties.getAggregate();
+        this.recentReadingWindows = recentReadingWindows;
+        this.environmentalReadingHistory = environmentalReadingHistory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        this.forkJoinPool =
+                new ForkJoinPool(
+                        properties.getParallelism(),
+                        pool -> {
+                            ForkJoinWorkerThread thread =
+                                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setName("reading-aggregator-" + thread.getPoolIndex());
+                            return thread;
+                        },
+                        null,
+                        false);
+    }
+
+    // Buckets of readings in [from, to), only buckets holding readings are returned. Throws
+    // IllegalArgumentException for an empty or too long range and for too many buckets
+    public ReadingAggregates aggregate(
+            UUID sensorSystemId,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            Duration interval,
+            Set<ReadingMetric> metrics,
+            Set<AggregateFunction> functions) {
+        TimeBuckets buckets = buckets(from, to, interval);
+        BucketAggregation temperatures =
+                metrics.contains(ReadingMetric.TEMPERATURE) ? new BucketAggregation(buckets) : null;
+        BucketAggregation humidities =
+                metrics.contains(ReadingMetric.HUMIDITY) ? new BucketAggregation(buckets) : null;
+        String source = SOURCE_RECENT_WINDOW;
+        if (!recentReadingWindows.aggregate(sensorSystemId, from, to, temperatures, humidities)) {
+            source = SOURCE_DATABASE;
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        try (Stream<EnvironmentalReadingProjection> readings =
+                                environmentalReadingHistory
+                                        .streamBySensorSystemIdAndTimestampBetween(
+                                                sensorSystemId, from, to)) {
+                            readings.forEach(reading -> add(reading, temperatures, humidities));
+                        }
+                    });
+        }
+        return toAggregates(
+                sensorSystemId, from, to, interval, source, temperatures, humidities, functions);
+    }
+
+    // Buckets of several sensors in [from, to), in the order of sensorSystemIds. Sensors the
+    // recent reading window can answer are aggregated in parallel, the others are read together
+    // with one query whose rows are bucketed on the pool, in chunks per sensor. Throws
+    // IllegalArgumentException like aggregate and for too many sensors
+    public List<ReadingAggregates> aggregate(
+            List<UUID> sensorSystemIds,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            Duration interval,
+            Set<ReadingMetric> metrics,
+            Set<AggregateFunction> functions) {
+        if (sensorSystemIds.size() > properties.getMaxSensors()) {
+            throw new IllegalArgumentException(
+                    "At most " + properties.getMaxSensors() + " sensors can be aggregated at once");
+        }
+        TimeBuckets buckets = buckets(from, to, interval);
+        List<Series> series = new ArrayList<>(sensorSystemIds.size());
+        List<ForkJoinTask<Boolean>> windowTasks = new ArrayList<>(sensorSystemIds.size());
+        for (UUID sensorSystemId : sensorSystemIds) {
+            Series sensorSeries =
+                    new Series(
+                            sensorSystemId,
+                            metrics.contains(ReadingMetric.TEMPERATURE)
+                                    ? new BucketAggregation(buckets)
+                                    : null,
+                            metrics.contains(ReadingMetric.HUMIDITY)
+                                    ? new BucketAggregation(buckets)
+                                    : null);
+            series.add(sensorSeries);
+            windowTasks.add(
+                    ForkJoinTask.adapt(
+                            () ->
+                                    recentReadingWindows.aggregate(
+                                            sensorSystemId,
+                                            from,
+                                            to,
+                                            sensorSeries.temperatures(),
+                                            sensorSeries.humidities())));
+        }
+        forkJoinPool.submit(() -> ForkJoinTask.invokeAll(windowTasks)).join();
+
+        Map<UUID, DatabaseSeries> databaseSeries = new HashMap<>();
+        for (int i = 0; i < series.size(); i++) {
+            if (!windowTasks.get(i).join()) {
+                databaseSeries.put(
+                        series.get(i).sensorSystemId(), new DatabaseSeries(series.get(i)));
+            }
+        }
+        if (!databaseSeries.isEmpty()) {
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        try (Stream<EnvironmentalReadingProjection> readings =
+                                environmentalReadingHistory
+                                        .streamBySensorSystemIdInAndTimestampBetween(
+                                                databaseSeries.keySet(), from, to)) {
+                            readings.forEach(
+                                    reading ->
+                                            databaseSeries
+                                                    .get(reading.sensorSystemId())
+                                                    .add(reading));
+                        }
+                    });
+            databaseSeries.values().forEach(DatabaseSeries::join);
+        }
+
+        List<ReadingAggregates> result = new ArrayList<>(series.size());
+        for (Series sensorSeries : series) {
+            result.add(
+                    toAggregates(
+                            sensorSeries.sensorSystemId(),
+                            from,
+                            to,
+                            interval,
+                            databaseSeries.containsKey(sensorSeries.sensorSystemId())
+                                    ? SOURCE_DATABASE
+                                    : SOURCE_RECENT_WINDOW,
+                            sensorSeries.temperatures(),
+                            sensorSeries.humidities(),
+                            functions));
+        }
+        return result;
+    }
+
+    // The buckets of [from, to), throws IllegalArgumentException for an empty or too long range
+    // and for too many buckets
+    public TimeBuckets buckets(OffsetDateTime from, OffsetDateTime to, Duration interval) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (interval.getSeconds() <= 0) {
+            throw new IllegalArgumentException("interval must be at least one second");
+        }
+        if (Duration.between(from, to).compareTo(properties.getMaxRange()) > 0) {
+            throw new IllegalArgumentException(
+                    "Range must not be longer than " + properties.getMaxRange());
+        }
+        TimeBuckets buckets =
+                TimeBuckets.of(
+                        from.toEpochSecond(),
+                        to.minusNanos(1).toEpochSecond(),
+                        interval.getSeconds());
+        if (buckets.count() > properties.getMaxBuckets()) {
+            throw new IllegalArgumentException(
+                    "Range and interval give "
+                            + buckets.count()
+                            + " buckets, at most "
+                            + properties.getMaxBuckets()
+                            + " are allowed");
+        }
+        return buckets;
+    }
+
+    public static void add(
+            EnvironmentalReadingProjection reading,
+            BucketAggregation temperatures,
+            BucketAggregation humidities) {
+        long epochSecond = reading.timestamp().toEpochSecond();
+        if (temperatures != null) {
+            temperatures.add(epochSecond, reading.temperature());
+        }
+        if (humidities != null) {
+            humidities.add(epochSecond, reading.humidity());
+        }
+    }
+
+    // Either aggregation may be null if its metric was not requested
+    public static ReadingAggregates toAggregates(
+            UUID sensorSystemId,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            Duration interval,
+            String source,
+            BucketAggregation temperatures,
+            BucketAggregation humidities,
+            Set<AggregateFunction> functions) {
+        List<ReadingAggregateBucket> result = new ArrayList<>();
+        BucketAggregation counted = temperatures != null ? temperatures : humidities;
+        for (int bucket = 0; counted != null && bucket < counted.buckets().count(); bucket++) {
+            if (counted.count(bucket) > 0) {
+                result.add(
+                        new ReadingAggregateBucket(
+                                counted.buckets().start(bucket),
+                                toFunctions(temperatures, bucket, functions),
+                                toFunctions(humidities, bucket, functions)));
+            }
+        }
+        return new ReadingAggregates(sensorSystemId, from, to, interval.toString(), source, result);
+    }
+
+    private static Map<String, Number> toFunctions(
+            BucketAggregation aggregation, int bucket, Set<AggregateFunction> functions) {
+        if (aggregation == null) {
+            return null;
+        }
+        Map<String, Number> values = new LinkedHashMap<>();
+        for (AggregateFunction function : functions) {
+            values.put(
+                    function.name().toLowerCase(Locale.ROOT),
+                    switch (function) {
+                        case AVG -> BucketAggregation.round(
+                                aggregation.mean(bucket), AVERAGE_SCALE);
+                        case MIN -> aggregation.min(bucket);
+                        case MAX -> aggregation.max(bucket);
+                        case COUNT -> aggregation.count(bucket);
+                        case LAST -> aggregation.last(bucket);
+                    });
+        }
+        return values;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    private record Series(
+            UUID sensorSystemId, BucketAggregation temperatures, BucketAggregation humidities) {}
+
+    // Collects the rows of one sensor from the shared query while the pool buckets its previous
+    // chunk. A sensor has one chunk on the pool at a time, so its aggregations are never written
+    // concurrently
+    private final class DatabaseSeries {
+
+        private final Series series;
+
+        private List<EnvironmentalReadingProjection> chunk = new ArrayList<>(DATABASE_CHUNK_SIZE);
+
+        private ForkJoinTask<?> pending;
+
+        private DatabaseSeries(Series series) {
+            this.series = series;
+        }
+
+        private void add(EnvironmentalReadingProjection reading) {
+            chunk.add(reading);
+            if (chunk.size() == DATABASE_CHUNK_SIZE) {
+                submitChunk();
+            }
+        }
+
+        private void submitChunk() {
+            List<EnvironmentalReadingProjection> readings = chunk;
+            chunk = new ArrayList<>(DATABASE_CHUNK_SIZE);
+            if (pending != null) {
+                pending.join();
+            }
+            pending =
+                    forkJoinPool.submit(
+                            () -> {
+                                for (EnvironmentalReadingProjection reading : readings) {
+                                    EnvironmentalReadingAggregator.add(
+                                            reading, series.temperatures(), series.humidities());
+                                }
+                            });
+        }
+
+        private void join() {
+            if (!chunk.isEmpty()) {
+                submitChunk();
+            }
+            if (pending != null) {
+                pending.join();
+            }
+        }
+    }
+}
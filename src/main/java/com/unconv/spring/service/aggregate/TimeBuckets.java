@@ -0,0 +1,66 @@
+package com.unconv.spring.service.aggregate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+// Fixed-width buckets aligned to the epoch, from the bucket holding the first second to the one
+// holding the last
+public final class TimeBuckets {
+
+    private final long firstSecond;
+
+    private final long widthSeconds;
+
+    private final int count;
+
+    private TimeBuckets(long firstSecond, long widthSeconds, int count) {
+        this.firstSecond = firstSecond;
+        this.widthSeconds = widthSeconds;
+        this.count = count;
+    }
+
+    public static TimeBuckets of(long fromSecond, long toSecond, long widthSeconds) {
+        if (widthSeconds <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive");
+        }
+        long firstSecond = align(fromSecond, widthSeconds);
+        long count = (align(toSecond, widthSeconds) - firstSecond) / widthSeconds + 1;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many buckets: " + count);
+        }
+        return new TimeBuckets(firstSecond, widthSeconds, (int) Math.max(count, 0));
+    }
+
+    public static TimeBuckets of(OffsetDateTime from, OffsetDateTime to, Duration width) {
+        return of(from.toEpochSecond(), to.toEpochSecond(), width.getSeconds());
+    }
+
+    // Same alignment as truncating epochSecond / width * width, which the averages always used
+    public static long align(long epochSecond, long widthSeconds) {
+        return epochSecond / widthSeconds * widthSeconds;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long widthSeconds() {
+        return widthSeconds;
+    }
+
+    // -1 for seconds outside the buckets
+    public int indexOf(long epochSecond) {
+        long index = (align(epochSecond, widthSeconds) - firstSecond) / widthSeconds;
+        return index < 0 || index >= count ? -1 : (int) index;
+    }
+
+    public long startSecond(int bucket) {
+        return firstSecond + bucket * widthSeconds;
+    }
+
+    public OffsetDateTime start(int bucket) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(startSecond(bucket)), ZoneOffset.UTC);
+    }
+}
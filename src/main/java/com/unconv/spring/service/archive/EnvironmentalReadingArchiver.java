@@ -0,0 +1,205 @@
+package com.unconv.spring.service.archive;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.config.datasource.DatabaseWorkload;
+import com.unconv.spring.config.datasource.DatabaseWorkloads;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.domain.EnvironmentalReadingArchive;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.persistence.EnvironmentalReadingArchiveRepository;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.cache.SensorSystemVersions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Moves whole UTC days older than archive-after out of environmental_readings into one
+// compressed block per sensor and day. Readings arriving later for an archived day are merged
+// into its block on the next run
+@Slf4j
+@Component
+public class EnvironmentalReadingArchiver {
+
+    private final ApplicationProperties.Archive properties;
+
+    private final SensorSystemRepository sensorSystemRepository;
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository;
+
+    private final EnvironmentalReadingArchiveRepository environmentalReadingArchiveRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final SensorSystemVersions sensorSystemVersions;
+
+    private final Counter archivedReadings;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running = true;
+
+    public EnvironmentalReadingArchiver(
+            ApplicationProperties applicationProperties,
+            SensorSystemRepository sensorSystemRepository,
+            EnvironmentalReadingRepository environmentalReadingRepository,
+            EnvironmentalReadingArchiveRepository environmentalReadingArchiveRepository,
+            TransactionTemplate transactionTemplate,
+            EntityManager entityManager,
+            SensorSystemVersions sensorSystemVersions,
+            MeterRegistry meterRegistry) {
+        this.properties = applicationProperties.getArchive();
+        this.sensorSystemRepository = sensorSystemRepository;
+        this.environmentalReadingRepository = environmentalReadingRepository;
+        this.environmentalReadingArchiveRepository = environmentalReadingArchiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.sensorSystemVersions = sensorSystemVersions;
+        this.archivedReadings =
+                Counter.builder("readings.archive.moved")
+                        .description("Readings moved from environmental_readings to the archive")
+                        .register(meterRegistry);
+    }
+
+    // Days starting before the horizon have ended at least archive-after ago
+    static OffsetDateTime archiveHorizon(Duration archiveAfter) {
+        return OffsetDateTime.now(ZoneOffset.UTC).minus(archiveAfter).truncatedTo(ChronoUnit.DAYS);
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void scheduleArchiving() {
+        if (!properties.isEnabled() || scheduler != null) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory =
+                new CustomizableThreadFactory("reading-archiver-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long intervalMillis = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(
+                () -> DatabaseWorkloads.run(Workload.BULK, this::archive),
+                intervalMillis,
+                intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @DatabaseWorkload(Workload.BULK)
+    public void archive() {
+        OffsetDateTime horizon = archiveHorizon(properties.getArchiveAfter());
+        long readings = 0;
+        long days = 0;
+        long bytes = 0;
+        for (UUID sensorSystemId : sensorSystemRepository.findAllIds()) {
+            OffsetDateTime first;
+            while (running
+                    && (first =
+                                    environmentalReadingRepository.findFirstTimestampBefore(
+                                            sensorSystemId, horizon))
+                            != null) {
+                LocalDate day = first.atZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+                ArchivedDay archivedDay;
+                try {
+                    archivedDay =
+                            transactionTemplate.execute(status -> archiveDay(sensorSystemId, day));
+                } catch (RuntimeException e) {
+                    log.warn(
+                            "Failed to archive readings of sensor {} on {}: {}",
+                            sensorSystemId,
+                            day,
+                            e.getMessage());
+                    break;
+                }
+                // The readings keep their values, but are no longer the sensor's latest reading
+                sensorSystemVersions.touch(sensorSystemId);
+                archivedReadings.increment(archivedDay.movedReadings());
+                readings += archivedDay.movedReadings();
+                days++;
+                bytes += archivedDay.blockSize();
+            }
+        }
+        if (days > 0) {
+            log.info(
+                    "Archived {} readings of {} sensor days before {} into {} bytes",
+                    readings,
+                    days,
+                    horizon,
+                    bytes);
+        }
+    }
+
+    private ArchivedDay archiveDay(UUID sensorSystemId, LocalDate day) {
+        OffsetDateTime from = day.atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime to = from.plusDays(1);
+        ReadingBlock moved = new ReadingBlock(1024);
+        try (Stream<EnvironmentalReadingProjection> readings =
+                environmentalReadingRepository.streamProjectedBySensorSystemIdAndTimestampBetween(
+                        sensorSystemId, from, to)) {
+            readings.forEach(
+                    reading ->
+                            moved.add(
+                                    reading.timestamp(),
+                                    reading.temperature(),
+                                    reading.humidity()));
+        }
+
+        // A reading inserted after the read would be deleted without being archived, the day is
+        // rolled back and retried on the next run instead
+        int deleted =
+                environmentalReadingRepository.deleteBySensorSystemIdAndTimestampRange(
+                        sensorSystemId, from, to);
+        if (deleted != moved.size()) {
+            throw new IllegalStateException("Readings changed while being archived");
+        }
+
+        EnvironmentalReadingArchive archive =
+                environmentalReadingArchiveRepository
+                        .findBySensorSystemIdAndArchiveDay(sensorSystemId, day)
+                        .orElseGet(
+                                () ->
+                                        new EnvironmentalReadingArchive(
+                                                null,
+                                                entityManager.getReference(
+                                                        SensorSystem.class, sensorSystemId),
+                                                day,
+                                                0,
+                                                null));
+        ReadingBlock block =
+                archive.getBlock() == null
+                        ? moved
+                        : ReadingBlock.merge(ReadingBlockCodec.decode(archive.getBlock()), moved);
+        archive.setReadingCount(block.size());
+        archive.setBlock(ReadingBlockCodec.encode(block));
+        environmentalReadingArchiveRepository.save(archive);
+        return new ArchivedDay(moved.size(), archive.getBlock().length);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private record ArchivedDay(int movedReadings, int blockSize) {}
+}
@@ -0,0 +1,276 @@
+package com.unconv.spring.service.archive;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.persistence.EnvironmentalReadingArchiveRepository;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+
+// Range reads over environmental_readings and the archive. Archived readings look like the ones
+// still in the table, except that they have no id. The archive is only queried for ranges that
+// start before the archive horizon
+@Component
+public class EnvironmentalReadingHistory {
+
+    private final ApplicationProperties.Archive properties;
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository;
+
+    private final EnvironmentalReadingArchiveRepository environmentalReadingArchiveRepository;
+
+    private final EntityManager entityManager;
+
+    public EnvironmentalReadingHistory(
+            ApplicationProperties applicationProperties,
+            EnvironmentalReadingRepository environmentalReadingRepository,
+            EnvironmentalReadingArchiveRepository environmentalReadingArchiveRepository,
+            EntityManager entityManager) {
+        this.properties = applicationProperties.getArchive();
+        this.environmentalReadingRepository = environmentalReadingRepository;
+        this.environmentalReadingArchiveRepository = environmentalReadingArchiveRepository;
+        this.entityManager = entityManager;
+    }
+
+    // Both bounds are inclusive like EnvironmentalReadingRepository's query of the same name, the
+    // readings are not ordered
+    public List<EnvironmentalReading> findBySensorSystemIdAndTimestampBetween(
+            UUID sensorSystemId, OffsetDateTime start, OffsetDateTime end) {
+        List<EnvironmentalReading> readings =
+                environmentalReadingRepository.findBySensorSystemIdAndTimestampBetween(
+                        sensorSystemId, start, end);
+        if (!mayBeArchived(start)) {
+            return readings;
+        }
+
+        List<EnvironmentalReading> combined = new ArrayList<>(readings);
+        SensorSystem sensorSystem = entityManager.getReference(SensorSystem.class, sensorSystemId);
+        long startMicros = ReadingBlock.toEpochMicros(start);
+        long endMicros = ReadingBlock.toEpochMicros(end);
+        for (LocalDate day :
+                environmentalReadingArchiveRepository.findArchiveDays(
+                        sensorSystemId, utcDay(start), utcDay(end))) {
+            ReadingBlock block = loadBlock(sensorSystemId, day);
+            for (int i = 0; i < block.size(); i++) {
+                long timestamp = block.epochMicrosAt(i);
+                if (timestamp >= startMicros && timestamp <= endMicros) {
+                    combined.add(
+                            new EnvironmentalReading(
+                                    null,
+                                    block.temperatureAt(i),
+                                    block.humidityAt(i),
+                                    block.timestampAt(i),
+                                    sensorSystem));
+                }
+            }
+        }
+        return combined;
+    }
+
+    // Readings in [from, to) ordered by timestamp. Archived days are decoded one at a time while
+    // the stream is consumed, which has to happen inside a transaction
+    public Stream<EnvironmentalReadingProjection> streamBySensorSystemIdAndTimestampBetween(
+            UUID sensorSystemId, OffsetDateTime from, OffsetDateTime to) {
+        List<LocalDate> archiveDays =
+                mayBeArchived(from)
+                        ? environmentalReadingArchiveRepository.findArchiveDays(
+                                sensorSystemId, utcDay(from), utcDay(to))
+                        : List.of();
+        Stream<EnvironmentalReadingProjection> readings =
+                environmentalReadingRepository.streamProjectedBySensorSystemIdAndTimestampBetween(
+                        sensorSystemId, from, to);
+        if (archiveDays.isEmpty()) {
+            return readings;
+        }
+
+        Iterator<EnvironmentalReadingProjection> merged =
+                new MergingIterator(
+                        new ArchivedReadingIterator(
+                                sensorSystemId,
+                                archiveDays,
+                                ReadingBlock.toEpochMicros(from),
+                                ReadingBlock.toEpochMicros(to)),
+                        readings.iterator());
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(
+                                merged, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(readings::close);
+    }
+
+    // Readings of several sensors in [from, to), not ordered. Archived days come first and are
+    // decoded one block at a time while the stream is consumed inside a transaction
+    public Stream<EnvironmentalReadingProjection> streamBySensorSystemIdInAndTimestampBetween(
+            Collection<UUID> sensorSystemIds, OffsetDateTime from, OffsetDateTime to) {
+        Stream<EnvironmentalReadingProjection> readings =
+                environmentalReadingRepository.streamProjectedBySensorSystemIdInAndTimestampBetween(
+                        sensorSystemIds, from, to);
+        if (!mayBeArchived(from)) {
+            return readings;
+        }
+        Stream<EnvironmentalReadingProjection> archived =
+                environmentalReadingArchiveRepository
+                        .streamBlocksBySensorSystemIds(sensorSystemIds, utcDay(from), utcDay(to))
+                        .flatMap(
+                                block ->
+                                        decodeArchivedReadings(
+                                                block.sensorSystemId(), block.block(), from, to)
+                                                .stream());
+        return Stream.concat(archived, readings);
+    }
+
+    // Readings of one archived block in [from, to), for readers that load the blocks themselves
+    public static List<EnvironmentalReadingProjection> decodeArchivedReadings(
+            UUID sensorSystemId, byte[] block, OffsetDateTime from, OffsetDateTime to) {
+        ReadingBlock readingBlock = ReadingBlockCodec.decode(block);
+        long fromMicros = ReadingBlock.toEpochMicros(from);
+        long toMicros = ReadingBlock.toEpochMicros(to);
+        List<EnvironmentalReadingProjection> readings = new ArrayList<>();
+        for (int i = 0; i < readingBlock.size(); i++) {
+            long timestamp = readingBlock.epochMicrosAt(i);
+            if (timestamp >= fromMicros && timestamp < toMicros) {
+                readings.add(
+                        new EnvironmentalReadingProjection(
+                                null,
+                                readingBlock.temperatureAt(i),
+                                readingBlock.humidityAt(i),
+                                readingBlock.timestampAt(i),
+                                sensorSystemId));
+            }
+        }
+        return readings;
+    }
+
+    public boolean mayBeArchived(OffsetDateTime from) {
+        return from.isBefore(
+                EnvironmentalReadingArchiver.archiveHorizon(properties.getArchiveAfter()));
+    }
+
+    private ReadingBlock loadBlock(UUID sensorSystemId, LocalDate day) {
+        byte[] block = environmentalReadingArchiveRepository.findBlock(sensorSystemId, day);
+        return block == null ? new ReadingBlock(0) : ReadingBlockCodec.decode(block);
+    }
+
+    private static LocalDate utcDay(OffsetDateTime timestamp) {
+        return timestamp.atZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private final class ArchivedReadingIterator
+            implements Iterator<EnvironmentalReadingProjection> {
+
+        private final UUID sensorSystemId;
+
+        private final Iterator<LocalDate> days;
+
+        private final long fromMicros;
+
+        private final long toMicros;
+
+        private ReadingBlock block = new ReadingBlock(0);
+
+        private int index;
+
+        ArchivedReadingIterator(
+                UUID sensorSystemId, List<LocalDate> days, long fromMicros, long toMicros) {
+            this.sensorSystemId = sensorSystemId;
+            this.days = days.iterator();
+            this.fromMicros = fromMicros;
+            this.toMicros = toMicros;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                while (index < block.size() && block.epochMicrosAt(index) < fromMicros) {
+                    index++;
+                }
+                if (index < block.size()) {
+                    return block.epochMicrosAt(index) < toMicros;
+                }
+                if (!days.hasNext()) {
+                    return false;
+                }
+                block = loadBlock(sensorSystemId, days.next());
+                index = 0;
+            }
+        }
+
+        @Override
+        public EnvironmentalReadingProjection next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            EnvironmentalReadingProjection reading =
+                    new EnvironmentalReadingProjection(
+                            null,
+                            block.temperatureAt(index),
+                            block.humidityAt(index),
+                            block.timestampAt(index),
+                            sensorSystemId);
+            index++;
+            return reading;
+        }
+    }
+
+    private static final class MergingIterator implements Iterator<EnvironmentalReadingProjection> {
+
+        private final Iterator<EnvironmentalReadingProjection> first;
+
+        private final Iterator<EnvironmentalReadingProjection> second;
+
+        private EnvironmentalReadingProjection nextOfFirst;
+
+        private EnvironmentalReadingProjection nextOfSecond;
+
+        MergingIterator(
+                Iterator<EnvironmentalReadingProjection> first,
+                Iterator<EnvironmentalReadingProjection> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextOfFirst == null && first.hasNext()) {
+                nextOfFirst = first.next();
+            }
+            if (nextOfSecond == null && second.hasNext()) {
+                nextOfSecond = second.next();
+            }
+            return nextOfFirst != null || nextOfSecond != null;
+        }
+
+        @Override
+        public EnvironmentalReadingProjection next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            EnvironmentalReadingProjection reading;
+            if (nextOfSecond == null
+                    || (nextOfFirst != null
+                            && !nextOfFirst.timestamp().isAfter(nextOfSecond.timestamp()))) {
+                reading = nextOfFirst;
+                nextOfFirst = null;
+            } else {
+                reading = nextOfSecond;
+                nextOfSecond = null;
+            }
+            return reading;
+        }
+    }
+}
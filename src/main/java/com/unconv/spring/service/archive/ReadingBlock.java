@@ -0,0 +1,99 @@
+package com.unconv.spring.service.archive;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Readings of one sensor as parallel primitive columns, ordered by timestamp
+final class ReadingBlock {
+
+    private static final long MICROS_PER_SECOND = 1_000_000;
+
+    private long[] epochMicros;
+
+    private double[] temperatures;
+
+    private double[] humidities;
+
+    private int size;
+
+    ReadingBlock(int capacity) {
+        this(new long[capacity], new double[capacity], new double[capacity], 0);
+    }
+
+    ReadingBlock(long[] epochMicros, double[] temperatures, double[] humidities, int size) {
+        this.epochMicros = epochMicros;
+        this.temperatures = temperatures;
+        this.humidities = humidities;
+        this.size = size;
+    }
+
+    void add(long timestampMicros, double temperature, double humidity) {
+        if (size == epochMicros.length) {
+            int capacity = Math.max(16, size * 2);
+            epochMicros = Arrays.copyOf(epochMicros, capacity);
+            temperatures = Arrays.copyOf(temperatures, capacity);
+            humidities = Arrays.copyOf(humidities, capacity);
+        }
+        epochMicros[size] = timestampMicros;
+        temperatures[size] = temperature;
+        humidities[size] = humidity;
+        size++;
+    }
+
+    void add(OffsetDateTime timestamp, double temperature, double humidity) {
+        add(toEpochMicros(timestamp), temperature, humidity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long epochMicrosAt(int index) {
+        return epochMicros[index];
+    }
+
+    double temperatureAt(int index) {
+        return temperatures[index];
+    }
+
+    double humidityAt(int index) {
+        return humidities[index];
+    }
+
+    OffsetDateTime timestampAt(int index) {
+        return fromEpochMicros(epochMicros[index]);
+    }
+
+    // Both blocks are ordered by timestamp and so is the result
+    static ReadingBlock merge(ReadingBlock first, ReadingBlock second) {
+        ReadingBlock merged = new ReadingBlock(first.size + second.size);
+        int i = 0;
+        int j = 0;
+        while (i < first.size || j < second.size) {
+            if (j == second.size
+                    || (i < first.size && first.epochMicros[i] <= second.epochMicros[j])) {
+                merged.add(first.epochMicros[i], first.temperatures[i], first.humidities[i]);
+                i++;
+            } else {
+                merged.add(second.epochMicros[j], second.temperatures[j], second.humidities[j]);
+                j++;
+            }
+        }
+        return merged;
+    }
+
+    static long toEpochMicros(OffsetDateTime timestamp) {
+        Instant instant = timestamp.toInstant();
+        return instant.getEpochSecond() * MICROS_PER_SECOND + instant.getNano() / 1_000;
+    }
+
+    static OffsetDateTime fromEpochMicros(long epochMicros) {
+        return OffsetDateTime.ofInstant(
+                Instant.ofEpochSecond(
+                        Math.floorDiv(epochMicros, MICROS_PER_SECOND),
+                        Math.floorMod(epochMicros, MICROS_PER_SECOND) * 1_000),
+                ZoneOffset.UTC);
+    }
+}
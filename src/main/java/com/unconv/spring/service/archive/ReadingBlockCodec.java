@@ -0,0 +1,200 @@
+package com.unconv.spring.service.archive;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+// Columnar encoding of a ReadingBlock. Timestamps are stored as delta-of-delta of epoch
+// microseconds, so readings taken at a steady interval cost one byte each. Temperature and
+// humidity are stored as deltas of the values scaled to their column scale in
+// environmental_readings, a column holding values with more decimals is XOR-ed with the previous
+// value instead. All numbers are varints
+final class ReadingBlockCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte SCALED = 0;
+
+    private static final byte XOR = 1;
+
+    private static final int XOR_UNCHANGED = 64;
+
+    static final int TEMPERATURE_SCALE = 3;
+
+    static final int HUMIDITY_SCALE = 2;
+
+    // Scaled values must stay exact as doubles
+    private static final double MAX_SCALED = 1L << 52;
+
+    private ReadingBlockCodec() {}
+
+    static byte[] encode(ReadingBlock block) {
+        int size = block.size();
+        Output out = new Output(size * 4 + 16);
+        out.writeByte(FORMAT_VERSION);
+        out.writeVarLong(size);
+
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < size; i++) {
+            long timestamp = block.epochMicrosAt(i);
+            if (i == 0) {
+                out.writeSignedVarLong(timestamp);
+            } else {
+                long delta = timestamp - previous;
+                out.writeSignedVarLong(delta - previousDelta);
+                previousDelta = delta;
+            }
+            previous = timestamp;
+        }
+
+        encodeValues(out, size, block::temperatureAt, TEMPERATURE_SCALE);
+        encodeValues(out, size, block::humidityAt, HUMIDITY_SCALE);
+        return out.toByteArray();
+    }
+
+    static ReadingBlock decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported reading block format " + version);
+        }
+        int size = (int) readVarLong(in);
+
+        long[] epochMicros = new long[size];
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0) {
+                previous = readSignedVarLong(in);
+            } else {
+                previousDelta += readSignedVarLong(in);
+                previous += previousDelta;
+            }
+            epochMicros[i] = previous;
+        }
+
+        double[] temperatures = decodeValues(in, size);
+        double[] humidities = decodeValues(in, size);
+        return new ReadingBlock(epochMicros, temperatures, humidities, size);
+    }
+
+    private static void encodeValues(Output out, int size, IntToDoubleFunction values, int scale) {
+        double factor = Math.pow(10, scale);
+        if (fitsScale(size, values, factor)) {
+            out.writeByte(SCALED);
+            out.writeByte(scale);
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                long scaled = (long) Math.rint(values.applyAsDouble(i) * factor);
+                out.writeSignedVarLong(scaled - previous);
+                previous = scaled;
+            }
+            return;
+        }
+
+        out.writeByte(XOR);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long bits = Double.doubleToRawLongBits(values.applyAsDouble(i));
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                out.writeByte(XOR_UNCHANGED);
+            } else {
+                int trailingZeros = Long.numberOfTrailingZeros(xor);
+                out.writeByte(trailingZeros);
+                out.writeVarLong(xor >>> trailingZeros);
+            }
+        }
+    }
+
+    private static double[] decodeValues(ByteBuffer in, int size) {
+        double[] values = new double[size];
+        byte encoding = in.get();
+        if (encoding == SCALED) {
+            double factor = Math.pow(10, in.get());
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += readSignedVarLong(in);
+                values[i] = previous / factor;
+            }
+            return values;
+        }
+        if (encoding != XOR) {
+            throw new IllegalArgumentException("Unsupported reading column encoding " + encoding);
+        }
+
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            int trailingZeros = in.get();
+            if (trailingZeros != XOR_UNCHANGED) {
+                previous ^= readVarLong(in) << trailingZeros;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    private static boolean fitsScale(int size, IntToDoubleFunction values, double factor) {
+        for (int i = 0; i < size; i++) {
+            double value = values.applyAsDouble(i);
+            double scaled = Math.rint(value * factor);
+            if (Math.abs(scaled) >= MAX_SCALED || scaled / factor != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long readSignedVarLong(ByteBuffer in) {
+        long zigzag = readVarLong(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static final class Output {
+
+        private byte[] bytes;
+
+        private int length;
+
+        Output(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.unconv.spring.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Announces entity changes to the in-process caches of every node. Services publish inside the
+// transaction of the change, the caches listen for EntityChange and EntityChangesMissedEvent.
+// Readings arrive far more often than the caches of other nodes need to hear of them, so
+// SENSOR_READINGS_ADDED is published at most once per sensor every readings-added-interval, and
+// the other nodes deliver it once when it arrives and again after readings-added-interval plus
+// poll-interval, which covers the readings whose announcement was left out
+@Slf4j
+@Component
+public class CacheInvalidationBus implements InvalidationReceiver {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final InvalidationTransport transport;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter missedChanges;
+
+    private final Counter coalescedReadingsAdded;
+
+    // Sensors whose added readings were published within the interval, with the publishing call
+    private final Cache<String, Object> recentlyAnnounced;
+
+    // Sensors another node announced readings of within the last window, true once they were
+    // announced again during it
+    private final ConcurrentHashMap<String, Boolean> readingsAddedWindows =
+            new ConcurrentHashMap<>();
+
+    private final long readingsAddedWindowMillis;
+
+    private final ScheduledExecutorService scheduler;
+
+    public CacheInvalidationBus(
+            InvalidationTransport transport,
+            ApplicationEventPublisher applicationEventPublisher,
+            MeterRegistry meterRegistry,
+            ApplicationProperties applicationProperties) {
+        this.transport = transport;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.missedChanges =
+                Counter.builder("cache.invalidations.missed")
+                        .description("Times all caches were cleared because changes may be lost")
+                        .register(meterRegistry);
+        this.coalescedReadingsAdded =
+                Counter.builder("cache.invalidations.coalesced")
+                        .description(
+                                "Added readings announced with an earlier change of the sensor")
+                        .register(meterRegistry);
+        ApplicationProperties.Invalidation properties = applicationProperties.getInvalidation();
+        this.recentlyAnnounced =
+                Caffeine.newBuilder()
+                        .expireAfterWrite(properties.getReadingsAddedInterval())
+                        .build();
+        this.readingsAddedWindowMillis =
+                properties.getReadingsAddedInterval().plus(properties.getPollInterval()).toMillis();
+        CustomizableThreadFactory threadFactory =
+                new CustomizableThreadFactory("cache-invalidation-window-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    // Transports may need the repositories, which are only initialized once the context is
+    // refreshed
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        transport.start(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public void publish(CachedEntity entity, Object id) {
+        if (entity == CachedEntity.SENSOR_READINGS_ADDED && !claimAnnouncement(id.toString())) {
+            coalescedReadingsAdded.increment();
+            return;
+        }
+        transport.publish(new EntityChange(entity, id.toString(), nodeId));
+        meterRegistry.counter("cache.invalidations.published", "entity", entity.name()).increment();
+    }
+
+    @Override
+    public void onChanges(List<EntityChange> changes) {
+        for (EntityChange change : changes) {
+            if (change.entity() != CachedEntity.SENSOR_READINGS_ADDED) {
+                deliver(change);
+            } else if (!nodeId.equals(change.origin()) && openWindow(change.id())) {
+                // This node applied its own readings to its caches as they were accepted
+                deliver(change);
+                scheduler.schedule(
+                        () -> closeWindow(change),
+                        readingsAddedWindowMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void onChangesMissed() {
+        log.warn("Entity changes of other nodes may have been missed, clearing local caches");
+        applicationEventPublisher.publishEvent(new EntityChangesMissedEvent());
+        missedChanges.increment();
+    }
+
+    // A rolled back transaction gives up its claim, so the next readings of the sensor are
+    // announced again
+    private boolean claimAnnouncement(String sensorSystemId) {
+        Object claim = new Object();
+        if (recentlyAnnounced.asMap().putIfAbsent(sensorSystemId, claim) != null) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status != STATUS_COMMITTED) {
+                                recentlyAnnounced.asMap().remove(sensorSystemId, claim);
+                            }
+                        }
+                    });
+        }
+        return true;
+    }
+
+    private boolean openWindow(String sensorSystemId) {
+        boolean[] opened = new boolean[1];
+        readingsAddedWindows.compute(
+                sensorSystemId,
+                (key, announcedAgain) -> {
+                    opened[0] = announcedAgain == null;
+                    return !opened[0];
+                });
+        return opened[0];
+    }
+
+    // Delivered once more for the readings committed after the first delivery, and the window is
+    // kept open for as long as the sensor is announced again
+    private void closeWindow(EntityChange change) {
+        Boolean announcedAgain =
+                readingsAddedWindows.computeIfPresent(
+                        change.id(), (key, again) -> again ? Boolean.FALSE : null);
+        if (announcedAgain != null) {
+            scheduler.schedule(
+                    () -> closeWindow(change), readingsAddedWindowMillis, TimeUnit.MILLISECONDS);
+        }
+        try {
+            deliver(change);
+        } catch (RuntimeException e) {
+            log.warn(
+                    "Delivering {} of {} failed: {}", change.entity(), change.id(), e.getMessage());
+        }
+    }
+
+    private void deliver(EntityChange change) {
+        applicationEventPublisher.publishEvent(change);
+        meterRegistry
+                .counter("cache.invalidations.delivered", "entity", change.entity().name())
+                .increment();
+    }
+}
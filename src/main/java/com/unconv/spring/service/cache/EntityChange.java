@@ -0,0 +1,13 @@
+package com.unconv.spring.service.cache;
+
+import com.unconv.spring.consts.CachedEntity;
+import java.util.UUID;
+
+// Published as an application event on every node once the change has committed. origin is the
+// node id of the bus that published it
+public record EntityChange(CachedEntity entity, String id, String origin) {
+
+    public UUID uuid() {
+        return UUID.fromString(id);
+    }
+}
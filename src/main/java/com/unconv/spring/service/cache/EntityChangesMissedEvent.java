@@ -0,0 +1,4 @@
+package com.unconv.spring.service.cache;
+
+// Published when this node may have missed entity changes, caches then drop everything
+public record EntityChangesMissedEvent() {}
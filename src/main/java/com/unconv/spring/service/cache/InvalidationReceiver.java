@@ -0,0 +1,10 @@
+package com.unconv.spring.service.cache;
+
+import java.util.List;
+
+public interface InvalidationReceiver {
+
+    void onChanges(List<EntityChange> changes);
+
+    void onChangesMissed();
+}
@@ -0,0 +1,13 @@
+package com.unconv.spring.service.cache;
+
+// Carries entity changes between the nodes. publish is called in the transaction of the change,
+// and every node, the publishing one included, hands the change to its receiver once that
+// transaction has committed. Changes are delivered at least once but not necessarily in the order
+// they were published, a node that cannot tell whether it missed some calls onChangesMissed
+// instead
+public interface InvalidationTransport {
+
+    void publish(EntityChange change);
+
+    void start(InvalidationReceiver receiver);
+}
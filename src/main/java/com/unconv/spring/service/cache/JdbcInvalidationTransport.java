@@ -0,0 +1,181 @@
+package com.unconv.spring.service.cache;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.CacheInvalidation;
+import com.unconv.spring.persistence.CacheInvalidationRepository;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Writes each change to cache_invalidations in the transaction of the change, and every node
+// polls the table. Ids are taken at insert but only become visible at commit, so ids a poll
+// skipped are asked for again until gap-timeout has passed, by then they belong to rolled back
+// transactions. A row committed after rows with higher ids is delivered by the poll that finds
+// it, after those rows, so delivery follows commit order rather than id order. Rows are kept for
+// retention, a node that could not poll for longer than that reports its changes as missed
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "application.invalidation.transport", havingValue = "jdbc")
+public class JdbcInvalidationTransport implements InvalidationTransport {
+
+    private static final int MAX_GAPS = 1_000;
+
+    private static final long CLEANUP_INTERVAL_MINUTES = 1;
+
+    private final CacheInvalidationRepository cacheInvalidationRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.Invalidation properties;
+
+    // Only used by the poller thread. Skipped ids, with the time they were first skipped
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+
+    private long lastSeenId = -1;
+
+    private long lastPolledAt;
+
+    private ScheduledExecutorService poller;
+
+    public JdbcInvalidationTransport(
+            ApplicationProperties applicationProperties,
+            CacheInvalidationRepository cacheInvalidationRepository,
+            TransactionTemplate transactionTemplate) {
+        this.properties = applicationProperties.getInvalidation();
+        this.cacheInvalidationRepository = cacheInvalidationRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void publish(EntityChange change) {
+        cacheInvalidationRepository.save(
+                new CacheInvalidation(
+                        null,
+                        change.entity(),
+                        change.id(),
+                        change.origin(),
+                        OffsetDateTime.now(ZoneOffset.UTC)));
+    }
+
+    @Override
+    public synchronized void start(InvalidationReceiver receiver) {
+        if (poller != null) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory =
+                new CustomizableThreadFactory("cache-invalidation-poller-");
+        threadFactory.setDaemon(true);
+        poller = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long pollIntervalMillis = properties.getPollInterval().toMillis();
+        poller.scheduleWithFixedDelay(
+                () -> poll(receiver), 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(
+                this::deleteExpired,
+                CLEANUP_INTERVAL_MINUTES,
+                CLEANUP_INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+    }
+
+    void poll(InvalidationReceiver receiver) {
+        long now = System.nanoTime();
+        List<CacheInvalidation> rows;
+        try {
+            if (lastSeenId < 0) {
+                // Caches start out empty, only changes from now on matter
+                Long maxId =
+                        transactionTemplate.execute(
+                                status -> cacheInvalidationRepository.findMaxId());
+                lastSeenId = maxId == null ? 0 : maxId;
+                lastPolledAt = now;
+                return;
+            }
+            rows = transactionTemplate.execute(status -> readRows());
+        } catch (RuntimeException e) {
+            log.warn("Polling cache invalidations failed: {}", e.getMessage());
+            return;
+        }
+        boolean missed = now - lastPolledAt > properties.getRetention().toNanos();
+        lastPolledAt = now;
+
+        List<EntityChange> changes = new ArrayList<>(rows.size());
+        for (CacheInvalidation row : rows) {
+            if (row.getId() <= lastSeenId) {
+                gaps.remove(row.getId());
+            } else {
+                if (row.getId() - lastSeenId - 1 > MAX_GAPS) {
+                    missed = true;
+                } else {
+                    for (long id = lastSeenId + 1; id < row.getId(); id++) {
+                        gaps.put(id, now);
+                    }
+                }
+                lastSeenId = row.getId();
+            }
+            changes.add(new EntityChange(row.getEntity(), row.getEntityId(), row.getOrigin()));
+        }
+        long gapTimeoutNanos = properties.getGapTimeout().toNanos();
+        gaps.values().removeIf(skippedAt -> now - skippedAt > gapTimeoutNanos);
+        if (gaps.size() > MAX_GAPS) {
+            gaps.clear();
+            missed = true;
+        }
+
+        if (missed) {
+            receiver.onChangesMissed();
+        }
+        if (!changes.isEmpty()) {
+            receiver.onChanges(changes);
+        }
+    }
+
+    // Late commits of skipped ids first, then the rows after the last seen id
+    private List<CacheInvalidation> readRows() {
+        List<CacheInvalidation> rows = new ArrayList<>();
+        if (!gaps.isEmpty()) {
+            rows.addAll(cacheInvalidationRepository.findByIdInOrderById(gaps.keySet()));
+        }
+        rows.addAll(
+                cacheInvalidationRepository.findByIdGreaterThanOrderById(
+                        lastSeenId, PageRequest.ofSize(properties.getBatchSize())));
+        return rows;
+    }
+
+    void deleteExpired() {
+        OffsetDateTime before = OffsetDateTime.now(ZoneOffset.UTC).minus(properties.getRetention());
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        // The newest row stays, a node starting on an empty table takes the ids
+                        // to start at 1
+                        Long maxId = cacheInvalidationRepository.findMaxId();
+                        if (maxId != null) {
+                            cacheInvalidationRepository.deleteByCreatedAtBeforeAndIdLessThan(
+                                    before, maxId);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.warn("Deleting expired cache invalidations failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() throws InterruptedException {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
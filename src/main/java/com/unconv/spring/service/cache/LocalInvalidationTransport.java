@@ -0,0 +1,45 @@
+package com.unconv.spring.service.cache;
+
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Single-node stand-in, changes only reach this node, right after their transaction commits
+@Component
+@ConditionalOnProperty(
+        name = "application.invalidation.transport",
+        havingValue = "local",
+        matchIfMissing = true)
+public class LocalInvalidationTransport implements InvalidationTransport {
+
+    private volatile InvalidationReceiver receiver;
+
+    @Override
+    public void publish(EntityChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        deliver(change);
+                    }
+                });
+    }
+
+    @Override
+    public void start(InvalidationReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    private void deliver(EntityChange change) {
+        InvalidationReceiver current = receiver;
+        if (current != null) {
+            current.onChanges(List.of(change));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.unconv.spring.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Per-sensor versions that responses derive their ETags from, so a conditional GET can be
+// answered without loading anything. The versions only live in this node, the node tag keeps an
+// ETag from matching after a restart or on another node. Revalidating with 304 therefore needs
+// clients to stay on the node that issued their ETags, elsewhere they get the full response.
+// Versions are drawn from one sequence and at most maxVersionedSensors are kept. An evicted
+// sensor reports the highest evicted version from then on, so its ETag never goes back to one
+// issued before its last change
+@Component
+public class SensorSystemVersions {
+
+    private final String nodeTag =
+            Long.toString(System.currentTimeMillis(), 36)
+                    + Integer.toString(ThreadLocalRandom.current().nextInt(1 << 20), 36);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Raised before an evicted version is gone from the map
+    private final AtomicLong evictedVersion = new AtomicLong();
+
+    private final Map<UUID, Long> versions;
+
+    // Bumped by changes that can show up in the responses of every sensor, such as a location
+    private final AtomicLong sharedVersion = new AtomicLong();
+
+    public SensorSystemVersions(ApplicationProperties applicationProperties) {
+        Cache<UUID, Long> cache =
+                Caffeine.newBuilder()
+                        .maximumSize(applicationProperties.getHttpCache().getMaxVersionedSensors())
+                        .<UUID, Long>evictionListener(
+                                (sensorSystemId, version, cause) ->
+                                        evictedVersion.accumulateAndGet(version, Math::max))
+                        .build();
+        this.versions = cache.asMap();
+    }
+
+    public String etag(UUID sensorSystemId, Object... qualifiers) {
+        Long version = versions.get(sensorSystemId);
+        StringBuilder etag =
+                new StringBuilder(nodeTag)
+                        .append('-')
+                        .append(sharedVersion.get())
+                        .append('-')
+                        .append(version == null ? evictedVersion.get() : version);
+        for (Object qualifier : qualifiers) {
+            etag.append('-').append(qualifier);
+        }
+        return etag.toString();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnvironmentalReadingsAccepted(EnvironmentalReadingsAcceptedEvent event) {
+        touch(event.sensorSystemId());
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChange change) {
+        switch (change.entity()) {
+            case SENSOR_SYSTEM, SENSOR_READINGS, SENSOR_READINGS_ADDED -> touch(change.uuid());
+            case SENSOR_LOCATION, UNCONV_USER -> touchAll();
+            default -> {}
+        }
+    }
+
+    @EventListener(EntityChangesMissedEvent.class)
+    public void onEntityChangesMissed() {
+        touchAll();
+    }
+
+    public void touch(UUID sensorSystemId) {
+        versions.merge(sensorSystemId, sequence.incrementAndGet(), Math::max);
+    }
+
+    public void touchAll() {
+        sharedVersion.incrementAndGet();
+    }
+
+    // Bumps now and again once the transaction has committed, a response computed in between
+    // from the old data would otherwise keep the new version
+    public void touchAfterCommit(UUID sensorSystemId) {
+        touch(sensorSystemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            touch(sensorSystemId);
+                        }
+                    });
+        }
+    }
+
+    public void touchAllAfterCommit() {
+        touchAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            touchAll();
+                        }
+                    });
+        }
+    }
+}
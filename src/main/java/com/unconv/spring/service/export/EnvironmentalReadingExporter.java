@@ -0,0 +1,119 @@
+package com.unconv.spring.service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.unconv.spring.config.datasource.DatabaseWorkload;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.consts.ExportFormat;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.archive.EnvironmentalReadingHistory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Writes a sensor's readings straight from a forward-only result set to the response, so memory
+// use does not depend on the number of exported rows
+@Component
+@DatabaseWorkload(Workload.BULK)
+public class EnvironmentalReadingExporter {
+
+    static final String CSV_HEADER = "id,temperature,humidity,timestamp";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final EnvironmentalReadingHistory environmentalReadingHistory;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    public EnvironmentalReadingExporter(
+            EnvironmentalReadingHistory environmentalReadingHistory,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper) {
+        this.environmentalReadingHistory = environmentalReadingHistory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    // The output stream is flushed but left open
+    public void export(
+            UUID sensorSystemId,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            ExportFormat format,
+            OutputStream outputStream) {
+        transactionTemplate.executeWithoutResult(
+                status -> {
+                    try (Stream<EnvironmentalReadingProjection> readings =
+                            environmentalReadingHistory.streamBySensorSystemIdAndTimestampBetween(
+                                    sensorSystemId, from, to)) {
+                        if (format == ExportFormat.NDJSON) {
+                            writeNdjson(readings.iterator(), outputStream);
+                        } else {
+                            writeCsv(readings.iterator(), outputStream);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to write reading export", e);
+                    }
+                });
+    }
+
+    private void writeCsv(Iterator<EnvironmentalReadingProjection> readings, OutputStream out)
+            throws IOException {
+        Writer writer =
+                new BufferedWriter(
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (readings.hasNext()) {
+            EnvironmentalReadingProjection reading = readings.next();
+            // Archived readings have no id
+            if (reading.id() != null) {
+                writer.write(reading.id().toString());
+            }
+            writer.write(',');
+            writer.write(Double.toString(reading.temperature()));
+            writer.write(',');
+            writer.write(Double.toString(reading.humidity()));
+            writer.write(',');
+            writer.write(reading.timestamp().toString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<EnvironmentalReadingProjection> readings, OutputStream out)
+            throws IOException {
+        Writer writer =
+                new BufferedWriter(
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        // Flushing is left to the buffers instead of happening after every reading
+        ObjectWriter readingWriter =
+                objectMapper
+                        .writerFor(EnvironmentalReadingProjection.class)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        while (readings.hasNext()) {
+            readingWriter.writeValue(generator, readings.next());
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+}
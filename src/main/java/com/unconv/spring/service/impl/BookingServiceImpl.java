@@ -25,6 +25,7 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<Booking> findAllBookings(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
@@ -1,49 +1,85 @@
 package com.unconv.spring.service.impl;
 
+import static com.unconv.spring.consts.MessageConstants.ENVT_CSV_REJ_ERR;
+import static com.unconv.spring.consts.MessageConstants.ENVT_CSV_REJ_SIZE;
 import static com.unconv.spring.consts.MessageConstants.ENVT_FILE_FORMAT_ERROR;
 import static com.unconv.spring.consts.MessageConstants.ENVT_FILE_REJ_ERR;
 import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_ACCEPTED;
-import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_DLTD;
-import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_INAT;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_QUEUED;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_BUSY;
 import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_SENS;
-import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_USER;
-
-import com.unconv.spring.consts.SensorStatus;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_WRITE;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_STATUS_HEADER;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_STATUS_QUEUED;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.config.datasource.DatabaseWorkload;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.consts.IngestMode;
 import com.unconv.spring.domain.EnvironmentalReading;
 import com.unconv.spring.domain.SensorSystem;
 import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.MessageResponse;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.model.response.SensorSystemPagedResult;
 import com.unconv.spring.persistence.EnvironmentalReadingRepository;
 import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.projection.SensorSystemOwnership;
 import com.unconv.spring.service.EnvironmentalReadingService;
+import com.unconv.spring.service.aggregate.BucketAggregation;
+import com.unconv.spring.service.aggregate.ClosedBucketAverages;
+import com.unconv.spring.service.aggregate.TimeBuckets;
+import com.unconv.spring.service.archive.EnvironmentalReadingHistory;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.cache.SensorSystemVersions;
+import com.unconv.spring.service.ingest.EnvironmentalReadingBatchWriter;
+import com.unconv.spring.service.ingest.IngestAcknowledgement;
+import com.unconv.spring.service.ingest.IngestFrame;
+import com.unconv.spring.service.ingest.ReadingLogFullException;
+import com.unconv.spring.service.ingest.ReadingRejection;
+import com.unconv.spring.service.ingest.ReadingWriteAheadLog;
+import com.unconv.spring.service.ingest.SensorSystemOwnershipCache;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import com.unconv.spring.service.window.RecentReadingWindows;
 import com.unconv.spring.utils.CSVUtil;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import org.modelmapper.ModelMapper;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+@Slf4j
 @Service
 @Transactional
 public class EnvironmentalReadingServiceImpl implements EnvironmentalReadingService {
@@ -52,10 +88,33 @@ public class EnvironmentalReadingServiceImpl implements EnvironmentalReadingServ
 
     @Autowired private SensorSystemRepository sensorSystemRepository;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
+
+    @Autowired private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired private EnvironmentalReadingBatchWriter environmentalReadingBatchWriter;
+
+    @Autowired private ReadingWriteAheadLog writeAheadLog;
+
+    @Autowired private SensorSystemOwnershipCache sensorSystemOwnershipCache;
+
+    @Autowired private EnvironmentalReadingHistory environmentalReadingHistory;
+
+    @Autowired private RecentReadingWindows recentReadingWindows;
+
+    @Autowired private ClosedBucketAverages closedBucketAverages;
+
+    @Autowired private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private ApplicationProperties applicationProperties;
+
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired private TransactionTemplate transactionTemplate;
 
     @Override
-    public PagedResult<EnvironmentalReading> findAllEnvironmentalReadings(
+    @Transactional(readOnly = true)
+    public PagedResult<EnvironmentalReadingProjection> findAllEnvironmentalReadings(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
                 sortDir.equalsIgnoreCase(Sort.Direction.ASC.name())
@@ -64,15 +123,17 @@ public class EnvironmentalReadingServiceImpl implements EnvironmentalReadingServ
 
         // create Pageable instance
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<EnvironmentalReading> environmentalReadingsPage =
-                environmentalReadingRepository.findAll(pageable);
+        Page<EnvironmentalReadingProjection> environmentalReadingsPage =
+                environmentalReadingRepository.findAllProjectedBy(pageable);
 
         return new PagedResult<>(environmentalReadingsPage);
     }
 
     @Override
-    public PagedResult<EnvironmentalReading> findAllEnvironmentalReadingsBySensorSystemId(
-            UUID sensorSystemId, int pageNo, int pageSize, String sortBy, String sortDir) {
+    @Transactional(readOnly = true)
+    public SensorSystemPagedResult<EnvironmentalReadingProjection>
+            findAllEnvironmentalReadingsBySensorSystemId(
+                    UUID sensorSystemId, int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
                 sortDir.equalsIgnoreCase(Sort.Direction.ASC.name())
                         ? Sort.by(sortBy).ascending()
@@ -80,10 +141,14 @@ public class EnvironmentalReadingServiceImpl implements EnvironmentalReadingServ
 
         // create Pageable instance
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<EnvironmentalReading> environmentalReadingsPage =
-                environmentalReadingRepository.findAllBySensorSystemId(sensorSystemId, pageable);
-
-        return new PagedResult<>(environmentalReadingsPage);
+        Page<EnvironmentalReadingProjection> environmentalReadingsPage =
+                environmentalReadingRepository.findProjectedBySensorSystemId(
+                        sensorSystemId, pageable);
+
+        // The sensor is sent once for the page instead of being nested in every reading
+        return new SensorSystemPagedResult<>(
+                sensorSystemRepository.findProjectedById(sensorSystemId).orElse(null),
+                new PagedResult<>(environmentalReadingsPage));
     }
 
     @Override
@@ -91,198 +156,397 @@ public class EnvironmentalReadingServiceImpl implements EnvironmentalReadingServ
         return environmentalReadingRepository.findById(id);
     }
 
+    // Changes existing readings, so the cached readings and averages of the old and the new sensor
+    // are dropped
     @Override
+    @DatabaseWorkload(Workload.INGESTION)
     public EnvironmentalReading saveEnvironmentalReading(
             EnvironmentalReading environmentalReading) {
-        return environmentalReadingRepository.save(environmentalReading);
+        if (environmentalReading.getId() != null) {
+            environmentalReadingRepository
+                    .findById(environmentalReading.getId())
+                    .ifPresent(
+                            existing ->
+                                    readingsChangedAfterCommit(existing.getSensorSystem().getId()));
+        }
+        EnvironmentalReading savedEnvironmentalReading =
+                environmentalReadingRepository.save(environmentalReading);
+        if (savedEnvironmentalReading.getSensorSystem() != null) {
+            readingsChangedAfterCommit(savedEnvironmentalReading.getSensorSystem().getId());
+        }
+        return savedEnvironmentalReading;
     }
 
+    // Runs without a surrounding transaction: in the queued modes the request waits for the batch
+    // writer, which commits on a connection of its own, and with the ingestion log enabled the
+    // reading is accepted even if no connection can be obtained
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DatabaseWorkload(Workload.INGESTION)
     public ResponseEntity<MessageResponse<EnvironmentalReadingDTO>>
             generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
                     EnvironmentalReadingDTO environmentalReadingDTO,
                     Authentication authentication) {
 
-        Optional<SensorSystem> optionalSensorSystem =
-                sensorSystemRepository.findById(environmentalReadingDTO.getSensorSystem().getId());
+        UUID sensorSystemId = environmentalReadingDTO.getReferencedSensorSystemId();
+        Optional<SensorSystemOwnership> optionalOwnership =
+                sensorSystemId == null
+                        ? Optional.empty()
+                        : sensorSystemOwnershipCache.findById(sensorSystemId);
 
-        if (optionalSensorSystem.isEmpty()) {
-            MessageResponse<EnvironmentalReadingDTO> environmentalReadingDTOMessageResponse =
-                    new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_REJ_SENS);
-            return new ResponseEntity<>(
-                    environmentalReadingDTOMessageResponse, HttpStatus.NOT_FOUND);
+        if (optionalOwnership.isEmpty()) {
+            return ReadingRejection.UNKNOWN_SENSOR_SYSTEM.toResponse(environmentalReadingDTO);
         }
 
-        SensorSystem sensorSystem = optionalSensorSystem.get();
-        if (!sensorSystem.getUnconvUser().getUsername().equals(authentication.getName())) {
-            MessageResponse<EnvironmentalReadingDTO> environmentalReadingDTOMessageResponse =
-                    new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_REJ_USER);
-            return new ResponseEntity<>(
-                    environmentalReadingDTOMessageResponse, HttpStatus.UNAUTHORIZED);
+        SensorSystemOwnership ownership = optionalOwnership.get();
+        Optional<ReadingRejection> rejection =
+                ReadingRejection.check(
+                        ownership.ownerUsername(),
+                        ownership.deleted(),
+                        ownership.sensorStatus(),
+                        authentication.getName());
+        if (rejection.isPresent()) {
+            return rejection.get().toResponse(environmentalReadingDTO);
         }
 
-        if (sensorSystem.isDeleted()) {
-            MessageResponse<EnvironmentalReadingDTO> environmentalReadingDTOMessageResponse =
-                    new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_REJ_DLTD);
-            return new ResponseEntity<>(
-                    environmentalReadingDTOMessageResponse, HttpStatus.BAD_REQUEST);
+        // The reading only needs the sensor's id, the proxy is never initialized
+        SensorSystem sensorSystem = sensorSystemRepository.getReferenceById(ownership.id());
+
+        if (environmentalReadingDTO.getTimestamp() == null) {
+            environmentalReadingDTO.setTimestamp();
         }
 
-        if (sensorSystem.getSensorStatus() != SensorStatus.ACTIVE) {
-            MessageResponse<EnvironmentalReadingDTO> environmentalReadingDTOMessageResponse =
-                    new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_REJ_INAT);
-            return new ResponseEntity<>(
-                    environmentalReadingDTOMessageResponse, HttpStatus.BAD_REQUEST);
+        IngestMode ingestMode = applicationProperties.getIngest().getHttpMode();
+        if (ingestMode != IngestMode.SYNC) {
+            return queueEnvironmentalReading(environmentalReadingDTO, sensorSystem, ingestMode);
         }
 
-        if (environmentalReadingDTO.getTimestamp() == null) {
-            environmentalReadingDTO.setTimestamp();
+        if (writeAheadLog.isEnabled()) {
+            return logEnvironmentalReading(environmentalReadingDTO, sensorSystem);
         }
 
         EnvironmentalReading environmentalReading =
-                saveEnvironmentalReading(
-                        modelMapper.map(environmentalReadingDTO, EnvironmentalReading.class));
+                dtoMapper.toEnvironmentalReading(environmentalReadingDTO);
+        environmentalReading.setSensorSystem(sensorSystem);
+        transactionTemplate.executeWithoutResult(
+                status -> {
+                    environmentalReadingRepository.save(environmentalReading);
+                    publishAcceptedReadings(sensorSystem.getId(), List.of(environmentalReading));
+                });
 
         MessageResponse<EnvironmentalReadingDTO> environmentalReadingDTOMessageResponse =
                 new MessageResponse<>(
-                        modelMapper.map(environmentalReading, EnvironmentalReadingDTO.class),
+                        toAcceptedDTO(environmentalReading, environmentalReadingDTO),
                         ENVT_RECORD_ACCEPTED);
         return new ResponseEntity<>(environmentalReadingDTOMessageResponse, HttpStatus.CREATED);
     }
 
+    // The reading is answered with the id it was logged with, it becomes visible to queries once
+    // ReadingLogReplayer has inserted it
+    private ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> logEnvironmentalReading(
+            EnvironmentalReadingDTO environmentalReadingDTO, SensorSystem sensorSystem) {
+        EnvironmentalReading environmentalReading =
+                dtoMapper.toEnvironmentalReading(environmentalReadingDTO);
+        environmentalReading.setSensorSystem(sensorSystem);
+        try {
+            writeAheadLog.write(List.of(environmentalReading));
+        } catch (ReadingLogFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_REJ_BUSY));
+        }
+        return new ResponseEntity<>(
+                new MessageResponse<>(
+                        toAcceptedDTO(environmentalReading, environmentalReadingDTO),
+                        ENVT_RECORD_ACCEPTED),
+                HttpStatus.CREATED);
+    }
+
+    private ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> queueEnvironmentalReading(
+            EnvironmentalReadingDTO environmentalReadingDTO,
+            SensorSystem sensorSystem,
+            IngestMode ingestMode) {
+        EnvironmentalReading environmentalReading =
+                dtoMapper.toEnvironmentalReading(environmentalReadingDTO);
+        environmentalReading.setSensorSystem(sensorSystem);
+        IngestAcknowledgement acknowledgement = new IngestAcknowledgement();
+        IngestFrame frame =
+                new IngestFrame(
+                        null, sensorSystem.getId(), List.of(environmentalReading), acknowledgement);
+
+        if (!environmentalReadingBatchWriter.offer(frame)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_REJ_BUSY));
+        }
+        if (ingestMode == IngestMode.BEST_EFFORT) {
+            return queuedResponse(environmentalReadingDTO);
+        }
+
+        try {
+            acknowledgement
+                    .getPersisted()
+                    .get(
+                            applicationProperties.getIngest().getAckTimeout().toMillis(),
+                            TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return new ResponseEntity<>(
+                    new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_REJ_WRITE),
+                    HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // Still queued and written later, only the confirmation is missing
+            return queuedResponse(environmentalReadingDTO);
+        }
+        return new ResponseEntity<>(
+                new MessageResponse<>(
+                        toAcceptedDTO(environmentalReading, environmentalReadingDTO),
+                        ENVT_RECORD_ACCEPTED),
+                HttpStatus.CREATED);
+    }
+
+    private static ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> queuedResponse(
+            EnvironmentalReadingDTO environmentalReadingDTO) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(ENVT_RECORD_STATUS_HEADER, ENVT_RECORD_STATUS_QUEUED)
+                .body(new MessageResponse<>(environmentalReadingDTO, ENVT_RECORD_QUEUED));
+    }
+
+    // The accepted reading refers to the sensor by an uninitialized proxy, so the response shows
+    // the sensor as the request sent it, by id or as a whole
+    private EnvironmentalReadingDTO toAcceptedDTO(
+            EnvironmentalReading environmentalReading,
+            EnvironmentalReadingDTO environmentalReadingDTO) {
+        EnvironmentalReadingDTO acceptedDTO =
+                dtoMapper.toEnvironmentalReadingDTO(environmentalReading);
+        acceptedDTO.setSensorSystem(environmentalReadingDTO.getSensorSystem());
+        acceptedDTO.setSensorSystemId(environmentalReadingDTO.getSensorSystemId());
+        return acceptedDTO;
+    }
+
     @Override
+    @DatabaseWorkload(Workload.BULK)
     public int parseFromCSVAndSaveEnvironmentalReading(
             MultipartFile file, SensorSystem sensorSystem) {
         try {
-            List<EnvironmentalReading> environmentalReadings =
-                    CSVUtil.csvToEnvironmentalReadings(file.getInputStream(), sensorSystem);
-            List<EnvironmentalReading> savedEnvironmentalReadings =
-                    environmentalReadingRepository.saveAll(environmentalReadings);
-            return savedEnvironmentalReadings.size();
+            return saveParsedEnvironmentalReadings(
+                    CSVUtil.csvToEnvironmentalReadings(file.getInputStream(), sensorSystem),
+                    sensorSystem);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read file data" + e.getMessage());
         }
     }
 
+    private int saveParsedEnvironmentalReadings(
+            List<EnvironmentalReading> environmentalReadings, SensorSystem sensorSystem) {
+        if (writeAheadLog.isEnabled()) {
+            writeAheadLog.write(environmentalReadings);
+            return environmentalReadings.size();
+        }
+        return transactionTemplate.execute(
+                status -> {
+                    List<EnvironmentalReading> savedEnvironmentalReadings =
+                            environmentalReadingRepository.saveAll(environmentalReadings);
+                    publishAcceptedReadings(sensorSystem.getId(), savedEnvironmentalReadings);
+                    return savedEnvironmentalReadings.size();
+                });
+    }
+
     @Override
     public void deleteEnvironmentalReadingById(UUID id) {
+        environmentalReadingRepository
+                .findById(id)
+                .ifPresent(
+                        environmentalReading ->
+                                readingsChangedAfterCommit(
+                                        environmentalReading.getSensorSystem().getId()));
         environmentalReadingRepository.deleteById(id);
     }
 
     @Override
+    @DatabaseWorkload(Workload.ANALYTICS)
     public Map<OffsetDateTime, Double> getAverageTempsForQuarterHourly(UUID sensorSystemId) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        Optional<Map<OffsetDateTime, Double>> recentAverages =
+                recentReadingWindows.getAverageTemperatures(
+                        sensorSystemId, now.minusHours(3), now, Duration.ofMinutes(15));
+        if (recentAverages.isPresent()) {
+            return recentAverages.get();
+        }
 
-        List<EnvironmentalReading> data =
-                environmentalReadingRepository.findBySensorSystemIdAndTimestampBetween(
-                        sensorSystemId,
-                        OffsetDateTime.now(ZoneOffset.UTC).minusHours(3),
-                        OffsetDateTime.now(ZoneOffset.UTC));
-
-        return new TreeMap<>(getAverageTempsForQuarterHourly(data));
+        return averageTemperatures(sensorSystemId, now.minusHours(3), now, Duration.ofMinutes(15));
     }
 
     @Override
     public Map<OffsetDateTime, Double> getAverageTempsForQuarterHourly(
             List<EnvironmentalReading> data) {
         OffsetDateTime endTime = OffsetDateTime.now(ZoneOffset.UTC);
-        OffsetDateTime startTime = endTime.minusHours(3);
-        Duration interval = Duration.ofMinutes(15);
-
-        Map<OffsetDateTime, List<EnvironmentalReading>> groupedData =
-                data.stream()
-                        .filter(d -> d.getTimestamp().isAfter(startTime))
-                        .collect(
-                                Collectors.groupingBy(
-                                        d -> roundTimeToInterval(d.getTimestamp(), interval)));
-
-        return groupedData.entrySet().stream()
-                .collect(
-                        Collectors.toMap(
-                                Map.Entry::getKey, e -> calculateAverageTemp(e.getValue())));
+        return averageTemperatures(data, endTime.minusHours(3), Duration.ofMinutes(15));
     }
 
     @Override
+    @DatabaseWorkload(Workload.ANALYTICS)
     public Map<OffsetDateTime, Double> getAverageTempsForHourly(UUID sensorSystemId) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        Optional<Map<OffsetDateTime, Double>> recentAverages =
+                recentReadingWindows.getAverageTemperatures(
+                        sensorSystemId, now.minusHours(24), now, Duration.ofMinutes(60));
+        if (recentAverages.isPresent()) {
+            return recentAverages.get();
+        }
 
-        List<EnvironmentalReading> data =
-                environmentalReadingRepository.findBySensorSystemIdAndTimestampBetween(
-                        sensorSystemId,
-                        OffsetDateTime.now(ZoneOffset.UTC).minusHours(24),
-                        OffsetDateTime.now(ZoneOffset.UTC));
-
-        return new TreeMap<>(getAverageTempsForHourly(data));
+        return averageTemperatures(sensorSystemId, now.minusHours(24), now, Duration.ofMinutes(60));
     }
 
     @Override
     public Map<OffsetDateTime, Double> getAverageTempsForHourly(List<EnvironmentalReading> data) {
         OffsetDateTime endTime = OffsetDateTime.now(ZoneOffset.UTC);
-        OffsetDateTime startTime = endTime.minusHours(24);
-        Duration interval = Duration.ofMinutes(60);
-
-        Map<OffsetDateTime, List<EnvironmentalReading>> groupedData =
-                data.stream()
-                        .filter(d -> d.getTimestamp().isAfter(startTime))
-                        .collect(
-                                Collectors.groupingBy(
-                                        d -> roundTimeToInterval(d.getTimestamp(), interval)));
-
-        return groupedData.entrySet().stream()
-                .collect(
-                        Collectors.toMap(
-                                Map.Entry::getKey, e -> calculateAverageTemp(e.getValue())));
+        return averageTemperatures(data, endTime.minusHours(24), Duration.ofMinutes(60));
     }
 
     @Override
+    @DatabaseWorkload(Workload.ANALYTICS)
     public Map<OffsetDateTime, Double> getAverageTempsForDaily(UUID sensorSystemId) {
-
-        List<EnvironmentalReading> data =
-                environmentalReadingRepository.findBySensorSystemIdAndTimestampBetween(
-                        sensorSystemId,
-                        OffsetDateTime.now(ZoneOffset.UTC).minusDays(7),
-                        OffsetDateTime.now(ZoneOffset.UTC));
-
-        return new TreeMap<>(getAverageTempsForDaily(data));
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        return averageTemperatures(sensorSystemId, now.minusDays(7), now, Duration.ofDays(1));
     }
 
     @Override
     public Map<OffsetDateTime, Double> getAverageTempsForDaily(List<EnvironmentalReading> data) {
         OffsetDateTime endTime = OffsetDateTime.now(ZoneOffset.UTC);
-        OffsetDateTime startTime = endTime.minusDays(7);
-        Duration interval = Duration.ofDays(1);
-
-        Map<OffsetDateTime, List<EnvironmentalReading>> groupedData =
-                data.stream()
-                        .filter(d -> d.getTimestamp().isAfter(startTime))
-                        .collect(
-                                Collectors.groupingBy(
-                                        d -> roundTimeToInterval(d.getTimestamp(), interval)));
-
-        return groupedData.entrySet().stream()
-                .collect(
-                        Collectors.toMap(
-                                Map.Entry::getKey, e -> calculateAverageTemp(e.getValue())));
+        return averageTemperatures(data, endTime.minusDays(7), Duration.ofDays(1));
     }
 
-    private OffsetDateTime roundTimeToInterval(OffsetDateTime dateTime, Duration interval) {
-        long seconds = dateTime.toEpochSecond() / interval.getSeconds() * interval.getSeconds();
-        Instant instant = Instant.ofEpochSecond(seconds);
-        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    private void readingsChangedAfterCommit(UUID sensorSystemId) {
+        recentReadingWindows.invalidateAfterCommit(sensorSystemId);
+        closedBucketAverages.invalidateAfterCommit(sensorSystemId);
+        sensorSystemVersions.touchAfterCommit(sensorSystemId);
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS, sensorSystemId);
     }
 
-    private double calculateAverageTemp(List<EnvironmentalReading> data) {
-        double sum = data.stream().mapToDouble(EnvironmentalReading::getTemperature).sum();
-        return BigDecimal.valueOf(sum / data.size())
-                .setScale(3, RoundingMode.HALF_UP)
-                .doubleValue();
+    // This node applies the readings to its caches once they are committed, the other nodes drop
+    // what they hold of the sensor. Called in the transaction of the insert, so that the jdbc
+    // transport writes the announcement with the readings
+    private void publishAcceptedReadings(
+            UUID sensorSystemId, List<EnvironmentalReading> environmentalReadings) {
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+        applicationEventPublisher.publishEvent(
+                EnvironmentalReadingsAcceptedEvent.of(sensorSystemId, environmentalReadings));
+    }
+
+    // Averages of the readings in (startTime, endTime]. When every bucket lying entirely inside
+    // the range is in closedBucketAverages, only the partial buckets at both ends are loaded,
+    // otherwise the whole range is and its closed buckets are cached
+    private Map<OffsetDateTime, Double> averageTemperatures(
+            UUID sensorSystemId,
+            OffsetDateTime startTime,
+            OffsetDateTime endTime,
+            Duration interval) {
+        long width = interval.getSeconds();
+        long firstClosedSecond = TimeBuckets.align(startTime.toEpochSecond(), width) + width;
+        long closedUntilSecond = TimeBuckets.align(endTime.toEpochSecond(), width);
+        long stamp = closedBucketAverages.stamp(sensorSystemId);
+
+        Map<OffsetDateTime, Double> averages = new TreeMap<>();
+        boolean allCached = firstClosedSecond < closedUntilSecond;
+        for (long second = firstClosedSecond;
+                allCached && second < closedUntilSecond;
+                second += width) {
+            Double average = closedBucketAverages.get(sensorSystemId, width, second);
+            if (average == null) {
+                allCached = false;
+            } else if (!average.isNaN()) {
+                averages.put(
+                        OffsetDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneOffset.UTC),
+                        average);
+            }
+        }
+
+        if (allCached) {
+            List<EnvironmentalReading> data =
+                    new ArrayList<>(
+                            environmentalReadingHistory.findBySensorSystemIdAndTimestampBetween(
+                                    sensorSystemId,
+                                    startTime,
+                                    OffsetDateTime.ofInstant(
+                                                    Instant.ofEpochSecond(firstClosedSecond),
+                                                    ZoneOffset.UTC)
+                                            .minusNanos(1)));
+            data.addAll(
+                    environmentalReadingHistory.findBySensorSystemIdAndTimestampBetween(
+                            sensorSystemId,
+                            OffsetDateTime.ofInstant(
+                                    Instant.ofEpochSecond(closedUntilSecond), ZoneOffset.UTC),
+                            endTime));
+            averages.putAll(averageTemperatures(data, startTime, interval));
+            return averages;
+        }
+
+        List<EnvironmentalReading> data =
+                environmentalReadingHistory.findBySensorSystemIdAndTimestampBetween(
+                        sensorSystemId, startTime, endTime);
+        BucketAggregation aggregation =
+                new BucketAggregation(
+                        TimeBuckets.of(startTime.toEpochSecond(), endTime.toEpochSecond(), width));
+        for (EnvironmentalReading reading : data) {
+            if (reading.getTimestamp().isAfter(startTime)) {
+                aggregation.add(reading.getTimestamp().toEpochSecond(), reading.getTemperature());
+            }
+        }
+        TimeBuckets buckets = aggregation.buckets();
+        for (int bucket = 0; bucket < buckets.count(); bucket++) {
+            long second = buckets.startSecond(bucket);
+            if (second >= firstClosedSecond && second < closedUntilSecond) {
+                closedBucketAverages.put(
+                        sensorSystemId,
+                        stamp,
+                        width,
+                        second,
+                        aggregation.count(bucket) == 0
+                                ? Double.NaN
+                                : BucketAggregation.round(aggregation.mean(bucket), 3));
+            }
+        }
+        return aggregation.means(3);
+    }
+
+    // Readings after startTime are bucketed in two passes over the list, the first finds the
+    // range of buckets and the second adds the temperatures to primitive per-bucket sums
+    private Map<OffsetDateTime, Double> averageTemperatures(
+            List<EnvironmentalReading> data, OffsetDateTime startTime, Duration interval) {
+        long firstSecond = Long.MAX_VALUE;
+        long lastSecond = Long.MIN_VALUE;
+        for (EnvironmentalReading reading : data) {
+            if (reading.getTimestamp().isAfter(startTime)) {
+                long second = reading.getTimestamp().toEpochSecond();
+                firstSecond = Math.min(firstSecond, second);
+                lastSecond = Math.max(lastSecond, second);
+            }
+        }
+        if (firstSecond > lastSecond) {
+            return new TreeMap<>();
+        }
+
+        BucketAggregation aggregation =
+                new BucketAggregation(
+                        TimeBuckets.of(firstSecond, lastSecond, interval.getSeconds()));
+        for (EnvironmentalReading reading : data) {
+            if (reading.getTimestamp().isAfter(startTime)) {
+                aggregation.add(reading.getTimestamp().toEpochSecond(), reading.getTemperature());
+            }
+        }
+        return aggregation.means(3);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DatabaseWorkload(Workload.BULK)
     public ResponseEntity<String> verifyCSVFileAndValidateSensorSystemAndParseEnvironmentalReadings(
             UUID sensorSystemId, MultipartFile file) {
         String message;
-        final Optional<SensorSystem> sensorSystem = sensorSystemRepository.findById(sensorSystemId);
-
-        if (sensorSystem.isEmpty()) {
+        if (sensorSystemOwnershipCache.findById(sensorSystemId).isEmpty()) {
             message = ENVT_RECORD_REJ_SENS;
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
         }
@@ -290,7 +554,8 @@ public class EnvironmentalReadingServiceImpl implements EnvironmentalReadingServ
         if (CSVUtil.isOfCSVFormat(file)) {
             try {
                 int recordsProcessed =
-                        parseFromCSVAndSaveEnvironmentalReading(file, sensorSystem.get());
+                        parseFromCSVAndSaveEnvironmentalReading(
+                                file, sensorSystemRepository.getReferenceById(sensorSystemId));
 
                 message =
                         "Uploaded the file successfully: "
@@ -308,4 +573,46 @@ public class EnvironmentalReadingServiceImpl implements EnvironmentalReadingServ
         message = ENVT_FILE_FORMAT_ERROR;
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(message);
     }
+
+    // The body is parsed while it is read, so a gzipped upload is decompressed as it goes and
+    // never buffered. Reading stops one byte past max-upload-size, an upload that got there is
+    // refused
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DatabaseWorkload(Workload.BULK)
+    public ResponseEntity<String> validateSensorSystemAndParseEnvironmentalReadings(
+            UUID sensorSystemId, InputStream csv) {
+        if (sensorSystemOwnershipCache.findById(sensorSystemId).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ENVT_RECORD_REJ_SENS);
+        }
+
+        SensorSystem sensorSystem = sensorSystemRepository.getReferenceById(sensorSystemId);
+        DataSize maxUploadSize = applicationProperties.getIngest().getMaxUploadSize();
+        BoundedInputStream boundedCsv = new BoundedInputStream(csv, maxUploadSize.toBytes() + 1);
+        List<EnvironmentalReading> environmentalReadings = null;
+        RuntimeException parseFailure = null;
+        try {
+            environmentalReadings = CSVUtil.csvToEnvironmentalReadings(boundedCsv, sensorSystem);
+        } catch (RuntimeException e) {
+            parseFailure = e;
+        }
+        // A csv cut off at max-upload-size usually fails to parse, it is refused as too large
+        if (boundedCsv.getCount() > maxUploadSize.toBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(String.format(ENVT_CSV_REJ_SIZE, maxUploadSize));
+        }
+        if (parseFailure != null) {
+            log.warn("Failed to parse csv upload of sensor {}", sensorSystemId, parseFailure);
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(ENVT_CSV_REJ_ERR);
+        }
+
+        try {
+            int recordsProcessed =
+                    saveParsedEnvironmentalReadings(environmentalReadings, sensorSystem);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body("Uploaded the csv successfully with " + recordsProcessed + " records");
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(ENVT_CSV_REJ_ERR);
+        }
+    }
 }
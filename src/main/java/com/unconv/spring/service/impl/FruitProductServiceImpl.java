@@ -16,6 +16,7 @@ public class FruitProductServiceImpl implements FruitProductService {
     @Autowired private FruitProductRepository fruitProductRepository;
 
     @Override
+    @Transactional(readOnly = true)
     public List<FruitProduct> findAllFruitProducts() {
         return fruitProductRepository.findAll();
     }
@@ -1,8 +1,10 @@
 package com.unconv.spring.service.impl;
 
+import com.unconv.spring.consts.CachedEntity;
 import com.unconv.spring.domain.Fruit;
 import com.unconv.spring.persistence.FruitRepository;
 import com.unconv.spring.service.FruitService;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +17,10 @@ public class FruitServiceImpl implements FruitService {
 
     @Autowired private FruitRepository fruitRepository;
 
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
+
     @Override
+    @Transactional(readOnly = true)
     public List<Fruit> findAllFruits() {
         return fruitRepository.findAll();
     }
@@ -27,11 +32,14 @@ public class FruitServiceImpl implements FruitService {
 
     @Override
     public Fruit saveFruit(Fruit fruit) {
-        return fruitRepository.save(fruit);
+        Fruit savedFruit = fruitRepository.save(fruit);
+        cacheInvalidationBus.publish(CachedEntity.FRUIT, savedFruit.getId());
+        return savedFruit;
     }
 
     @Override
     public void deleteFruitById(Long id) {
+        cacheInvalidationBus.publish(CachedEntity.FRUIT, id);
         fruitRepository.deleteById(id);
     }
 }
@@ -1,8 +1,10 @@
 package com.unconv.spring.service.impl;
 
+import com.unconv.spring.consts.CachedEntity;
 import com.unconv.spring.domain.Heater;
 import com.unconv.spring.persistence.HeaterRepository;
 import com.unconv.spring.service.HeaterService;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +17,10 @@ public class HeaterServiceImpl implements HeaterService {
 
     @Autowired private HeaterRepository heaterRepository;
 
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
+
     @Override
+    @Transactional(readOnly = true)
     public List<Heater> findAllHeaters() {
         return heaterRepository.findAll();
     }
@@ -27,11 +32,14 @@ public class HeaterServiceImpl implements HeaterService {
 
     @Override
     public Heater saveHeater(Heater heater) {
-        return heaterRepository.save(heater);
+        Heater savedHeater = heaterRepository.save(heater);
+        cacheInvalidationBus.publish(CachedEntity.HEATER, savedHeater.getId());
+        return savedHeater;
     }
 
     @Override
     public void deleteHeaterById(Long id) {
+        cacheInvalidationBus.publish(CachedEntity.HEATER, id);
         heaterRepository.deleteById(id);
     }
 }
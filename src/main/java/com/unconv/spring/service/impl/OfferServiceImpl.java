@@ -1,8 +1,10 @@
 package com.unconv.spring.service.impl;
 
+import com.unconv.spring.consts.CachedEntity;
 import com.unconv.spring.domain.Offer;
 import com.unconv.spring.persistence.OfferRepository;
 import com.unconv.spring.service.OfferService;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +17,10 @@ public class OfferServiceImpl implements OfferService {
 
     @Autowired private OfferRepository offerRepository;
 
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
+
     @Override
+    @Transactional(readOnly = true)
     public List<Offer> findAllOffers() {
         return offerRepository.findAll();
     }
@@ -27,11 +32,14 @@ public class OfferServiceImpl implements OfferService {
 
     @Override
     public Offer saveOffer(Offer offer) {
-        return offerRepository.save(offer);
+        Offer savedOffer = offerRepository.save(offer);
+        cacheInvalidationBus.publish(CachedEntity.OFFER, savedOffer.getId());
+        return savedOffer;
     }
 
     @Override
     public void deleteOfferById(Long id) {
+        cacheInvalidationBus.publish(CachedEntity.OFFER, id);
         offerRepository.deleteById(id);
     }
 }
@@ -21,6 +21,7 @@ public class OrderProductServiceImpl implements OrderProductService {
     @Autowired private OrderProductRepository orderProductRepository;
 
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<OrderProduct> findAllOrderProducts(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
@@ -20,6 +20,7 @@ public class PassengerServiceImpl implements PassengerService {
     @Autowired private PassengerRepository passengerRepository;
 
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<Passenger> findAllPassengers(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
@@ -0,0 +1,256 @@
+package com.unconv.spring.service.impl;
+
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_ACCEPTED;
+
+import com.unconv.spring.consts.AggregateFunction;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.consts.ReadingMetric;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.model.response.MessageResponse;
+import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.model.response.ReadingAggregates;
+import com.unconv.spring.model.response.SensorSystemPagedResult;
+import com.unconv.spring.persistence.ReactiveEnvironmentalReadingRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.projection.SensorSystemProjection;
+import com.unconv.spring.service.ReactiveEnvironmentalReadingService;
+import com.unconv.spring.service.aggregate.BucketAggregation;
+import com.unconv.spring.service.aggregate.EnvironmentalReadingAggregator;
+import com.unconv.spring.service.aggregate.TimeBuckets;
+import com.unconv.spring.service.archive.EnvironmentalReadingHistory;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.ingest.ReadingRejection;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import com.unconv.spring.service.stream.ReactiveReadingBroadcaster;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// The reading endpoints on R2DBC. Sensor checks, bucketing and the published events are the
+// ones of the blocking service, a reading accepted here is inserted directly like in SYNC mode
+@Service
+@ConditionalOnProperty(name = "application.reactive.enabled", havingValue = "true")
+public class ReactiveEnvironmentalReadingServiceImpl
+        implements ReactiveEnvironmentalReadingService {
+
+    @Autowired
+    private ReactiveEnvironmentalReadingRepository reactiveEnvironmentalReadingRepository;
+
+    @Autowired private EnvironmentalReadingAggregator environmentalReadingAggregator;
+
+    @Autowired private EnvironmentalReadingHistory environmentalReadingHistory;
+
+    @Autowired private ReactiveReadingBroadcaster reactiveReadingBroadcaster;
+
+    @Autowired private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
+
+    @Override
+    public Mono<SensorSystemPagedResult<EnvironmentalReadingProjection>>
+            findAllEnvironmentalReadingsBySensorSystemId(
+                    UUID sensorSystemId, int pageNo, int pageSize, String sortBy, String sortDir) {
+        Sort.Order order =
+                sortDir.equalsIgnoreCase(Sort.Direction.ASC.name())
+                        ? Sort.Order.asc(sortBy)
+                        : Sort.Order.desc(sortBy);
+        PageRequest pageable = PageRequest.of(pageNo, pageSize, Sort.by(order));
+
+        return Mono.zip(
+                        reactiveEnvironmentalReadingRepository
+                                .findSensorSystemProjectedById(sensorSystemId)
+                                .map(Optional::of)
+                                .defaultIfEmpty(Optional.empty()),
+                        reactiveEnvironmentalReadingRepository
+                                .findBySensorSystemId(
+                                        sensorSystemId,
+                                        order,
+                                        pageable.getPageSize(),
+                                        pageable.getOffset())
+                                .collectList(),
+                        reactiveEnvironmentalReadingRepository.countBySensorSystemId(
+                                sensorSystemId))
+                .map(
+                        result -> {
+                            Optional<SensorSystemProjection> sensorSystem = result.getT1();
+                            return new SensorSystemPagedResult<>(
+                                    sensorSystem.orElse(null),
+                                    new PagedResult<>(
+                                            new PageImpl<>(
+                                                    result.getT2(), pageable, result.getT3())));
+                        });
+    }
+
+    @Override
+    public Mono<ResponseEntity<MessageResponse<EnvironmentalReadingDTO>>>
+            generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
+                    EnvironmentalReadingDTO environmentalReadingDTO, String username) {
+        UUID sensorSystemId = environmentalReadingDTO.getReferencedSensorSystemId();
+        if (sensorSystemId == null) {
+            return Mono.just(
+                    ReadingRejection.UNKNOWN_SENSOR_SYSTEM.toResponse(environmentalReadingDTO));
+        }
+        return reactiveEnvironmentalReadingRepository
+                .findSensorSystemOwnershipById(sensorSystemId)
+                .flatMap(
+                        ownership ->
+                                ReadingRejection.check(
+                                                ownership.ownerUsername(),
+                                                ownership.deleted(),
+                                                ownership.sensorStatus(),
+                                                username)
+                                        .map(
+                                                rejection ->
+                                                        Mono.just(
+                                                                rejection.toResponse(
+                                                                        environmentalReadingDTO)))
+                                        .orElseGet(
+                                                () ->
+                                                        saveEnvironmentalReading(
+                                                                environmentalReadingDTO,
+                                                                sensorSystemId)))
+                .defaultIfEmpty(
+                        ReadingRejection.UNKNOWN_SENSOR_SYSTEM.toResponse(environmentalReadingDTO));
+    }
+
+    private Mono<ResponseEntity<MessageResponse<EnvironmentalReadingDTO>>> saveEnvironmentalReading(
+            EnvironmentalReadingDTO environmentalReadingDTO, UUID sensorSystemId) {
+        if (environmentalReadingDTO.getTimestamp() == null) {
+            environmentalReadingDTO.setTimestamp();
+        }
+        EnvironmentalReadingProjection reading =
+                new EnvironmentalReadingProjection(
+                        UUID.randomUUID(),
+                        environmentalReadingDTO.getTemperature(),
+                        environmentalReadingDTO.getHumidity(),
+                        environmentalReadingDTO.getTimestamp(),
+                        sensorSystemId);
+        return reactiveEnvironmentalReadingRepository
+                .insert(reading)
+                // The jdbc transport writes with JPA, off the event loop and in a transaction of
+                // its own, as R2DBC and JPA cannot share one
+                .then(
+                        Mono.fromRunnable(
+                                        () ->
+                                                cacheInvalidationBus.publish(
+                                                        CachedEntity.SENSOR_READINGS_ADDED,
+                                                        sensorSystemId))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                .then(
+                        Mono.fromSupplier(
+                                () -> {
+                                    applicationEventPublisher.publishEvent(
+                                            new EnvironmentalReadingsAcceptedEvent(
+                                                    sensorSystemId, List.of(reading)));
+                                    environmentalReadingDTO.setId(reading.id());
+                                    return new ResponseEntity<>(
+                                            new MessageResponse<>(
+                                                    environmentalReadingDTO, ENVT_RECORD_ACCEPTED),
+                                            HttpStatus.CREATED);
+                                }));
+    }
+
+    // Always read from the database: loading the in-memory window of recent readings would
+    // block. Empty for unknown sensors
+    @Override
+    public Mono<ReadingAggregates> aggregateEnvironmentalReadings(
+            UUID sensorSystemId,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            Duration interval,
+            Set<ReadingMetric> metrics,
+            Set<AggregateFunction> functions) {
+        TimeBuckets buckets = environmentalReadingAggregator.buckets(from, to, interval);
+        return existsSensorSystemById(sensorSystemId)
+                .filter(exists -> exists)
+                .flatMap(
+                        exists ->
+                                aggregate(
+                                        sensorSystemId,
+                                        from,
+                                        to,
+                                        interval,
+                                        buckets,
+                                        metrics,
+                                        functions));
+    }
+
+    private Mono<ReadingAggregates> aggregate(
+            UUID sensorSystemId,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            Duration interval,
+            TimeBuckets buckets,
+            Set<ReadingMetric> metrics,
+            Set<AggregateFunction> functions) {
+        BucketAggregation temperatures =
+                metrics.contains(ReadingMetric.TEMPERATURE) ? new BucketAggregation(buckets) : null;
+        BucketAggregation humidities =
+                metrics.contains(ReadingMetric.HUMIDITY) ? new BucketAggregation(buckets) : null;
+        Flux<EnvironmentalReadingProjection> readings =
+                Flux.concat(
+                        findArchivedReadings(sensorSystemId, from, to),
+                        reactiveEnvironmentalReadingRepository
+                                .findBySensorSystemIdAndTimestampBetween(sensorSystemId, from, to));
+        return readings.doOnNext(
+                        reading ->
+                                EnvironmentalReadingAggregator.add(
+                                        reading, temperatures, humidities))
+                .then(
+                        Mono.fromSupplier(
+                                () ->
+                                        EnvironmentalReadingAggregator.toAggregates(
+                                                sensorSystemId,
+                                                from,
+                                                to,
+                                                interval,
+                                                EnvironmentalReadingAggregator.SOURCE_DATABASE,
+                                                temperatures,
+                                                humidities,
+                                                functions)));
+    }
+
+    private Flux<EnvironmentalReadingProjection> findArchivedReadings(
+            UUID sensorSystemId, OffsetDateTime from, OffsetDateTime to) {
+        if (!environmentalReadingHistory.mayBeArchived(from)) {
+            return Flux.empty();
+        }
+        return reactiveEnvironmentalReadingRepository
+                .findArchiveBlocks(
+                        sensorSystemId,
+                        from.atZoneSameInstant(ZoneOffset.UTC).toLocalDate(),
+                        to.atZoneSameInstant(ZoneOffset.UTC).toLocalDate())
+                .flatMapIterable(
+                        block ->
+                                EnvironmentalReadingHistory.decodeArchivedReadings(
+                                        sensorSystemId, block, from, to));
+    }
+
+    @Override
+    public Mono<Boolean> existsSensorSystemById(UUID sensorSystemId) {
+        return reactiveEnvironmentalReadingRepository.existsSensorSystemById(sensorSystemId);
+    }
+
+    @Override
+    public Flux<ServerSentEvent<EnvironmentalReadingProjection>> streamEnvironmentalReadings(
+            UUID sensorSystemId) {
+        return reactiveReadingBroadcaster.subscribe(sensorSystemId);
+    }
+}
@@ -20,6 +20,7 @@ public class RouteServiceImpl implements RouteService {
     @Autowired private RouteRepository routeRepository;
 
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<Route> findAllRoutes(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
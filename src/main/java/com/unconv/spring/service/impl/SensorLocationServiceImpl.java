@@ -1,10 +1,14 @@
 package com.unconv.spring.service.impl;
 
+import com.unconv.spring.consts.CachedEntity;
 import com.unconv.spring.domain.SensorLocation;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.persistence.SensorLocationRepository;
 import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.projection.SensorLocationProjection;
 import com.unconv.spring.service.SensorLocationService;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.cache.SensorSystemVersions;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,7 +28,12 @@ public class SensorLocationServiceImpl implements SensorLocationService {
 
     @Autowired private SensorSystemRepository sensorSystemRepository;
 
+    @Autowired private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
+
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<SensorLocation> findAllSensorLocations(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
@@ -40,7 +49,8 @@ public class SensorLocationServiceImpl implements SensorLocationService {
     }
 
     @Override
-    public List<SensorLocation> findAllSensorLocationsByUnconvUserId(UUID unconvUserId) {
+    @Transactional(readOnly = true)
+    public List<SensorLocationProjection> findAllSensorLocationsByUnconvUserId(UUID unconvUserId) {
         return sensorSystemRepository.findDistinctByUnconvUserId(unconvUserId);
     }
 
@@ -51,11 +61,16 @@ public class SensorLocationServiceImpl implements SensorLocationService {
 
     @Override
     public SensorLocation saveSensorLocation(SensorLocation sensorLocation) {
-        return sensorLocationRepository.save(sensorLocation);
+        sensorSystemVersions.touchAllAfterCommit();
+        SensorLocation savedSensorLocation = sensorLocationRepository.save(sensorLocation);
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_LOCATION, savedSensorLocation.getId());
+        return savedSensorLocation;
     }
 
     @Override
     public void deleteSensorLocationById(UUID id) {
+        sensorSystemVersions.touchAllAfterCommit();
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_LOCATION, id);
         sensorLocationRepository.deleteById(id);
     }
 }
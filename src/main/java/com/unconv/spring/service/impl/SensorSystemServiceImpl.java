@@ -1,19 +1,29 @@
 package com.unconv.spring.service.impl;
 
+import com.unconv.spring.consts.CachedEntity;
 import com.unconv.spring.domain.SensorSystem;
 import com.unconv.spring.dto.SensorSystemDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.persistence.EnvironmentalReadingArchiveRepository;
 import com.unconv.spring.persistence.EnvironmentalReadingRepository;
 import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.projection.SensorSystemOverview;
+import com.unconv.spring.projection.SensorSystemProjection;
+import com.unconv.spring.projection.SensorSystemReadingCount;
 import com.unconv.spring.service.SensorSystemService;
-import java.util.ArrayList;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.cache.SensorSystemVersions;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import org.modelmapper.ModelMapper;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -28,10 +38,17 @@ public class SensorSystemServiceImpl implements SensorSystemService {
 
     @Autowired private EnvironmentalReadingRepository environmentalReadingRepository;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private EnvironmentalReadingArchiveRepository environmentalReadingArchiveRepository;
+
+    @Autowired private DTOMapper dtoMapper;
+
+    @Autowired private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
 
     @Override
-    public PagedResult<SensorSystemDTO> findAllSensorSystems(
+    @Transactional(readOnly = true)
+    public PagedResult<SensorSystemOverview> findAllSensorSystems(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
                 sortDir.equalsIgnoreCase(Sort.Direction.ASC.name())
@@ -40,16 +57,15 @@ public class SensorSystemServiceImpl implements SensorSystemService {
 
         // create Pageable instance
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<SensorSystem> sensorSystemsPage = sensorSystemRepository.findAll(pageable);
+        Page<SensorSystemProjection> sensorSystemsPage =
+                sensorSystemRepository.findAllProjectedBy(pageable);
 
-        Page<SensorSystemDTO> sensorSystemDTOPage =
-                new PageImpl<>(populateSensorSystemDTOFromSensorSystemPage(sensorSystemsPage));
-
-        return new PagedResult<>(sensorSystemDTOPage);
+        return new PagedResult<>(populateSensorSystemOverviews(sensorSystemsPage));
     }
 
     @Override
-    public PagedResult<SensorSystemDTO> findAllSensorSystemsByUnconvUserId(
+    @Transactional(readOnly = true)
+    public PagedResult<SensorSystemOverview> findAllSensorSystemsByUnconvUserId(
             UUID unconvUserId, int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
                 sortDir.equalsIgnoreCase(Sort.Direction.ASC.name())
@@ -57,13 +73,16 @@ public class SensorSystemServiceImpl implements SensorSystemService {
                         : Sort.by(sortBy).descending();
 
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<SensorSystem> sensorSystemsPage =
-                sensorSystemRepository.findByUnconvUserIdAndDeletedFalse(unconvUserId, pageable);
+        Page<SensorSystemProjection> sensorSystemsPage =
+                sensorSystemRepository.findProjectedByUnconvUserIdAndDeletedFalse(
+                        unconvUserId, pageable);
 
-        Page<SensorSystemDTO> sensorSystemDTOPage =
-                new PageImpl<>(populateSensorSystemDTOFromSensorSystemPage(sensorSystemsPage));
+        return new PagedResult<>(populateSensorSystemOverviews(sensorSystemsPage));
+    }
 
-        return new PagedResult<>(sensorSystemDTOPage);
+    @Override
+    public List<UUID> findSensorSystemIdsByUnconvUserId(UUID unconvUserId) {
+        return sensorSystemRepository.findIdsByUnconvUserIdAndDeletedFalse(unconvUserId);
     }
 
     @Override
@@ -75,12 +94,10 @@ public class SensorSystemServiceImpl implements SensorSystemService {
     public Optional<SensorSystemDTO> findSensorSystemDTOById(UUID id) {
         Optional<SensorSystem> sensorSystem = sensorSystemRepository.findById(id);
         if (sensorSystem.isEmpty()) {
-            return Optional.ofNullable(modelMapper.map(sensorSystem, SensorSystemDTO.class));
+            return Optional.empty();
         } else {
-            SensorSystemDTO sensorSystemDTO =
-                    modelMapper.map(sensorSystem.get(), SensorSystemDTO.class);
-            sensorSystemDTO.setReadingCount(
-                    environmentalReadingRepository.countBySensorSystemId(id));
+            SensorSystemDTO sensorSystemDTO = dtoMapper.toSensorSystemDTO(sensorSystem.get());
+            sensorSystemDTO.setReadingCount(countReadings(id));
             sensorSystemDTO.setLatestReading(
                     environmentalReadingRepository.findFirstBySensorSystemIdOrderByTimestampDesc(
                             id));
@@ -90,12 +107,17 @@ public class SensorSystemServiceImpl implements SensorSystemService {
 
     @Override
     public SensorSystem saveSensorSystem(SensorSystem sensorSystem) {
-        return sensorSystemRepository.save(sensorSystem);
+        SensorSystem savedSensorSystem = sensorSystemRepository.save(sensorSystem);
+        sensorSystemVersions.touchAfterCommit(savedSensorSystem.getId());
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_SYSTEM, savedSensorSystem.getId());
+        return savedSensorSystem;
     }
 
     @Override
     public boolean deleteSensorSystemById(UUID id) {
-        if (environmentalReadingRepository.countBySensorSystemId(id) != 0) {
+        sensorSystemVersions.touchAfterCommit(id);
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_SYSTEM, id);
+        if (countReadings(id) != 0) {
             SensorSystem sensorSystem = sensorSystemRepository.findSensorSystemById(id);
             sensorSystem.setDeleted(true);
             sensorSystemRepository.save(sensorSystem);
@@ -106,21 +128,52 @@ public class SensorSystemServiceImpl implements SensorSystemService {
         }
     }
 
-    private List<SensorSystemDTO> populateSensorSystemDTOFromSensorSystemPage(
-            Page<SensorSystem> sensorSystemsPage) {
-        List<SensorSystem> sensorSystems = sensorSystemsPage.getContent();
-        List<SensorSystemDTO> sensorSystemDTOs = new ArrayList<>();
-        for (SensorSystem sensorSystem : sensorSystems) {
-            SensorSystemDTO sensorSystemDTO = modelMapper.map(sensorSystem, SensorSystemDTO.class);
-            sensorSystemDTO.setReadingCount(
-                    environmentalReadingRepository.countBySensorSystemId(sensorSystem.getId()));
-            sensorSystemDTO.setLatestReading(
-                    environmentalReadingRepository.findFirstBySensorSystemIdOrderByTimestampDesc(
-                            sensorSystem.getId()));
-
-            sensorSystemDTOs.add(sensorSystemDTO);
+    // Reading counts and latest readings for the whole page come from two set-based queries
+    // instead of two queries per sensor
+    private Page<SensorSystemOverview> populateSensorSystemOverviews(
+            Page<SensorSystemProjection> sensorSystemsPage) {
+        List<UUID> sensorSystemIds =
+                sensorSystemsPage.getContent().stream().map(SensorSystemProjection::id).toList();
+        if (sensorSystemIds.isEmpty()) {
+            return sensorSystemsPage.map(
+                    sensorSystem -> new SensorSystemOverview(sensorSystem, 0, null));
         }
 
-        return sensorSystemDTOs;
+        Map<UUID, Long> readingCounts =
+                Stream.concat(
+                                environmentalReadingRepository
+                                        .countBySensorSystemIds(sensorSystemIds)
+                                        .stream(),
+                                environmentalReadingArchiveRepository
+                                        .countReadingsBySensorSystemIds(sensorSystemIds)
+                                        .stream())
+                        .collect(
+                                Collectors.toMap(
+                                        SensorSystemReadingCount::sensorSystemId,
+                                        SensorSystemReadingCount::readingCount,
+                                        Long::sum));
+        Map<UUID, EnvironmentalReadingProjection> latestReadings =
+                environmentalReadingRepository
+                        .findLatestProjectedBySensorSystemIds(sensorSystemIds)
+                        .stream()
+                        .collect(
+                                Collectors.toMap(
+                                        EnvironmentalReadingProjection::sensorSystemId,
+                                        Function.identity(),
+                                        (first, second) -> first));
+
+        return sensorSystemsPage.map(
+                sensorSystem ->
+                        new SensorSystemOverview(
+                                sensorSystem,
+                                readingCounts.getOrDefault(sensorSystem.id(), 0L),
+                                latestReadings.get(sensorSystem.id())));
+    }
+
+    // Readings moved to the archive still count
+    private long countReadings(UUID sensorSystemId) {
+        return environmentalReadingRepository.countBySensorSystemId(sensorSystemId)
+                + environmentalReadingArchiveRepository.countReadingsBySensorSystemId(
+                        sensorSystemId);
     }
 }
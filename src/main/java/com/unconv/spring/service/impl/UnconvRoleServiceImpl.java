@@ -1,9 +1,11 @@
 package com.unconv.spring.service.impl;
 
+import com.unconv.spring.consts.CachedEntity;
 import com.unconv.spring.domain.UnconvRole;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.persistence.UnconvRoleRepository;
 import com.unconv.spring.service.UnconvRoleService;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,7 +22,10 @@ public class UnconvRoleServiceImpl implements UnconvRoleService {
 
     @Autowired private UnconvRoleRepository unconvRoleRepository;
 
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
+
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<UnconvRole> findAllUnconvRoles(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
@@ -42,11 +47,14 @@ public class UnconvRoleServiceImpl implements UnconvRoleService {
 
     @Override
     public UnconvRole saveUnconvRole(UnconvRole unconvRole) {
-        return unconvRoleRepository.save(unconvRole);
+        UnconvRole savedUnconvRole = unconvRoleRepository.save(unconvRole);
+        cacheInvalidationBus.publish(CachedEntity.UNCONV_ROLE, savedUnconvRole.getId());
+        return savedUnconvRole;
     }
 
     @Override
     public void deleteUnconvRoleById(UUID id) {
+        cacheInvalidationBus.publish(CachedEntity.UNCONV_ROLE, id);
         unconvRoleRepository.deleteById(id);
     }
 }
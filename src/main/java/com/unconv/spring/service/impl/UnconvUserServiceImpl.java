@@ -3,15 +3,18 @@ package com.unconv.spring.service.impl;
 import static com.unconv.spring.consts.MessageConstants.USER_CREATE_SUCCESS;
 import static com.unconv.spring.consts.MessageConstants.USER_NAME_IN_USE;
 
+import com.unconv.spring.consts.CachedEntity;
 import com.unconv.spring.domain.UnconvUser;
 import com.unconv.spring.dto.UnconvUserDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.MessageResponse;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.persistence.UnconvUserRepository;
 import com.unconv.spring.service.UnconvUserService;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.cache.SensorSystemVersions;
 import java.util.Optional;
 import java.util.UUID;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.Page;
@@ -30,9 +33,14 @@ public class UnconvUserServiceImpl implements UnconvUserService {
 
     @Autowired private UnconvUserRepository unconvUserRepository;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
+
+    @Autowired private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private CacheInvalidationBus cacheInvalidationBus;
 
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<UnconvUser> findAllUnconvUsers(
             int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort =
@@ -60,7 +68,10 @@ public class UnconvUserServiceImpl implements UnconvUserService {
     @Override
     public UnconvUser saveUnconvUser(UnconvUser unconvUser, String rawPassword) {
         unconvUser.setPassword(bCryptPasswordEncoder().encode(rawPassword));
-        return unconvUserRepository.save(unconvUser);
+        sensorSystemVersions.touchAllAfterCommit();
+        UnconvUser savedUnconvUser = unconvUserRepository.save(unconvUser);
+        cacheInvalidationBus.publish(CachedEntity.UNCONV_USER, savedUnconvUser.getId());
+        return savedUnconvUser;
     }
 
     @Override
@@ -71,14 +82,13 @@ public class UnconvUserServiceImpl implements UnconvUserService {
         UnconvUser existingUnconvUser =
                 unconvUserRepository.findByUsername(unconvUser.getUsername());
         if (existingUnconvUser != null) {
-            UnconvUserDTO unconvUserDTO = modelMapper.map(unconvUser, UnconvUserDTO.class);
+            UnconvUserDTO unconvUserDTO = dtoMapper.toUnconvUserDTO(unconvUser);
             unconvUserDTO.setPassword(rawPassword);
             messageResponse = new MessageResponse<>(unconvUserDTO, USER_NAME_IN_USE);
             httpStatus = HttpStatus.BAD_REQUEST;
         } else {
             UnconvUser savedUnconvUser = saveUnconvUser(unconvUser, rawPassword);
-            UnconvUserDTO savedUnconvUserDTO =
-                    modelMapper.map(savedUnconvUser, UnconvUserDTO.class);
+            UnconvUserDTO savedUnconvUserDTO = dtoMapper.toUnconvUserDTO(savedUnconvUser);
             messageResponse = new MessageResponse<>(savedUnconvUserDTO, USER_CREATE_SUCCESS);
             httpStatus = HttpStatus.CREATED;
         }
@@ -87,6 +97,8 @@ public class UnconvUserServiceImpl implements UnconvUserService {
 
     @Override
     public void deleteUnconvUserById(UUID id) {
+        sensorSystemVersions.touchAllAfterCommit();
+        cacheInvalidationBus.publish(CachedEntity.UNCONV_USER, id);
         unconvUserRepository.deleteById(id);
     }
 
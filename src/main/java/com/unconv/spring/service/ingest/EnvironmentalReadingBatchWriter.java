@@ -0,0 +1,293 @@
+package com.unconv.spring.service.ingest;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.config.datasource.DatabaseWorkloads;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Slf4j
+@Component
+public class EnvironmentalReadingBatchWriter {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final BlockingQueue<IngestFrame> queue = new LinkedBlockingQueue<>();
+
+    // One permit per queued reading, frames are refused instead of queued once it runs out
+    private final Semaphore capacity;
+
+    private final int queueCapacity;
+
+    private final int batchSize;
+
+    private final long maxBatchDelayNanos;
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository;
+
+    private final ReadingWriteAheadLog writeAheadLog;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final Timer commitTimer;
+
+    private final DistributionSummary batchSizeSummary;
+
+    private final Counter rejectedReadings;
+
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+
+    public EnvironmentalReadingBatchWriter(
+            ApplicationProperties applicationProperties,
+            EnvironmentalReadingRepository environmentalReadingRepository,
+            ReadingWriteAheadLog writeAheadLog,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher applicationEventPublisher,
+            CacheInvalidationBus cacheInvalidationBus,
+            MeterRegistry meterRegistry) {
+        ApplicationProperties.Ingest properties = applicationProperties.getIngest();
+        this.queueCapacity = properties.getQueueCapacity();
+        this.capacity = new Semaphore(queueCapacity);
+        this.batchSize = properties.getBatchSize();
+        this.maxBatchDelayNanos = properties.getMaxBatchDelay().toNanos();
+        this.environmentalReadingRepository = environmentalReadingRepository;
+        this.writeAheadLog = writeAheadLog;
+        this.transactionTemplate = transactionTemplate;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+
+        Gauge.builder(
+                        "readings.ingest.queue.depth",
+                        this,
+                        EnvironmentalReadingBatchWriter::getQueueDepth)
+                .description("Readings waiting for the batching writer")
+                .register(meterRegistry);
+        this.commitTimer =
+                Timer.builder("readings.ingest.commit")
+                        .description("Time to write and commit one batch of readings")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+        this.batchSizeSummary =
+                DistributionSummary.builder("readings.ingest.batch.size")
+                        .description("Readings written per transaction")
+                        .register(meterRegistry);
+        this.rejectedReadings =
+                Counter.builder("readings.ingest.rejected")
+                        .description("Readings refused because the ingestion queue was full")
+                        .register(meterRegistry);
+
+        this.writerThread =
+                new Thread(
+                        () -> DatabaseWorkloads.run(Workload.INGESTION, this::writeLoop),
+                        "reading-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public boolean offer(IngestFrame frame) {
+        if (!running || !capacity.tryAcquire(frame.readings().size())) {
+            rejectedReadings.increment(frame.readings().size());
+            return false;
+        }
+        queue.add(frame);
+        return true;
+    }
+
+    public int getRemainingCapacity() {
+        return capacity.availablePermits();
+    }
+
+    public int getQueueDepth() {
+        return queueCapacity - capacity.availablePermits();
+    }
+
+    // Group commit: a batch is closed once it holds batchSize readings or maxBatchDelay after its
+    // first frame was taken, whichever comes first. Frames arriving while a batch is written
+    // wait for the next one, so batches also grow with the commit latency
+    private void writeLoop() {
+        List<IngestFrame> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            IngestFrame first;
+            try {
+                first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            int readingCount = first.readings().size();
+            long deadline = System.nanoTime() + maxBatchDelayNanos;
+            while (readingCount < batchSize) {
+                IngestFrame next = queue.poll();
+                if (next == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    try {
+                        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                }
+                batch.add(next);
+                readingCount += next.readings().size();
+            }
+
+            try {
+                write(batch, readingCount);
+            } finally {
+                capacity.release(readingCount);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<IngestFrame> batch, int readingCount) {
+        List<EnvironmentalReading> readings = new ArrayList<>(readingCount);
+        for (IngestFrame frame : batch) {
+            readings.addAll(frame.readings());
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (writeAheadLog.isEnabled()) {
+                // ReadingLogReplayer inserts the readings and publishes them afterwards
+                writeAheadLog.write(readings);
+            } else {
+                transactionTemplate.executeWithoutResult(
+                        status -> {
+                            environmentalReadingRepository.saveAll(readings);
+                            announce(batch);
+                        });
+            }
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(readingCount);
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                log.warn(
+                        "Database refused frame {} of sensor {}: {}",
+                        batch.get(0).frameId(),
+                        batch.get(0).sensorSystemId(),
+                        e.getMostSpecificCause().getMessage());
+                groupByListener(batch)
+                        .forEach((listener, frames) -> notifyFailed(listener, frames, e));
+                return;
+            }
+            // A frame the database refuses, e.g. of a sensor deleted since its connection was
+            // accepted, must not fail the frames it was batched with. The frames are written
+            // again one by one, with the ids of the rolled back inserts cleared
+            for (IngestFrame frame : batch) {
+                frame.readings().forEach(reading -> reading.setId(null));
+                write(List.of(frame), frame.readings().size());
+            }
+            return;
+        } catch (RuntimeException e) {
+            log.error("Failed to write batch of {} readings", readingCount, e);
+            groupByListener(batch).forEach((listener, frames) -> notifyFailed(listener, frames, e));
+            return;
+        }
+        if (writeAheadLog.isEnabled()) {
+            groupByListener(batch).forEach(this::notifyPersisted);
+            return;
+        }
+
+        Map<UUID, List<EnvironmentalReading>> readingsBySensorSystemId = new LinkedHashMap<>();
+        for (IngestFrame frame : batch) {
+            readingsBySensorSystemId
+                    .computeIfAbsent(frame.sensorSystemId(), id -> new ArrayList<>())
+                    .addAll(frame.readings());
+        }
+        readingsBySensorSystemId.forEach(
+                (sensorSystemId, sensorReadings) ->
+                        applicationEventPublisher.publishEvent(
+                                EnvironmentalReadingsAcceptedEvent.of(
+                                        sensorSystemId, sensorReadings)));
+
+        groupByListener(batch).forEach(this::notifyPersisted);
+    }
+
+    // One change per sensor of the batch for the other nodes
+    private void announce(List<IngestFrame> batch) {
+        Set<UUID> sensorSystemIds = new LinkedHashSet<>();
+        for (IngestFrame frame : batch) {
+            sensorSystemIds.add(frame.sensorSystemId());
+        }
+        for (UUID sensorSystemId : sensorSystemIds) {
+            cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+        }
+    }
+
+    private Map<IngestListener, List<IngestFrame>> groupByListener(List<IngestFrame> batch) {
+        Map<IngestListener, List<IngestFrame>> framesByListener = new IdentityHashMap<>();
+        for (IngestFrame frame : batch) {
+            framesByListener.computeIfAbsent(frame.listener(), l -> new ArrayList<>()).add(frame);
+        }
+        return framesByListener;
+    }
+
+    private void notifyPersisted(IngestListener listener, List<IngestFrame> frames) {
+        try {
+            listener.onFramesPersisted(frames);
+        } catch (RuntimeException e) {
+            log.warn("Ingest listener failed after a successful write", e);
+        }
+    }
+
+    private void notifyFailed(
+            IngestListener listener, List<IngestFrame> frames, RuntimeException exception) {
+        try {
+            listener.onFramesFailed(frames, exception);
+        } catch (RuntimeException e) {
+            log.warn("Ingest listener failed after a failed write", e);
+        }
+    }
+
+    // Queued frames are still written on shutdown, new ones are refused
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+    }
+}
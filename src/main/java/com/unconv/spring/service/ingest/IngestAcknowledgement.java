@@ -0,0 +1,24 @@
+package com.unconv.spring.service.ingest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Completes once the batch holding the frame has been committed or has failed
+public class IngestAcknowledgement implements IngestListener {
+
+    private final CompletableFuture<Void> persisted = new CompletableFuture<>();
+
+    public CompletableFuture<Void> getPersisted() {
+        return persisted;
+    }
+
+    @Override
+    public void onFramesPersisted(List<IngestFrame> frames) {
+        persisted.complete(null);
+    }
+
+    @Override
+    public void onFramesFailed(List<IngestFrame> frames, RuntimeException exception) {
+        persisted.completeExceptionally(exception);
+    }
+}
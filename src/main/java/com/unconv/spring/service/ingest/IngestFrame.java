@@ -0,0 +1,11 @@
+package com.unconv.spring.service.ingest;
+
+import com.unconv.spring.domain.EnvironmentalReading;
+import java.util.List;
+import java.util.UUID;
+
+public record IngestFrame(
+        String frameId,
+        UUID sensorSystemId,
+        List<EnvironmentalReading> readings,
+        IngestListener listener) {}
@@ -0,0 +1,11 @@
+package com.unconv.spring.service.ingest;
+
+import java.util.List;
+
+public interface IngestListener {
+
+    // Called once per written batch with every frame of this listener the batch contained
+    void onFramesPersisted(List<IngestFrame> frames);
+
+    void onFramesFailed(List<IngestFrame> frames, RuntimeException exception);
+}
@@ -0,0 +1,11 @@
+package com.unconv.spring.service.ingest;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+record LoggedReading(
+        UUID id,
+        UUID sensorSystemId,
+        double temperature,
+        double humidity,
+        OffsetDateTime timestamp) {}
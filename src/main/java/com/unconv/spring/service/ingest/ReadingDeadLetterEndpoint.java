@@ -0,0 +1,30 @@
+package com.unconv.spring.service.ingest;
+
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// Readings the database refused during replay, e.g. of a sensor that was removed. Once the
+// cause is fixed a write operation hands them to the replayer again
+@Component
+@Endpoint(id = "deadletters")
+public class ReadingDeadLetterEndpoint {
+
+    private final ReadingWriteAheadLog writeAheadLog;
+
+    public ReadingDeadLetterEndpoint(ReadingWriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    @ReadOperation
+    public List<LoggedReading> deadLetters() {
+        return writeAheadLog.getDeadLetters();
+    }
+
+    @WriteOperation
+    public int replay() {
+        return writeAheadLog.replayDeadLetters();
+    }
+}
@@ -0,0 +1,5 @@
+package com.unconv.spring.service.ingest;
+
+import java.util.List;
+
+record ReadingLogBatch(List<LoggedReading> readings, ReadingLogPosition next) {}
@@ -0,0 +1,8 @@
+package com.unconv.spring.service.ingest;
+
+public class ReadingLogFullException extends RuntimeException {
+
+    public ReadingLogFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.unconv.spring.service.ingest;
+
+record ReadingLogPosition(long segment, int offset) implements Comparable<ReadingLogPosition> {
+
+    static final ReadingLogPosition START = new ReadingLogPosition(0, 0);
+
+    @Override
+    public int compareTo(ReadingLogPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
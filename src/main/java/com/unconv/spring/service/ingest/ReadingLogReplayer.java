@@ -0,0 +1,256 @@
+package com.unconv.spring.service.ingest;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.config.datasource.DatabaseWorkloads;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ReplicationMode;
+import org.hibernate.Session;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Copies the ingestion log into environmental_readings. Readings keep the id they were logged
+// with and ids already in the table are skipped, so a batch can be replayed any number of times
+// after a crash or a failed commit
+@Slf4j
+@Lazy(false)
+@Component
+public class ReadingLogReplayer {
+
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long INITIAL_RETRY_BACKOFF_MILLIS = 100;
+
+    private final ReadingWriteAheadLog writeAheadLog;
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final int batchSize;
+
+    private final ApplicationProperties.Wal properties;
+
+    private final CountDownLatch caughtUp = new CountDownLatch(1);
+
+    private Counter replayedReadings;
+
+    private Counter deadLetteredReadings;
+
+    private volatile Thread replayThread;
+
+    private volatile boolean running = true;
+
+    public ReadingLogReplayer(
+            ApplicationProperties applicationProperties,
+            ReadingWriteAheadLog writeAheadLog,
+            EnvironmentalReadingRepository environmentalReadingRepository,
+            TransactionTemplate transactionTemplate,
+            EntityManager entityManager,
+            ApplicationEventPublisher applicationEventPublisher,
+            CacheInvalidationBus cacheInvalidationBus,
+            MeterRegistry meterRegistry) {
+        this.writeAheadLog = writeAheadLog;
+        this.environmentalReadingRepository = environmentalReadingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.batchSize = applicationProperties.getIngest().getBatchSize();
+        this.properties = applicationProperties.getIngest().getWal();
+        if (!writeAheadLog.isEnabled()) {
+            return;
+        }
+
+        Gauge.builder(
+                        "readings.ingest.wal.pending",
+                        writeAheadLog,
+                        ReadingWriteAheadLog::getPendingReadings)
+                .description("Logged readings not yet copied into the database")
+                .register(meterRegistry);
+        this.replayedReadings =
+                Counter.builder("readings.ingest.wal.replayed")
+                        .description("Logged readings inserted into the database")
+                        .register(meterRegistry);
+        this.deadLetteredReadings =
+                Counter.builder("readings.ingest.wal.dead-lettered")
+                        .description(
+                                "Logged readings the database refused, e.g. of removed sensors,"
+                                        + " kept in the dead letter file")
+                        .register(meterRegistry);
+    }
+
+    // Replay needs the repositories, which are only initialized once the context is refreshed.
+    // The node reports ready after the backlog of the previous run is replayed, or after
+    // recoveryTimeout so a long database outage cannot keep it out of service
+    @EventListener(ApplicationStartedEvent.class)
+    public void startReplay() throws InterruptedException {
+        if (!writeAheadLog.isEnabled() || replayThread != null) {
+            return;
+        }
+        replayThread =
+                new Thread(
+                        () -> DatabaseWorkloads.run(Workload.INGESTION, this::replayLoop),
+                        "reading-log-replayer");
+        replayThread.setDaemon(true);
+        replayThread.start();
+
+        if (!caughtUp.await(properties.getRecoveryTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn(
+                    "{} logged readings are still being replayed in the background",
+                    writeAheadLog.getPendingReadings());
+        }
+    }
+
+    private void replayLoop() {
+        ReadingLogPosition position = writeAheadLog.getCheckpoint();
+        long backoffMillis = INITIAL_RETRY_BACKOFF_MILLIS;
+        while (running) {
+            ReadingLogBatch batch = writeAheadLog.read(position, batchSize);
+            if (batch.readings().isEmpty()) {
+                if (!batch.next().equals(position)) {
+                    position = batch.next();
+                    writeAheadLog.checkpoint(position);
+                }
+                caughtUp.countDown();
+                LockSupport.parkNanos(IDLE_POLL_NANOS);
+                continue;
+            }
+
+            try {
+                replay(batch.readings());
+            } catch (RuntimeException e) {
+                log.warn(
+                        "Replaying {} logged readings failed, retrying in {} ms: {}",
+                        batch.readings().size(),
+                        backoffMillis,
+                        e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+                backoffMillis =
+                        Math.min(backoffMillis * 2, properties.getMaxRetryBackoff().toMillis());
+                continue;
+            }
+            backoffMillis = INITIAL_RETRY_BACKOFF_MILLIS;
+            position = batch.next();
+            writeAheadLog.checkpoint(position);
+        }
+    }
+
+    private void replay(List<LoggedReading> readings) {
+        List<EnvironmentalReading> inserted;
+        try {
+            inserted = transactionTemplate.execute(status -> insertMissing(readings));
+        } catch (DataIntegrityViolationException e) {
+            // The database is reachable but refuses part of the batch, so the readings are
+            // retried one by one and only the refused ones are parked as dead letters
+            inserted = new ArrayList<>();
+            for (LoggedReading reading : readings) {
+                try {
+                    inserted.addAll(
+                            transactionTemplate.execute(status -> insertMissing(List.of(reading))));
+                } catch (DataIntegrityViolationException refused) {
+                    log.error(
+                            "Parking logged reading {} of sensor {} as a dead letter: {}",
+                            reading.id(),
+                            reading.sensorSystemId(),
+                            refused.getMostSpecificCause().getMessage());
+                    writeAheadLog.deadLetter(reading);
+                    deadLetteredReadings.increment();
+                }
+            }
+        }
+        replayedReadings.increment(inserted.size());
+
+        Map<UUID, List<EnvironmentalReading>> readingsBySensorSystemId = new LinkedHashMap<>();
+        for (EnvironmentalReading reading : inserted) {
+            readingsBySensorSystemId
+                    .computeIfAbsent(reading.getSensorSystem().getId(), id -> new ArrayList<>())
+                    .add(reading);
+        }
+        readingsBySensorSystemId.forEach(
+                (sensorSystemId, sensorReadings) ->
+                        applicationEventPublisher.publishEvent(
+                                EnvironmentalReadingsAcceptedEvent.of(
+                                        sensorSystemId, sensorReadings)));
+    }
+
+    // replicate keeps the logged id instead of generating one, existing ids are looked up with a
+    // single query so it does not have to check each reading
+    private List<EnvironmentalReading> insertMissing(List<LoggedReading> readings) {
+        List<UUID> ids = new ArrayList<>(readings.size());
+        for (LoggedReading reading : readings) {
+            ids.add(reading.id());
+        }
+        Set<UUID> existingIds = new HashSet<>(environmentalReadingRepository.findExistingIds(ids));
+
+        Session session = entityManager.unwrap(Session.class);
+        List<EnvironmentalReading> inserted = new ArrayList<>(readings.size());
+        for (LoggedReading reading : readings) {
+            if (existingIds.contains(reading.id())) {
+                continue;
+            }
+            EnvironmentalReading environmentalReading =
+                    new EnvironmentalReading(
+                            reading.id(),
+                            reading.temperature(),
+                            reading.humidity(),
+                            reading.timestamp(),
+                            entityManager.getReference(
+                                    SensorSystem.class, reading.sensorSystemId()));
+            session.replicate(environmentalReading, ReplicationMode.EXCEPTION);
+            inserted.add(environmentalReading);
+        }
+
+        // One change per sensor for the other nodes, committed with the readings
+        Set<UUID> sensorSystemIds = new LinkedHashSet<>();
+        for (EnvironmentalReading environmentalReading : inserted) {
+            sensorSystemIds.add(environmentalReading.getSensorSystem().getId());
+        }
+        for (UUID sensorSystemId : sensorSystemIds) {
+            cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+        }
+        return inserted;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (replayThread != null) {
+            LockSupport.unpark(replayThread);
+            replayThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
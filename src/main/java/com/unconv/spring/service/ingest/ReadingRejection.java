@@ -0,0 +1,51 @@
+package com.unconv.spring.service.ingest;
+
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_DLTD;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_INAT;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_SENS;
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_REJ_USER;
+
+import com.unconv.spring.consts.SensorStatus;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.model.response.MessageResponse;
+import java.util.Optional;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+// Why a single reading posted by a user is refused, shared by the blocking and the reactive
+// ingestion endpoints so both answer the same status and message
+public enum ReadingRejection {
+    UNKNOWN_SENSOR_SYSTEM(HttpStatus.NOT_FOUND, ENVT_RECORD_REJ_SENS),
+    FOREIGN_SENSOR_SYSTEM(HttpStatus.UNAUTHORIZED, ENVT_RECORD_REJ_USER),
+    DELETED_SENSOR_SYSTEM(HttpStatus.BAD_REQUEST, ENVT_RECORD_REJ_DLTD),
+    INACTIVE_SENSOR_SYSTEM(HttpStatus.BAD_REQUEST, ENVT_RECORD_REJ_INAT);
+
+    private final HttpStatus status;
+
+    private final String message;
+
+    ReadingRejection(HttpStatus status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public static Optional<ReadingRejection> check(
+            String ownerUsername, boolean deleted, SensorStatus sensorStatus, String username) {
+        if (!ownerUsername.equals(username)) {
+            return Optional.of(FOREIGN_SENSOR_SYSTEM);
+        }
+        if (deleted) {
+            return Optional.of(DELETED_SENSOR_SYSTEM);
+        }
+        if (sensorStatus != SensorStatus.ACTIVE) {
+            return Optional.of(INACTIVE_SENSOR_SYSTEM);
+        }
+        return Optional.empty();
+    }
+
+    public ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> toResponse(
+            EnvironmentalReadingDTO environmentalReadingDTO) {
+        return new ResponseEntity<>(
+                new MessageResponse<>(environmentalReadingDTO, message), status);
+    }
+}
@@ -0,0 +1,469 @@
+package com.unconv.spring.service.ingest;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+// Append-only log of accepted readings in fixed size memory-mapped segments. Readings are
+// acknowledged once their records are forced to disk and ReadingLogReplayer copies them into the
+// database afterwards, segments the replayer has passed are deleted
+@Slf4j
+@Component
+public class ReadingWriteAheadLog {
+
+    // length, CRC32 of the payload, then id, sensor id, temperature, humidity, epoch second, nanos
+    private static final int HEADER_SIZE = 8;
+
+    private static final int PAYLOAD_SIZE = 60;
+
+    static final int RECORD_SIZE = HEADER_SIZE + PAYLOAD_SIZE;
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private static final String DEAD_LETTER_FILE = "dead-letters";
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    // Locks instead of monitors: a virtual thread waiting on a monitor, or forcing the segment
+    // while holding one, stays pinned to its carrier
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final ReentrantLock deadLetterLock = new ReentrantLock();
+
+    private long firstSegment;
+
+    private long activeSegment;
+
+    private MappedByteBuffer activeBuffer;
+
+    private volatile ReadingLogPosition writePosition = ReadingLogPosition.START;
+
+    private volatile ReadingLogPosition syncedPosition = ReadingLogPosition.START;
+
+    private volatile ReadingLogPosition checkpoint = ReadingLogPosition.START;
+
+    // Only used by the replayer thread
+    private long readSegment = -1;
+
+    private MappedByteBuffer readBuffer;
+
+    public ReadingWriteAheadLog(ApplicationProperties applicationProperties) throws IOException {
+        ApplicationProperties.Wal properties = applicationProperties.getIngest().getWal();
+        this.enabled = properties.isEnabled();
+        this.directory = Paths.get(properties.getDirectory());
+        this.segmentSize =
+                (int)
+                        (Math.min(properties.getSegmentSize().toBytes(), Integer.MAX_VALUE)
+                                / RECORD_SIZE
+                                * RECORD_SIZE);
+        this.maxSegments = properties.getMaxSegments();
+        if (enabled) {
+            recover();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Assigns ids to readings that have none, so a replay after a crash inserts each reading at
+    // most once, and returns once the readings are on disk
+    public void write(List<EnvironmentalReading> readings) {
+        for (EnvironmentalReading reading : readings) {
+            if (reading.getId() == null) {
+                reading.setId(UUID.randomUUID());
+            }
+        }
+        sync(append(readings));
+    }
+
+    ReadingLogPosition append(List<EnvironmentalReading> readings) {
+        appendLock.lock();
+        try {
+            return appendLocked(readings);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private ReadingLogPosition appendLocked(List<EnvironmentalReading> readings) {
+        int recordsPerSegment = segmentSize / RECORD_SIZE;
+        long freeRecords =
+                (segmentSize - writePosition.offset()) / RECORD_SIZE
+                        + (maxSegments - (activeSegment - firstSegment + 1)) * recordsPerSegment;
+        if (readings.size() > freeRecords) {
+            throw new ReadingLogFullException(
+                    "Ingestion log holds "
+                            + maxSegments
+                            + " segments that have not been replayed yet");
+        }
+
+        int offset = writePosition.offset();
+        for (EnvironmentalReading reading : readings) {
+            if (offset + RECORD_SIZE > segmentSize) {
+                roll();
+                offset = 0;
+            }
+            writeRecord(activeBuffer, offset, reading);
+            offset += RECORD_SIZE;
+        }
+        writePosition = new ReadingLogPosition(activeSegment, offset);
+        return writePosition;
+    }
+
+    // Group fsync: callers arriving while another caller forces the segment are usually covered
+    // by that force and return without one of their own
+    void sync(ReadingLogPosition position) {
+        if (syncedPosition.compareTo(position) >= 0) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedPosition.compareTo(position) >= 0) {
+                return;
+            }
+            ReadingLogPosition target;
+            MappedByteBuffer buffer;
+            appendLock.lock();
+            try {
+                target = writePosition;
+                buffer = activeBuffer;
+            } finally {
+                appendLock.unlock();
+            }
+            int from = syncedPosition.segment() == target.segment() ? syncedPosition.offset() : 0;
+            buffer.force(from, target.offset() - from);
+            syncedPosition = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    ReadingLogPosition getCheckpoint() {
+        return checkpoint;
+    }
+
+    long getPendingReadings() {
+        ReadingLogPosition end = writePosition;
+        ReadingLogPosition start = checkpoint;
+        return ((end.segment() - start.segment()) * segmentSize + end.offset() - start.offset())
+                / RECORD_SIZE;
+    }
+
+    // Stops at the synced position. Records behind it may still be written by another thread,
+    // a half written one would be skipped as corrupt and its reading lost
+    ReadingLogBatch read(ReadingLogPosition from, int maxReadings) {
+        ReadingLogPosition end = syncedPosition;
+        List<LoggedReading> readings = new ArrayList<>(Math.min(maxReadings, 1024));
+        long segment = from.segment();
+        int offset = from.offset();
+        while (readings.size() < maxReadings && segment <= end.segment()) {
+            if (segment == end.segment() && offset >= end.offset()) {
+                break;
+            }
+            if (offset + RECORD_SIZE > segmentSize) {
+                segment++;
+                offset = 0;
+                continue;
+            }
+
+            ByteBuffer buffer = readBuffer(segment);
+            if (buffer.getInt(offset) == 0 && segment < end.segment()) {
+                // The segment was left early by a restart
+                segment++;
+                offset = 0;
+                continue;
+            }
+            LoggedReading reading = readRecord(buffer, offset);
+            if (reading == null) {
+                log.warn("Skipping corrupt ingestion log record at {}:{}", segment, offset);
+            } else {
+                readings.add(reading);
+            }
+            offset += RECORD_SIZE;
+        }
+        return new ReadingLogBatch(readings, new ReadingLogPosition(segment, offset));
+    }
+
+    // Readings before the position are in the database, segments that lie entirely before it
+    // are deleted. The checkpoint is not forced to disk, losing it only repeats an idempotent
+    // replay
+    void checkpoint(ReadingLogPosition position) {
+        try {
+            Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            Files.writeString(temporary, position.segment() + " " + position.offset());
+            Files.move(
+                    temporary,
+                    directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write ingestion log checkpoint", e);
+        }
+        checkpoint = position;
+
+        appendLock.lock();
+        try {
+            while (firstSegment < position.segment()) {
+                try {
+                    Files.deleteIfExists(segmentPath(firstSegment));
+                } catch (IOException e) {
+                    log.warn("Failed to delete ingestion log segment {}", firstSegment, e);
+                }
+                firstSegment++;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Readings the database refused are kept in a file of their own instead of being dropped,
+    // so they can be inspected and written again once the cause is fixed
+    void deadLetter(LoggedReading reading) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        writeRecord(buffer, 0, reading);
+        deadLetterLock.lock();
+        try (FileChannel channel =
+                FileChannel.open(
+                        directory.resolve(DEAD_LETTER_FILE),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+            channel.write(buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write ingestion dead letter", e);
+        } finally {
+            deadLetterLock.unlock();
+        }
+    }
+
+    List<LoggedReading> getDeadLetters() {
+        Path path = directory.resolve(DEAD_LETTER_FILE);
+        if (!enabled || !Files.exists(path)) {
+            return List.of();
+        }
+        deadLetterLock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            List<LoggedReading> deadLetters = new ArrayList<>();
+            for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                LoggedReading reading = readRecord(buffer, offset);
+                if (reading != null) {
+                    deadLetters.add(reading);
+                }
+            }
+            return deadLetters;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ingestion dead letters", e);
+        } finally {
+            deadLetterLock.unlock();
+        }
+    }
+
+    // Appends the dead letters to the log again, a reading the database still refuses is parked
+    // again by the replayer
+    int replayDeadLetters() {
+        deadLetterLock.lock();
+        try {
+            List<EnvironmentalReading> readings = new ArrayList<>();
+            for (LoggedReading deadLetter : getDeadLetters()) {
+                SensorSystem sensorSystem = new SensorSystem();
+                sensorSystem.setId(deadLetter.sensorSystemId());
+                readings.add(
+                        new EnvironmentalReading(
+                                deadLetter.id(),
+                                deadLetter.temperature(),
+                                deadLetter.humidity(),
+                                deadLetter.timestamp(),
+                                sensorSystem));
+            }
+            if (readings.isEmpty()) {
+                return 0;
+            }
+            write(readings);
+            Files.delete(directory.resolve(DEAD_LETTER_FILE));
+            return readings.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear ingestion dead letters", e);
+        } finally {
+            deadLetterLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        Path checkpointPath = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpointPath)) {
+            String[] parts =
+                    Files.readString(checkpointPath, StandardCharsets.US_ASCII).strip().split(" ");
+            checkpoint =
+                    new ReadingLogPosition(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        }
+
+        List<Long> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments =
+                    files.map(path -> path.getFileName().toString())
+                            .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                            .map(name -> Long.parseLong(name.substring(0, name.indexOf('.'))))
+                            .sorted()
+                            .toList();
+        }
+        for (long segment : segments) {
+            if (segment < checkpoint.segment()) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        }
+
+        activeSegment =
+                segments.isEmpty()
+                        ? checkpoint.segment()
+                        : Math.max(checkpoint.segment(), segments.get(segments.size() - 1));
+        firstSegment = checkpoint.segment();
+        activeBuffer = map(activeSegment);
+
+        // The end of the log is the first slot of the last segment without a valid record. A
+        // torn or unacknowledged tail behind it is cleared so it cannot resurface later
+        int offset = activeSegment == checkpoint.segment() ? checkpoint.offset() : 0;
+        while (offset + RECORD_SIZE <= segmentSize && readRecord(activeBuffer, offset) != null) {
+            offset += RECORD_SIZE;
+        }
+        for (int tail = offset;
+                tail + RECORD_SIZE <= segmentSize && activeBuffer.getInt(tail) != 0;
+                tail += RECORD_SIZE) {
+            activeBuffer.put(tail, new byte[RECORD_SIZE]);
+        }
+        activeBuffer.force();
+
+        writePosition = new ReadingLogPosition(activeSegment, offset);
+        syncedPosition = writePosition;
+        log.info(
+                "Recovered ingestion log in {} at {}:{}, {} readings waiting for replay",
+                directory,
+                activeSegment,
+                offset,
+                getPendingReadings());
+    }
+
+    private void roll() {
+        activeBuffer.force();
+        activeSegment++;
+        try {
+            activeBuffer = map(activeSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create ingestion log segment", e);
+        }
+    }
+
+    private ByteBuffer readBuffer(long segment) {
+        if (segment != readSegment) {
+            try {
+                readBuffer = map(segment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open ingestion log segment", e);
+            }
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private MappedByteBuffer map(long segment) throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(
+                        segmentPath(segment),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private static void writeRecord(ByteBuffer buffer, int offset, EnvironmentalReading reading) {
+        writeRecord(
+                buffer,
+                offset,
+                new LoggedReading(
+                        reading.getId(),
+                        reading.getSensorSystem().getId(),
+                        reading.getTemperature(),
+                        reading.getHumidity(),
+                        reading.getTimestamp()));
+    }
+
+    private static void writeRecord(ByteBuffer buffer, int offset, LoggedReading reading) {
+        int payload = offset + HEADER_SIZE;
+        UUID id = reading.id();
+        UUID sensorSystemId = reading.sensorSystemId();
+        Instant timestamp = reading.timestamp().toInstant();
+        buffer.putLong(payload, id.getMostSignificantBits());
+        buffer.putLong(payload + 8, id.getLeastSignificantBits());
+        buffer.putLong(payload + 16, sensorSystemId.getMostSignificantBits());
+        buffer.putLong(payload + 24, sensorSystemId.getLeastSignificantBits());
+        buffer.putDouble(payload + 32, reading.temperature());
+        buffer.putDouble(payload + 40, reading.humidity());
+        buffer.putLong(payload + 48, timestamp.getEpochSecond());
+        buffer.putInt(payload + 56, timestamp.getNano());
+        buffer.putInt(offset + 4, checksum(buffer, payload));
+        buffer.putInt(offset, PAYLOAD_SIZE);
+    }
+
+    private static LoggedReading readRecord(ByteBuffer buffer, int offset) {
+        int payload = offset + HEADER_SIZE;
+        if (buffer.getInt(offset) != PAYLOAD_SIZE
+                || buffer.getInt(offset + 4) != checksum(buffer, payload)) {
+            return null;
+        }
+        return new LoggedReading(
+                new UUID(buffer.getLong(payload), buffer.getLong(payload + 8)),
+                new UUID(buffer.getLong(payload + 16), buffer.getLong(payload + 24)),
+                buffer.getDouble(payload + 32),
+                buffer.getDouble(payload + 40),
+                OffsetDateTime.ofInstant(
+                        Instant.ofEpochSecond(
+                                buffer.getLong(payload + 48), buffer.getInt(payload + 56)),
+                        ZoneOffset.UTC));
+    }
+
+    private static int checksum(ByteBuffer buffer, int payload) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(payload, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+}
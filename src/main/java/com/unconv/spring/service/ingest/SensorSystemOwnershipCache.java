@@ -0,0 +1,96 @@
+package com.unconv.spring.service.ingest;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.config.datasource.DatabaseWorkloads;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.projection.SensorSystemOwnership;
+import com.unconv.spring.service.cache.EntityChange;
+import com.unconv.spring.service.cache.EntityChangesMissedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+// Owner, deleted flag and status of sensors, all a reading is checked against, so ingestion
+// does not load the sensor with its location and user for every reading. Entries are dropped
+// when the sensor or a user changes on any node, and reloaded in the background when used
+// refresh-after after they were loaded. A reload that cannot reach the database keeps the
+// cached entry, so with the ingestion log enabled readings are still accepted during an outage
+@Slf4j
+@Component
+public class SensorSystemOwnershipCache {
+
+    private final LoadingCache<UUID, SensorSystemOwnership> ownerships;
+
+    public SensorSystemOwnershipCache(
+            ApplicationProperties applicationProperties,
+            SensorSystemRepository sensorSystemRepository,
+            MeterRegistry meterRegistry) {
+        ApplicationProperties.SensorCache properties =
+                applicationProperties.getIngest().getSensorCache();
+        this.ownerships =
+                Caffeine.newBuilder()
+                        .maximumSize(properties.getMaxEntries())
+                        .refreshAfterWrite(properties.getRefreshAfter())
+                        .executor(SensorSystemOwnershipCache::reloadOnIngestionPool)
+                        .recordStats()
+                        .build(new OwnershipLoader(sensorSystemRepository));
+        CaffeineCacheMetrics.monitor(meterRegistry, ownerships, "sensor-system-ownerships");
+    }
+
+    public Optional<SensorSystemOwnership> findById(UUID sensorSystemId) {
+        return Optional.ofNullable(ownerships.get(sensorSystemId));
+    }
+
+    // Owners are held by username, so any user change drops every entry
+    @EventListener
+    public void onEntityChanged(EntityChange change) {
+        switch (change.entity()) {
+            case SENSOR_SYSTEM -> ownerships.invalidate(change.uuid());
+            case UNCONV_USER -> ownerships.invalidateAll();
+            default -> {}
+        }
+    }
+
+    @EventListener(EntityChangesMissedEvent.class)
+    public void onEntityChangesMissed() {
+        ownerships.invalidateAll();
+    }
+
+    // Reloads borrow from the ingestion pool like the lookups that trigger them
+    private static void reloadOnIngestionPool(Runnable reload) {
+        ForkJoinPool.commonPool().execute(() -> DatabaseWorkloads.run(Workload.INGESTION, reload));
+    }
+
+    private record OwnershipLoader(SensorSystemRepository sensorSystemRepository)
+            implements CacheLoader<UUID, SensorSystemOwnership> {
+
+        @Override
+        public SensorSystemOwnership load(UUID sensorSystemId) {
+            return sensorSystemRepository.findOwnershipById(sensorSystemId).orElse(null);
+        }
+
+        @Override
+        public SensorSystemOwnership reload(UUID sensorSystemId, SensorSystemOwnership ownership) {
+            try {
+                return load(sensorSystemId);
+            } catch (DataAccessException | TransactionException e) {
+                log.warn(
+                        "Checking readings of sensor {} against its last known state: {}",
+                        sensorSystemId,
+                        e.getMessage());
+                return ownership;
+            }
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.unconv.spring.service.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.EnvironmentalReadingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Slf4j
+@Component
+public class EnvironmentalReadingBroadcastHub {
+
+    static final String READING_EVENT = "reading";
+
+    static final String QUARTER_HOURLY_EVENT = "quarter-hourly";
+
+    private static final long QUARTER_HOUR_SECONDS = 15 * 60;
+
+    private static final long START_RETRY_MILLIS = 10;
+
+    private final Map<UUID, Set<ReadingSubscriber>> subscribersBySensorSystemId =
+            new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ApplicationProperties.Stream properties;
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository;
+
+    private final EnvironmentalReadingService environmentalReadingService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<UUID, Set<Long>> pendingQuarterHourlyBuckets = new ConcurrentHashMap<>();
+
+    private final long sendTimeLimitNanos;
+
+    private final Counter droppedEvents;
+
+    private final Counter disconnectedSubscribers;
+
+    private final ExecutorService dispatchExecutor;
+
+    private final ExecutorService sendExecutor;
+
+    private final ExecutorService quarterHourlyExecutor;
+
+    private final ScheduledExecutorService heartbeatScheduler;
+
+    public EnvironmentalReadingBroadcastHub(
+            ApplicationProperties applicationProperties,
+            EnvironmentalReadingRepository environmentalReadingRepository,
+            EnvironmentalReadingService environmentalReadingService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.properties = applicationProperties.getStream();
+        this.environmentalReadingRepository = environmentalReadingRepository;
+        this.environmentalReadingService = environmentalReadingService;
+        this.objectMapper = objectMapper;
+        this.sendTimeLimitNanos = properties.getSendTimeLimit().toNanos();
+
+        Gauge.builder("readings.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open SSE reading stream subscriptions")
+                .register(meterRegistry);
+        this.droppedEvents =
+                Counter.builder("readings.stream.events.dropped")
+                        .description("Events dropped because a subscriber buffer was full")
+                        .register(meterRegistry);
+        this.disconnectedSubscribers =
+                Counter.builder("readings.stream.subscribers.disconnected")
+                        .description("Subscribers disconnected because a send to them stalled")
+                        .register(meterRegistry);
+
+        CustomizableThreadFactory dispatchThreadFactory =
+                new CustomizableThreadFactory("reading-stream-dispatch-");
+        dispatchThreadFactory.setDaemon(true);
+        this.dispatchExecutor =
+                Executors.newFixedThreadPool(
+                        properties.getDispatchThreads(), dispatchThreadFactory);
+
+        // Sends never wait for a client, one that falls behind is left until the container
+        // reports it can take more. They still get threads of their own, as a write may take as
+        // long as the network does
+        CustomizableThreadFactory sendThreadFactory =
+                new CustomizableThreadFactory("reading-stream-send-");
+        sendThreadFactory.setDaemon(true);
+        this.sendExecutor =
+                Executors.newFixedThreadPool(properties.getSendThreads(), sendThreadFactory);
+
+        CustomizableThreadFactory quarterHourlyThreadFactory =
+                new CustomizableThreadFactory("reading-stream-quarter-hourly-");
+        quarterHourlyThreadFactory.setDaemon(true);
+        this.quarterHourlyExecutor = Executors.newSingleThreadExecutor(quarterHourlyThreadFactory);
+
+        CustomizableThreadFactory heartbeatThreadFactory =
+                new CustomizableThreadFactory("reading-stream-heartbeat-");
+        heartbeatThreadFactory.setDaemon(true);
+        this.heartbeatScheduler =
+                Executors.newSingleThreadScheduledExecutor(heartbeatThreadFactory);
+        long heartbeatMillis = properties.getHeartbeatInterval().toMillis();
+        heartbeatScheduler.scheduleAtFixedRate(
+                this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Optional<SseEmitter> subscribe(UUID sensorSystemId, boolean quarterHourly) {
+        ReadingStreamEmitter emitter =
+                new ReadingStreamEmitter(properties.getEmitterTimeout().toMillis());
+        return register(sensorSystemId, emitter, quarterHourly)
+                ? Optional.of(emitter)
+                : Optional.empty();
+    }
+
+    public boolean register(
+            UUID sensorSystemId, ReadingStreamEmitter emitter, boolean quarterHourly) {
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            log.warn(
+                    "Rejected reading stream subscription for sensor {}, limit reached",
+                    sensorSystemId);
+            return false;
+        }
+
+        ReadingSubscriber subscriber =
+                new ReadingSubscriber(
+                        sensorSystemId, emitter, quarterHourly, properties.getBufferSize());
+        subscribersBySensorSystemId.compute(
+                sensorSystemId,
+                (id, subscribers) -> {
+                    Set<ReadingSubscriber> sensorSubscribers =
+                            subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                    sensorSubscribers.add(subscriber);
+                    return sensorSubscribers;
+                });
+
+        emitter.onWritable(
+                () -> {
+                    subscriber.markWritable();
+                    startDrain(subscriber);
+                });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(throwable -> unsubscribe(subscriber));
+        return true;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // Runs once the ingesting transaction has committed so subscribers never see rolled back
+    // readings, the fan-out itself happens on the dispatch threads and only queues events
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnvironmentalReadingsAccepted(EnvironmentalReadingsAcceptedEvent event) {
+        if (!subscribersBySensorSystemId.containsKey(event.sensorSystemId())) {
+            return;
+        }
+        try {
+            dispatchExecutor.execute(() -> fanOut(event));
+        } catch (RejectedExecutionException e) {
+            log.debug(
+                    "Reading stream is shutting down, dropped readings of {}",
+                    event.sensorSystemId());
+        }
+    }
+
+    private void fanOut(EnvironmentalReadingsAcceptedEvent event) {
+        Set<ReadingSubscriber> subscribers =
+                subscribersBySensorSystemId.get(event.sensorSystemId());
+        if (subscribers == null) {
+            return;
+        }
+        boolean quarterHourlyRequested = false;
+        for (EnvironmentalReadingProjection reading : event.readings()) {
+            ReadingSubscriber.StreamEvent streamEvent =
+                    new ReadingSubscriber.StreamEvent(
+                            READING_EVENT, reading.id().toString(), toJson(reading));
+            for (ReadingSubscriber subscriber : subscribers) {
+                enqueue(subscriber, streamEvent);
+                quarterHourlyRequested |= subscriber.isQuarterHourly();
+            }
+        }
+        for (ReadingSubscriber subscriber : subscribers) {
+            scheduleDrain(subscriber);
+        }
+
+        if (quarterHourlyRequested && environmentalReadingService != null) {
+            requestQuarterHourlyBuckets(event);
+        }
+    }
+
+    // The buckets are queried on a thread of their own. Buckets touched while a query runs are
+    // collected and recomputed together by the next one
+    private void requestQuarterHourlyBuckets(EnvironmentalReadingsAcceptedEvent event) {
+        Set<Long> bucketStarts = new TreeSet<>();
+        for (EnvironmentalReadingProjection reading : event.readings()) {
+            bucketStarts.add(
+                    reading.timestamp().toEpochSecond()
+                            / QUARTER_HOUR_SECONDS
+                            * QUARTER_HOUR_SECONDS);
+        }
+
+        AtomicBoolean firstRequest = new AtomicBoolean();
+        pendingQuarterHourlyBuckets.compute(
+                event.sensorSystemId(),
+                (id, pending) -> {
+                    if (pending == null) {
+                        firstRequest.set(true);
+                        return bucketStarts;
+                    }
+                    pending.addAll(bucketStarts);
+                    return pending;
+                });
+        if (!firstRequest.get()) {
+            return;
+        }
+        try {
+            quarterHourlyExecutor.execute(
+                    () -> publishQuarterHourlyBuckets(event.sensorSystemId()));
+        } catch (RejectedExecutionException e) {
+            pendingQuarterHourlyBuckets.remove(event.sensorSystemId());
+        }
+    }
+
+    // The buckets touched by the new readings are recomputed with the same averaging as
+    // /QuarterHourly and sent to every subscriber that asked for them
+    private void publishQuarterHourlyBuckets(UUID sensorSystemId) {
+        Set<Long> bucketStarts = pendingQuarterHourlyBuckets.remove(sensorSystemId);
+        if (bucketStarts == null) {
+            return;
+        }
+
+        Map<OffsetDateTime, Double> buckets = new TreeMap<>();
+        try {
+            for (long bucketStart : bucketStarts) {
+                OffsetDateTime start =
+                        OffsetDateTime.ofInstant(
+                                Instant.ofEpochSecond(bucketStart), ZoneOffset.UTC);
+                List<EnvironmentalReading> bucketReadings =
+                        environmentalReadingRepository.findBySensorSystemIdAndTimestampBetween(
+                                sensorSystemId,
+                                start,
+                                start.plusSeconds(QUARTER_HOUR_SECONDS).minusNanos(1));
+                buckets.putAll(
+                        environmentalReadingService.getAverageTempsForQuarterHourly(
+                                bucketReadings));
+            }
+        } catch (RuntimeException e) {
+            log.warn(
+                    "Failed to recompute quarter-hourly averages of sensor {}: {}",
+                    sensorSystemId,
+                    e.getMessage());
+            return;
+        }
+        Set<ReadingSubscriber> subscribers = subscribersBySensorSystemId.get(sensorSystemId);
+        if (buckets.isEmpty() || subscribers == null) {
+            return;
+        }
+
+        ReadingSubscriber.StreamEvent streamEvent =
+                new ReadingSubscriber.StreamEvent(QUARTER_HOURLY_EVENT, null, toJson(buckets));
+        for (ReadingSubscriber subscriber : subscribers) {
+            if (subscriber.isQuarterHourly()) {
+                enqueue(subscriber, streamEvent);
+                scheduleDrain(subscriber);
+            }
+        }
+    }
+
+    // Heartbeats keep proxies from closing idle streams and surface disconnected clients,
+    // whose next write fails. Clients that stopped reading are dropped even if no readings arrive
+    private void sendHeartbeats() {
+        long now = System.nanoTime();
+        for (Set<ReadingSubscriber> subscribers : subscribersBySensorSystemId.values()) {
+            for (ReadingSubscriber subscriber : subscribers) {
+                if (subscriber.isStalled(now, sendTimeLimitNanos)) {
+                    disconnect(subscriber);
+                } else if (!subscriber.hasPendingEvents()) {
+                    enqueue(subscriber, ReadingSubscriber.StreamEvent.HEARTBEAT);
+                    scheduleDrain(subscriber);
+                }
+            }
+        }
+    }
+
+    private void enqueue(ReadingSubscriber subscriber, ReadingSubscriber.StreamEvent event) {
+        if (subscriber.isStalled(System.nanoTime(), sendTimeLimitNanos)) {
+            disconnect(subscriber);
+            return;
+        }
+        int dropped = subscriber.offer(event);
+        if (dropped > 0) {
+            droppedEvents.increment(dropped);
+        }
+    }
+
+    private void scheduleDrain(ReadingSubscriber subscriber) {
+        if (subscriber.hasPendingEvents()) {
+            startDrain(subscriber);
+        }
+    }
+
+    // Also started once a client that fell behind caught up, to flush what it was left with
+    private void startDrain(ReadingSubscriber subscriber) {
+        if (subscriber.isClosed() || !subscriber.tryStartDrain()) {
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            unsubscribe(subscriber);
+        }
+    }
+
+    private void drain(ReadingSubscriber subscriber) {
+        try {
+            subscriber.drain();
+            // Events that came before the controller's response went asynchronous
+            if (subscriber.hasPendingEvents() && !subscriber.getEmitter().isStarted()) {
+                heartbeatScheduler.schedule(
+                        () -> scheduleDrain(subscriber), START_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            unsubscribe(subscriber);
+        } catch (IOException | IllegalStateException e) {
+            log.debug(
+                    "Closing reading stream of sensor {}: {}",
+                    subscriber.getSensorSystemId(),
+                    e.getMessage());
+            unsubscribe(subscriber);
+            subscriber.getEmitter().completeWithError(e);
+        }
+    }
+
+    // No thread waits for the stalled client, so its response is completed right away
+    private void disconnect(ReadingSubscriber subscriber) {
+        if (unsubscribe(subscriber)) {
+            log.debug(
+                    "Disconnecting reading stream of sensor {}, the client stopped reading",
+                    subscriber.getSensorSystemId());
+            disconnectedSubscribers.increment();
+            subscriber.getEmitter().complete();
+        }
+    }
+
+    private boolean unsubscribe(ReadingSubscriber subscriber) {
+        if (!subscriber.close()) {
+            return false;
+        }
+        subscriberCount.decrementAndGet();
+        subscribersBySensorSystemId.computeIfPresent(
+                subscriber.getSensorSystemId(),
+                (id, subscribers) -> {
+                    subscribers.remove(subscriber);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+        return true;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stream event", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        dispatchExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+        quarterHourlyExecutor.shutdownNow();
+        for (Set<ReadingSubscriber> subscribers : subscribersBySensorSystemId.values()) {
+            for (ReadingSubscriber subscriber : subscribers) {
+                if (subscriber.close()) {
+                    subscriber.getEmitter().complete();
+                }
+            }
+        }
+        subscribersBySensorSystemId.clear();
+        subscriberCount.set(0);
+    }
+}
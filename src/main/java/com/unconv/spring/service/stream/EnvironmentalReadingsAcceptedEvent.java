@@ -0,0 +1,26 @@
+package com.unconv.spring.service.stream;
+
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import java.util.List;
+import java.util.UUID;
+
+public record EnvironmentalReadingsAcceptedEvent(
+        UUID sensorSystemId, List<EnvironmentalReadingProjection> readings) {
+
+    public static EnvironmentalReadingsAcceptedEvent of(
+            UUID sensorSystemId, List<EnvironmentalReading> environmentalReadings) {
+        List<EnvironmentalReadingProjection> readings =
+                environmentalReadings.stream()
+                        .map(
+                                environmentalReading ->
+                                        new EnvironmentalReadingProjection(
+                                                environmentalReading.getId(),
+                                                environmentalReading.getTemperature(),
+                                                environmentalReading.getHumidity(),
+                                                environmentalReading.getTimestamp(),
+                                                sensorSystemId))
+                        .toList();
+        return new EnvironmentalReadingsAcceptedEvent(sensorSystemId, readings);
+    }
+}
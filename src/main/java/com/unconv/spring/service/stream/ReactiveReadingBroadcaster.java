@@ -0,0 +1,123 @@
+package com.unconv.spring.service.stream;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+// Accepted readings as a Flux per sensor for the reactive stream endpoint. Every subscriber has
+// its own buffer of application.stream.buffer-size events and loses the oldest ones when it falls
+// behind, like the SSE subscribers of EnvironmentalReadingBroadcastHub
+@Component
+@ConditionalOnProperty(name = "application.reactive.enabled", havingValue = "true")
+public class ReactiveReadingBroadcaster {
+
+    private final Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+
+    private final int bufferSize;
+
+    private final Duration heartbeatInterval;
+
+    private final Counter droppedEvents;
+
+    public ReactiveReadingBroadcaster(
+            ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.bufferSize = applicationProperties.getStream().getBufferSize();
+        this.heartbeatInterval = applicationProperties.getStream().getHeartbeatInterval();
+        this.droppedEvents =
+                Counter.builder("readings.stream.events.dropped")
+                        .description("Events dropped because a subscriber buffer was full")
+                        .register(meterRegistry);
+    }
+
+    // The channel is joined on subscription and left on cancellation, so a Flux that is never
+    // subscribed to holds nothing
+    public Flux<ServerSentEvent<EnvironmentalReadingProjection>> subscribe(UUID sensorSystemId) {
+        Flux<ServerSentEvent<EnvironmentalReadingProjection>> readings =
+                Flux.defer(
+                        () -> {
+                            Channel channel = join(sensorSystemId);
+                            return channel.sink()
+                                    .asFlux()
+                                    .onBackpressureBuffer(
+                                            bufferSize,
+                                            dropped -> droppedEvents.increment(),
+                                            BufferOverflowStrategy.DROP_OLDEST)
+                                    .map(
+                                            reading ->
+                                                    ServerSentEvent.builder(reading)
+                                                            .event(
+                                                                    EnvironmentalReadingBroadcastHub
+                                                                            .READING_EVENT)
+                                                            .id(String.valueOf(reading.id()))
+                                                            .build())
+                                    .doFinally(signal -> leave(sensorSystemId, channel));
+                        });
+        Flux<ServerSentEvent<EnvironmentalReadingProjection>> heartbeats =
+                Flux.interval(heartbeatInterval)
+                        .map(
+                                tick ->
+                                        ServerSentEvent.<EnvironmentalReadingProjection>builder()
+                                                .comment("heartbeat")
+                                                .build());
+        return Flux.merge(readings, heartbeats);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnvironmentalReadingsAccepted(EnvironmentalReadingsAcceptedEvent event) {
+        Channel channel = channels.get(event.sensorSystemId());
+        if (channel == null) {
+            return;
+        }
+        for (EnvironmentalReadingProjection reading : event.readings()) {
+            // Readings of one sensor can be accepted on several threads at once
+            channel.sink()
+                    .emitNext(
+                            reading,
+                            (signal, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+        }
+    }
+
+    private Channel join(UUID sensorSystemId) {
+        return channels.compute(
+                sensorSystemId,
+                (id, channel) -> {
+                    Channel joined =
+                            channel != null
+                                    ? channel
+                                    : new Channel(
+                                            Sinks.many().multicast().directBestEffort(),
+                                            new AtomicInteger());
+                    joined.subscribers().incrementAndGet();
+                    return joined;
+                });
+    }
+
+    private void leave(UUID sensorSystemId, Channel channel) {
+        channels.computeIfPresent(
+                sensorSystemId,
+                (id, current) -> {
+                    if (current != channel) {
+                        return current;
+                    }
+                    return current.subscribers().decrementAndGet() == 0 ? null : current;
+                });
+    }
+
+    // The subscriber count is only changed inside the map's compute methods, so a channel is never
+    // removed while a subscriber is joining it
+    private record Channel(
+            Sinks.Many<EnvironmentalReadingProjection> sink, AtomicInteger subscribers) {}
+}
@@ -0,0 +1,121 @@
+package com.unconv.spring.service.stream;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Writes to the client without blocking. Once the request is asynchronous, events are written
+// straight to its output stream in non-blocking mode: one is only written while isWritable, and
+// the container calls back once a client that fell behind can take more. SseEmitter's own send
+// flushes every field apart, which non-blocking mode refuses as soon as the client falls behind,
+// so it is only used outside of a servlet request. Only the thread draining the subscriber
+// writes, and never while holding the emitter's lock, which the container's thread takes to
+// initialize it
+public class ReadingStreamEmitter extends SseEmitter {
+
+    private volatile HttpServletRequest request;
+
+    private volatile ServletServerHttpResponse response;
+
+    private volatile ServletOutputStream outputStream;
+
+    private boolean nonBlocking;
+
+    private boolean flushPending;
+
+    private volatile Runnable onWritable = () -> {};
+
+    public ReadingStreamEmitter(Long timeout) {
+        super(timeout);
+    }
+
+    void onWritable(Runnable callback) {
+        this.onWritable = callback;
+    }
+
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+        super.extendResponse(outputMessage);
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (outputMessage instanceof ServletServerHttpResponse servletServerHttpResponse
+                && requestAttributes instanceof ServletRequestAttributes servletRequestAttributes) {
+            this.response = servletServerHttpResponse;
+            this.request = servletRequestAttributes.getRequest();
+        }
+    }
+
+    // False until the request has gone asynchronous, the caller tries again shortly
+    boolean isStarted() {
+        HttpServletRequest current = request;
+        return current == null || outputStream != null || current.isAsyncStarted();
+    }
+
+    // A false return also asks the container to call back once the client has caught up
+    boolean isWritable() throws IOException {
+        if (request == null) {
+            return true;
+        }
+        if (outputStream == null) {
+            if (!request.isAsyncStarted()) {
+                return false;
+            }
+            startNonBlocking();
+        }
+        if (!outputStream.isReady()) {
+            return false;
+        }
+        if (flushPending) {
+            flushPending = false;
+            outputStream.flush();
+            return outputStream.isReady();
+        }
+        return true;
+    }
+
+    void write(ReadingSubscriber.StreamEvent event) throws IOException {
+        if (outputStream == null) {
+            send(event.toSseEvent());
+            return;
+        }
+        outputStream.write(event.toText().getBytes(StandardCharsets.UTF_8));
+        // Flushing is refused while the client is behind, isWritable does it once it caught up
+        if (!nonBlocking || outputStream.isReady()) {
+            outputStream.flush();
+        } else {
+            flushPending = true;
+        }
+    }
+
+    // The container lets the listener in once its thread has left the request
+    private void startNonBlocking() throws IOException {
+        ServletOutputStream stream = response.getServletResponse().getOutputStream();
+        try {
+            stream.setWriteListener(
+                    new WriteListener() {
+                        @Override
+                        public void onWritePossible() {
+                            onWritable.run();
+                        }
+
+                        @Override
+                        public void onError(Throwable throwable) {
+                            completeWithError(throwable);
+                        }
+                    });
+            nonBlocking = true;
+        } catch (UnsupportedOperationException e) {
+            // Mock responses only write blocking
+        }
+        // Writes the headers set up by SseEmitter and the controller
+        response.getBody();
+        outputStream = stream;
+    }
+}
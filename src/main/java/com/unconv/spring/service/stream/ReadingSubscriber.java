@@ -0,0 +1,202 @@
+package com.unconv.spring.service.stream;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+final class ReadingSubscriber {
+
+    private static final long NOT_BLOCKED = Long.MIN_VALUE;
+
+    record StreamEvent(String name, String id, String data) {
+
+        static final StreamEvent HEARTBEAT = new StreamEvent(null, null, null);
+
+        private static final MediaType TEXT_PLAIN =
+                new MediaType("text", "plain", StandardCharsets.UTF_8);
+
+        String toText() {
+            StringBuilder text = new StringBuilder();
+            if (this == HEARTBEAT) {
+                text.append(":heartbeat\n");
+            } else {
+                text.append("event:").append(name).append('\n');
+                if (id != null) {
+                    text.append("id:").append(id).append('\n');
+                }
+                text.append("data:").append(data.replace("\n", "\ndata:")).append('\n');
+            }
+            return text.append('\n').toString();
+        }
+
+        // The whole event as one piece of text, SseEmitter's own builder sends each field apart
+        SseEmitter.SseEventBuilder toSseEvent() {
+            Set<ResponseBodyEmitter.DataWithMediaType> event =
+                    Set.of(new ResponseBodyEmitter.DataWithMediaType(toText(), TEXT_PLAIN));
+            return new SseEmitter.SseEventBuilder() {
+                @Override
+                public SseEmitter.SseEventBuilder id(String id) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public SseEmitter.SseEventBuilder name(String eventName) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public SseEmitter.SseEventBuilder reconnectTime(long reconnectTimeMillis) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public SseEmitter.SseEventBuilder comment(String comment) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public SseEmitter.SseEventBuilder data(Object object) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public SseEmitter.SseEventBuilder data(Object object, MediaType mediaType) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public Set<ResponseBodyEmitter.DataWithMediaType> build() {
+                    return event;
+                }
+            };
+        }
+    }
+
+    private final UUID sensorSystemId;
+
+    private final ReadingStreamEmitter emitter;
+
+    private final boolean quarterHourly;
+
+    private final BlockingQueue<StreamEvent> buffer;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final AtomicBoolean writable = new AtomicBoolean();
+
+    private volatile long blockedSinceNanos = NOT_BLOCKED;
+
+    ReadingSubscriber(
+            UUID sensorSystemId,
+            ReadingStreamEmitter emitter,
+            boolean quarterHourly,
+            int bufferSize) {
+        this.sensorSystemId = sensorSystemId;
+        this.emitter = emitter;
+        this.quarterHourly = quarterHourly;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    UUID getSensorSystemId() {
+        return sensorSystemId;
+    }
+
+    ReadingStreamEmitter getEmitter() {
+        return emitter;
+    }
+
+    boolean isQuarterHourly() {
+        return quarterHourly;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    // Returns true only for the call that actually closed the subscriber
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        buffer.clear();
+        return true;
+    }
+
+    // Returns the number of older events dropped to make room, a slow client only ever
+    // holds bufferSize events and misses the oldest ones instead of stalling the hub
+    int offer(StreamEvent event) {
+        int dropped = 0;
+        while (!isClosed() && !buffer.offer(event)) {
+            if (buffer.poll() != null) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    boolean hasPendingEvents() {
+        return !buffer.isEmpty();
+    }
+
+    // The client has not taken the events already written off the socket buffer
+    boolean isStalled(long nowNanos, long sendTimeLimitNanos) {
+        long blockedSince = blockedSinceNanos;
+        return blockedSince != NOT_BLOCKED && nowNanos - blockedSince > sendTimeLimitNanos;
+    }
+
+    // Only one thread drains a subscriber at a time so events keep their order
+    boolean tryStartDrain() {
+        return draining.compareAndSet(false, true);
+    }
+
+    // Called back by the emitter once a client that fell behind can take more
+    void markWritable() {
+        writable.set(true);
+    }
+
+    // Sends until the buffer is empty or the client falls behind, the emitter's write callback
+    // starts the next drain then. Returns without holding the thread either way
+    void drain() throws IOException {
+        boolean blocked;
+        do {
+            writable.set(false);
+            try {
+                blocked = sendPending();
+            } finally {
+                draining.set(false);
+            }
+            // The callback may have come while this thread still held the drain
+        } while (!isClosed() && (blocked ? writable.get() : hasPendingEvents()) && tryStartDrain());
+    }
+
+    // Also flushes what the emitter held back while the client was behind
+    private boolean sendPending() throws IOException {
+        while (!isClosed()) {
+            if (!emitter.isStarted()) {
+                return true;
+            }
+            if (!emitter.isWritable()) {
+                if (blockedSinceNanos == NOT_BLOCKED) {
+                    blockedSinceNanos = System.nanoTime();
+                }
+                return true;
+            }
+            blockedSinceNanos = NOT_BLOCKED;
+            StreamEvent event = buffer.poll();
+            if (event == null) {
+                return false;
+            }
+            emitter.write(event);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,197 @@
+package com.unconv.spring.service.window;
+
+import com.unconv.spring.service.aggregate.BucketAggregation;
+import java.util.concurrent.locks.ReentrantLock;
+
+// The recent readings of one sensor as a ring of primitive columns in arrival order. A reading
+// that is still inside the span is only overwritten once the ring has reached its maximum
+// capacity, coveredFromMicros then moves past it so queries reaching back that far go to the
+// database instead
+final class RecentReadingWindow {
+
+    static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxCapacity;
+
+    private final long spanMicros;
+
+    // Held while the window is loaded from the database, a monitor would pin the virtual threads
+    // waiting for it
+    private final ReentrantLock hydrationLock = new ReentrantLock();
+
+    private long[] epochMicros;
+
+    private double[] temperatures;
+
+    private double[] humidities;
+
+    // Slot of the next write, which is also the oldest reading once the ring is full
+    private int head;
+
+    private int size;
+
+    private boolean hydrated;
+
+    private long coveredFromMicros = Long.MIN_VALUE;
+
+    RecentReadingWindow(int maxCapacity, long spanMicros) {
+        this.maxCapacity = maxCapacity;
+        this.spanMicros = spanMicros;
+        int capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+        this.epochMicros = new long[capacity];
+        this.temperatures = new double[capacity];
+        this.humidities = new double[capacity];
+    }
+
+    ReentrantLock getHydrationLock() {
+        return hydrationLock;
+    }
+
+    synchronized boolean isHydrated() {
+        return hydrated;
+    }
+
+    synchronized int capacity() {
+        return epochMicros.length;
+    }
+
+    // Returns whether the ring had to grow. Readings appended before the window is hydrated are
+    // kept and merged with the loaded ones
+    synchronized boolean append(long timestampMicros, double temperature, double humidity) {
+        int capacity = epochMicros.length;
+        add(timestampMicros, temperature, humidity, currentMicros());
+        return epochMicros.length != capacity;
+    }
+
+    // Takes over the readings loaded from the database starting at fromMicros, ordered by
+    // timestamp. Readings appended here in the meantime are added on top unless the database
+    // already returned them
+    synchronized void hydrate(RecentReadingWindow loaded, long fromMicros) {
+        long[] pendingMicros = epochMicros;
+        double[] pendingTemperatures = temperatures;
+        double[] pendingHumidities = humidities;
+        int pendingOldest = size == pendingMicros.length ? head : 0;
+        int pendingSize = size;
+
+        synchronized (loaded) {
+            epochMicros = loaded.epochMicros;
+            temperatures = loaded.temperatures;
+            humidities = loaded.humidities;
+            head = loaded.head;
+            size = loaded.size;
+            coveredFromMicros =
+                    Math.max(fromMicros, Math.max(coveredFromMicros, loaded.coveredFromMicros));
+        }
+
+        int loadedOldest = size == epochMicros.length ? head : 0;
+        boolean[] missing = new boolean[pendingSize];
+        for (int i = 0; i < pendingSize; i++) {
+            int slot = (pendingOldest + i) % pendingMicros.length;
+            missing[i] =
+                    !contains(
+                            loadedOldest,
+                            pendingMicros[slot],
+                            pendingTemperatures[slot],
+                            pendingHumidities[slot]);
+        }
+        long now = currentMicros();
+        for (int i = 0; i < pendingSize; i++) {
+            if (missing[i]) {
+                int slot = (pendingOldest + i) % pendingMicros.length;
+                add(pendingMicros[slot], pendingTemperatures[slot], pendingHumidities[slot], now);
+            }
+        }
+        hydrated = true;
+    }
+
+    // Adds the readings in [fromMicros, toMicros) to the aggregations that are not null. Returns
+    // false without touching them if the window may be missing readings of the range
+    synchronized boolean aggregate(
+            long fromMicros,
+            long toMicros,
+            BucketAggregation temperatureAggregation,
+            BucketAggregation humidityAggregation) {
+        if (!hydrated || coveredFromMicros > fromMicros) {
+            return false;
+        }
+        int start = (head - size + epochMicros.length) % epochMicros.length;
+        for (int n = 0, i = start; n < size; n++, i = i + 1 == epochMicros.length ? 0 : i + 1) {
+            long timestamp = epochMicros[i];
+            if (timestamp >= fromMicros && timestamp < toMicros) {
+                long epochSecond = Math.floorDiv(timestamp, 1_000_000L);
+                if (temperatureAggregation != null) {
+                    temperatureAggregation.add(epochSecond, temperatures[i]);
+                }
+                if (humidityAggregation != null) {
+                    humidityAggregation.add(epochSecond, humidities[i]);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void add(long timestampMicros, double temperature, double humidity, long nowMicros) {
+        if (size == epochMicros.length) {
+            long oldest = epochMicros[head];
+            if (epochMicros.length < maxCapacity && oldest >= nowMicros - spanMicros) {
+                grow();
+            } else {
+                coveredFromMicros = Math.max(coveredFromMicros, oldest + 1);
+                size--;
+            }
+        }
+        epochMicros[head] = timestampMicros;
+        temperatures[head] = temperature;
+        humidities[head] = humidity;
+        head = (head + 1) % epochMicros.length;
+        size++;
+    }
+
+    // Unrolls the ring so the oldest reading is in slot 0
+    private void grow() {
+        int capacity = (int) Math.min((long) epochMicros.length * 2, maxCapacity);
+        long[] grownMicros = new long[capacity];
+        double[] grownTemperatures = new double[capacity];
+        double[] grownHumidities = new double[capacity];
+        int tail = epochMicros.length - head;
+        System.arraycopy(epochMicros, head, grownMicros, 0, tail);
+        System.arraycopy(epochMicros, 0, grownMicros, tail, head);
+        System.arraycopy(temperatures, head, grownTemperatures, 0, tail);
+        System.arraycopy(temperatures, 0, grownTemperatures, tail, head);
+        System.arraycopy(humidities, head, grownHumidities, 0, tail);
+        System.arraycopy(humidities, 0, grownHumidities, tail, head);
+        head = size;
+        epochMicros = grownMicros;
+        temperatures = grownTemperatures;
+        humidities = grownHumidities;
+    }
+
+    // Binary search over the loaded readings, which are ordered by timestamp from oldest on
+    private boolean contains(
+            int oldest, long timestampMicros, double temperature, double humidity) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (epochMicros[(oldest + middle) % epochMicros.length] < timestampMicros) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        for (int i = low; i < size; i++) {
+            int slot = (oldest + i) % epochMicros.length;
+            if (epochMicros[slot] != timestampMicros) {
+                return false;
+            }
+            if (temperatures[slot] == temperature && humidities[slot] == humidity) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long currentMicros() {
+        return System.currentTimeMillis() * 1_000;
+    }
+}
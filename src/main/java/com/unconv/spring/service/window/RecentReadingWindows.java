@@ -0,0 +1,234 @@
+package com.unconv.spring.service.window;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.config.datasource.DatabaseWorkload;
+import com.unconv.spring.config.datasource.Workload;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.aggregate.BucketAggregation;
+import com.unconv.spring.service.aggregate.TimeBuckets;
+import com.unconv.spring.service.cache.EntityChange;
+import com.unconv.spring.service.cache.EntityChangesMissedEvent;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Keeps the last span of readings of recently queried sensors in memory, so the quarter-hourly
+// and hourly averages do not have to load them from the database. A window is loaded from the
+// database on its first query and then kept current by the accepted readings. Windows are
+// weighed by their capacity and the least recently queried ones are evicted first
+@Component
+@DatabaseWorkload(Workload.ANALYTICS)
+public class RecentReadingWindows {
+
+    // Upper bound for the hydrating query, readings may carry timestamps in the future
+    private static final OffsetDateTime END_OF_TIME =
+            OffsetDateTime.of(9999, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final ApplicationProperties.RecentWindow properties;
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Cache<UUID, RecentReadingWindow> windows;
+
+    private final Counter hydrations;
+
+    private final Counter fallbacks;
+
+    public RecentReadingWindows(
+            ApplicationProperties applicationProperties,
+            EnvironmentalReadingRepository environmentalReadingRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.properties = applicationProperties.getRecentWindow();
+        this.environmentalReadingRepository = environmentalReadingRepository;
+        // Not read-only so windows are loaded from the primary. From a replica that lags behind,
+        // readings accepted in the meantime would be missing from the window for good
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windows =
+                Caffeine.newBuilder()
+                        .maximumWeight(properties.getMaxReadings())
+                        .weigher((UUID id, RecentReadingWindow window) -> window.capacity())
+                        .expireAfterAccess(properties.getIdleTimeout())
+                        .build();
+
+        Gauge.builder("readings.window.sensors", windows, Cache::estimatedSize)
+                .description("Sensors with recent readings held in memory")
+                .register(meterRegistry);
+        this.hydrations =
+                Counter.builder("readings.window.hydrations")
+                        .description("Recent reading windows loaded from the database")
+                        .register(meterRegistry);
+        this.fallbacks =
+                Counter.builder("readings.window.fallbacks")
+                        .description("Averages computed from the database instead of a window")
+                        .register(meterRegistry);
+    }
+
+    // Averages the temperatures of readings in (from, to] per interval, rounded like
+    // EnvironmentalReadingService's averages. Empty if the window cannot answer for the whole
+    // range, the caller then has to ask the database
+    public Optional<Map<OffsetDateTime, Double>> getAverageTemperatures(
+            UUID sensorSystemId, OffsetDateTime from, OffsetDateTime to, Duration interval) {
+        BucketAggregation aggregation = new BucketAggregation(TimeBuckets.of(from, to, interval));
+        if (!aggregate(
+                sensorSystemId, from.plusNanos(1_000), to.plusNanos(1_000), aggregation, null)) {
+            return Optional.empty();
+        }
+        return Optional.of(aggregation.means(3));
+    }
+
+    // Adds the readings in [from, to) to the aggregations that are not null. False if the range
+    // is longer than the span, ends before it or reaches past what the window holds
+    public boolean aggregate(
+            UUID sensorSystemId,
+            OffsetDateTime from,
+            OffsetDateTime to,
+            BucketAggregation temperatureAggregation,
+            BucketAggregation humidityAggregation) {
+        if (!properties.isEnabled()
+                || Duration.between(from, to).compareTo(properties.getSpan()) > 0
+                || to.isBefore(OffsetDateTime.now(ZoneOffset.UTC).minus(properties.getSpan()))) {
+            return false;
+        }
+        RecentReadingWindow window =
+                windows.get(
+                        sensorSystemId,
+                        id ->
+                                new RecentReadingWindow(
+                                        properties.getMaxReadingsPerSensor(),
+                                        properties.getSpan().toNanos() / 1_000));
+        if (!window.isHydrated()) {
+            hydrate(sensorSystemId, window, from);
+        }
+
+        if (!window.aggregate(
+                toEpochMicros(from),
+                toEpochMicros(to),
+                temperatureAggregation,
+                humidityAggregation)) {
+            fallbacks.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Only windows that are already held are updated, reading them quietly keeps ingestion from
+    // holding sensors nobody queries in memory
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnvironmentalReadingsAccepted(EnvironmentalReadingsAcceptedEvent event) {
+        RecentReadingWindow window = windows.policy().getIfPresentQuietly(event.sensorSystemId());
+        if (window == null) {
+            return;
+        }
+        boolean grown = false;
+        for (EnvironmentalReadingProjection reading : event.readings()) {
+            grown |=
+                    window.append(
+                            toEpochMicros(reading.timestamp()),
+                            reading.temperature(),
+                            reading.humidity());
+        }
+        if (grown) {
+            // Weighs the window again
+            windows.asMap().replace(event.sensorSystemId(), window, window);
+        }
+    }
+
+    // Readings changed or deleted on any node, this one included, or added on another node
+    @EventListener
+    public void onEntityChanged(EntityChange change) {
+        if (change.entity() == CachedEntity.SENSOR_READINGS
+                || change.entity() == CachedEntity.SENSOR_READINGS_ADDED) {
+            windows.invalidate(change.uuid());
+        }
+    }
+
+    @EventListener(EntityChangesMissedEvent.class)
+    public void onEntityChangesMissed() {
+        windows.invalidateAll();
+    }
+
+    // For readings that are changed or deleted rather than added
+    public void invalidateAfterCommit(UUID sensorSystemId) {
+        windows.invalidate(sensorSystemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            windows.invalidate(sensorSystemId);
+                        }
+                    });
+        }
+    }
+
+    // Loads at least the span before now, or from an earlier queriedFrom so the query that
+    // triggered the load can be answered
+    private void hydrate(
+            UUID sensorSystemId, RecentReadingWindow window, OffsetDateTime queriedFrom) {
+        window.getHydrationLock().lock();
+        try {
+            if (window.isHydrated()) {
+                return;
+            }
+            OffsetDateTime spanStart =
+                    OffsetDateTime.now(ZoneOffset.UTC).minus(properties.getSpan());
+            OffsetDateTime from = queriedFrom.isBefore(spanStart) ? queriedFrom : spanStart;
+            RecentReadingWindow loaded =
+                    new RecentReadingWindow(
+                            properties.getMaxReadingsPerSensor(),
+                            properties.getSpan().toNanos() / 1_000);
+            try {
+                transactionTemplate.executeWithoutResult(
+                        status -> {
+                            try (Stream<EnvironmentalReadingProjection> readings =
+                                    environmentalReadingRepository
+                                            .streamProjectedBySensorSystemIdAndTimestampBetween(
+                                                    sensorSystemId, from, END_OF_TIME)) {
+                                readings.forEach(
+                                        reading ->
+                                                loaded.append(
+                                                        toEpochMicros(reading.timestamp()),
+                                                        reading.temperature(),
+                                                        reading.humidity()));
+                            }
+                        });
+            } catch (RuntimeException e) {
+                windows.asMap().remove(sensorSystemId, window);
+                throw e;
+            }
+            window.hydrate(loaded, toEpochMicros(from));
+            windows.asMap().replace(sensorSystemId, window, window);
+            hydrations.increment();
+        } finally {
+            window.getHydrationLock().unlock();
+        }
+    }
+
+    private static long toEpochMicros(OffsetDateTime timestamp) {
+        Instant instant = timestamp.toInstant();
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+}
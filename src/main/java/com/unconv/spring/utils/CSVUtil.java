@@ -39,9 +39,8 @@ public class CSVUtil {
 
             List<EnvironmentalReading> environmentalReadings = new ArrayList<>();
 
-            Iterable<CSVRecord> csvRecords = csvParser.getRecords();
-
-            for (CSVRecord csvRecord : csvRecords) {
+            // Records are read one at a time instead of collected first
+            for (CSVRecord csvRecord : csvParser) {
                 EnvironmentalReading environmentalReading =
                         new EnvironmentalReading(
                                 null,
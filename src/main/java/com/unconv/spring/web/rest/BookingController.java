@@ -2,11 +2,11 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.Booking;
 import com.unconv.spring.dto.BookingDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.service.BookingService;
 import com.unconv.spring.utils.AppConstants;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -29,7 +29,7 @@ public class BookingController {
 
     private final BookingService bookingService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @Autowired
     public BookingController(BookingService bookingService) {
@@ -72,7 +72,7 @@ public class BookingController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Booking createBooking(@RequestBody @Validated BookingDTO bookingDTO) {
-        return bookingService.saveBooking(modelMapper.map(bookingDTO, Booking.class));
+        return bookingService.saveBooking(dtoMapper.toBooking(bookingDTO));
     }
 
     @PutMapping("/{id}")
@@ -84,8 +84,7 @@ public class BookingController {
                         bookingObj -> {
                             bookingDTO.setId(id);
                             return ResponseEntity.ok(
-                                    bookingService.saveBooking(
-                                            modelMapper.map(bookingDTO, Booking.class)));
+                                    bookingService.saveBooking(dtoMapper.toBooking(bookingDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -0,0 +1,95 @@
+package com.unconv.spring.web.rest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+// Answers a GET whose If-None-Match holds the current ETag with 304 before the body is computed.
+// The ETag has to change whenever the body would. It is weak, as Tomcat does not compress
+// responses with a strong ETag and the gzipped bytes differ from the identity ones anyway.
+// The same resource is also served as JSON, CBOR or Smile depending on Accept, so the encoding
+// is part of the ETag and the responses vary by Accept
+final class ConditionalGet {
+
+    private static final List<MediaType> BINARY_ENCODINGS =
+            List.of(
+                    MediaType.parseMediaType("application/cbor"),
+                    MediaType.parseMediaType("application/x-jackson-smile"));
+
+    private ConditionalGet() {}
+
+    static <T> ResponseEntity<T> respond(
+            WebRequest webRequest, String etag, Duration maxAge, Supplier<Optional<T>> body) {
+        String quotedEtag = "\"" + etag + encodingSuffix(webRequest) + "\"";
+        String weakEtag = "W/" + quotedEtag;
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).cachePrivate();
+        if (matches(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH), quotedEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(weakEtag)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+        return body.get()
+                .map(
+                        value ->
+                                ResponseEntity.ok()
+                                        .eTag(weakEtag)
+                                        .cacheControl(cacheControl)
+                                        .varyBy(HttpHeaders.ACCEPT)
+                                        .body(value))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Picks the encoding the message converters will write like Spring MVC does, the most
+    // specific and preferred acceptable type first. JSON, the default, keeps the bare ETag
+    private static String encodingSuffix(WebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "";
+        }
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return "";
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            if (acceptedType.includes(MediaType.APPLICATION_JSON)) {
+                return "";
+            }
+            for (MediaType encoding : BINARY_ENCODINGS) {
+                if (acceptedType.includes(encoding)) {
+                    return "-" + encoding.getSubtype();
+                }
+            }
+        }
+        return "";
+    }
+
+    // If-None-Match uses the weak comparison, so W/ prefixes are ignored
+    private static boolean matches(String ifNoneMatch, String quotedEtag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(quotedEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,151 @@
+package com.unconv.spring.web.rest;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.AggregateFunction;
+import com.unconv.spring.consts.ReadingMetric;
+import com.unconv.spring.model.response.ReadingAggregates;
+import com.unconv.spring.model.response.UnconvUserReadingAggregates;
+import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.aggregate.EnvironmentalReadingAggregator;
+import com.unconv.spring.service.cache.SensorSystemVersions;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/EnvironmentalReading/Aggregate")
+@Slf4j
+public class EnvironmentalReadingAggregateController {
+
+    @Autowired private SensorSystemService sensorSystemService;
+
+    @Autowired private EnvironmentalReadingAggregator environmentalReadingAggregator;
+
+    @Autowired private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private ApplicationProperties applicationProperties;
+
+    @GetMapping("SensorSystem/{sensorSystemId}")
+    public ResponseEntity<ReadingAggregates> getAggregatedEnvironmentalReadings(
+            @PathVariable UUID sensorSystemId,
+            @RequestParam(value = "from", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime from,
+            @RequestParam(value = "to", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime to,
+            @RequestParam(value = "interval", defaultValue = "1h", required = false)
+                    String interval,
+            @RequestParam(value = "metrics", defaultValue = "temperature", required = false)
+                    List<String> metrics,
+            @RequestParam(value = "functions", defaultValue = "avg", required = false)
+                    List<String> functions,
+            WebRequest webRequest) {
+        Duration bucketWidth;
+        Set<ReadingMetric> readingMetrics;
+        Set<AggregateFunction> aggregateFunctions;
+        try {
+            bucketWidth = DurationStyle.detectAndParse(interval);
+            readingMetrics = parse(metrics, ReadingMetric.class);
+            aggregateFunctions = parse(functions, AggregateFunction.class);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime start = from != null ? from : end.minusHours(24);
+        // A range that ended in the past only changes with the sensor's readings
+        Duration maxAge = applicationProperties.getHttpCache().getAggregateMaxAge();
+        String etag =
+                to != null && to.isBefore(OffsetDateTime.now(ZoneOffset.UTC))
+                        ? sensorSystemVersions.etag(sensorSystemId)
+                        : sensorSystemVersions.etag(
+                                sensorSystemId,
+                                end.toEpochSecond() / Math.max(maxAge.getSeconds(), 1));
+        try {
+            return ConditionalGet.respond(
+                    webRequest,
+                    etag,
+                    maxAge,
+                    () ->
+                            sensorSystemService
+                                    .findSensorSystemById(sensorSystemId)
+                                    .map(
+                                            sensorSystem ->
+                                                    environmentalReadingAggregator.aggregate(
+                                                            sensorSystemId,
+                                                            start,
+                                                            end,
+                                                            bucketWidth,
+                                                            readingMetrics,
+                                                            aggregateFunctions)));
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected aggregate request for {}: {}", sensorSystemId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // All sensors of a user in one response, for dashboards that would otherwise query each
+    @GetMapping("UnconvUser/{unconvUserId}")
+    public ResponseEntity<UnconvUserReadingAggregates> getAggregatedEnvironmentalReadingsOfUser(
+            @PathVariable UUID unconvUserId,
+            @RequestParam(value = "from", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime from,
+            @RequestParam(value = "to", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime to,
+            @RequestParam(value = "interval", defaultValue = "1h", required = false)
+                    String interval,
+            @RequestParam(value = "metrics", defaultValue = "temperature", required = false)
+                    List<String> metrics,
+            @RequestParam(value = "functions", defaultValue = "avg", required = false)
+                    List<String> functions) {
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime start = from != null ? from : end.minusHours(24);
+        try {
+            Duration bucketWidth = DurationStyle.detectAndParse(interval);
+            List<ReadingAggregates> sensorSystems =
+                    environmentalReadingAggregator.aggregate(
+                            sensorSystemService.findSensorSystemIdsByUnconvUserId(unconvUserId),
+                            start,
+                            end,
+                            bucketWidth,
+                            parse(metrics, ReadingMetric.class),
+                            parse(functions, AggregateFunction.class));
+            return ResponseEntity.ok(
+                    new UnconvUserReadingAggregates(
+                            unconvUserId, start, end, bucketWidth.toString(), sensorSystems));
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected aggregate request for user {}: {}", unconvUserId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    static <E extends Enum<E>> Set<E> parse(List<String> names, Class<E> type) {
+        Set<E> values = EnumSet.noneOf(type);
+        for (String name : names) {
+            values.add(Enum.valueOf(type, name.strip().toUpperCase(Locale.ROOT)));
+        }
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("No " + type.getSimpleName() + " given");
+        }
+        return values;
+    }
+}
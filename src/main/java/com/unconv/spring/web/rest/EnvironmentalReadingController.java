@@ -1,18 +1,35 @@
 package com.unconv.spring.web.rest;
 
+import static com.unconv.spring.consts.MessageConstants.ENVT_CSV_REJ_ENCODING;
+import static com.unconv.spring.consts.MessageConstants.ENVT_CSV_REJ_ERR;
+
+import com.unconv.spring.config.ApplicationProperties;
 import com.unconv.spring.domain.EnvironmentalReading;
 import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.MessageResponse;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.model.response.SensorSystemPagedResult;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
 import com.unconv.spring.service.EnvironmentalReadingService;
+import com.unconv.spring.service.cache.SensorSystemVersions;
 import com.unconv.spring.utils.AppConstants;
+import com.unconv.spring.utils.CSVUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
@@ -22,9 +39,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 @RestController
@@ -32,12 +51,18 @@ import org.springframework.web.multipart.MultipartFile;
 @Slf4j
 public class EnvironmentalReadingController {
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     @Autowired private EnvironmentalReadingService environmentalReadingService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
+
+    @Autowired private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private ApplicationProperties applicationProperties;
 
     @GetMapping
-    public PagedResult<EnvironmentalReading> getAllEnvironmentalReadings(
+    public PagedResult<EnvironmentalReadingProjection> getAllEnvironmentalReadings(
             @RequestParam(
                             value = "pageNo",
                             defaultValue = AppConstants.DEFAULT_PAGE_NUMBER,
@@ -63,28 +88,29 @@ public class EnvironmentalReadingController {
     }
 
     @GetMapping("SensorSystem/{sensorSystemId}")
-    public PagedResult<EnvironmentalReading> getAllEnvironmentalReadingsBySensorSystemId(
-            @PathVariable UUID sensorSystemId,
-            @RequestParam(
-                            value = "pageNo",
-                            defaultValue = AppConstants.DEFAULT_PAGE_NUMBER,
-                            required = false)
-                    int pageNo,
-            @RequestParam(
-                            value = "pageSize",
-                            defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
-                            required = false)
-                    int pageSize,
-            @RequestParam(
-                            value = "sortBy",
-                            defaultValue = AppConstants.DEFAULT_ER_SORT_BY,
-                            required = false)
-                    String sortBy,
-            @RequestParam(
-                            value = "sortDir",
-                            defaultValue = AppConstants.DEFAULT_ER_SORT_DIRECTION,
-                            required = false)
-                    String sortDir) {
+    public SensorSystemPagedResult<EnvironmentalReadingProjection>
+            getAllEnvironmentalReadingsBySensorSystemId(
+                    @PathVariable UUID sensorSystemId,
+                    @RequestParam(
+                                    value = "pageNo",
+                                    defaultValue = AppConstants.DEFAULT_PAGE_NUMBER,
+                                    required = false)
+                            int pageNo,
+                    @RequestParam(
+                                    value = "pageSize",
+                                    defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
+                                    required = false)
+                            int pageSize,
+                    @RequestParam(
+                                    value = "sortBy",
+                                    defaultValue = AppConstants.DEFAULT_ER_SORT_BY,
+                                    required = false)
+                            String sortBy,
+                    @RequestParam(
+                                    value = "sortDir",
+                                    defaultValue = AppConstants.DEFAULT_ER_SORT_DIRECTION,
+                                    required = false)
+                            String sortDir) {
         return environmentalReadingService.findAllEnvironmentalReadingsBySensorSystemId(
                 sensorSystemId, pageNo, pageSize, sortBy, sortDir);
     }
@@ -114,6 +140,31 @@ public class EnvironmentalReadingController {
                         sensorSystemId, file);
     }
 
+    // The csv as the request body instead of a multipart file, optionally gzipped. It is
+    // decompressed while it is parsed
+    @PostMapping(value = "/Bulk/SensorSystem/{sensorSystemId}", consumes = CSVUtil.TYPE)
+    public ResponseEntity<String> uploadCSV(
+            @PathVariable UUID sensorSystemId,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+                    String contentEncoding,
+            InputStream body) {
+        InputStream csv;
+        if (contentEncoding == null || "identity".equalsIgnoreCase(contentEncoding)) {
+            csv = body;
+        } else if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            try {
+                csv = new GZIPInputStream(body, GZIP_BUFFER_SIZE);
+            } catch (IOException e) {
+                return ResponseEntity.badRequest().body(ENVT_CSV_REJ_ERR);
+            }
+        } else {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(String.format(ENVT_CSV_REJ_ENCODING, contentEncoding));
+        }
+        return environmentalReadingService.validateSensorSystemAndParseEnvironmentalReadings(
+                sensorSystemId, csv);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<EnvironmentalReading> updateEnvironmentalReading(
             @PathVariable UUID id,
@@ -125,9 +176,8 @@ public class EnvironmentalReadingController {
                             environmentalReadingDTO.setId(id);
                             return ResponseEntity.ok(
                                     environmentalReadingService.saveEnvironmentalReading(
-                                            modelMapper.map(
-                                                    environmentalReadingDTO,
-                                                    EnvironmentalReading.class)));
+                                            dtoMapper.toEnvironmentalReading(
+                                                    environmentalReadingDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -146,25 +196,46 @@ public class EnvironmentalReadingController {
 
     @GetMapping("/QuarterHourly/SensorSystem/{sensorSystemId}")
     public ResponseEntity<Map<OffsetDateTime, Double>> getQuarterHourlyTemperature(
-            @PathVariable UUID sensorSystemId) {
-        Map<OffsetDateTime, Double> tenMinuteTemperatures =
-                environmentalReadingService.getAverageTempsForQuarterHourly(sensorSystemId);
-        return ResponseEntity.ok(tenMinuteTemperatures);
+            @PathVariable UUID sensorSystemId, WebRequest webRequest) {
+        return averagesResponse(
+                sensorSystemId,
+                webRequest,
+                applicationProperties.getHttpCache().getQuarterHourlyMaxAge(),
+                () -> environmentalReadingService.getAverageTempsForQuarterHourly(sensorSystemId));
     }
 
     @GetMapping("/Hourly/SensorSystem/{sensorSystemId}")
     public ResponseEntity<Map<OffsetDateTime, Double>> getHourlyTemperature(
-            @PathVariable UUID sensorSystemId) {
-        Map<OffsetDateTime, Double> hourlyTemperatures =
-                environmentalReadingService.getAverageTempsForHourly(sensorSystemId);
-        return ResponseEntity.ok(hourlyTemperatures);
+            @PathVariable UUID sensorSystemId, WebRequest webRequest) {
+        return averagesResponse(
+                sensorSystemId,
+                webRequest,
+                applicationProperties.getHttpCache().getHourlyMaxAge(),
+                () -> environmentalReadingService.getAverageTempsForHourly(sensorSystemId));
     }
 
     @GetMapping("/Daily/SensorSystem/{sensorSystemId}")
     public ResponseEntity<Map<OffsetDateTime, Double>> getDailyTemperature(
-            @PathVariable UUID sensorSystemId) {
-        Map<OffsetDateTime, Double> hourlyTemperatures =
-                environmentalReadingService.getAverageTempsForDaily(sensorSystemId);
-        return ResponseEntity.ok(hourlyTemperatures);
+            @PathVariable UUID sensorSystemId, WebRequest webRequest) {
+        return averagesResponse(
+                sensorSystemId,
+                webRequest,
+                applicationProperties.getHttpCache().getDailyMaxAge(),
+                () -> environmentalReadingService.getAverageTempsForDaily(sensorSystemId));
+    }
+
+    // The averages cover a range ending now, so besides the sensor's version the ETag also
+    // changes once per max-age as readings drop out of the range
+    private ResponseEntity<Map<OffsetDateTime, Double>> averagesResponse(
+            UUID sensorSystemId,
+            WebRequest webRequest,
+            Duration maxAge,
+            Supplier<Map<OffsetDateTime, Double>> averages) {
+        long slot = Instant.now().getEpochSecond() / Math.max(maxAge.getSeconds(), 1);
+        return ConditionalGet.respond(
+                webRequest,
+                sensorSystemVersions.etag(sensorSystemId, slot),
+                maxAge,
+                () -> Optional.of(averages.get()));
     }
 }
@@ -0,0 +1,99 @@
+package com.unconv.spring.web.rest;
+
+import com.unconv.spring.consts.ExportFormat;
+import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.export.EnvironmentalReadingExporter;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/EnvironmentalReading/Export")
+@Slf4j
+public class EnvironmentalReadingExportController {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired private SensorSystemService sensorSystemService;
+
+    @Autowired private EnvironmentalReadingExporter environmentalReadingExporter;
+
+    @GetMapping("SensorSystem/{sensorSystemId}")
+    public ResponseEntity<StreamingResponseBody> exportEnvironmentalReadingsBySensorSystemId(
+            @PathVariable UUID sensorSystemId,
+            @RequestParam(value = "from", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime from,
+            @RequestParam(value = "to", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime to,
+            @RequestParam(value = "format", defaultValue = "csv", required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                    String acceptEncoding,
+            HttpServletResponse response)
+            throws IOException {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (sensorSystemService.findSensorSystemById(sensorSystemId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        OffsetDateTime start =
+                from != null ? from : OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC);
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body =
+                outputStream -> {
+                    if (!gzip) {
+                        environmentalReadingExporter.export(
+                                sensorSystemId, start, end, exportFormat, outputStream);
+                        return;
+                    }
+                    GZIPOutputStream gzipOutputStream =
+                            new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE);
+                    environmentalReadingExporter.export(
+                            sensorSystemId, start, end, exportFormat, gzipOutputStream);
+                    gzipOutputStream.finish();
+                };
+
+        response.setContentType(exportFormat.getMediaType());
+        response.setHeader(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment()
+                        .filename(sensorSystemId + "." + exportFormat.getFileExtension())
+                        .build()
+                        .toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        // Spring Security writes its headers once the response is committed. Committing here
+        // keeps that on the request thread, from the streaming thread it would race with this
+        // thread finishing the request on the same, unsynchronized, header map
+        response.flushBuffer();
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,42 @@
+package com.unconv.spring.web.rest;
+
+import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.stream.EnvironmentalReadingBroadcastHub;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/EnvironmentalReading/Stream")
+@Slf4j
+public class EnvironmentalReadingStreamController {
+
+    @Autowired private SensorSystemService sensorSystemService;
+
+    @Autowired private EnvironmentalReadingBroadcastHub environmentalReadingBroadcastHub;
+
+    @GetMapping(
+            value = "SensorSystem/{sensorSystemId}",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEnvironmentalReadingsBySensorSystemId(
+            @PathVariable UUID sensorSystemId,
+            @RequestParam(value = "quarterHourly", defaultValue = "false", required = false)
+                    boolean quarterHourly) {
+        if (sensorSystemService.findSensorSystemById(sensorSystemId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return environmentalReadingBroadcastHub
+                .subscribe(sensorSystemId, quarterHourly)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
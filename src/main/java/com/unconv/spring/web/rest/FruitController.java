@@ -2,11 +2,11 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.Fruit;
 import com.unconv.spring.dto.FruitDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.service.FruitService;
 import java.util.List;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,7 +28,7 @@ public class FruitController {
 
     @Autowired private FruitService fruitService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public List<Fruit> getAllFruits() {
@@ -46,7 +46,7 @@ public class FruitController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Fruit createFruit(@RequestBody @Validated FruitDTO fruitDTO) {
-        return fruitService.saveFruit(modelMapper.map(fruitDTO, Fruit.class));
+        return fruitService.saveFruit(dtoMapper.toFruit(fruitDTO));
     }
 
     @PutMapping("/{id}")
@@ -58,7 +58,7 @@ public class FruitController {
                         fruitObj -> {
                             fruitDTO.setId(id);
                             return ResponseEntity.ok(
-                                    fruitService.saveFruit(modelMapper.map(fruitDTO, Fruit.class)));
+                                    fruitService.saveFruit(dtoMapper.toFruit(fruitDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -2,11 +2,11 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.FruitProduct;
 import com.unconv.spring.dto.FruitProductDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.service.FruitProductService;
 import java.util.List;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,7 +28,7 @@ public class FruitProductController {
 
     @Autowired private FruitProductService fruitProductService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public List<FruitProduct> getAllFruitProducts() {
@@ -47,8 +47,7 @@ public class FruitProductController {
     @ResponseStatus(HttpStatus.CREATED)
     public FruitProduct createFruitProduct(
             @RequestBody @Validated FruitProductDTO fruitProductDTO) {
-        return fruitProductService.saveFruitProduct(
-                modelMapper.map(fruitProductDTO, FruitProduct.class));
+        return fruitProductService.saveFruitProduct(dtoMapper.toFruitProduct(fruitProductDTO));
     }
 
     @PutMapping("/{id}")
@@ -61,7 +60,7 @@ public class FruitProductController {
                             fruitProductDTO.setId(id);
                             return ResponseEntity.ok(
                                     fruitProductService.saveFruitProduct(
-                                            modelMapper.map(fruitProductDTO, FruitProduct.class)));
+                                            dtoMapper.toFruitProduct(fruitProductDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
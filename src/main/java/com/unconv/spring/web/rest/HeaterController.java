@@ -2,11 +2,11 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.Heater;
 import com.unconv.spring.dto.HeaterDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.service.HeaterService;
 import java.util.List;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,7 +28,7 @@ public class HeaterController {
 
     @Autowired private HeaterService heaterService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public List<Heater> getAllHeaters() {
@@ -46,7 +46,7 @@ public class HeaterController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Heater createHeater(@RequestBody @Validated HeaterDTO heaterDTO) {
-        return heaterService.saveHeater(modelMapper.map(heaterDTO, Heater.class));
+        return heaterService.saveHeater(dtoMapper.toHeater(heaterDTO));
     }
 
     @PutMapping("/{id}")
@@ -58,8 +58,7 @@ public class HeaterController {
                         heaterObj -> {
                             heaterDTO.setId(id);
                             return ResponseEntity.ok(
-                                    heaterService.saveHeater(
-                                            modelMapper.map(heaterDTO, Heater.class)));
+                                    heaterService.saveHeater(dtoMapper.toHeater(heaterDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -2,11 +2,11 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.Offer;
 import com.unconv.spring.dto.OfferDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.service.OfferService;
 import java.util.List;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,7 +28,7 @@ public class OfferController {
 
     @Autowired private OfferService offerService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public List<Offer> getAllOffers() {
@@ -46,7 +46,7 @@ public class OfferController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Offer createOffer(@RequestBody @Validated OfferDTO offerDTO) {
-        return offerService.saveOffer(modelMapper.map(offerDTO, Offer.class));
+        return offerService.saveOffer(dtoMapper.toOffer(offerDTO));
     }
 
     @PutMapping("/{id}")
@@ -58,7 +58,7 @@ public class OfferController {
                         offerObj -> {
                             offerDTO.setId(id);
                             return ResponseEntity.ok(
-                                    offerService.saveOffer(modelMapper.map(offerDTO, Offer.class)));
+                                    offerService.saveOffer(dtoMapper.toOffer(offerDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -2,13 +2,13 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.OrderProduct;
 import com.unconv.spring.dto.OrderProductDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.service.OrderProductService;
 import com.unconv.spring.utils.AppConstants;
 import java.util.UUID;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -31,7 +31,7 @@ public class OrderProductController {
 
     @Autowired private OrderProductService orderProductService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public PagedResult<OrderProduct> getAllOrderProducts(
@@ -70,8 +70,7 @@ public class OrderProductController {
     @ResponseStatus(HttpStatus.CREATED)
     public OrderProduct createOrderProduct(
             @RequestBody @Validated OrderProductDTO orderProductDTO) {
-        return orderProductService.saveOrderProduct(
-                modelMapper.map(orderProductDTO, OrderProduct.class));
+        return orderProductService.saveOrderProduct(dtoMapper.toOrderProduct(orderProductDTO));
     }
 
     @PutMapping("/{id}")
@@ -84,7 +83,7 @@ public class OrderProductController {
                             orderProductDTO.setId(id);
                             return ResponseEntity.ok(
                                     orderProductService.saveOrderProduct(
-                                            modelMapper.map(orderProductDTO, OrderProduct.class)));
+                                            dtoMapper.toOrderProduct(orderProductDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
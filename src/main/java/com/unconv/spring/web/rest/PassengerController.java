@@ -2,12 +2,12 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.Passenger;
 import com.unconv.spring.dto.PassengerDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.service.PassengerService;
 import com.unconv.spring.utils.AppConstants;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -30,7 +30,7 @@ public class PassengerController {
 
     @Autowired private PassengerService passengerService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public PagedResult<Passenger> getAllPassengers(
@@ -77,7 +77,7 @@ public class PassengerController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Passenger createPassenger(@RequestBody @Validated PassengerDTO passengerDTO) {
-        return passengerService.savePassenger(modelMapper.map(passengerDTO, Passenger.class));
+        return passengerService.savePassenger(dtoMapper.toPassenger(passengerDTO));
     }
 
     @PutMapping("/{id}")
@@ -90,7 +90,7 @@ public class PassengerController {
                             passengerDTO.setId(id);
                             return ResponseEntity.ok(
                                     passengerService.savePassenger(
-                                            modelMapper.map(passengerDTO, Passenger.class)));
+                                            dtoMapper.toPassenger(passengerDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -0,0 +1,162 @@
+package com.unconv.spring.web.rest;
+
+import com.unconv.spring.consts.AggregateFunction;
+import com.unconv.spring.consts.ReadingMetric;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.model.response.MessageResponse;
+import com.unconv.spring.model.response.ReadingAggregates;
+import com.unconv.spring.model.response.SensorSystemPagedResult;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.ReactiveEnvironmentalReadingService;
+import com.unconv.spring.utils.AppConstants;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking variants of the reading endpoints. The request thread is released as soon as the
+// Mono or Flux is returned and the response is written once the R2DBC query completes
+@RestController
+@RequestMapping("/EnvironmentalReading/Reactive")
+@ConditionalOnProperty(name = "application.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveEnvironmentalReadingController {
+
+    @Autowired private ReactiveEnvironmentalReadingService reactiveEnvironmentalReadingService;
+
+    @GetMapping("SensorSystem/{sensorSystemId}")
+    public Mono<ResponseEntity<SensorSystemPagedResult<EnvironmentalReadingProjection>>>
+            getAllEnvironmentalReadingsBySensorSystemId(
+                    @PathVariable UUID sensorSystemId,
+                    @RequestParam(
+                                    value = "pageNo",
+                                    defaultValue = AppConstants.DEFAULT_PAGE_NUMBER,
+                                    required = false)
+                            int pageNo,
+                    @RequestParam(
+                                    value = "pageSize",
+                                    defaultValue = AppConstants.DEFAULT_PAGE_SIZE,
+                                    required = false)
+                            int pageSize,
+                    @RequestParam(
+                                    value = "sortBy",
+                                    defaultValue = AppConstants.DEFAULT_ER_SORT_BY,
+                                    required = false)
+                            String sortBy,
+                    @RequestParam(
+                                    value = "sortDir",
+                                    defaultValue = AppConstants.DEFAULT_ER_SORT_DIRECTION,
+                                    required = false)
+                            String sortDir) {
+        return Mono.defer(
+                        () ->
+                                reactiveEnvironmentalReadingService
+                                        .findAllEnvironmentalReadingsBySensorSystemId(
+                                                sensorSystemId, pageNo, pageSize, sortBy, sortDir))
+                .map(ResponseEntity::ok)
+                .onErrorResume(
+                        IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<MessageResponse<EnvironmentalReadingDTO>>>
+            createEnvironmentalReading(
+                    @RequestBody @Validated EnvironmentalReadingDTO environmentalReadingDTO,
+                    Authentication authentication) {
+        return reactiveEnvironmentalReadingService
+                .generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
+                        environmentalReadingDTO, authentication.getName());
+    }
+
+    @GetMapping("Aggregate/SensorSystem/{sensorSystemId}")
+    public Mono<ResponseEntity<ReadingAggregates>> getAggregatedEnvironmentalReadings(
+            @PathVariable UUID sensorSystemId,
+            @RequestParam(value = "from", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime from,
+            @RequestParam(value = "to", required = false)
+                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                    OffsetDateTime to,
+            @RequestParam(value = "interval", defaultValue = "1h", required = false)
+                    String interval,
+            @RequestParam(value = "metrics", defaultValue = "temperature", required = false)
+                    List<String> metrics,
+            @RequestParam(value = "functions", defaultValue = "avg", required = false)
+                    List<String> functions) {
+        Duration bucketWidth;
+        Set<ReadingMetric> readingMetrics;
+        Set<AggregateFunction> aggregateFunctions;
+        try {
+            bucketWidth = DurationStyle.detectAndParse(interval);
+            readingMetrics =
+                    EnvironmentalReadingAggregateController.parse(metrics, ReadingMetric.class);
+            aggregateFunctions =
+                    EnvironmentalReadingAggregateController.parse(
+                            functions, AggregateFunction.class);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime start = from != null ? from : end.minusHours(24);
+        return Mono.defer(
+                        () ->
+                                reactiveEnvironmentalReadingService.aggregateEnvironmentalReadings(
+                                        sensorSystemId,
+                                        start,
+                                        end,
+                                        bucketWidth,
+                                        readingMetrics,
+                                        aggregateFunctions))
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(
+                        IllegalArgumentException.class,
+                        e -> {
+                            log.debug(
+                                    "Rejected aggregate request for {}: {}",
+                                    sensorSystemId,
+                                    e.getMessage());
+                            return Mono.just(ResponseEntity.badRequest().build());
+                        });
+    }
+
+    @GetMapping(
+            value = "Stream/SensorSystem/{sensorSystemId}",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<ServerSentEvent<EnvironmentalReadingProjection>>>>
+            streamEnvironmentalReadingsBySensorSystemId(@PathVariable UUID sensorSystemId) {
+        return reactiveEnvironmentalReadingService
+                .existsSensorSystemById(sensorSystemId)
+                .map(
+                        exists ->
+                                exists
+                                        ? ResponseEntity.ok(
+                                                reactiveEnvironmentalReadingService
+                                                        .streamEnvironmentalReadings(
+                                                                sensorSystemId))
+                                        : ResponseEntity.notFound().build());
+    }
+}
@@ -2,12 +2,12 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.Route;
 import com.unconv.spring.dto.RouteDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.service.RouteService;
 import com.unconv.spring.utils.AppConstants;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -30,7 +30,7 @@ public class RouteController {
 
     @Autowired private RouteService routeService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public PagedResult<Route> getAllRoutes(
@@ -68,7 +68,7 @@ public class RouteController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Route createRoute(@RequestBody @Validated RouteDTO routeDTO) {
-        return routeService.saveRoute(modelMapper.map(routeDTO, Route.class));
+        return routeService.saveRoute(dtoMapper.toRoute(routeDTO));
     }
 
     @PutMapping("/{id}")
@@ -80,7 +80,7 @@ public class RouteController {
                         routeObj -> {
                             routeDTO.setId(id);
                             return ResponseEntity.ok(
-                                    routeService.saveRoute(modelMapper.map(routeDTO, Route.class)));
+                                    routeService.saveRoute(dtoMapper.toRoute(routeDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -2,14 +2,15 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.SensorLocation;
 import com.unconv.spring.dto.SensorLocationDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.projection.SensorLocationProjection;
 import com.unconv.spring.service.SensorLocationService;
 import com.unconv.spring.utils.AppConstants;
 import java.util.List;
 import java.util.UUID;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -32,7 +33,7 @@ public class SensorLocationController {
 
     @Autowired private SensorLocationService sensorLocationService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public PagedResult<SensorLocation> getAllSensorLocations(
@@ -60,7 +61,8 @@ public class SensorLocationController {
     }
 
     @GetMapping("/UnconvUser/{unconvUserId}")
-    public List<SensorLocation> getAllSensorSystemsByUnconvUserId(@PathVariable UUID unconvUserId) {
+    public List<SensorLocationProjection> getAllSensorSystemsByUnconvUserId(
+            @PathVariable UUID unconvUserId) {
         return sensorLocationService.findAllSensorLocationsByUnconvUserId(unconvUserId);
     }
 
@@ -77,7 +79,7 @@ public class SensorLocationController {
     public SensorLocation createSensorLocation(
             @RequestBody @Validated SensorLocationDTO sensorLocationDTO) {
         return sensorLocationService.saveSensorLocation(
-                modelMapper.map(sensorLocationDTO, SensorLocation.class));
+                dtoMapper.toSensorLocation(sensorLocationDTO));
     }
 
     @PutMapping("/{id}")
@@ -90,8 +92,7 @@ public class SensorLocationController {
                             sensorLocationDTO.setId(id);
                             return ResponseEntity.ok(
                                     sensorLocationService.saveSensorLocation(
-                                            modelMapper.map(
-                                                    sensorLocationDTO, SensorLocation.class)));
+                                            dtoMapper.toSensorLocation(sensorLocationDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -1,15 +1,18 @@
 package com.unconv.spring.web.rest;
 
+import com.unconv.spring.config.ApplicationProperties;
 import com.unconv.spring.domain.SensorSystem;
 import com.unconv.spring.dto.SensorSystemDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.projection.SensorSystemOverview;
 import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.cache.SensorSystemVersions;
 import com.unconv.spring.utils.AppConstants;
 import java.util.Optional;
 import java.util.UUID;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +27,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/SensorSystem")
@@ -32,10 +36,14 @@ public class SensorSystemController {
 
     @Autowired private SensorSystemService sensorSystemService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
+
+    @Autowired private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private ApplicationProperties applicationProperties;
 
     @GetMapping
-    public PagedResult<SensorSystemDTO> getAllSensorSystems(
+    public PagedResult<SensorSystemOverview> getAllSensorSystems(
             @RequestParam(
                             value = "pageNo",
                             defaultValue = AppConstants.DEFAULT_PAGE_NUMBER,
@@ -60,7 +68,7 @@ public class SensorSystemController {
     }
 
     @GetMapping("UnconvUser/{unconvUserId}")
-    public PagedResult<SensorSystemDTO> getAllSensorSystemsByUnconvUserId(
+    public PagedResult<SensorSystemOverview> getAllSensorSystemsByUnconvUserId(
             @PathVariable UUID unconvUserId,
             @RequestParam(
                             value = "pageNo",
@@ -87,19 +95,20 @@ public class SensorSystemController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<SensorSystemDTO> getSensorSystemById(@PathVariable UUID id) {
-        return sensorSystemService
-                .findSensorSystemDTOById(id)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<SensorSystemDTO> getSensorSystemById(
+            @PathVariable UUID id, WebRequest webRequest) {
+        return ConditionalGet.respond(
+                webRequest,
+                sensorSystemVersions.etag(id),
+                applicationProperties.getHttpCache().getSensorSystemMaxAge(),
+                () -> sensorSystemService.findSensorSystemDTOById(id));
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public SensorSystem createSensorSystem(
             @RequestBody @Validated SensorSystemDTO sensorSystemDTO) {
-        return sensorSystemService.saveSensorSystem(
-                modelMapper.map(sensorSystemDTO, SensorSystem.class));
+        return sensorSystemService.saveSensorSystem(dtoMapper.toSensorSystem(sensorSystemDTO));
     }
 
     @PutMapping("/{id}")
@@ -113,7 +122,7 @@ public class SensorSystemController {
                             sensorSystemDTO.setUnconvUser(sensorSystemObj.getUnconvUser());
                             return ResponseEntity.ok(
                                     sensorSystemService.saveSensorSystem(
-                                            modelMapper.map(sensorSystemDTO, SensorSystem.class)));
+                                            dtoMapper.toSensorSystem(sensorSystemDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -2,13 +2,13 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.UnconvRole;
 import com.unconv.spring.dto.UnconvRoleDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.service.UnconvRoleService;
 import com.unconv.spring.utils.AppConstants;
 import java.util.UUID;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -31,7 +31,7 @@ public class UnconvRoleController {
 
     @Autowired private UnconvRoleService unconvRoleService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public PagedResult<UnconvRole> getAllUnconvRoles(
@@ -69,7 +69,7 @@ public class UnconvRoleController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public UnconvRole createUnconvRole(@RequestBody @Validated UnconvRoleDTO unconvRoleDTO) {
-        return unconvRoleService.saveUnconvRole(modelMapper.map(unconvRoleDTO, UnconvRole.class));
+        return unconvRoleService.saveUnconvRole(dtoMapper.toUnconvRole(unconvRoleDTO));
     }
 
     @PutMapping("/{id}")
@@ -82,7 +82,7 @@ public class UnconvRoleController {
                             unconvRoleDTO.setId(id);
                             return ResponseEntity.ok(
                                     unconvRoleService.saveUnconvRole(
-                                            modelMapper.map(unconvRoleDTO, UnconvRole.class)));
+                                            dtoMapper.toUnconvRole(unconvRoleDTO)));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
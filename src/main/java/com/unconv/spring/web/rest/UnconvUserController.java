@@ -2,6 +2,7 @@ package com.unconv.spring.web.rest;
 
 import com.unconv.spring.domain.UnconvUser;
 import com.unconv.spring.dto.UnconvUserDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.MessageResponse;
 import com.unconv.spring.model.response.PagedResult;
 import com.unconv.spring.service.UnconvUserService;
@@ -9,7 +10,6 @@ import com.unconv.spring.utils.AppConstants;
 import java.util.UUID;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -30,7 +30,7 @@ public class UnconvUserController {
 
     @Autowired private UnconvUserService unconvUserService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     @GetMapping
     public PagedResult<UnconvUser> getAllUnconvUsers(
@@ -69,7 +69,7 @@ public class UnconvUserController {
     public ResponseEntity<MessageResponse<UnconvUserDTO>> createUnconvUser(
             @RequestBody @Validated UnconvUserDTO unconvUserDTO) {
         return unconvUserService.checkUsernameUniquenessAndSaveUnconvUser(
-                modelMapper.map(unconvUserDTO, UnconvUser.class), unconvUserDTO.getPassword());
+                dtoMapper.toUnconvUser(unconvUserDTO), unconvUserDTO.getPassword());
     }
 
     @PutMapping("/{id}")
@@ -83,7 +83,7 @@ public class UnconvUserController {
                             unconvUserDTO.setId(id);
                             return ResponseEntity.ok(
                                     unconvUserService.saveUnconvUser(
-                                            modelMapper.map(unconvUserDTO, UnconvUser.class),
+                                            dtoMapper.toUnconvUser(unconvUserDTO),
                                             unconvUserDTO.getPassword()));
                         })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -0,0 +1,94 @@
+package com.unconv.spring.web.socket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.service.ingest.EnvironmentalReadingBatchWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+@Slf4j
+@Component
+public class EnvironmentalReadingIngestHandler extends TextWebSocketHandler {
+
+    private static final int SEND_TIME_LIMIT_MILLIS = 10_000;
+
+    private static final int SEND_BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    private final Map<String, IngestConnection> connections = new ConcurrentHashMap<>();
+
+    private final ApplicationProperties.Ingest properties;
+
+    private final EnvironmentalReadingBatchWriter batchWriter;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    public EnvironmentalReadingIngestHandler(
+            ApplicationProperties applicationProperties,
+            EnvironmentalReadingBatchWriter batchWriter,
+            ObjectMapper objectMapper,
+            Validator validator) {
+        this.properties = applicationProperties.getIngest();
+        this.batchWriter = batchWriter;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        SensorSystem sensorSystem =
+                (SensorSystem)
+                        session.getAttributes()
+                                .get(SensorSystemHandshakeInterceptor.SENSOR_SYSTEM_ATTRIBUTE);
+        // Acks are sent from the batch writer thread while the container thread may be
+        // replying to the next frame, the decorator serializes those sends
+        WebSocketSession concurrentSession =
+                new ConcurrentWebSocketSessionDecorator(
+                        session, SEND_TIME_LIMIT_MILLIS, SEND_BUFFER_SIZE_LIMIT);
+        IngestConnection connection =
+                new IngestConnection(
+                        concurrentSession,
+                        sensorSystem,
+                        batchWriter,
+                        objectMapper,
+                        validator,
+                        properties.getMaxInFlightPerConnection());
+        connections.put(session.getId(), connection);
+        connection.open();
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        IngestConnection connection = connections.get(session.getId());
+        if (connection != null) {
+            connection.handleFrame(message.getPayload());
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Ingestion session {} failed: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        IngestConnection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+}
@@ -0,0 +1,195 @@
+package com.unconv.spring.web.socket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.service.ingest.EnvironmentalReadingBatchWriter;
+import com.unconv.spring.service.ingest.IngestFrame;
+import com.unconv.spring.service.ingest.IngestListener;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+// One ingesting sensor connection. Every frame holds credit for its readings until the batch
+// writer has committed or failed it, so a sensor can never queue more than its window
+@Slf4j
+class IngestConnection implements IngestListener {
+
+    private final WebSocketSession session;
+
+    private final SensorSystem sensorSystem;
+
+    private final EnvironmentalReadingBatchWriter batchWriter;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong frameCounter = new AtomicLong();
+
+    private volatile boolean closed;
+
+    IngestConnection(
+            WebSocketSession session,
+            SensorSystem sensorSystem,
+            EnvironmentalReadingBatchWriter batchWriter,
+            ObjectMapper objectMapper,
+            Validator validator,
+            int maxInFlight) {
+        this.session = session;
+        this.sensorSystem = sensorSystem;
+        this.batchWriter = batchWriter;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.maxInFlight = maxInFlight;
+    }
+
+    void open() {
+        send(IngestReply.ready(window()));
+    }
+
+    // A frame is an optional "@<frameId>" line followed by "temperature,humidity[,epochMillis]"
+    // lines and is accepted or rejected as a whole
+    void handleFrame(String payload) {
+        List<String> lines = payload.lines().toList();
+        int firstReadingLine = 0;
+        String frameId;
+        if (!lines.isEmpty() && lines.get(0).startsWith("@")) {
+            frameId = lines.get(0).substring(1).strip();
+            firstReadingLine = 1;
+        } else {
+            frameId = Long.toString(frameCounter.incrementAndGet());
+        }
+
+        List<EnvironmentalReading> readings = new ArrayList<>(lines.size());
+        List<Integer> invalidLines = new ArrayList<>();
+        for (int i = firstReadingLine; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            EnvironmentalReading reading = parseReading(line);
+            if (reading == null) {
+                invalidLines.add(i + 1);
+            } else {
+                readings.add(reading);
+            }
+        }
+
+        if (!invalidLines.isEmpty()) {
+            send(IngestReply.rejected(frameId, invalidLines, "invalid-readings"));
+            return;
+        }
+        if (readings.isEmpty()) {
+            send(IngestReply.rejected(frameId, List.of(), "empty"));
+            return;
+        }
+
+        IngestFrame frame = new IngestFrame(frameId, sensorSystem.getId(), readings, this);
+        if (inFlight.addAndGet(readings.size()) > maxInFlight || !batchWriter.offer(frame)) {
+            inFlight.addAndGet(-readings.size());
+            send(IngestReply.nack(List.of(frameId), "overloaded", window()));
+        }
+    }
+
+    private EnvironmentalReading parseReading(String line) {
+        int firstComma = line.indexOf(',');
+        if (firstComma < 0) {
+            return null;
+        }
+        int secondComma = line.indexOf(',', firstComma + 1);
+        try {
+            double temperature = Double.parseDouble(line.substring(0, firstComma).strip());
+            double humidity =
+                    Double.parseDouble(
+                            (secondComma < 0
+                                            ? line.substring(firstComma + 1)
+                                            : line.substring(firstComma + 1, secondComma))
+                                    .strip());
+            OffsetDateTime timestamp =
+                    secondComma < 0
+                            ? OffsetDateTime.now(ZoneOffset.UTC)
+                            : OffsetDateTime.ofInstant(
+                                    Instant.ofEpochMilli(
+                                            Long.parseLong(
+                                                    line.substring(secondComma + 1).strip())),
+                                    ZoneOffset.UTC);
+            // Bean Validation cannot compare NaN against the bounds
+            if (Double.isNaN(temperature) || Double.isNaN(humidity)) {
+                return null;
+            }
+            EnvironmentalReading reading =
+                    new EnvironmentalReading(null, temperature, humidity, timestamp, sensorSystem);
+            // The same constraints as readings POSTed over HTTP
+            return validator.validate(reading).isEmpty() ? reading : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void onFramesPersisted(List<IngestFrame> frames) {
+        int readings = release(frames);
+        send(IngestReply.ack(frameIds(frames), readings, window()));
+    }
+
+    @Override
+    public void onFramesFailed(List<IngestFrame> frames, RuntimeException exception) {
+        release(frames);
+        send(IngestReply.nack(frameIds(frames), "write-failed", window()));
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    private int release(List<IngestFrame> frames) {
+        int readings = 0;
+        for (IngestFrame frame : frames) {
+            readings += frame.readings().size();
+        }
+        inFlight.addAndGet(-readings);
+        return readings;
+    }
+
+    private List<String> frameIds(List<IngestFrame> frames) {
+        List<String> frameIds = new ArrayList<>(frames.size());
+        for (IngestFrame frame : frames) {
+            frameIds.add(frame.frameId());
+        }
+        return frameIds;
+    }
+
+    private int window() {
+        return Math.max(
+                0, Math.min(maxInFlight - inFlight.get(), batchWriter.getRemainingCapacity()));
+    }
+
+    private void send(IngestReply reply) {
+        if (closed) {
+            return;
+        }
+        try {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(reply)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize ingest reply", e);
+        } catch (IOException | RuntimeException e) {
+            log.debug(
+                    "Failed to reply on ingestion session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.unconv.spring.web.socket;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record IngestReply(
+        String type,
+        List<String> frames,
+        Integer readings,
+        List<Integer> lines,
+        String reason,
+        Integer window) {
+
+    static IngestReply ready(int window) {
+        return new IngestReply("ready", null, null, null, null, window);
+    }
+
+    static IngestReply ack(List<String> frames, int readings, int window) {
+        return new IngestReply("ack", frames, readings, null, null, window);
+    }
+
+    static IngestReply nack(List<String> frames, String reason, int window) {
+        return new IngestReply("nack", frames, null, null, reason, window);
+    }
+
+    static IngestReply rejected(String frame, List<Integer> lines, String reason) {
+        return new IngestReply("rejected", List.of(frame), null, lines, reason, null);
+    }
+}
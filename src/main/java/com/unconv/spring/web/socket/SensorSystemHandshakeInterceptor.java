@@ -0,0 +1,81 @@
+package com.unconv.spring.web.socket;
+
+import com.unconv.spring.consts.SensorStatus;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.service.SensorSystemService;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+// Applies the checks of the single reading POST once per connection, the validated sensor is
+// kept on the session so frames are not checked against the database again
+@Slf4j
+@Component
+public class SensorSystemHandshakeInterceptor implements HandshakeInterceptor {
+
+    static final String SENSOR_SYSTEM_ATTRIBUTE = "sensorSystem";
+
+    private final SensorSystemService sensorSystemService;
+
+    public SensorSystemHandshakeInterceptor(SensorSystemService sensorSystemService) {
+        this.sensorSystemService = sensorSystemService;
+    }
+
+    @Override
+    public boolean beforeHandshake(
+            ServerHttpRequest request,
+            ServerHttpResponse response,
+            WebSocketHandler wsHandler,
+            Map<String, Object> attributes) {
+        String path = request.getURI().getPath();
+        UUID sensorSystemId;
+        try {
+            sensorSystemId = UUID.fromString(path.substring(path.lastIndexOf('/') + 1));
+        } catch (IllegalArgumentException e) {
+            return refuse(response, HttpStatus.BAD_REQUEST);
+        }
+
+        Principal principal = request.getPrincipal();
+        if (principal == null) {
+            return refuse(response, HttpStatus.UNAUTHORIZED);
+        }
+
+        Optional<SensorSystem> optionalSensorSystem =
+                sensorSystemService.findSensorSystemById(sensorSystemId);
+        if (optionalSensorSystem.isEmpty()) {
+            return refuse(response, HttpStatus.NOT_FOUND);
+        }
+
+        SensorSystem sensorSystem = optionalSensorSystem.get();
+        if (!sensorSystem.getUnconvUser().getUsername().equals(principal.getName())) {
+            return refuse(response, HttpStatus.UNAUTHORIZED);
+        }
+        if (sensorSystem.isDeleted() || sensorSystem.getSensorStatus() != SensorStatus.ACTIVE) {
+            return refuse(response, HttpStatus.BAD_REQUEST);
+        }
+
+        attributes.put(SENSOR_SYSTEM_ATTRIBUTE, sensorSystem);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(
+            ServerHttpRequest request,
+            ServerHttpResponse response,
+            WebSocketHandler wsHandler,
+            Exception exception) {}
+
+    private boolean refuse(ServerHttpResponse response, HttpStatus status) {
+        log.debug("Refused ingestion handshake with {}", status);
+        response.setStatusCode(status);
+        return false;
+    }
+}
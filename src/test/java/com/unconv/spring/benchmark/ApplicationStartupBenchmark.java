@@ -0,0 +1,45 @@
+package com.unconv.spring.benchmark;
+
+import com.unconv.spring.Application;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Cold start of the application context: every fork boots exactly once, against in-memory H2
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class ApplicationStartupBenchmark {
+
+    @Param({"default", "faststart"})
+    public String profile;
+
+    @Benchmark
+    public void coldStart() {
+        ConfigurableApplicationContext context =
+                new SpringApplicationBuilder(Application.class)
+                        .profiles(profile)
+                        .properties(
+                                "spring.datasource.url=jdbc:h2:mem:startup",
+                                "spring.datasource.driver-class-name=org.h2.Driver",
+                                "spring.datasource.username=sa",
+                                "spring.jpa.show-sql=false",
+                                "spring.devtools.restart.enabled=false",
+                                "server.port=0")
+                        .run();
+        context.close();
+    }
+}
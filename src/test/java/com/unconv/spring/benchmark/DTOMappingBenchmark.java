@@ -0,0 +1,116 @@
+package com.unconv.spring.benchmark;
+
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.domain.UnconvUser;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.dto.SensorSystemDTO;
+import com.unconv.spring.dto.UnconvUserDTO;
+import com.unconv.spring.mapper.DTOMapper;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of a single DTO/entity conversion with the reflective ModelMapper the application used
+// before and with the generated DTOMapper, for the pairs on the ingestion and listing paths
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DTOMappingBenchmark {
+
+    @Param({"MODEL_MAPPER", "MAPSTRUCT"})
+    public String mapperMode;
+
+    private ModelMapper modelMapper;
+
+    private DTOMapper dtoMapper;
+
+    private EnvironmentalReadingDTO environmentalReadingDTO;
+
+    private EnvironmentalReading environmentalReading;
+
+    private SensorSystem sensorSystem;
+
+    private UnconvUser unconvUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        dtoMapper = Mappers.getMapper(DTOMapper.class);
+
+        unconvUser = new UnconvUser(UUID.randomUUID(), "UnconvUser", "unconvuser@email.com", "pw");
+        SensorLocation sensorLocation =
+                new SensorLocation(
+                        UUID.randomUUID(),
+                        "Parthenon",
+                        37.9715,
+                        23.7269,
+                        SensorLocationType.OUTDOOR);
+        sensorSystem =
+                new SensorSystem(UUID.randomUUID(), "Sensor ABCD", sensorLocation, unconvUser);
+
+        OffsetDateTime timestamp = OffsetDateTime.of(2023, 1, 17, 17, 39, 0, 0, ZoneOffset.UTC);
+        environmentalReadingDTO =
+                new EnvironmentalReadingDTO(null, 21.5, 48.25, timestamp, sensorSystem);
+        environmentalReading =
+                new EnvironmentalReading(UUID.randomUUID(), 21.5, 48.25, timestamp, sensorSystem);
+
+        // ModelMapper builds its type maps lazily on the first call of each pair
+        modelMapper.map(environmentalReadingDTO, EnvironmentalReading.class);
+        modelMapper.map(environmentalReading, EnvironmentalReadingDTO.class);
+        modelMapper.map(sensorSystem, SensorSystemDTO.class);
+        modelMapper.map(unconvUser, UnconvUserDTO.class);
+    }
+
+    @Benchmark
+    public EnvironmentalReading environmentalReadingToEntity() {
+        if ("MAPSTRUCT".equals(mapperMode)) {
+            return dtoMapper.toEnvironmentalReading(environmentalReadingDTO);
+        }
+        return modelMapper.map(environmentalReadingDTO, EnvironmentalReading.class);
+    }
+
+    @Benchmark
+    public EnvironmentalReadingDTO environmentalReadingToDTO() {
+        if ("MAPSTRUCT".equals(mapperMode)) {
+            return dtoMapper.toEnvironmentalReadingDTO(environmentalReading);
+        }
+        return modelMapper.map(environmentalReading, EnvironmentalReadingDTO.class);
+    }
+
+    @Benchmark
+    public SensorSystemDTO sensorSystemToDTO() {
+        if ("MAPSTRUCT".equals(mapperMode)) {
+            return dtoMapper.toSensorSystemDTO(sensorSystem);
+        }
+        return modelMapper.map(sensorSystem, SensorSystemDTO.class);
+    }
+
+    @Benchmark
+    public UnconvUserDTO unconvUserToDTO() {
+        if ("MAPSTRUCT".equals(mapperMode)) {
+            return dtoMapper.toUnconvUserDTO(unconvUser);
+        }
+        return modelMapper.map(unconvUser, UnconvUserDTO.class);
+    }
+}
@@ -0,0 +1,109 @@
+package com.unconv.spring.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.stream.EnvironmentalReadingBroadcastHub;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import com.unconv.spring.service.stream.ReadingStreamEmitter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time from an accepted reading until every subscriber of its sensor has been handed the SSE
+// event, with the emitters replaced by ones that build the event and discard it
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvironmentalReadingBroadcastBenchmark {
+
+    @Param({"10000"})
+    public int subscribers;
+
+    private EnvironmentalReadingBroadcastHub hub;
+
+    private EnvironmentalReadingsAcceptedEvent event;
+
+    private final AtomicInteger pendingDeliveries = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getStream().setHeartbeatInterval(Duration.ofHours(1));
+        applicationProperties.getStream().setMaxSubscribers(subscribers);
+
+        ObjectMapper objectMapper =
+                new ObjectMapper()
+                        .findAndRegisterModules()
+                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        hub =
+                new EnvironmentalReadingBroadcastHub(
+                        applicationProperties, null, null, objectMapper, new SimpleMeterRegistry());
+
+        UUID sensorSystemId = UUID.randomUUID();
+        for (int i = 0; i < subscribers; i++) {
+            hub.register(sensorSystemId, new DiscardingSseEmitter(pendingDeliveries), false);
+        }
+
+        EnvironmentalReadingProjection reading =
+                new EnvironmentalReadingProjection(
+                        UUID.randomUUID(),
+                        21.5,
+                        48.25,
+                        OffsetDateTime.of(2023, 1, 17, 17, 39, 0, 0, ZoneOffset.UTC),
+                        sensorSystemId);
+        event = new EnvironmentalReadingsAcceptedEvent(sensorSystemId, List.of(reading));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hub.shutdown();
+    }
+
+    @Benchmark
+    public void publishToAllSubscribers() {
+        pendingDeliveries.set(subscribers);
+        hub.onEnvironmentalReadingsAccepted(event);
+        while (pendingDeliveries.get() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    static class DiscardingSseEmitter extends ReadingStreamEmitter {
+
+        private final AtomicInteger pendingDeliveries;
+
+        DiscardingSseEmitter(AtomicInteger pendingDeliveries) {
+            super(null);
+            this.pendingDeliveries = pendingDeliveries;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build();
+            pendingDeliveries.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.unconv.spring.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.unconv.spring.Application;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.persistence.SensorSystemRepository;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// A burst of clients concurrent paged reads of one sensor, through the blocking or the reactive
+// endpoint, with the heap and the number of Tomcat threads fixed for both
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+        value = 1,
+        jvmArgs = {"-Xmx256m", "-Xss512k"})
+@State(Scope.Benchmark)
+public class ReactiveConcurrencyBenchmark {
+
+    @Param({"blocking", "reactive"})
+    public String api;
+
+    @Param({"400"})
+    public int clients;
+
+    @Param({"50"})
+    public int tomcatThreads;
+
+    @Param({"5000"})
+    public int readings;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient httpClient;
+
+    private URI pageUri;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context =
+                new SpringApplicationBuilder(Application.class)
+                        .properties(
+                                "spring.datasource.driver-class-name=org.h2.Driver",
+                                "spring.datasource.username=sa",
+                                "spring.devtools.restart.enabled=false")
+                        // Arguments, as application.properties overrides default properties
+                        .run(
+                                "--spring.datasource.url=jdbc:h2:mem:concurrency",
+                                "--spring.jpa.show-sql=false",
+                                "--logging.level.root=WARN",
+                                "--server.port=0",
+                                "--server.tomcat.threads.max=" + tomcatThreads,
+                                "--application.reactive.enabled=true",
+                                "--application.reactive.url=r2dbc:h2:mem:///concurrency");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        URI baseUri = URI.create("http://localhost:" + port);
+        clientExecutor =
+                Executors.newFixedThreadPool(
+                        8,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "benchmark-client");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        httpClient = HttpClient.newBuilder().executor(clientExecutor).build();
+
+        post(
+                baseUri.resolve("/UnconvUser"),
+                "{\"username\":\"bench\",\"email\":\"bench@example.com\",\"password\":\"bench\"}");
+        JsonNode login =
+                post(
+                        baseUri.resolve("/auth/login"),
+                        "{\"username\":\"bench\",\"password\":\"bench\"}");
+        token = login.get("token").asText();
+        ObjectNode user = (ObjectNode) login.get("unconvUser");
+        user.put("password", "bench");
+
+        ObjectNode sensorSystemNode = objectMapper.createObjectNode();
+        sensorSystemNode.put("sensorName", "bench");
+        sensorSystemNode.put("sensorStatus", "ACTIVE");
+        sensorSystemNode.set("unconvUser", user);
+        UUID sensorSystemId =
+                UUID.fromString(
+                        post(baseUri.resolve("/SensorSystem"), sensorSystemNode.toString())
+                                .get("id")
+                                .asText());
+
+        SensorSystem sensorSystem =
+                context.getBean(SensorSystemRepository.class)
+                        .findById(sensorSystemId)
+                        .orElseThrow();
+        OffsetDateTime start = OffsetDateTime.now(ZoneOffset.UTC).minusDays(3);
+        List<EnvironmentalReading> environmentalReadings = new ArrayList<>(readings);
+        for (int i = 0; i < readings; i++) {
+            environmentalReadings.add(
+                    new EnvironmentalReading(
+                            null, 20 + i % 10, 40 + i % 20, start.plusMinutes(i), sensorSystem));
+        }
+        context.getBean(EnvironmentalReadingRepository.class).saveAll(environmentalReadings);
+
+        String prefix =
+                "blocking".equals(api) ? "/EnvironmentalReading" : "/EnvironmentalReading/Reactive";
+        pageUri = baseUri.resolve(prefix + "/SensorSystem/" + sensorSystemId + "?pageSize=50");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void pagedReadBurst() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            responses.add(
+                    httpClient.sendAsync(
+                            HttpRequest.newBuilder(pageUri)
+                                    .header("Authorization", "Bearer " + token)
+                                    .build(),
+                            HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("Page was answered with " + status);
+            }
+        }
+    }
+
+    private JsonNode post(URI uri, String body) throws IOException, InterruptedException {
+        HttpRequest.Builder builder =
+                HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpResponse<String> response =
+                httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(uri + " was answered with " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+}
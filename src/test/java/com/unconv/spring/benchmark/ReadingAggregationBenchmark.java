@@ -0,0 +1,136 @@
+package com.unconv.spring.benchmark;
+
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.service.aggregate.BucketAggregation;
+import com.unconv.spring.service.aggregate.TimeBuckets;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Quarter-hourly averages of 1M readings spread over a week. grouping is the stream grouping the
+// service used before, engine is BucketAggregation over the same entities and primitive feeds
+// the engine from columns as RecentReadingWindow does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadingAggregationBenchmark {
+
+    private static final long INTERVAL_SECONDS = 15 * 60;
+
+    @Param({"1000000"})
+    public int readings;
+
+    @Param({"grouping", "engine", "primitive"})
+    public String mode;
+
+    private List<EnvironmentalReading> entities;
+
+    private long[] epochSeconds;
+
+    private double[] temperatures;
+
+    private long fromSecond;
+
+    private long toSecond;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        toSecond = OffsetDateTime.of(2023, 1, 17, 0, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+        fromSecond = toSecond - 7 * 24 * 3600;
+        entities = new ArrayList<>(readings);
+        epochSeconds = new long[readings];
+        temperatures = new double[readings];
+        for (int i = 0; i < readings; i++) {
+            long second = fromSecond + 1 + (long) i * (toSecond - fromSecond - 1) / readings;
+            double temperature = Math.round((15 + random.nextGaussian() * 5) * 100) / 100.0;
+            epochSeconds[i] = second;
+            temperatures[i] = temperature;
+            entities.add(
+                    new EnvironmentalReading(
+                            UUID.randomUUID(),
+                            temperature,
+                            50,
+                            OffsetDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneOffset.UTC),
+                            null));
+        }
+    }
+
+    @Benchmark
+    public Map<OffsetDateTime, Double> quarterHourlyAverages() {
+        switch (mode) {
+            case "grouping":
+                return grouping();
+            case "engine":
+                BucketAggregation aggregation =
+                        new BucketAggregation(
+                                TimeBuckets.of(fromSecond, toSecond, INTERVAL_SECONDS));
+                for (EnvironmentalReading reading : entities) {
+                    aggregation.add(
+                            reading.getTimestamp().toEpochSecond(), reading.getTemperature());
+                }
+                return aggregation.means(3);
+            default:
+                BucketAggregation columns =
+                        new BucketAggregation(
+                                TimeBuckets.of(fromSecond, toSecond, INTERVAL_SECONDS));
+                for (int i = 0; i < epochSeconds.length; i++) {
+                    columns.add(epochSeconds[i], temperatures[i]);
+                }
+                return columns.means(3);
+        }
+    }
+
+    private Map<OffsetDateTime, Double> grouping() {
+        Map<OffsetDateTime, List<EnvironmentalReading>> groupedData =
+                entities.stream()
+                        .collect(
+                                Collectors.groupingBy(
+                                        d -> {
+                                            long seconds =
+                                                    d.getTimestamp().toEpochSecond()
+                                                            / INTERVAL_SECONDS
+                                                            * INTERVAL_SECONDS;
+                                            return OffsetDateTime.ofInstant(
+                                                    Instant.ofEpochSecond(seconds), ZoneOffset.UTC);
+                                        }));
+        return groupedData.entrySet().stream()
+                .collect(
+                        Collectors.toMap(
+                                Map.Entry::getKey,
+                                e -> {
+                                    double sum =
+                                            e.getValue().stream()
+                                                    .mapToDouble(
+                                                            EnvironmentalReading::getTemperature)
+                                                    .sum();
+                                    return BigDecimal.valueOf(sum / e.getValue().size())
+                                            .setScale(3, RoundingMode.HALF_UP)
+                                            .doubleValue();
+                                }));
+    }
+}
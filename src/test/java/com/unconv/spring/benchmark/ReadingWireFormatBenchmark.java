@@ -0,0 +1,130 @@
+package com.unconv.spring.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.domain.UnconvUser;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// Cost of parsing one POSTed reading and of writing one page of readings in each wire format,
+// with the sensor sent in full or by id. Bytes per reading are printed once per trial
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadingWireFormatBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public String format;
+
+    @Param({"SENSOR_SYSTEM", "SENSOR_SYSTEM_ID"})
+    public String sensorReference;
+
+    private ObjectMapper objectMapper;
+
+    private byte[] reading;
+
+    private PagedResult<EnvironmentalReadingProjection> page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Same settings as the application's converters, only the factory differs
+        Jackson2ObjectMapperBuilder builder =
+                Jackson2ObjectMapperBuilder.json()
+                        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("SMILE".equals(format)) {
+            builder.factory(new SmileFactory());
+        } else if ("CBOR".equals(format)) {
+            builder.factory(new CBORFactory());
+        }
+        objectMapper = builder.build();
+
+        UnconvUser unconvUser =
+                new UnconvUser(UUID.randomUUID(), "UnconvUser", "unconvuser@email.com", "pw");
+        SensorLocation sensorLocation =
+                new SensorLocation(
+                        UUID.randomUUID(),
+                        "Parthenon",
+                        37.9715,
+                        23.7269,
+                        SensorLocationType.OUTDOOR);
+        SensorSystem sensorSystem =
+                new SensorSystem(UUID.randomUUID(), "Sensor ABCD", sensorLocation, unconvUser);
+        OffsetDateTime timestamp = OffsetDateTime.of(2023, 1, 17, 17, 39, 0, 0, ZoneOffset.UTC);
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("temperature", 21.5);
+        document.put("humidity", 48.25);
+        document.put("timestamp", timestamp);
+        if ("SENSOR_SYSTEM_ID".equals(sensorReference)) {
+            document.put("sensorSystemId", sensorSystem.getId());
+        } else {
+            document.put("sensorSystem", sensorSystem);
+        }
+        reading = objectMapper.writeValueAsBytes(document);
+
+        List<EnvironmentalReadingProjection> readings = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            readings.add(
+                    new EnvironmentalReadingProjection(
+                            UUID.randomUUID(),
+                            21.5 + i / 10.0,
+                            48.25 - i / 10.0,
+                            timestamp.plusMinutes(i),
+                            sensorSystem.getId()));
+        }
+        page = new PagedResult<>(new PageImpl<>(readings, PageRequest.of(0, PAGE_SIZE), 10_000));
+
+        System.out.printf(
+                "%n%s, %s: %d bytes per POSTed reading, %d bytes per listed reading%n",
+                format,
+                sensorReference,
+                reading.length,
+                objectMapper.writeValueAsBytes(page).length / PAGE_SIZE);
+    }
+
+    @Benchmark
+    public EnvironmentalReadingDTO parseReading() throws IOException {
+        return objectMapper.readValue(reading, EnvironmentalReadingDTO.class);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,163 @@
+package com.unconv.spring.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.unconv.spring.Application;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// An ingestion burst against the running application: clients concurrent POST
+// /EnvironmentalReading in DURABLE mode, each waiting for the group commit of its batch. On
+// platform threads at most tomcatThreads of them wait at a time. In virtual mode every request
+// gets its own thread, on JDKs without virtual threads this measures the platform fallback
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestThreadingBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"400"})
+    public int clients;
+
+    @Param({"50"})
+    public int tomcatThreads;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient httpClient;
+
+    private URI baseUri;
+
+    private String token;
+
+    private String reading;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context =
+                new SpringApplicationBuilder(Application.class)
+                        .properties(
+                                "spring.datasource.url=jdbc:h2:mem:threading",
+                                "spring.datasource.driver-class-name=org.h2.Driver",
+                                "spring.datasource.username=sa",
+                                "spring.devtools.restart.enabled=false")
+                        // Arguments, as application.properties overrides default properties
+                        .run(
+                                "--spring.jpa.show-sql=false",
+                                "--logging.level.root=WARN",
+                                "--server.port=0",
+                                "--server.tomcat.threads.max=" + tomcatThreads,
+                                "--application.ingest.http-mode=DURABLE",
+                                "--application.threads.virtual=" + "virtual".equals(threads));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUri = URI.create("http://localhost:" + port);
+        clientExecutor =
+                Executors.newFixedThreadPool(
+                        8,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "benchmark-client");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        httpClient = HttpClient.newBuilder().executor(clientExecutor).build();
+
+        post(
+                "/UnconvUser",
+                "{\"username\":\"bench\",\"email\":\"bench@example.com\",\"password\":\"bench\"}");
+        JsonNode login = post("/auth/login", "{\"username\":\"bench\",\"password\":\"bench\"}");
+        token = login.get("token").asText();
+        ObjectNode user = (ObjectNode) login.get("unconvUser");
+        user.put("password", "bench");
+
+        ObjectNode sensorSystem = objectMapper.createObjectNode();
+        sensorSystem.put("sensorName", "bench");
+        sensorSystem.put("sensorStatus", "ACTIVE");
+        sensorSystem.set("unconvUser", user);
+        JsonNode created = post("/SensorSystem", sensorSystem.toString());
+
+        ObjectNode readingNode = objectMapper.createObjectNode();
+        readingNode.put("temperature", 21.5);
+        readingNode.put("humidity", 48.25);
+        readingNode.set("sensorSystem", created);
+        reading = readingNode.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void ingestionBurst() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            responses.add(
+                    httpClient.sendAsync(
+                            request("/EnvironmentalReading", reading),
+                            HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            int status = response.join().statusCode();
+            // 202 would mean the commit was not confirmed within the ack timeout
+            if (status != 201) {
+                throw new IllegalStateException("Reading was answered with " + status);
+            }
+        }
+    }
+
+    private JsonNode post(String path, String body) throws IOException, InterruptedException {
+        HttpResponse<String> response =
+                httpClient.send(request(path, body), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(path + " was answered with " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest request(String path, String body) {
+        HttpRequest.Builder builder =
+                HttpRequest.newBuilder(baseUri.resolve(path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+}
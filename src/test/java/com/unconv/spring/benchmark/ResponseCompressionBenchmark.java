@@ -0,0 +1,211 @@
+package com.unconv.spring.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.unconv.spring.Application;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Latency of realistic responses against the running application, with and without
+// compression and over HTTP/1.1 or HTTP/2: a page of 1000 readings and a day of quarter-hourly
+// averages. Gzipped responses are decompressed by the client as part of the request. Bytes on
+// the wire, and those of the gzipped bulk upload loading the readings, are printed once per trial
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseCompressionBenchmark {
+
+    private static final int READINGS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean compression;
+
+    @Param({"HTTP_1_1", "HTTP_2"})
+    public HttpClient.Version protocol;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private URI baseUri;
+
+    private String token;
+
+    private String sensorSystemId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context =
+                new SpringApplicationBuilder(Application.class)
+                        .properties(
+                                "spring.datasource.url=jdbc:h2:mem:compression",
+                                "spring.datasource.driver-class-name=org.h2.Driver",
+                                "spring.datasource.username=sa",
+                                "spring.devtools.restart.enabled=false")
+                        // Arguments, as application.properties overrides default properties
+                        .run(
+                                "--spring.jpa.show-sql=false",
+                                "--logging.level.root=WARN",
+                                "--server.port=0",
+                                "--server.compression.enabled=" + compression,
+                                "--application.http2.enabled=true");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUri = URI.create("http://localhost:" + port);
+        httpClient = HttpClient.newBuilder().version(protocol).build();
+
+        post(
+                "/UnconvUser",
+                "{\"username\":\"bench\",\"email\":\"bench@example.com\",\"password\":\"bench\"}");
+        JsonNode login = post("/auth/login", "{\"username\":\"bench\",\"password\":\"bench\"}");
+        token = login.get("token").asText();
+        ObjectNode user = (ObjectNode) login.get("unconvUser");
+        user.put("password", "bench");
+
+        ObjectNode sensorSystem = objectMapper.createObjectNode();
+        sensorSystem.put("sensorName", "bench");
+        sensorSystem.put("sensorStatus", "ACTIVE");
+        sensorSystem.set("unconvUser", user);
+        sensorSystemId = post("/SensorSystem", sensorSystem.toString()).get("id").asText();
+
+        // A day of readings, one every 8.64 seconds
+        StringBuilder csv = new StringBuilder("temperature,humidity,timestamp\n");
+        OffsetDateTime start = OffsetDateTime.now(ZoneOffset.UTC).minusDays(1);
+        for (int i = 0; i < READINGS; i++) {
+            csv.append(20 + (i % 50) / 10.0)
+                    .append(',')
+                    .append(40 + (i % 30) / 10.0)
+                    .append(',')
+                    .append(start.plusNanos(8_640_000_000L * i))
+                    .append('\n');
+        }
+        byte[] csvBytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzippedCsv = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzippedCsv)) {
+            gzipOutputStream.write(csvBytes);
+        }
+        HttpResponse<String> upload =
+                httpClient.send(
+                        authorized("/EnvironmentalReading/Bulk/SensorSystem/" + sensorSystemId)
+                                .header("Content-Type", "text/csv")
+                                .header("Content-Encoding", "gzip")
+                                .POST(
+                                        HttpRequest.BodyPublishers.ofByteArray(
+                                                gzippedCsv.toByteArray()))
+                                .build(),
+                        HttpResponse.BodyHandlers.ofString());
+        if (upload.statusCode() != 201) {
+            throw new IllegalStateException("Upload was answered with " + upload.statusCode());
+        }
+
+        HttpResponse<byte[]> page = get(readingsPagePath());
+        HttpResponse<byte[]> averages = get(quarterHourlyPath());
+        System.out.printf(
+                "%ncompression=%s, %s: upload %d B as csv, %d B gzipped. Page of 1000 readings"
+                        + " %d B, quarter-hourly averages %d B%n",
+                compression,
+                page.version(),
+                csvBytes.length,
+                gzippedCsv.size(),
+                page.body().length,
+                averages.body().length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] readingsPage() throws IOException, InterruptedException {
+        return decode(get(readingsPagePath()));
+    }
+
+    @Benchmark
+    public byte[] quarterHourlyAverages() throws IOException, InterruptedException {
+        return decode(get(quarterHourlyPath()));
+    }
+
+    private String readingsPagePath() {
+        return "/EnvironmentalReading/SensorSystem/" + sensorSystemId + "?pageSize=1000";
+    }
+
+    private String quarterHourlyPath() {
+        return "/EnvironmentalReading/QuarterHourly/SensorSystem/" + sensorSystemId;
+    }
+
+    private HttpResponse<byte[]> get(String path) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response =
+                httpClient.send(
+                        authorized(path).header("Accept-Encoding", "gzip").GET().build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " was answered with " + response.statusCode());
+        }
+        return response;
+    }
+
+    private byte[] decode(HttpResponse<byte[]> response) throws IOException {
+        if (!"gzip".equals(response.headers().firstValue("Content-Encoding").orElse(null))) {
+            return response.body();
+        }
+        try (GZIPInputStream gzipInputStream =
+                new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return gzipInputStream.readAllBytes();
+        }
+    }
+
+    private JsonNode post(String path, String body) throws IOException, InterruptedException {
+        HttpResponse<String> response =
+                httpClient.send(
+                        authorized(path)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build(),
+                        HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(path + " was answered with " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,143 @@
+package com.unconv.spring.config.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+
+// Each workload pool is an H2 database holding a row that names it. The transaction manager
+// borrows its connection as the transaction begins, so the workload has to be set before that
+@SpringJUnitConfig(DatabaseWorkloadAspectTest.Config.class)
+class DatabaseWorkloadAspectTest {
+
+    private static final String NAME_QUERY = "SELECT name FROM origin";
+
+    @Autowired private WorkloadService workloadService;
+
+    @Autowired private RoutingDataSource routingDataSource;
+
+    @Test
+    void shouldBorrowBulkWorkFromTheBulkPool() {
+        assertThat(workloadService.bulk()).isEqualTo("bulk");
+    }
+
+    @Test
+    void shouldBorrowIngestionFromTheIngestionPool() {
+        assertThat(workloadService.ingestion()).isEqualTo("ingestion");
+    }
+
+    @Test
+    void shouldBorrowUnmarkedWorkFromThePrimaryPool() {
+        assertThat(workloadService.unmarked()).isEqualTo("primary");
+    }
+
+    @Test
+    void shouldFallBackToThePrimaryPoolForWorkloadsWithoutOne() {
+        assertThat(workloadService.analytics()).isEqualTo("primary");
+    }
+
+    @Test
+    void shouldRestoreTheWorkloadOfTheCaller() {
+        assertThat(DatabaseWorkloads.call(Workload.INGESTION, workloadService::bulk))
+                .isEqualTo("bulk");
+        assertThat(DatabaseWorkloads.current()).isEqualTo(Workload.DEFAULT);
+        assertThat(new JdbcTemplate(routingDataSource).queryForObject(NAME_QUERY, String.class))
+                .isEqualTo("primary");
+    }
+
+    static class WorkloadService {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        WorkloadService(DataSource dataSource) {
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+
+        @Transactional
+        @DatabaseWorkload(Workload.BULK)
+        public String bulk() {
+            return poolName();
+        }
+
+        @Transactional
+        @DatabaseWorkload(Workload.INGESTION)
+        public String ingestion() {
+            return poolName();
+        }
+
+        @Transactional
+        @DatabaseWorkload(Workload.ANALYTICS)
+        public String analytics() {
+            return poolName();
+        }
+
+        @Transactional
+        public String unmarked() {
+            return poolName();
+        }
+
+        private String poolName() {
+            return jdbcTemplate.queryForObject(NAME_QUERY, String.class);
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy
+    @EnableTransactionManagement
+    static class Config {
+
+        @Bean(destroyMethod = "close")
+        RoutingDataSource routingDataSource() {
+            Map<Workload, HikariDataSource> pools = new EnumMap<>(Workload.class);
+            for (Workload workload : List.of(Workload.DEFAULT, Workload.INGESTION, Workload.BULK)) {
+                pools.put(workload, pool(workload.poolName()));
+            }
+            return new RoutingDataSource(
+                    pools, List.of(), null, Duration.ofSeconds(5), Duration.ofHours(1));
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(RoutingDataSource routingDataSource) {
+            return new DataSourceTransactionManager(routingDataSource);
+        }
+
+        @Bean
+        DatabaseWorkloadAspect databaseWorkloadAspect() {
+            return new DatabaseWorkloadAspect();
+        }
+
+        @Bean
+        WorkloadService workloadService(RoutingDataSource routingDataSource) {
+            return new WorkloadService(routingDataSource);
+        }
+
+        private static HikariDataSource pool(String name) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+            pool.setUsername("sa");
+            pool.setPassword("");
+            pool.setMaximumPoolSize(2);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+            jdbcTemplate.execute("CREATE TABLE origin (name VARCHAR(20))");
+            jdbcTemplate.update("INSERT INTO origin (name) VALUES (?)", name);
+            return pool;
+        }
+    }
+}
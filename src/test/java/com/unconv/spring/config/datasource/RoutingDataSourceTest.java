@@ -0,0 +1,182 @@
+package com.unconv.spring.config.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// A primary and a replica as two in-memory H2 databases, each holding a row that names it
+class RoutingDataSourceTest {
+
+    private static final String LAG_QUERY = "SELECT seconds_behind FROM replica_lag";
+
+    private final HikariDataSource primary = pool("primary", "primary");
+
+    private final FailingPool replica = new FailingPool();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    private TransactionTemplate readWriteTransaction;
+
+    @AfterEach
+    void tearDown() {
+        routingDataSource.close();
+    }
+
+    @Test
+    void shouldSendReadOnlyTransactionsToTheReplica() {
+        route(null);
+
+        assertThat(databaseNameIn(readOnlyTransaction)).isEqualTo("replica");
+        assertThat(fallbacks()).isZero();
+    }
+
+    @Test
+    void shouldSendWritesToThePrimary() {
+        route(null);
+
+        readWriteTransaction.executeWithoutResult(
+                status -> jdbcTemplate.update("INSERT INTO origin (name) VALUES ('written')"));
+
+        assertThat(count(primary)).isEqualTo(2);
+        assertThat(count(replica)).isOne();
+        assertThat(databaseNameIn(readWriteTransaction)).isEqualTo("primary");
+    }
+
+    @Test
+    void shouldReadFromThePrimaryWhileTheReplicaLagsTooFarBehind() {
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds_behind = 30");
+        route(LAG_QUERY);
+
+        assertThat(databaseNameIn(readOnlyTransaction)).isEqualTo("primary");
+        assertThat(fallbacks()).isOne();
+        assertThat(
+                        meterRegistry
+                                .get("datasource.replica.available")
+                                .tag("pool", "replica-0")
+                                .gauge()
+                                .value())
+                .isZero();
+    }
+
+    @Test
+    void shouldReadFromTheReplicaWhileItsLagIsWithinTheLimit() {
+        route(LAG_QUERY);
+
+        assertThat(databaseNameIn(readOnlyTransaction)).isEqualTo("replica");
+        assertThat(
+                        meterRegistry
+                                .get("datasource.replica.lag")
+                                .tag("pool", "replica-0")
+                                .gauge()
+                                .value())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldSkipReplicaThatFailsToHandOutConnections() {
+        route(null);
+        replica.failing = true;
+
+        assertThat(databaseNameIn(readOnlyTransaction)).isEqualTo("primary");
+        assertThat(databaseNameIn(readOnlyTransaction)).isEqualTo("primary");
+
+        // Only the first read tried the replica, it stays skipped until the next check
+        assertThat(replica.failedConnections.get()).isOne();
+        assertThat(fallbacks()).isEqualTo(2);
+    }
+
+    // The lag checker only runs on construction, the next check is an hour away
+    private void route(String lagQuery) {
+        routingDataSource =
+                new RoutingDataSource(
+                        Map.of(Workload.DEFAULT, primary),
+                        List.of(replica),
+                        lagQuery,
+                        Duration.ofSeconds(5),
+                        Duration.ofHours(1));
+        routingDataSource.bindTo(meterRegistry);
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager =
+                new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    private String databaseNameIn(TransactionTemplate transaction) {
+        return transaction.execute(
+                status ->
+                        jdbcTemplate.queryForObject("SELECT MIN(name) FROM origin", String.class));
+    }
+
+    private static Integer count(HikariDataSource pool) {
+        return new JdbcTemplate(pool).queryForObject("SELECT COUNT(*) FROM origin", Integer.class);
+    }
+
+    private double fallbacks() {
+        return meterRegistry.get("datasource.replica.fallbacks").functionCounter().count();
+    }
+
+    private static HikariDataSource pool(String poolName, String databaseName) {
+        HikariDataSource pool = new HikariDataSource();
+        configure(pool, poolName, databaseName);
+        return pool;
+    }
+
+    private static void configure(HikariDataSource pool, String poolName, String databaseName) {
+        pool.setPoolName(poolName);
+        pool.setJdbcUrl(
+                "jdbc:h2:mem:" + databaseName + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setMaximumPoolSize(2);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+        jdbcTemplate.execute("CREATE TABLE origin (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO origin (name) VALUES (?)", databaseName);
+        jdbcTemplate.execute("CREATE TABLE replica_lag (seconds_behind INT)");
+        jdbcTemplate.update("INSERT INTO replica_lag (seconds_behind) VALUES (1)");
+    }
+
+    // A replica that can be made to refuse connections after it passed its first check
+    private static class FailingPool extends HikariDataSource {
+
+        private final AtomicInteger failedConnections = new AtomicInteger();
+
+        private volatile boolean failing;
+
+        private FailingPool() {
+            configure(this, "replica-0", "replica");
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (failing) {
+                failedConnections.incrementAndGet();
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.unconv.spring.config.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class CompressionThresholdFilterTest {
+
+    private final CompressionThresholdFilter compressionThresholdFilter;
+
+    CompressionThresholdFilterTest() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties
+                .getCompression()
+                .setMimeTypes(new String[] {"application/json", "text/csv"});
+        compressionThresholdFilter = new CompressionThresholdFilter(serverProperties);
+    }
+
+    @Test
+    void shouldDeferTheFlushOfAConverterUntilTheResponseIsComplete() throws Exception {
+        MockHttpServletResponse response =
+                filter(
+                        filtered -> {
+                            filtered.setContentType("application/json");
+                            filtered.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+                            filtered.getOutputStream().flush();
+                        });
+
+        assertThat(response.isCommitted()).isFalse();
+    }
+
+    @Test
+    void shouldCommitOnAnExplicitFlushBuffer() throws Exception {
+        MockHttpServletResponse response =
+                filter(
+                        filtered -> {
+                            filtered.setContentType("text/csv");
+                            filtered.flushBuffer();
+                        });
+
+        assertThat(response.isCommitted()).isTrue();
+    }
+
+    @Test
+    void shouldFlushResponsesTheApplicationEncodesItself() throws Exception {
+        MockHttpServletResponse response =
+                filter(
+                        filtered -> {
+                            filtered.setContentType("text/csv");
+                            filtered.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                            filtered.getOutputStream().flush();
+                        });
+
+        assertThat(response.isCommitted()).isTrue();
+    }
+
+    @Test
+    void shouldFlushResponsesOfOtherTypes() throws Exception {
+        MockHttpServletResponse response =
+                filter(
+                        filtered -> {
+                            filtered.setContentType("text/event-stream");
+                            filtered.getOutputStream().flush();
+                        });
+
+        assertThat(response.isCommitted()).isTrue();
+    }
+
+    private MockHttpServletResponse filter(ResponseWriter responseWriter)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        compressionThresholdFilter.doFilter(
+                new MockHttpServletRequest(),
+                response,
+                (request, filtered) -> responseWriter.write((HttpServletResponse) filtered));
+        return response;
+    }
+
+    private interface ResponseWriter {
+        void write(HttpServletResponse response) throws IOException;
+    }
+}
@@ -0,0 +1,56 @@
+package com.unconv.spring.config.threads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.awaitility.Awaitility.await;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PinnedVirtualThreadMonitorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldReportNothingOnJdksWithoutVirtualThreads() {
+        assumeThat(Runtime.version().feature()).isLessThan(19);
+
+        try (PinnedVirtualThreadMonitor ignored =
+                new PinnedVirtualThreadMonitor(Duration.ofMillis(20), meterRegistry)) {
+            assertThat(pinnedThreads()).isZero();
+        }
+    }
+
+    // From Java 24 on, blocking inside a synchronized block no longer pins the carrier
+    @Test
+    void shouldCountAVirtualThreadBlockingInsideASynchronizedBlock() throws Exception {
+        assumeThat(Runtime.version().feature()).isBetween(21, 23);
+        ExecutorService executor =
+                VirtualThreads.newThreadPerTaskExecutor("test-virtual-").orElseThrow();
+        Object lock = new Object();
+
+        try (PinnedVirtualThreadMonitor ignored =
+                new PinnedVirtualThreadMonitor(Duration.ofMillis(20), meterRegistry)) {
+            executor.submit(
+                            () -> {
+                                synchronized (lock) {
+                                    Thread.sleep(100);
+                                }
+                                return null;
+                            })
+                    .get(10, TimeUnit.SECONDS);
+
+            await().atMost(Duration.ofSeconds(10)).until(() -> pinnedThreads() >= 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private double pinnedThreads() {
+        return meterRegistry.get("threads.virtual.pinned").counter().count();
+    }
+}
@@ -0,0 +1,60 @@
+package com.unconv.spring.config.threads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.unconv.spring.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+class VirtualThreadsTest {
+
+    @Test
+    void shouldOfferNoExecutorOnJdksWithoutVirtualThreads() {
+        assumeThat(Runtime.version().feature()).isLessThan(19);
+
+        assertThat(VirtualThreads.newThreadPerTaskExecutor("test-virtual-")).isEmpty();
+    }
+
+    @Test
+    void shouldRunEveryTaskOnANamedVirtualThread() throws Exception {
+        assumeThat(Runtime.version().feature()).isGreaterThanOrEqualTo(21);
+
+        Optional<ExecutorService> executor =
+                VirtualThreads.newThreadPerTaskExecutor("test-virtual-");
+
+        assertThat(executor).isPresent();
+        try {
+            Thread thread = executor.get().submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+            assertThat(thread.getName()).startsWith("test-virtual-");
+            assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+        } finally {
+            executor.get().shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldLeaveTomcatOnPlatformThreadsOnJdksWithoutVirtualThreads() {
+        assumeThat(Runtime.version().feature()).isLessThan(19);
+        VirtualThreadConfig virtualThreadConfig =
+                new VirtualThreadConfig(new ApplicationProperties(), new SimpleMeterRegistry());
+        ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+
+        ((TomcatProtocolHandlerCustomizer<ProtocolHandler>)
+                        virtualThreadConfig.virtualThreadProtocolHandlerCustomizer())
+                .customize(protocolHandler);
+        virtualThreadConfig.shutdown();
+
+        verify(protocolHandler, never()).setExecutor(any());
+    }
+}
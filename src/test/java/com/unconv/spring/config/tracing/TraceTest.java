@@ -0,0 +1,113 @@
+package com.unconv.spring.config.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TraceTest {
+
+    private static final Pattern SERVER_TIMING_ENTRY =
+            Pattern.compile("(\\w+);dur=([0-9.]+);desc=\"(\\d+) spans\"");
+
+    @AfterEach
+    void tearDown() {
+        Tracer.end();
+    }
+
+    @Test
+    void shouldHandOutNoopSpansOutsideOfATrace() {
+        Span span = Tracer.startSpan("FruitService.findAllFruits", SpanLayer.SERVICE);
+
+        assertThat(span).isSameAs(Span.NOOP);
+        span.tag("error", "IllegalStateException").close();
+        assertThat(span.getTags()).isEmpty();
+        assertThat(span.isFinished()).isFalse();
+    }
+
+    @Test
+    void shouldNestSpansUnderTheRemoteParent() {
+        Trace trace = Tracer.begin("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7");
+
+        try (Span http = Tracer.startSpan("GET /Fruit", SpanLayer.HTTP)) {
+            try (Span controller =
+                    Tracer.startSpan("FruitController.getAll", SpanLayer.CONTROLLER)) {
+                assertThat(controller.getParentId()).isEqualTo(http.getId());
+            }
+            try (Span service = Tracer.startSpan("FruitService.findAll", SpanLayer.SERVICE)) {
+                assertThat(service.getParentId()).isEqualTo(http.getId());
+            }
+            assertThat(http.getParentId()).isEqualTo("00f067aa0ba902b7");
+        }
+
+        assertThat(trace.getTraceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(trace.getFinishedSpans())
+                .extracting(Span::getName)
+                .containsExactly("FruitController.getAll", "FruitService.findAll", "GET /Fruit");
+    }
+
+    @Test
+    void shouldStartANewTraceWithoutARemoteParent() {
+        Trace trace = Tracer.begin(null, null);
+
+        try (Span http = Tracer.startSpan("GET /Fruit", SpanLayer.HTTP)) {
+            assertThat(http.getParentId()).isNull();
+        }
+
+        assertThat(trace.getTraceId()).hasSize(32);
+        assertThat(Tracer.current()).isSameAs(trace);
+    }
+
+    @Test
+    void shouldReportTheExclusiveTimeOfEachLayer() throws InterruptedException {
+        Trace trace = Tracer.begin(null, null);
+
+        try (Span http = Tracer.startSpan("GET /Fruit", SpanLayer.HTTP)) {
+            try (Span controller =
+                            Tracer.startSpan("FruitController.getAll", SpanLayer.CONTROLLER);
+                    Span service = Tracer.startSpan("FruitService.findAll", SpanLayer.SERVICE)) {
+                for (int i = 0; i < 2; i++) {
+                    try (Span repository =
+                            Tracer.startSpan("FruitRepository.findAll", SpanLayer.REPOSITORY)) {
+                        Thread.sleep(25);
+                    }
+                }
+            }
+        }
+
+        Map<String, Double> durations = new LinkedHashMap<>();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Matcher entry = SERVER_TIMING_ENTRY.matcher(trace.toServerTiming());
+        while (entry.find()) {
+            durations.put(entry.group(1), Double.parseDouble(entry.group(2)));
+            counts.put(entry.group(1), Integer.parseInt(entry.group(3)));
+        }
+
+        assertThat(durations).containsOnlyKeys("http", "controller", "service", "repository");
+        assertThat(counts)
+                .containsEntry("http", 1)
+                .containsEntry("controller", 1)
+                .containsEntry("service", 1)
+                .containsEntry("repository", 2);
+        // The repository calls are not counted again in the layers above them
+        assertThat(durations.get("repository")).isGreaterThanOrEqualTo(50);
+        assertThat(durations.get("service")).isLessThan(durations.get("repository"));
+        // Entries are rounded to a hundredth of a millisecond each
+        Span http = trace.getFinishedSpans().get(trace.getFinishedSpans().size() - 1);
+        assertThat(durations.values().stream().mapToDouble(Double::doubleValue).sum())
+                .isCloseTo(http.getDurationNanos() / 1_000_000.0, within(0.05));
+    }
+
+    @Test
+    void shouldReportNothingBeforeASpanFinished() {
+        Trace trace = Tracer.begin(null, null);
+        Tracer.startSpan("GET /Fruit", SpanLayer.HTTP);
+
+        assertThat(trace.toServerTiming()).isEmpty();
+    }
+}
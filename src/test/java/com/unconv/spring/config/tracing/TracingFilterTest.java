@@ -0,0 +1,146 @@
+package com.unconv.spring.config.tracing;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.unconv.spring.domain.Fruit;
+import com.unconv.spring.service.FruitService;
+import com.unconv.spring.web.rest.FruitController;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+// The service is a mock and not traced, its time counts as the controller's
+@WebMvcTest(
+        controllers = FruitController.class,
+        properties = {"application.tracing.enabled=true", "application.tracing.server-timing=true"})
+@Import(TracingAspect.class)
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+@ActiveProfiles(PROFILE_TEST)
+class TracingFilterTest {
+
+    private static final Pattern SERVER_TIMING_ENTRY =
+            Pattern.compile("(\\w+);dur=([0-9.]+);desc=\"(\\d+) spans\"");
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockBean private FruitService fruitService;
+
+    @MockBean private SpanExporter spanExporter;
+
+    @Test
+    void shouldBreakDownTheRequestTimeByLayerInTheServerTimingHeader() throws Exception {
+        given(fruitService.findAllFruits())
+                .willAnswer(
+                        invocation -> {
+                            Thread.sleep(50);
+                            return List.of(new Fruit(1L, null, "Apple", "Daily Fresh"));
+                        });
+
+        MvcResult result =
+                mockMvc.perform(get("/Fruit").with(user("username").roles("USER")))
+                        .andExpect(status().isOk())
+                        .andReturn();
+
+        Map<String, Double> durations = new LinkedHashMap<>();
+        Matcher entry =
+                SERVER_TIMING_ENTRY.matcher(
+                        result.getResponse()
+                                .getHeader(ServerTimingResponseWrapper.SERVER_TIMING_HEADER));
+        while (entry.find()) {
+            assertThat(entry.group(3)).isEqualTo("1");
+            durations.put(entry.group(1), Double.parseDouble(entry.group(2)));
+        }
+        // The header is written with the body, the request span is still open then
+        assertThat(durations).containsOnlyKeys("controller");
+        assertThat(durations.get("controller")).isGreaterThanOrEqualTo(50);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Span>> spans = ArgumentCaptor.forClass(List.class);
+        verify(spanExporter).export(any(Trace.class), spans.capture());
+        Trace trace = spans.getValue().get(0).getTrace();
+        // Once finished, the request span only reports the time outside of the controller
+        assertThat(trace.toServerTiming())
+                .startsWith("http;dur=")
+                .contains(
+                        ", controller;dur="
+                                + String.format(Locale.ROOT, "%.2f", durations.get("controller")));
+        Span httpSpan = trace.getFinishedSpans().get(trace.getFinishedSpans().size() - 1);
+        Matcher http = SERVER_TIMING_ENTRY.matcher(trace.toServerTiming());
+        assertThat(http.find()).isTrue();
+        assertThat(Double.parseDouble(http.group(2)) + durations.get("controller"))
+                .isCloseTo(httpSpan.getDurationNanos() / 1_000_000.0, within(0.02));
+    }
+
+    @Test
+    void shouldContinueTheTraceOfTheCallerAndExportItsSpans() throws Exception {
+        given(fruitService.findAllFruits()).willReturn(List.of());
+
+        mockMvc.perform(
+                        get("/Fruit")
+                                .with(user("username").roles("USER"))
+                                .header(
+                                        TracingFilter.TRACEPARENT_HEADER,
+                                        "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<Trace> trace = ArgumentCaptor.forClass(Trace.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Span>> spans = ArgumentCaptor.forClass(List.class);
+        verify(spanExporter).export(trace.capture(), spans.capture());
+
+        assertThat(trace.getValue().getTraceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        Map<SpanLayer, Span> spansByLayer =
+                spans.getValue().stream().collect(Collectors.toMap(Span::getLayer, span -> span));
+        assertThat(spansByLayer).containsOnlyKeys(SpanLayer.HTTP, SpanLayer.CONTROLLER);
+        Span http = spansByLayer.get(SpanLayer.HTTP);
+        Span controller = spansByLayer.get(SpanLayer.CONTROLLER);
+        assertThat(http.getName()).isEqualTo("GET /Fruit");
+        assertThat(http.getParentId()).isEqualTo("00f067aa0ba902b7");
+        assertThat(http.getTags()).containsEntry("http.status_code", "200");
+        assertThat(controller.getName()).isEqualTo("FruitController.getAllFruits");
+        assertThat(controller.getParentId()).isEqualTo(http.getId());
+        assertThat(Tracer.current()).isNull();
+    }
+
+    @Test
+    void shouldTagTheSpanOfAFailingController() throws Exception {
+        given(fruitService.findAllFruits()).willThrow(new IllegalStateException("database down"));
+
+        mockMvc.perform(get("/Fruit").with(user("username").roles("USER")))
+                .andExpect(status().isInternalServerError());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Span>> spans = ArgumentCaptor.forClass(List.class);
+        verify(spanExporter).export(any(Trace.class), spans.capture());
+        assertThat(spans.getValue())
+                .filteredOn(span -> span.getLayer() == SpanLayer.CONTROLLER)
+                .singleElement()
+                .satisfies(
+                        span ->
+                                assertThat(span.getTags())
+                                        .containsEntry("error", "IllegalStateException"));
+    }
+}
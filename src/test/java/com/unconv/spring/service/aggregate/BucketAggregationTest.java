@@ -0,0 +1,153 @@
+package com.unconv.spring.service.aggregate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BucketAggregationTest {
+
+    // Two buckets of an hour, [3600, 7200) and [7200, 10800)
+    private final TimeBuckets buckets = TimeBuckets.of(3_600, 10_799, 3_600);
+
+    @Test
+    void shouldSummarizeEachBucket() {
+        BucketAggregation aggregation = new BucketAggregation(buckets);
+        aggregation.add(3_600, 21.5);
+        aggregation.add(4_000, 19.0);
+        aggregation.add(7_199, 23.0);
+        aggregation.add(7_200, 10.0);
+
+        assertThat(aggregation.count(0)).isEqualTo(3);
+        assertThat(aggregation.sum(0)).isEqualTo(63.5);
+        assertThat(aggregation.min(0)).isEqualTo(19.0);
+        assertThat(aggregation.max(0)).isEqualTo(23.0);
+        assertThat(aggregation.mean(0)).isCloseTo(21.1667, within(1e-4));
+        assertThat(aggregation.count(1)).isOne();
+        assertThat(aggregation.mean(1)).isEqualTo(10.0);
+        assertThat(aggregation.stddev(1)).isZero();
+    }
+
+    @Test
+    void shouldIgnoreValuesOutsideTheBuckets() {
+        BucketAggregation aggregation = new BucketAggregation(buckets);
+        aggregation.add(3_599, 1.0);
+        aggregation.add(10_800, 1.0);
+
+        assertThat(aggregation.count(0)).isZero();
+        assertThat(aggregation.count(1)).isZero();
+        assertThat(aggregation.means(3)).isEmpty();
+    }
+
+    @Test
+    void shouldReturnNaNForEmptyBuckets() {
+        BucketAggregation aggregation = new BucketAggregation(buckets, true);
+
+        assertThat(aggregation.min(0)).isNaN();
+        assertThat(aggregation.max(0)).isNaN();
+        assertThat(aggregation.mean(0)).isNaN();
+        assertThat(aggregation.stddev(0)).isNaN();
+        assertThat(aggregation.last(0)).isNaN();
+        assertThat(aggregation.percentile(0, 50)).isNaN();
+    }
+
+    @Test
+    void shouldComputePopulationStandardDeviation() {
+        BucketAggregation aggregation = new BucketAggregation(buckets);
+        for (double value : new double[] {2, 4, 4, 4, 5, 5, 7, 9}) {
+            aggregation.add(3_600, value);
+        }
+
+        assertThat(aggregation.stddev(0)).isCloseTo(2.0, within(1e-12));
+    }
+
+    // Summing squares would cancel out almost all digits of values this far from zero
+    @Test
+    void shouldKeepStandardDeviationPreciseForLargeValues() {
+        BucketAggregation aggregation = new BucketAggregation(buckets);
+        for (double value : new double[] {4, 7, 13, 16}) {
+            aggregation.add(3_600, 1e9 + value);
+        }
+
+        assertThat(aggregation.stddev(0)).isCloseTo(Math.sqrt(22.5), within(1e-6));
+    }
+
+    @Test
+    void shouldKeepTheValueWithTheLatestTimestampAsLast() {
+        BucketAggregation aggregation = new BucketAggregation(buckets);
+        aggregation.add(5_000, 1.0);
+        aggregation.add(4_000, 2.0);
+        aggregation.add(5_000, 3.0);
+        aggregation.add(3_600, 4.0);
+
+        assertThat(aggregation.last(0)).isEqualTo(3.0);
+    }
+
+    @Test
+    void shouldInterpolatePercentilesBetweenClosestRanks() {
+        BucketAggregation aggregation = new BucketAggregation(buckets, true);
+        for (double value : new double[] {3, 1, 5, 2, 4}) {
+            aggregation.add(3_600, value);
+        }
+
+        assertThat(aggregation.percentile(0, 0)).isEqualTo(1.0);
+        assertThat(aggregation.percentile(0, 25)).isEqualTo(2.0);
+        assertThat(aggregation.percentile(0, 50)).isEqualTo(3.0);
+        assertThat(aggregation.percentile(0, 90)).isCloseTo(4.6, within(1e-12));
+        assertThat(aggregation.percentile(0, 100)).isEqualTo(5.0);
+
+        // Values added after a percentile was read are sorted in again
+        aggregation.add(3_600, 0.0);
+        assertThat(aggregation.percentile(0, 50)).isEqualTo(2.5);
+    }
+
+    @Test
+    void shouldKeepAllValuesOfLargeBucketsForPercentiles() {
+        BucketAggregation aggregation = new BucketAggregation(buckets, true);
+        for (int i = 100; i > 0; i--) {
+            aggregation.add(7_200, i);
+        }
+
+        assertThat(aggregation.count(1)).isEqualTo(100);
+        assertThat(aggregation.percentile(1, 0)).isEqualTo(1.0);
+        assertThat(aggregation.percentile(1, 50)).isEqualTo(50.5);
+        assertThat(aggregation.percentile(1, 99)).isCloseTo(99.01, within(1e-9));
+    }
+
+    @Test
+    void shouldRejectPercentilesThatWereNotRequested() {
+        BucketAggregation aggregation = new BucketAggregation(buckets);
+        aggregation.add(3_600, 1.0);
+
+        assertThatThrownBy(() -> aggregation.percentile(0, 50))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldRejectPercentilesOutsideZeroToHundred() {
+        BucketAggregation aggregation = new BucketAggregation(buckets, true);
+
+        assertThatThrownBy(() -> aggregation.percentile(0, 100.5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> aggregation.percentile(0, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldMapMeansOfBucketsHoldingValuesRoundedHalfUp() {
+        BucketAggregation aggregation = new BucketAggregation(buckets);
+        aggregation.add(7_200, 1.0005);
+
+        Map<OffsetDateTime, Double> means = aggregation.means(3);
+
+        assertThat(means)
+                .containsExactly(
+                        Map.entry(
+                                OffsetDateTime.of(1970, 1, 1, 2, 0, 0, 0, ZoneOffset.UTC), 1.001));
+        assertThat(BucketAggregation.round(Double.NaN, 3)).isNaN();
+    }
+}
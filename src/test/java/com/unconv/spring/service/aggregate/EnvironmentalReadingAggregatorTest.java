@@ -0,0 +1,105 @@
+package com.unconv.spring.service.aggregate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.AggregateFunction;
+import com.unconv.spring.consts.ReadingMetric;
+import com.unconv.spring.model.response.ReadingAggregateBucket;
+import com.unconv.spring.model.response.ReadingAggregates;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.archive.EnvironmentalReadingHistory;
+import com.unconv.spring.service.window.RecentReadingWindows;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+class EnvironmentalReadingAggregatorTest {
+
+    private static final OffsetDateTime FROM =
+            OffsetDateTime.of(2023, 1, 17, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final RecentReadingWindows recentReadingWindows = mock(RecentReadingWindows.class);
+
+    private final EnvironmentalReadingHistory environmentalReadingHistory =
+            mock(EnvironmentalReadingHistory.class);
+
+    private final EnvironmentalReadingAggregator environmentalReadingAggregator;
+
+    EnvironmentalReadingAggregatorTest() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        environmentalReadingAggregator =
+                new EnvironmentalReadingAggregator(
+                        new ApplicationProperties(),
+                        recentReadingWindows,
+                        environmentalReadingHistory,
+                        transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        environmentalReadingAggregator.shutdown();
+    }
+
+    // More rows than fit a chunk, interleaved like the shared query returns them
+    @Test
+    void shouldBucketTheRowsOfEverySensorReadFromTheDatabase() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        int readingsPerSensor = EnvironmentalReadingAggregator.DATABASE_CHUNK_SIZE * 2 + 100;
+        List<EnvironmentalReadingProjection> readings = new ArrayList<>();
+        for (int i = 0; i < readingsPerSensor; i++) {
+            OffsetDateTime timestamp = FROM.plusSeconds(i % 3600);
+            readings.add(new EnvironmentalReadingProjection(null, 20, 40, timestamp, first));
+            readings.add(new EnvironmentalReadingProjection(null, 30, 60, timestamp, second));
+        }
+        given(
+                        environmentalReadingHistory.streamBySensorSystemIdInAndTimestampBetween(
+                                Set.of(first, second), FROM, FROM.plusHours(1)))
+                .willAnswer(invocation -> readings.stream());
+
+        List<ReadingAggregates> aggregates =
+                environmentalReadingAggregator.aggregate(
+                        List.of(first, second),
+                        FROM,
+                        FROM.plusHours(1),
+                        Duration.ofHours(1),
+                        Set.of(ReadingMetric.TEMPERATURE),
+                        Set.of(AggregateFunction.COUNT, AggregateFunction.AVG));
+
+        assertThat(aggregates)
+                .extracting(ReadingAggregates::sensorSystemId)
+                .containsExactly(first, second);
+        assertThat(aggregates)
+                .extracting(ReadingAggregates::source)
+                .containsOnly(EnvironmentalReadingAggregator.SOURCE_DATABASE);
+        assertThat(aggregates.get(0).buckets())
+                .singleElement()
+                .extracting(ReadingAggregateBucket::temperature)
+                .satisfies(
+                        temperature ->
+                                assertThat(temperature)
+                                        .containsEntry("count", (long) readingsPerSensor)
+                                        .containsEntry("avg", 20.0));
+        assertThat(aggregates.get(1).buckets())
+                .singleElement()
+                .extracting(ReadingAggregateBucket::temperature)
+                .satisfies(
+                        temperature ->
+                                assertThat(temperature)
+                                        .containsEntry("count", (long) readingsPerSensor)
+                                        .containsEntry("avg", 30.0));
+    }
+}
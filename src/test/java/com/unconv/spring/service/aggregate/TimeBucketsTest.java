@@ -0,0 +1,82 @@
+package com.unconv.spring.service.aggregate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class TimeBucketsTest {
+
+    @Test
+    void shouldAlignBucketsToTheEpoch() {
+        TimeBuckets buckets = TimeBuckets.of(1_000, 4_000, 900);
+
+        assertThat(buckets.count()).isEqualTo(4);
+        assertThat(buckets.widthSeconds()).isEqualTo(900);
+        assertThat(buckets.startSecond(0)).isEqualTo(900);
+        assertThat(buckets.startSecond(3)).isEqualTo(3_600);
+        assertThat(TimeBuckets.align(1_799, 900)).isEqualTo(900);
+        assertThat(TimeBuckets.align(1_800, 900)).isEqualTo(1_800);
+    }
+
+    @Test
+    void shouldIndexSecondsAtTheEdgesOfBuckets() {
+        TimeBuckets buckets = TimeBuckets.of(1_000, 4_000, 900);
+
+        assertThat(buckets.indexOf(899)).isEqualTo(-1);
+        assertThat(buckets.indexOf(900)).isZero();
+        assertThat(buckets.indexOf(1_799)).isZero();
+        assertThat(buckets.indexOf(1_800)).isOne();
+        assertThat(buckets.indexOf(4_499)).isEqualTo(3);
+        assertThat(buckets.indexOf(4_500)).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldHoldOneBucketWhenTheRangeFitsIntoIt() {
+        TimeBuckets buckets = TimeBuckets.of(3_600, 3_600, 3_600);
+
+        assertThat(buckets.count()).isOne();
+        assertThat(buckets.indexOf(7_199)).isZero();
+        assertThat(buckets.indexOf(7_200)).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldHoldNoBucketsForReversedRange() {
+        TimeBuckets buckets = TimeBuckets.of(4_000, 1_000, 900);
+
+        assertThat(buckets.count()).isZero();
+        assertThat(buckets.indexOf(1_000)).isEqualTo(-1);
+        assertThat(buckets.indexOf(4_000)).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldStartBucketsAtUtcDateTimes() {
+        OffsetDateTime from = OffsetDateTime.of(2023, 1, 17, 17, 39, 12, 0, ZoneOffset.ofHours(2));
+        TimeBuckets buckets = TimeBuckets.of(from, from.plusHours(1), Duration.ofMinutes(15));
+
+        assertThat(buckets.count()).isEqualTo(5);
+        assertThat(buckets.start(0))
+                .isEqualTo(OffsetDateTime.of(2023, 1, 17, 15, 30, 0, 0, ZoneOffset.UTC));
+        assertThat(buckets.start(4))
+                .isEqualTo(OffsetDateTime.of(2023, 1, 17, 16, 30, 0, 0, ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldRejectWidthsBelowOneSecond() {
+        assertThatThrownBy(() -> TimeBuckets.of(0, 60, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        assertThatThrownBy(() -> TimeBuckets.of(now, now.plusMinutes(1), Duration.ofMillis(500)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectMoreBucketsThanAnArrayCanHold() {
+        assertThatThrownBy(() -> TimeBuckets.of(0, 1L << 40, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Too many buckets");
+    }
+}
@@ -0,0 +1,208 @@
+package com.unconv.spring.service.archive;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.EnvironmentalReadingArchive;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.domain.UnconvUser;
+import com.unconv.spring.persistence.EnvironmentalReadingArchiveRepository;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.persistence.UnconvUserRepository;
+import com.unconv.spring.service.cache.SensorSystemVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Archives days of an in-memory H2 database the way the scheduled runs do, each day in a
+// transaction of its own. The database goes through Hikari like in the application, Hibernate
+// relies on its connections not auto-committing
+@DataJpaTest(
+        properties = {
+            "spring.datasource.url=jdbc:h2:mem:archive;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password="
+        })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles(PROFILE_TEST)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EnvironmentalReadingArchiverTest {
+
+    private static final LocalDate DAY = LocalDate.now(ZoneOffset.UTC).minusDays(40);
+
+    @Autowired private UnconvUserRepository unconvUserRepository;
+
+    @Autowired private SensorSystemRepository sensorSystemRepository;
+
+    @Autowired private EnvironmentalReadingRepository environmentalReadingRepository;
+
+    @Autowired private EnvironmentalReadingArchiveRepository environmentalReadingArchiveRepository;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Autowired private EntityManager entityManager;
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final SensorSystemVersions sensorSystemVersions = mock(SensorSystemVersions.class);
+
+    private SensorSystem sensorSystem;
+
+    @BeforeEach
+    void setUp() {
+        UnconvUser unconvUser =
+                unconvUserRepository.save(
+                        new UnconvUser(
+                                null,
+                                "archivist-" + UUID.randomUUID(),
+                                "archivist@email.com",
+                                "password"));
+        sensorSystem =
+                sensorSystemRepository.save(new SensorSystem(null, "Sensor", null, unconvUser));
+    }
+
+    @AfterEach
+    void tearDown() {
+        environmentalReadingArchiveRepository.deleteAllInBatch();
+        environmentalReadingRepository.deleteAllInBatch();
+        sensorSystemRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldMoveWholeDaysBeforeTheHorizonIntoOneBlockEach() {
+        saveReading(DAY, 6, 20.5);
+        saveReading(DAY, 18, 21.5);
+        saveReading(DAY.plusDays(1), 0, 22.5);
+        OffsetDateTime recent = OffsetDateTime.now(ZoneOffset.UTC).minusDays(1);
+        environmentalReadingRepository.save(
+                new EnvironmentalReading(null, 23.5, 50.0, recent, sensorSystem));
+
+        archiver(environmentalReadingRepository).archive();
+
+        assertThat(archivedTemperatures(DAY)).containsExactly(20.5, 21.5);
+        assertThat(archivedTemperatures(DAY.plusDays(1))).containsExactly(22.5);
+        assertThat(environmentalReadingRepository.findAll())
+                .singleElement()
+                .extracting(EnvironmentalReading::getTemperature)
+                .isEqualTo(23.5);
+        assertThat(
+                        environmentalReadingArchiveRepository.countReadingsBySensorSystemId(
+                                sensorSystem.getId()))
+                .isEqualTo(3);
+        verify(sensorSystemVersions, times(2)).touch(sensorSystem.getId());
+    }
+
+    @Test
+    void shouldMergeReadingsArrivingLateIntoTheArchivedDay() {
+        saveReading(DAY, 6, 20.5);
+        saveReading(DAY, 18, 22.5);
+        archiver(environmentalReadingRepository).archive();
+
+        saveReading(DAY, 12, 21.5);
+        archiver(environmentalReadingRepository).archive();
+
+        assertThat(archivedTemperatures(DAY)).containsExactly(20.5, 21.5, 22.5);
+        assertThat(archive(DAY).getReadingCount()).isEqualTo(3);
+        assertThat(environmentalReadingRepository.count()).isZero();
+    }
+
+    @Test
+    void shouldRollBackDayWhenAReadingIsInsertedWhileItIsArchived() {
+        saveReading(DAY, 6, 20.5);
+        EnvironmentalReadingRepository racingRepository =
+                mock(
+                        EnvironmentalReadingRepository.class,
+                        delegatesTo(environmentalReadingRepository));
+        TransactionTemplate otherTransaction = new TransactionTemplate(transactionManager);
+        otherTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        willAnswer(
+                        invocation -> {
+                            otherTransaction.executeWithoutResult(
+                                    status -> saveReading(DAY, 12, 21.5));
+                            return environmentalReadingRepository
+                                    .deleteBySensorSystemIdAndTimestampRange(
+                                            invocation.getArgument(0),
+                                            invocation.getArgument(1),
+                                            invocation.getArgument(2));
+                        })
+                .given(racingRepository)
+                .deleteBySensorSystemIdAndTimestampRange(any(), any(), any());
+
+        archiver(racingRepository).archive();
+
+        assertThat(
+                        environmentalReadingArchiveRepository.findBySensorSystemIdAndArchiveDay(
+                                sensorSystem.getId(), DAY))
+                .isEmpty();
+        assertThat(environmentalReadingRepository.count()).isEqualTo(2);
+
+        // The next run archives both
+        archiver(environmentalReadingRepository).archive();
+
+        assertThat(archivedTemperatures(DAY)).containsExactly(20.5, 21.5);
+        assertThat(environmentalReadingRepository.count()).isZero();
+    }
+
+    private EnvironmentalReadingArchiver archiver(
+            EnvironmentalReadingRepository environmentalReadingRepository) {
+        return new EnvironmentalReadingArchiver(
+                applicationProperties,
+                sensorSystemRepository,
+                environmentalReadingRepository,
+                environmentalReadingArchiveRepository,
+                new TransactionTemplate(transactionManager),
+                entityManager,
+                sensorSystemVersions,
+                new SimpleMeterRegistry());
+    }
+
+    private void saveReading(LocalDate day, int hour, double temperature) {
+        environmentalReadingRepository.save(
+                new EnvironmentalReading(
+                        null,
+                        temperature,
+                        50.0,
+                        day.atTime(hour, 0).atOffset(ZoneOffset.UTC),
+                        sensorSystem));
+    }
+
+    private EnvironmentalReadingArchive archive(LocalDate day) {
+        return environmentalReadingArchiveRepository
+                .findBySensorSystemIdAndArchiveDay(sensorSystem.getId(), day)
+                .orElseThrow();
+    }
+
+    private double[] archivedTemperatures(LocalDate day) {
+        ReadingBlock block = ReadingBlockCodec.decode(archive(day).getBlock());
+        double[] temperatures = new double[block.size()];
+        for (int i = 0; i < block.size(); i++) {
+            temperatures[i] = block.temperatureAt(i);
+        }
+        return temperatures;
+    }
+}
@@ -0,0 +1,131 @@
+package com.unconv.spring.service.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class ReadingBlockCodecTest {
+
+    private static final long START =
+            ReadingBlock.toEpochMicros(OffsetDateTime.of(2023, 1, 17, 0, 0, 0, 0, ZoneOffset.UTC));
+
+    @Test
+    void shouldRoundTripEmptyBlock() {
+        byte[] bytes = ReadingBlockCodec.encode(new ReadingBlock(0));
+
+        assertThat(ReadingBlockCodec.decode(bytes).size()).isZero();
+    }
+
+    @Test
+    void shouldRoundTripSingleReading() {
+        ReadingBlock block = new ReadingBlock(1);
+        block.add(START + 123_456, -12.345, 99.99);
+
+        assertSameReadings(ReadingBlockCodec.decode(ReadingBlockCodec.encode(block)), block);
+    }
+
+    @Test
+    void shouldStoreReadingsAtSteadyIntervalInAboutOneByteEachPerColumn() {
+        ReadingBlock block = new ReadingBlock(1_440);
+        for (int i = 0; i < 1_440; i++) {
+            block.add(START + i * 60_000_000L, 21.5, 48.25);
+        }
+
+        byte[] bytes = ReadingBlockCodec.encode(block);
+
+        assertThat(bytes.length).isLessThan(3 * 1_440 + 32);
+        assertSameReadings(ReadingBlockCodec.decode(bytes), block);
+    }
+
+    @Test
+    void shouldRoundTripIrregularAndOutOfOrderTimestamps() {
+        ReadingBlock block = new ReadingBlock(6);
+        block.add(START, 20.0, 50.0);
+        block.add(START + 1, 20.0, 50.0);
+        block.add(START + 86_399_999_999L, 20.0, 50.0);
+        block.add(START - 5_000_000, 20.0, 50.0);
+        block.add(START - 5_000_000, 20.0, 50.0);
+        block.add(-1, 20.0, 50.0);
+
+        assertSameReadings(ReadingBlockCodec.decode(ReadingBlockCodec.encode(block)), block);
+    }
+
+    @Test
+    void shouldFallBackToXorForValuesFinerThanTheColumnScale() {
+        ReadingBlock block = new ReadingBlock(5);
+        block.add(START, 21.1234, 48.125);
+        block.add(START + 1, 21.1234, 48.125);
+        block.add(START + 2, -0.0001, Math.PI);
+        block.add(START + 3, 1e300, Double.MIN_VALUE);
+        block.add(START + 4, Double.NaN, Double.NEGATIVE_INFINITY);
+
+        assertSameReadings(ReadingBlockCodec.decode(ReadingBlockCodec.encode(block)), block);
+    }
+
+    @Test
+    void shouldKeepScaledValuesExact() {
+        ReadingBlock block = new ReadingBlock(4);
+        block.add(START, 9999.0, 100.0);
+        block.add(START + 1, -9999.0, 0.0);
+        block.add(START + 2, 0.001, 0.01);
+        block.add(START + 3, -273.15, 33.33);
+
+        assertSameReadings(ReadingBlockCodec.decode(ReadingBlockCodec.encode(block)), block);
+    }
+
+    @Test
+    void shouldRejectUnknownFormatVersion() {
+        byte[] bytes = ReadingBlockCodec.encode(new ReadingBlock(0));
+        bytes[0] = 2;
+
+        assertThatThrownBy(() -> ReadingBlockCodec.decode(bytes))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldMergeBlocksInTimestampOrder() {
+        ReadingBlock archived = new ReadingBlock(3);
+        archived.add(START, 1.0, 50.0);
+        archived.add(START + 20, 3.0, 50.0);
+        archived.add(START + 30, 4.0, 50.0);
+        ReadingBlock late = new ReadingBlock(3);
+        late.add(START + 10, 2.0, 50.0);
+        late.add(START + 30, 5.0, 50.0);
+        late.add(START + 40, 6.0, 50.0);
+
+        ReadingBlock merged = ReadingBlock.merge(archived, late);
+
+        assertThat(merged.size()).isEqualTo(6);
+        double[] temperatures = new double[6];
+        for (int i = 0; i < 6; i++) {
+            temperatures[i] = merged.temperatureAt(i);
+        }
+        // The archived reading comes first on equal timestamps
+        assertThat(temperatures).containsExactly(1.0, 2.0, 3.0, 4.0, 5.0, 6.0);
+        assertThat(ReadingBlock.merge(new ReadingBlock(0), late).size()).isEqualTo(3);
+        assertThat(ReadingBlock.merge(archived, new ReadingBlock(0)).size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldConvertTimestampsBeforeTheEpoch() {
+        OffsetDateTime timestamp =
+                OffsetDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000, ZoneOffset.UTC);
+
+        assertThat(ReadingBlock.toEpochMicros(timestamp)).isEqualTo(-1);
+        assertThat(ReadingBlock.fromEpochMicros(-1)).isEqualTo(timestamp);
+    }
+
+    private static void assertSameReadings(ReadingBlock actual, ReadingBlock expected) {
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.epochMicrosAt(i)).isEqualTo(expected.epochMicrosAt(i));
+            assertThat(Double.doubleToRawLongBits(actual.temperatureAt(i)))
+                    .isEqualTo(Double.doubleToRawLongBits(expected.temperatureAt(i)));
+            assertThat(Double.doubleToRawLongBits(actual.humidityAt(i)))
+                    .isEqualTo(Double.doubleToRawLongBits(expected.humidityAt(i)));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.unconv.spring.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.awaitility.Awaitility.await;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class CacheInvalidationBusTest {
+
+    private static final Duration READINGS_ADDED_INTERVAL = Duration.ofMillis(300);
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final List<EntityChange> transported = new CopyOnWriteArrayList<>();
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @BeforeEach
+    void setUp() {
+        InvalidationTransport transport =
+                new InvalidationTransport() {
+                    @Override
+                    public void publish(EntityChange change) {
+                        transported.add(change);
+                    }
+
+                    @Override
+                    public void start(InvalidationReceiver receiver) {}
+                };
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getInvalidation().setReadingsAddedInterval(READINGS_ADDED_INTERVAL);
+        applicationProperties.getInvalidation().setPollInterval(POLL_INTERVAL);
+        cacheInvalidationBus =
+                new CacheInvalidationBus(
+                        transport, events::add, new SimpleMeterRegistry(), applicationProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheInvalidationBus.stop();
+    }
+
+    @Test
+    void shouldDeliverOwnChangesOfExistingReadings() {
+        UUID sensorSystemId = UUID.randomUUID();
+
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS, sensorSystemId);
+        cacheInvalidationBus.onChanges(transported);
+
+        assertThat(events)
+                .singleElement()
+                .isEqualTo(transported.get(0))
+                .extracting("entity")
+                .isEqualTo(CachedEntity.SENSOR_READINGS);
+    }
+
+    @Test
+    void shouldSkipOwnAddedReadingsAndDeliverThoseOfOtherNodes() {
+        UUID sensorSystemId = UUID.randomUUID();
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+        EntityChange otherNode =
+                new EntityChange(
+                        CachedEntity.SENSOR_READINGS_ADDED,
+                        sensorSystemId.toString(),
+                        UUID.randomUUID().toString());
+
+        cacheInvalidationBus.onChanges(List.of(transported.get(0), otherNode));
+
+        assertThat(events).containsExactly(otherNode);
+    }
+
+    @Test
+    void shouldAnnounceAddedReadingsOfASensorOncePerInterval() {
+        UUID sensorSystemId = UUID.randomUUID();
+        UUID otherSensorSystemId = UUID.randomUUID();
+
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, otherSensorSystemId);
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS, sensorSystemId);
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS, sensorSystemId);
+
+        assertThat(transported)
+                .extracting(EntityChange::entity, EntityChange::id)
+                .containsExactly(
+                        tuple(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId.toString()),
+                        tuple(CachedEntity.SENSOR_READINGS_ADDED, otherSensorSystemId.toString()),
+                        tuple(CachedEntity.SENSOR_READINGS, sensorSystemId.toString()),
+                        tuple(CachedEntity.SENSOR_READINGS, sensorSystemId.toString()));
+
+        await().atMost(Duration.ofSeconds(5))
+                .pollInterval(Duration.ofMillis(50))
+                .untilAsserted(
+                        () -> {
+                            cacheInvalidationBus.publish(
+                                    CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+                            assertThat(transported).hasSize(5);
+                        });
+    }
+
+    @Test
+    void shouldAnnounceAddedReadingsAgainOnceTheAnnouncingTransactionRolledBack() {
+        UUID sensorSystemId = UUID.randomUUID();
+
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        synchronizations.forEach(
+                synchronization ->
+                        synchronization.afterCompletion(
+                                TransactionSynchronization.STATUS_ROLLED_BACK));
+        cacheInvalidationBus.publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+
+        assertThat(transported).hasSize(2);
+    }
+
+    @Test
+    void shouldDeliverAddedReadingsOfOtherNodesAgainUntilTheyStopComing() {
+        EntityChange otherNode =
+                new EntityChange(
+                        CachedEntity.SENSOR_READINGS_ADDED,
+                        UUID.randomUUID().toString(),
+                        UUID.randomUUID().toString());
+
+        cacheInvalidationBus.onChanges(List.of(otherNode));
+        cacheInvalidationBus.onChanges(List.of(otherNode));
+        cacheInvalidationBus.onChanges(List.of(otherNode));
+
+        // Once as it arrives, the repeats within the window are left for its end
+        assertThat(events).containsExactly(otherNode);
+        await().atMost(Duration.ofSeconds(5)).until(() -> events.size() == 2);
+        // The repeats kept the window open for one more interval, which ends with a last delivery
+        // for the readings they may have left out
+        await().atMost(Duration.ofSeconds(5)).until(() -> events.size() == 3);
+        await().during(READINGS_ADDED_INTERVAL.plus(POLL_INTERVAL).multipliedBy(2))
+                .atMost(Duration.ofSeconds(5))
+                .until(() -> events.size() == 3);
+
+        // A sensor announced again once the window closed is delivered right away
+        cacheInvalidationBus.onChanges(List.of(otherNode));
+        assertThat(events).hasSize(4);
+    }
+}
@@ -0,0 +1,231 @@
+package com.unconv.spring.service.cache;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.domain.CacheInvalidation;
+import com.unconv.spring.persistence.CacheInvalidationRepository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Polls an in-memory H2 database directly, with transactions left open on other threads to
+// commit or roll back out of id order. The database goes through Hikari like in the application,
+// Hibernate relies on its connections not auto-committing
+@DataJpaTest(
+        properties = {
+            "spring.datasource.url=jdbc:h2:mem:invalidations;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password="
+        })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles(PROFILE_TEST)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JdbcInvalidationTransportTest {
+
+    @Autowired private CacheInvalidationRepository cacheInvalidationRepository;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final RecordingReceiver receiver = new RecordingReceiver();
+
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcInvalidationTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transport =
+                new JdbcInvalidationTransport(
+                        applicationProperties, cacheInvalidationRepository, transactionTemplate);
+    }
+
+    @Test
+    void shouldDeliverLateCommitAfterRowsWithHigherIds() throws InterruptedException {
+        transport.poll(receiver);
+        OpenTransaction late = OpenTransaction.publish(transport, transactionTemplate, "late");
+        publish("early");
+
+        transport.poll(receiver);
+        assertThat(receiver.ids()).containsExactly("early");
+
+        late.commit();
+        transport.poll(receiver);
+        transport.poll(receiver);
+
+        assertThat(receiver.ids()).containsExactly("early", "late");
+        assertThat(receiver.missed).isZero();
+        assertThat(idOf("late")).isLessThan(idOf("early"));
+    }
+
+    @Test
+    void shouldForgetIdsOfRolledBackTransactionsAfterGapTimeout() throws InterruptedException {
+        applicationProperties.getInvalidation().setGapTimeout(Duration.ofMillis(50));
+        transport.poll(receiver);
+        OpenTransaction rolledBack =
+                OpenTransaction.publish(transport, transactionTemplate, "rolled-back");
+        publish("committed");
+        transport.poll(receiver);
+
+        rolledBack.rollback();
+        Thread.sleep(100);
+        transport.poll(receiver);
+        publish("next");
+        transport.poll(receiver);
+
+        assertThat(receiver.ids()).containsExactly("committed", "next");
+        assertThat(receiver.missed).isZero();
+    }
+
+    @Test
+    void shouldReportChangesMissedWhenNotPolledForLongerThanRetention()
+            throws InterruptedException {
+        applicationProperties.getInvalidation().setRetention(Duration.ofMillis(50));
+        transport.poll(receiver);
+        Thread.sleep(100);
+        publish("after-pause");
+
+        transport.poll(receiver);
+
+        assertThat(receiver.missed).isOne();
+        assertThat(receiver.ids()).containsExactly("after-pause");
+    }
+
+    @Test
+    void shouldReportChangesMissedWhenTooManyIdsAreSkipped() {
+        transport.poll(receiver);
+        transactionTemplate.executeWithoutResult(
+                status -> {
+                    for (int i = 0; i < 1_001; i++) {
+                        transport.publish(change("rolled-back-" + i));
+                    }
+                    status.setRollbackOnly();
+                });
+        publish("after-gap");
+
+        transport.poll(receiver);
+
+        assertThat(receiver.missed).isOne();
+        assertThat(receiver.ids()).containsExactly("after-gap");
+    }
+
+    @Test
+    void shouldKeepNewestRowWhenDeletingExpiredRows() throws InterruptedException {
+        applicationProperties.getInvalidation().setRetention(Duration.ZERO);
+        publish("expired");
+        publish("newest");
+        Thread.sleep(10);
+
+        transport.deleteExpired();
+
+        assertThat(cacheInvalidationRepository.findAll())
+                .singleElement()
+                .extracting(CacheInvalidation::getEntityId)
+                .isEqualTo("newest");
+    }
+
+    private void publish(String id) {
+        transactionTemplate.executeWithoutResult(status -> transport.publish(change(id)));
+    }
+
+    private long idOf(String entityId) {
+        return cacheInvalidationRepository.findAll().stream()
+                .filter(row -> row.getEntityId().equals(entityId))
+                .findFirst()
+                .orElseThrow()
+                .getId();
+    }
+
+    private static EntityChange change(String id) {
+        return new EntityChange(CachedEntity.SENSOR_READINGS, id, "node");
+    }
+
+    private static class RecordingReceiver implements InvalidationReceiver {
+
+        private final List<EntityChange> changes = new ArrayList<>();
+
+        private int missed;
+
+        @Override
+        public void onChanges(List<EntityChange> changes) {
+            this.changes.addAll(changes);
+        }
+
+        @Override
+        public void onChangesMissed() {
+            missed++;
+        }
+
+        List<String> ids() {
+            return changes.stream().map(EntityChange::id).toList();
+        }
+    }
+
+    // A transaction on a thread of its own that has published a change and waits to be told
+    // whether to commit
+    private static class OpenTransaction {
+
+        private final CountDownLatch published = new CountDownLatch(1);
+
+        private final CountDownLatch finish = new CountDownLatch(1);
+
+        private volatile boolean rollback;
+
+        private Thread thread;
+
+        static OpenTransaction publish(
+                JdbcInvalidationTransport transport,
+                TransactionTemplate transactionTemplate,
+                String id)
+                throws InterruptedException {
+            OpenTransaction openTransaction = new OpenTransaction();
+            openTransaction.thread =
+                    new Thread(
+                            () ->
+                                    transactionTemplate.executeWithoutResult(
+                                            status -> {
+                                                transport.publish(change(id));
+                                                openTransaction.published.countDown();
+                                                try {
+                                                    openTransaction.finish.await();
+                                                } catch (InterruptedException e) {
+                                                    Thread.currentThread().interrupt();
+                                                }
+                                                if (openTransaction.rollback) {
+                                                    status.setRollbackOnly();
+                                                }
+                                            }));
+            openTransaction.thread.start();
+            assertThat(openTransaction.published.await(10, TimeUnit.SECONDS)).isTrue();
+            return openTransaction;
+        }
+
+        void commit() throws InterruptedException {
+            finish.countDown();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        void rollback() throws InterruptedException {
+            rollback = true;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.unconv.spring.service.cache;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import com.unconv.spring.domain.Fruit;
+import com.unconv.spring.domain.FruitProduct;
+import com.unconv.spring.persistence.FruitProductRepository;
+import com.unconv.spring.persistence.FruitRepository;
+import com.unconv.spring.service.FruitProductService;
+import com.unconv.spring.service.FruitService;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// Goes through the services so the cache sees the same transactions as in the application.
+// Counts come from Hibernate's statistics, which are turned on for it
+@SpringBootTest(
+        webEnvironment = RANDOM_PORT,
+        properties = {
+            "spring.datasource.url=jdbc:h2:mem:second-level-cache;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "application.second-level-cache.enabled=true",
+            "application.second-level-cache.statistics=true"
+        })
+@ActiveProfiles(PROFILE_TEST)
+class SecondLevelCacheIT {
+
+    private static final String FRUITS_REGION = "fruits";
+
+    @Autowired private FruitService fruitService;
+
+    @Autowired private FruitProductService fruitProductService;
+
+    @Autowired private FruitRepository fruitRepository;
+
+    @Autowired private FruitProductRepository fruitProductRepository;
+
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fruitProductRepository.deleteAllInBatch();
+        fruitRepository.deleteAllInBatch();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void shouldLoadFruitsOfListedProductsFromTheirRegion() {
+        saveProducts(3);
+        fruitProductService.findAllFruitProducts();
+        statistics.clear();
+
+        List<FruitProduct> fruitProducts = fruitProductService.findAllFruitProducts();
+
+        assertThat(fruitProducts).extracting(p -> p.getFruit().getFruitName()).hasSize(3);
+        assertThat(fruitsRegion().getHitCount()).isEqualTo(3);
+        assertThat(fruitsRegion().getMissCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isOne();
+    }
+
+    @Test
+    void shouldSelectFruitsMissingFromTheRegionInBatches() {
+        saveProducts(30);
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        List<FruitProduct> fruitProducts = fruitProductService.findAllFruitProducts();
+
+        assertThat(fruitProducts).hasSize(30);
+        // The products, then the fruits in a batch of 25 and one of 5
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(fruitsRegion().getPutCount()).isEqualTo(30);
+    }
+
+    @Test
+    void shouldEvictFruitOnSaveAndDelete() {
+        Fruit fruit = fruitService.saveFruit(fruit(0));
+        fruit.setFruitName("Renamed");
+        fruitService.saveFruit(fruit);
+
+        // The change announced after commit evicts the entry the save put into the region
+        assertThat(entityManagerFactory.getCache().contains(Fruit.class, fruit.getId())).isFalse();
+
+        statistics.clear();
+        assertThat(fruitService.findFruitById(fruit.getId()))
+                .hasValueSatisfying(found -> assertThat(found.getFruitName()).isEqualTo("Renamed"));
+        assertThat(fruitService.findFruitById(fruit.getId())).isPresent();
+        assertThat(fruitsRegion().getMissCount()).isOne();
+        assertThat(fruitsRegion().getHitCount()).isOne();
+        assertThat(statistics.getPrepareStatementCount()).isOne();
+
+        fruitService.deleteFruitById(fruit.getId());
+
+        assertThat(entityManagerFactory.getCache().contains(Fruit.class, fruit.getId())).isFalse();
+        assertThat(fruitService.findFruitById(fruit.getId())).isEmpty();
+    }
+
+    private void saveProducts(int count) {
+        for (int i = 0; i < count; i++) {
+            Fruit fruit = fruitService.saveFruit(fruit(i));
+            fruitProductService.saveFruitProduct(
+                    new FruitProduct(null, 1.5f, fruit, null, "1kg", 2.5f));
+        }
+    }
+
+    private static Fruit fruit(int i) {
+        return new Fruit(null, "https://fruits.example.com/" + i + ".png", "Fruit " + i, "Vendor");
+    }
+
+    private CacheRegionStatistics fruitsRegion() {
+        return statistics.getDomainDataRegionStatistics(FRUITS_REGION);
+    }
+}
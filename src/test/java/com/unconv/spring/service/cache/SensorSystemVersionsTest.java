@@ -0,0 +1,53 @@
+package com.unconv.spring.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.unconv.spring.config.ApplicationProperties;
+import java.time.Duration;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class SensorSystemVersionsTest {
+
+    private final UUID sensorSystemId = UUID.randomUUID();
+
+    @Test
+    void shouldChangeTheEtagOfASensorOnEveryChange() {
+        SensorSystemVersions sensorSystemVersions = sensorSystemVersions(100);
+        String initial = sensorSystemVersions.etag(sensorSystemId, "slot");
+
+        sensorSystemVersions.touch(sensorSystemId);
+        String touched = sensorSystemVersions.etag(sensorSystemId, "slot");
+        sensorSystemVersions.touchAll();
+
+        assertThat(touched).isNotEqualTo(initial).endsWith("-slot");
+        assertThat(sensorSystemVersions.etag(sensorSystemId, "slot")).isNotIn(initial, touched);
+        assertThat(sensorSystemVersions.etag(UUID.randomUUID(), "slot")).isNotEqualTo(initial);
+    }
+
+    // An evicted sensor has no version, just like before its first change
+    @Test
+    void shouldNotGoBackToAnEtagOfBeforeTheLastChangeOnceEvicted() {
+        SensorSystemVersions sensorSystemVersions = sensorSystemVersions(1);
+        String beforeChange = sensorSystemVersions.etag(sensorSystemId);
+        sensorSystemVersions.touch(sensorSystemId);
+        String changed = sensorSystemVersions.etag(sensorSystemId);
+
+        // Other sensors are changed until the version of this one is evicted
+        await().atMost(Duration.ofSeconds(10))
+                .until(
+                        () -> {
+                            sensorSystemVersions.touch(UUID.randomUUID());
+                            return !sensorSystemVersions.etag(sensorSystemId).equals(changed);
+                        });
+
+        assertThat(sensorSystemVersions.etag(sensorSystemId)).isNotEqualTo(beforeChange);
+    }
+
+    private SensorSystemVersions sensorSystemVersions(long maxVersionedSensors) {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getHttpCache().setMaxVersionedSensors(maxVersionedSensors);
+        return new SensorSystemVersions(applicationProperties);
+    }
+}
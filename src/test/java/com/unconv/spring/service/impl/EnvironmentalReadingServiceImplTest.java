@@ -0,0 +1,228 @@
+package com.unconv.spring.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.consts.IngestMode;
+import com.unconv.spring.consts.MessageConstants;
+import com.unconv.spring.consts.SensorStatus;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.mapper.DTOMapper;
+import com.unconv.spring.model.response.MessageResponse;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.projection.SensorSystemOwnership;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.ingest.EnvironmentalReadingBatchWriter;
+import com.unconv.spring.service.ingest.IngestFrame;
+import com.unconv.spring.service.ingest.ReadingWriteAheadLog;
+import com.unconv.spring.service.ingest.SensorSystemOwnershipCache;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class EnvironmentalReadingServiceImplTest {
+
+    private static final String CSV =
+            "temperature,humidity,timestamp\n"
+                    + "21.5,48.25,2023-01-17T17:39:00Z\n"
+                    + "21.75,48.5,2023-01-17T17:40:00Z\n";
+
+    @Mock private EnvironmentalReadingRepository environmentalReadingRepository;
+
+    @Mock private SensorSystemRepository sensorSystemRepository;
+
+    @Mock private SensorSystemOwnershipCache sensorSystemOwnershipCache;
+
+    @Mock private ReadingWriteAheadLog writeAheadLog;
+
+    @Mock private EnvironmentalReadingBatchWriter environmentalReadingBatchWriter;
+
+    @Mock private CacheInvalidationBus cacheInvalidationBus;
+
+    @Mock private ApplicationEventPublisher applicationEventPublisher;
+
+    @Mock private ApplicationProperties applicationProperties;
+
+    @Spy private DTOMapper dtoMapper = Mappers.getMapper(DTOMapper.class);
+
+    private final PlatformTransactionManager transactionManager =
+            mock(PlatformTransactionManager.class);
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+    @InjectMocks private EnvironmentalReadingServiceImpl environmentalReadingService;
+
+    private final ApplicationProperties.Ingest ingest = new ApplicationProperties.Ingest();
+
+    private final UUID sensorSystemId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        given(applicationProperties.getIngest()).willReturn(ingest);
+        given(sensorSystemOwnershipCache.findById(sensorSystemId))
+                .willReturn(
+                        Optional.of(
+                                new SensorSystemOwnership(
+                                        sensorSystemId, "username", false, SensorStatus.ACTIVE)));
+        given(sensorSystemRepository.getReferenceById(sensorSystemId))
+                .willReturn(new SensorSystem(sensorSystemId, "Sensor ABCD", null, null));
+        given(environmentalReadingRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldAcceptUploadOfExactlyMaxUploadSize() {
+        byte[] csv = CSV.getBytes(StandardCharsets.UTF_8);
+        ingest.setMaxUploadSize(DataSize.ofBytes(csv.length));
+
+        ResponseEntity<String> response = upload(csv);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).contains("2 records");
+    }
+
+    @Test
+    void shouldAnnounceUploadedReadingsBeforeTheirTransactionCommits() {
+        ResponseEntity<String> response = upload(CSV.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        InOrder inOrder =
+                inOrder(transactionManager, environmentalReadingRepository, cacheInvalidationBus);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(environmentalReadingRepository).saveAll(anyList());
+        inOrder.verify(cacheInvalidationBus)
+                .publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystemId);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldRefuseUploadLargerThanMaxUploadSize() {
+        byte[] csv = CSV.getBytes(StandardCharsets.UTF_8);
+        ingest.setMaxUploadSize(DataSize.ofBytes(csv.length - 1));
+
+        ResponseEntity<String> response = upload(csv);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void shouldRefuseUnparseableUpload() {
+        byte[] csv =
+                "temperature,humidity,timestamp\nwarm,48.25,2023-01-17T17:39:00Z\n"
+                        .getBytes(StandardCharsets.UTF_8);
+
+        ResponseEntity<String> response = upload(csv);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.EXPECTATION_FAILED);
+    }
+
+    @Test
+    void shouldReferToSensorSystemOfAcceptedReadingLikeTheRequestDid() {
+        EnvironmentalReadingDTO byId = new EnvironmentalReadingDTO();
+        byId.setTemperature(21.5);
+        byId.setSensorSystemId(sensorSystemId);
+        EnvironmentalReadingDTO whole = new EnvironmentalReadingDTO();
+        whole.setTemperature(21.5);
+        whole.setSensorSystem(new SensorSystem(sensorSystemId, "Sensor ABCD", null, null));
+
+        EnvironmentalReadingDTO acceptedById = accept(byId);
+        EnvironmentalReadingDTO acceptedWhole = accept(whole);
+
+        assertThat(acceptedById.getSensorSystemId()).isEqualTo(sensorSystemId);
+        assertThat(acceptedById.getSensorSystem()).isNull();
+        assertThat(acceptedWhole.getSensorSystemId()).isNull();
+        assertThat(acceptedWhole.getSensorSystem().getSensorName()).isEqualTo("Sensor ABCD");
+    }
+
+    @Test
+    void shouldAnswerCreatedOnceTheBatchOfADurableReadingCommitted() {
+        ingest.setHttpMode(IngestMode.DURABLE);
+        given(environmentalReadingBatchWriter.offer(any(IngestFrame.class)))
+                .willAnswer(
+                        invocation -> {
+                            IngestFrame frame = invocation.getArgument(0);
+                            frame.listener().onFramesPersisted(List.of(frame));
+                            return true;
+                        });
+        EnvironmentalReadingDTO environmentalReadingDTO = new EnvironmentalReadingDTO();
+        environmentalReadingDTO.setTemperature(21.5);
+        environmentalReadingDTO.setSensorSystemId(sensorSystemId);
+
+        ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> response =
+                save(environmentalReadingDTO);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getHeaders().containsKey(MessageConstants.ENVT_RECORD_STATUS_HEADER))
+                .isFalse();
+        assertThat(response.getBody().message()).isEqualTo(MessageConstants.ENVT_RECORD_ACCEPTED);
+    }
+
+    @Test
+    void shouldMarkADurableReadingAsQueuedWhenItsCommitIsNotConfirmedInTime() {
+        ingest.setHttpMode(IngestMode.DURABLE);
+        ingest.setAckTimeout(Duration.ofMillis(10));
+        given(environmentalReadingBatchWriter.offer(any(IngestFrame.class))).willReturn(true);
+        EnvironmentalReadingDTO environmentalReadingDTO = new EnvironmentalReadingDTO();
+        environmentalReadingDTO.setTemperature(21.5);
+        environmentalReadingDTO.setSensorSystemId(sensorSystemId);
+
+        ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> response =
+                save(environmentalReadingDTO);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(response.getHeaders().getFirst(MessageConstants.ENVT_RECORD_STATUS_HEADER))
+                .isEqualTo(MessageConstants.ENVT_RECORD_STATUS_QUEUED);
+        assertThat(response.getBody().message()).isEqualTo(MessageConstants.ENVT_RECORD_QUEUED);
+    }
+
+    private EnvironmentalReadingDTO accept(EnvironmentalReadingDTO environmentalReadingDTO) {
+        ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> response =
+                save(environmentalReadingDTO);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        return response.getBody().entity();
+    }
+
+    private ResponseEntity<MessageResponse<EnvironmentalReadingDTO>> save(
+            EnvironmentalReadingDTO environmentalReadingDTO) {
+        return environmentalReadingService
+                .generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
+                        environmentalReadingDTO, new TestingAuthenticationToken("username", null));
+    }
+
+    private ResponseEntity<String> upload(byte[] csv) {
+        return environmentalReadingService.validateSensorSystemAndParseEnvironmentalReadings(
+                sensorSystemId, new ByteArrayInputStream(csv));
+    }
+}
@@ -0,0 +1,171 @@
+package com.unconv.spring.service.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class EnvironmentalReadingBatchWriterTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository =
+            mock(EnvironmentalReadingRepository.class);
+
+    private final ApplicationEventPublisher applicationEventPublisher =
+            mock(ApplicationEventPublisher.class);
+
+    private final CacheInvalidationBus cacheInvalidationBus = mock(CacheInvalidationBus.class);
+
+    private final IngestListener listener = mock(IngestListener.class);
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor", null, null);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EnvironmentalReadingBatchWriter batchWriter;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batchWriter.shutdown();
+    }
+
+    @Test
+    void shouldAcknowledgeFramesOnceTheirBatchIsCommitted() throws IOException {
+        batchWriter = batchWriter();
+        IngestFrame frame = frame("1", sensorSystem, 2);
+
+        assertThat(batchWriter.offer(frame)).isTrue();
+
+        verify(listener, timeout(TIMEOUT_MILLIS)).onFramesPersisted(List.of(frame));
+        verify(environmentalReadingRepository).saveAll(frame.readings());
+        verify(cacheInvalidationBus)
+                .publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystem.getId());
+        verify(applicationEventPublisher)
+                .publishEvent(
+                        EnvironmentalReadingsAcceptedEvent.of(
+                                sensorSystem.getId(), frame.readings()));
+        await().atMost(Duration.ofMillis(TIMEOUT_MILLIS))
+                .until(() -> batchWriter.getQueueDepth() == 0);
+    }
+
+    @Test
+    void shouldRefuseFramesOnceTheQueuedReadingsReachTheCapacity()
+            throws IOException, InterruptedException {
+        applicationProperties.getIngest().setQueueCapacity(5);
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        given(environmentalReadingRepository.saveAll(anyIterable()))
+                .willAnswer(
+                        invocation -> {
+                            committing.countDown();
+                            commit.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                            return invocation.getArgument(0);
+                        });
+        batchWriter = batchWriter();
+
+        // The writer holds the permits of the batch it commits
+        assertThat(batchWriter.offer(frame("1", sensorSystem, 3))).isTrue();
+        assertThat(committing.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(batchWriter.offer(frame("2", sensorSystem, 3))).isFalse();
+        assertThat(batchWriter.offer(frame("3", sensorSystem, 2))).isTrue();
+        assertThat(batchWriter.getRemainingCapacity()).isZero();
+        assertThat(meterRegistry.get("readings.ingest.rejected").counter().count()).isEqualTo(3);
+
+        commit.countDown();
+
+        await().atMost(Duration.ofMillis(TIMEOUT_MILLIS))
+                .until(() -> batchWriter.getRemainingCapacity() == 5);
+        assertThat(batchWriter.offer(frame("4", sensorSystem, 5))).isTrue();
+    }
+
+    @Test
+    void shouldRejectOnlyTheFrameTheDatabaseRefuses() throws IOException {
+        // The batch closes once it holds the three frames
+        applicationProperties.getIngest().setBatchSize(3);
+        applicationProperties.getIngest().setMaxBatchDelay(Duration.ofSeconds(5));
+        SensorSystem removed = new SensorSystem(UUID.randomUUID(), "Removed", null, null);
+        given(environmentalReadingRepository.saveAll(anyIterable()))
+                .willAnswer(
+                        invocation -> {
+                            Iterable<EnvironmentalReading> readings = invocation.getArgument(0);
+                            for (EnvironmentalReading reading : readings) {
+                                if (reading.getSensorSystem() == removed) {
+                                    throw new DataIntegrityViolationException("foreign key");
+                                }
+                            }
+                            return readings;
+                        });
+        batchWriter = batchWriter();
+        IngestFrame first = frame("1", sensorSystem, 1);
+        IngestFrame refused = frame("2", removed, 1);
+        IngestFrame last = frame("3", sensorSystem, 1);
+
+        batchWriter.offer(first);
+        batchWriter.offer(refused);
+        batchWriter.offer(last);
+
+        verify(listener, timeout(TIMEOUT_MILLIS)).onFramesPersisted(List.of(last));
+        verify(listener).onFramesPersisted(List.of(first));
+        verify(listener)
+                .onFramesFailed(eq(List.of(refused)), any(DataIntegrityViolationException.class));
+        verify(listener, never()).onFramesFailed(eq(List.of(first)), any());
+        verify(cacheInvalidationBus, never())
+                .publish(CachedEntity.SENSOR_READINGS_ADDED, removed.getId());
+    }
+
+    private EnvironmentalReadingBatchWriter batchWriter() throws IOException {
+        return new EnvironmentalReadingBatchWriter(
+                applicationProperties,
+                environmentalReadingRepository,
+                new ReadingWriteAheadLog(applicationProperties),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                applicationEventPublisher,
+                cacheInvalidationBus,
+                meterRegistry);
+    }
+
+    private IngestFrame frame(String frameId, SensorSystem sensorSystem, int readingCount) {
+        OffsetDateTime timestamp = OffsetDateTime.of(2023, 1, 17, 17, 39, 0, 0, ZoneOffset.UTC);
+        List<EnvironmentalReading> readings = new ArrayList<>(readingCount);
+        for (int i = 0; i < readingCount; i++) {
+            readings.add(
+                    new EnvironmentalReading(
+                            null, 20.0 + i, 50.0, timestamp.plusSeconds(i), sensorSystem));
+        }
+        return new IngestFrame(frameId, sensorSystem.getId(), readings, listener);
+    }
+}
@@ -0,0 +1,192 @@
+package com.unconv.spring.service.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.cache.CacheInvalidationBus;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.hibernate.ReplicationMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReadingLogReplayerTest {
+
+    @TempDir Path directory;
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository =
+            mock(EnvironmentalReadingRepository.class);
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    private final Session session = mock(Session.class);
+
+    private final ApplicationEventPublisher applicationEventPublisher =
+            mock(ApplicationEventPublisher.class);
+
+    private final CacheInvalidationBus cacheInvalidationBus = mock(CacheInvalidationBus.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor", null, null);
+
+    private ReadingWriteAheadLog writeAheadLog;
+
+    private ReadingLogReplayer readingLogReplayer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ApplicationProperties.Wal wal = applicationProperties.getIngest().getWal();
+        wal.setEnabled(true);
+        wal.setDirectory(directory.toString());
+        writeAheadLog = new ReadingWriteAheadLog(applicationProperties);
+
+        given(entityManager.unwrap(Session.class)).willReturn(session);
+        given(entityManager.getReference(eq(SensorSystem.class), any()))
+                .willAnswer(
+                        invocation ->
+                                new SensorSystem(invocation.getArgument(1), "Sensor", null, null));
+        readingLogReplayer =
+                new ReadingLogReplayer(
+                        applicationProperties,
+                        writeAheadLog,
+                        environmentalReadingRepository,
+                        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                        entityManager,
+                        applicationEventPublisher,
+                        cacheInvalidationBus,
+                        meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        readingLogReplayer.shutdown();
+    }
+
+    @Test
+    void shouldInsertOnlyReadingsMissingFromTheDatabase() throws InterruptedException {
+        List<EnvironmentalReading> logged = logReadings(3);
+        givenStoredReadings(logged.get(0));
+
+        readingLogReplayer.startReplay();
+
+        verify(session, never())
+                .replicate(
+                        argThat(reading -> logged.get(0).getId().equals(idOf(reading))),
+                        eq(ReplicationMode.EXCEPTION));
+        assertThat(acceptedReadingIds())
+                .containsExactly(logged.get(1).getId(), logged.get(2).getId());
+        assertThat(counter("readings.ingest.wal.replayed")).isEqualTo(2);
+        assertThat(counter("readings.ingest.wal.dead-lettered")).isZero();
+        assertThat(writeAheadLog.getPendingReadings()).isZero();
+    }
+
+    @Test
+    void shouldParkOnlyTheReadingTheDatabaseRefusesAsADeadLetter() throws InterruptedException {
+        List<EnvironmentalReading> logged = logReadings(4);
+        givenStoredReadings(logged.get(0));
+        UUID refusedId = logged.get(2).getId();
+        willThrow(new DataIntegrityViolationException("sensor removed"))
+                .given(session)
+                .replicate(
+                        argThat(reading -> refusedId.equals(idOf(reading))),
+                        eq(ReplicationMode.EXCEPTION));
+
+        readingLogReplayer.startReplay();
+
+        // The batch is rolled back and its readings are retried one by one
+        assertThat(acceptedReadingIds())
+                .containsExactly(logged.get(1).getId(), logged.get(3).getId());
+        assertThat(counter("readings.ingest.wal.replayed")).isEqualTo(2);
+        assertThat(counter("readings.ingest.wal.dead-lettered")).isOne();
+        verify(cacheInvalidationBus, times(2))
+                .publish(CachedEntity.SENSOR_READINGS_ADDED, sensorSystem.getId());
+        assertThat(writeAheadLog.getPendingReadings()).isZero();
+        assertThat(writeAheadLog.getDeadLetters())
+                .singleElement()
+                .satisfies(
+                        deadLetter -> {
+                            assertThat(deadLetter.id()).isEqualTo(refusedId);
+                            assertThat(deadLetter.sensorSystemId()).isEqualTo(sensorSystem.getId());
+                            assertThat(deadLetter.temperature()).isEqualTo(22.0);
+                        });
+    }
+
+    private List<EnvironmentalReading> logReadings(int count) {
+        OffsetDateTime timestamp = OffsetDateTime.of(2023, 1, 17, 17, 39, 0, 0, ZoneOffset.UTC);
+        List<EnvironmentalReading> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(
+                    new EnvironmentalReading(
+                            null, 20.0 + i, 50.0, timestamp.plusSeconds(i), sensorSystem));
+        }
+        writeAheadLog.write(readings);
+        return readings;
+    }
+
+    private void givenStoredReadings(EnvironmentalReading stored) {
+        given(environmentalReadingRepository.findExistingIds(anyCollection()))
+                .willAnswer(
+                        invocation -> {
+                            Collection<UUID> ids = invocation.getArgument(0);
+                            return ids.contains(stored.getId())
+                                    ? List.of(stored.getId())
+                                    : List.of();
+                        });
+    }
+
+    private List<UUID> acceptedReadingIds() {
+        ArgumentCaptor<EnvironmentalReadingsAcceptedEvent> events =
+                ArgumentCaptor.forClass(EnvironmentalReadingsAcceptedEvent.class);
+        verify(applicationEventPublisher).publishEvent(events.capture());
+        assertThat(events.getValue().sensorSystemId()).isEqualTo(sensorSystem.getId());
+        return events.getValue().readings().stream()
+                .map(EnvironmentalReadingProjection::id)
+                .toList();
+    }
+
+    private static UUID idOf(Object reading) {
+        return reading instanceof EnvironmentalReading environmentalReading
+                ? environmentalReading.getId()
+                : null;
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
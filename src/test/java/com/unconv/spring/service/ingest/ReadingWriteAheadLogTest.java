@@ -0,0 +1,205 @@
+package com.unconv.spring.service.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.EnvironmentalReading;
+import com.unconv.spring.domain.SensorSystem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+// Segments of four records, at most two of them waiting for replay
+class ReadingWriteAheadLogTest {
+
+    private static final int RECORDS_PER_SEGMENT = 4;
+
+    @TempDir Path directory;
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor", null, null);
+
+    private final OffsetDateTime timestamp =
+            OffsetDateTime.of(2023, 1, 17, 17, 39, 0, 123_456_789, ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties.Wal wal = applicationProperties.getIngest().getWal();
+        wal.setEnabled(true);
+        wal.setDirectory(directory.toString());
+        wal.setSegmentSize(
+                DataSize.ofBytes(RECORDS_PER_SEGMENT * ReadingWriteAheadLog.RECORD_SIZE));
+        wal.setMaxSegments(2);
+    }
+
+    @Test
+    void shouldReadBackWrittenReadingsWithTheirIds() throws IOException {
+        ReadingWriteAheadLog writeAheadLog = new ReadingWriteAheadLog(applicationProperties);
+        List<EnvironmentalReading> readings = readings(2);
+
+        writeAheadLog.write(readings);
+
+        ReadingLogBatch batch = writeAheadLog.read(ReadingLogPosition.START, 100);
+        assertThat(batch.readings())
+                .containsExactly(
+                        new LoggedReading(
+                                readings.get(0).getId(),
+                                sensorSystem.getId(),
+                                20.0,
+                                50.0,
+                                timestamp),
+                        new LoggedReading(
+                                readings.get(1).getId(),
+                                sensorSystem.getId(),
+                                21.0,
+                                50.0,
+                                timestamp.plusSeconds(1)));
+        assertThat(batch.next())
+                .isEqualTo(new ReadingLogPosition(0, 2 * ReadingWriteAheadLog.RECORD_SIZE));
+        assertThat(writeAheadLog.getPendingReadings()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRollToNextSegmentWhenTheActiveOneIsFull() throws IOException {
+        ReadingWriteAheadLog writeAheadLog = new ReadingWriteAheadLog(applicationProperties);
+
+        writeAheadLog.write(readings(3));
+        writeAheadLog.write(readings(3));
+
+        assertThat(segmentFiles()).hasSize(2);
+        ReadingLogBatch first = writeAheadLog.read(ReadingLogPosition.START, 5);
+        ReadingLogBatch second = writeAheadLog.read(first.next(), 5);
+        assertThat(first.readings()).hasSize(5);
+        assertThat(first.next())
+                .isEqualTo(new ReadingLogPosition(1, ReadingWriteAheadLog.RECORD_SIZE));
+        assertThat(second.readings()).hasSize(1);
+        assertThat(second.next())
+                .isEqualTo(new ReadingLogPosition(1, 2 * ReadingWriteAheadLog.RECORD_SIZE));
+    }
+
+    @Test
+    void shouldRefuseReadingsWhileMaxSegmentsWaitForReplay() throws IOException {
+        ReadingWriteAheadLog writeAheadLog = new ReadingWriteAheadLog(applicationProperties);
+        writeAheadLog.write(readings(2 * RECORDS_PER_SEGMENT - 1));
+
+        // All or nothing, the readings that would still fit are not written either
+        assertThatThrownBy(() -> writeAheadLog.write(readings(2)))
+                .isInstanceOf(ReadingLogFullException.class);
+        writeAheadLog.write(readings(1));
+        assertThatThrownBy(() -> writeAheadLog.write(readings(1)))
+                .isInstanceOf(ReadingLogFullException.class);
+
+        // Replaying into the second segment frees the first one
+        ReadingLogBatch batch =
+                writeAheadLog.read(ReadingLogPosition.START, RECORDS_PER_SEGMENT + 1);
+        writeAheadLog.checkpoint(batch.next());
+        writeAheadLog.write(readings(1));
+
+        assertThat(segmentFiles()).hasSize(2);
+        assertThat(writeAheadLog.read(batch.next(), 100).readings()).hasSize(4);
+    }
+
+    @Test
+    void shouldReplayFromCheckpointAfterRestart() throws IOException {
+        ReadingWriteAheadLog beforeRestart = new ReadingWriteAheadLog(applicationProperties);
+        List<EnvironmentalReading> readings = readings(6);
+        beforeRestart.write(readings);
+        ReadingLogBatch replayed = beforeRestart.read(ReadingLogPosition.START, 5);
+        beforeRestart.checkpoint(replayed.next());
+
+        ReadingWriteAheadLog afterRestart = new ReadingWriteAheadLog(applicationProperties);
+
+        assertThat(afterRestart.getCheckpoint()).isEqualTo(replayed.next());
+        assertThat(afterRestart.getPendingReadings()).isOne();
+        assertThat(afterRestart.read(afterRestart.getCheckpoint(), 100).readings())
+                .extracting(LoggedReading::id)
+                .containsExactly(readings.get(5).getId());
+        // The replayed first segment is gone
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    void shouldClearTornTailOnRestart() throws IOException {
+        ReadingWriteAheadLog beforeRestart = new ReadingWriteAheadLog(applicationProperties);
+        beforeRestart.write(readings(2));
+        // A record cut off by a crash: length written, checksum and payload missing
+        try (FileChannel channel =
+                FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(
+                    ByteBuffer.allocate(4).putInt(0, 60), 2L * ReadingWriteAheadLog.RECORD_SIZE);
+        }
+
+        ReadingWriteAheadLog afterRestart = new ReadingWriteAheadLog(applicationProperties);
+        List<EnvironmentalReading> next = readings(1);
+        afterRestart.write(next);
+
+        List<LoggedReading> replayed = afterRestart.read(ReadingLogPosition.START, 100).readings();
+        assertThat(replayed).hasSize(3);
+        assertThat(replayed.get(2).id()).isEqualTo(next.get(0).getId());
+    }
+
+    @Test
+    void shouldOnlyReadReadingsThatAreOnDisk() throws IOException {
+        ReadingWriteAheadLog writeAheadLog = new ReadingWriteAheadLog(applicationProperties);
+        writeAheadLog.write(readings(1));
+        List<EnvironmentalReading> appended = readings(1);
+        appended.get(0).setId(UUID.randomUUID());
+
+        ReadingLogPosition position = writeAheadLog.append(appended);
+
+        assertThat(writeAheadLog.read(ReadingLogPosition.START, 100).readings()).hasSize(1);
+        writeAheadLog.sync(position);
+        assertThat(writeAheadLog.read(ReadingLogPosition.START, 100).readings()).hasSize(2);
+    }
+
+    @Test
+    void shouldWriteDeadLettersToTheLogAgainOnReplay() throws IOException {
+        ReadingWriteAheadLog beforeRestart = new ReadingWriteAheadLog(applicationProperties);
+        List<EnvironmentalReading> readings = readings(2);
+        beforeRestart.write(readings);
+        List<LoggedReading> logged = beforeRestart.read(ReadingLogPosition.START, 100).readings();
+        beforeRestart.deadLetter(logged.get(1));
+        beforeRestart.checkpoint(beforeRestart.read(ReadingLogPosition.START, 100).next());
+
+        ReadingWriteAheadLog afterRestart = new ReadingWriteAheadLog(applicationProperties);
+        assertThat(afterRestart.getDeadLetters()).containsExactly(logged.get(1));
+        assertThat(afterRestart.getPendingReadings()).isZero();
+
+        assertThat(afterRestart.replayDeadLetters()).isOne();
+        assertThat(afterRestart.getDeadLetters()).isEmpty();
+        assertThat(afterRestart.read(afterRestart.getCheckpoint(), 100).readings())
+                .containsExactly(logged.get(1));
+    }
+
+    private List<EnvironmentalReading> readings(int count) {
+        List<EnvironmentalReading> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(
+                    new EnvironmentalReading(
+                            null, 20.0 + i, 50.0, timestamp.plusSeconds(i), sensorSystem));
+        }
+        return readings;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.unconv.spring.service.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.consts.SensorStatus;
+import com.unconv.spring.persistence.SensorSystemRepository;
+import com.unconv.spring.projection.SensorSystemOwnership;
+import com.unconv.spring.service.cache.EntityChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+class SensorSystemOwnershipCacheTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final SensorSystemRepository sensorSystemRepository =
+            mock(SensorSystemRepository.class);
+
+    private final UUID sensorSystemId = UUID.randomUUID();
+
+    private final SensorSystemOwnership active =
+            new SensorSystemOwnership(sensorSystemId, "username", false, SensorStatus.ACTIVE);
+
+    private final SensorSystemOwnership inactive =
+            new SensorSystemOwnership(sensorSystemId, "username", false, SensorStatus.INACTIVE);
+
+    @Test
+    void shouldLoadEachSensorOnce() {
+        given(sensorSystemRepository.findOwnershipById(sensorSystemId))
+                .willReturn(Optional.of(active));
+        SensorSystemOwnershipCache cache = cache();
+
+        assertThat(cache.findById(sensorSystemId)).hasValue(active);
+        assertThat(cache.findById(sensorSystemId)).hasValue(active);
+
+        verify(sensorSystemRepository, times(1)).findOwnershipById(sensorSystemId);
+    }
+
+    @Test
+    void shouldDropSensorWhenItChanges() {
+        given(sensorSystemRepository.findOwnershipById(sensorSystemId))
+                .willReturn(Optional.of(active), Optional.of(inactive));
+        SensorSystemOwnershipCache cache = cache();
+        cache.findById(sensorSystemId);
+
+        cache.onEntityChanged(
+                new EntityChange(CachedEntity.SENSOR_SYSTEM, UUID.randomUUID().toString(), "node"));
+        assertThat(cache.findById(sensorSystemId)).hasValue(active);
+
+        cache.onEntityChanged(
+                new EntityChange(CachedEntity.SENSOR_SYSTEM, sensorSystemId.toString(), "node"));
+        assertThat(cache.findById(sensorSystemId)).hasValue(inactive);
+    }
+
+    @Test
+    void shouldDropEverySensorWhenAUserChanges() {
+        given(sensorSystemRepository.findOwnershipById(sensorSystemId))
+                .willReturn(Optional.of(active), Optional.of(inactive));
+        SensorSystemOwnershipCache cache = cache();
+        cache.findById(sensorSystemId);
+
+        cache.onEntityChanged(
+                new EntityChange(CachedEntity.UNCONV_USER, UUID.randomUUID().toString(), "node"));
+
+        assertThat(cache.findById(sensorSystemId)).hasValue(inactive);
+    }
+
+    @Test
+    void shouldNotCacheUnknownSensors() {
+        given(sensorSystemRepository.findOwnershipById(sensorSystemId))
+                .willReturn(Optional.empty(), Optional.of(active));
+        SensorSystemOwnershipCache cache = cache();
+
+        assertThat(cache.findById(sensorSystemId)).isEmpty();
+        assertThat(cache.findById(sensorSystemId)).hasValue(active);
+    }
+
+    @Test
+    void shouldReplaceEntryOnceRefreshed() {
+        applicationProperties.getIngest().getSensorCache().setRefreshAfter(Duration.ofMillis(10));
+        given(sensorSystemRepository.findOwnershipById(sensorSystemId))
+                .willReturn(Optional.of(active), Optional.of(inactive));
+        SensorSystemOwnershipCache cache = cache();
+        cache.findById(sensorSystemId);
+
+        await().atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(20))
+                .until(() -> cache.findById(sensorSystemId).orElseThrow().equals(inactive));
+    }
+
+    @Test
+    void shouldKeepEntryWhenRefreshCannotReachTheDatabase() {
+        applicationProperties.getIngest().getSensorCache().setRefreshAfter(Duration.ofMillis(10));
+        given(sensorSystemRepository.findOwnershipById(sensorSystemId))
+                .willReturn(Optional.of(active))
+                .willThrow(new CannotGetJdbcConnectionException("database down"));
+        SensorSystemOwnershipCache cache = cache();
+        cache.findById(sensorSystemId);
+
+        await().atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(20))
+                .untilAsserted(
+                        () -> {
+                            assertThat(cache.findById(sensorSystemId)).hasValue(active);
+                            // Refreshes keep failing every refreshAfter, how many ran by now
+                            // depends on the machine
+                            verify(sensorSystemRepository, atLeast(3))
+                                    .findOwnershipById(sensorSystemId);
+                        });
+    }
+
+    private SensorSystemOwnershipCache cache() {
+        return new SensorSystemOwnershipCache(
+                applicationProperties, sensorSystemRepository, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,212 @@
+package com.unconv.spring.service.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.EnvironmentalReadingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EnvironmentalReadingBroadcastHubTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static final OffsetDateTime QUARTER_HOUR =
+            OffsetDateTime.of(2023, 1, 17, 17, 30, 0, 0, ZoneOffset.UTC);
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository =
+            mock(EnvironmentalReadingRepository.class);
+
+    private final EnvironmentalReadingService environmentalReadingService =
+            mock(EnvironmentalReadingService.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UUID sensorSystemId = UUID.randomUUID();
+
+    private EnvironmentalReadingBroadcastHub hub;
+
+    @BeforeEach
+    void setUp() {
+        applicationProperties.getStream().setDispatchThreads(1);
+        applicationProperties.getStream().setSendThreads(2);
+        applicationProperties.getStream().setSendTimeLimit(Duration.ofMillis(100));
+        applicationProperties.getStream().setHeartbeatInterval(Duration.ofHours(1));
+        hub =
+                new EnvironmentalReadingBroadcastHub(
+                        applicationProperties,
+                        environmentalReadingRepository,
+                        environmentalReadingService,
+                        new ObjectMapper()
+                                .findAndRegisterModules()
+                                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS),
+                        meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void shouldDisconnectSubscribersThatStopReadingWithoutHoldingASendThread()
+            throws InterruptedException {
+        // More stalled clients than send threads
+        List<RecordingSseEmitter> stalled = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordingSseEmitter emitter = new RecordingSseEmitter();
+            emitter.writable = false;
+            hub.register(sensorSystemId, emitter, false);
+            stalled.add(emitter);
+        }
+        RecordingSseEmitter healthy = new RecordingSseEmitter();
+        hub.register(sensorSystemId, healthy, false);
+
+        hub.onEnvironmentalReadingsAccepted(event(QUARTER_HOUR));
+        await().atMost(TIMEOUT).until(() -> healthy.events.size() == 1);
+        await().atMost(TIMEOUT).until(() -> stalled.stream().allMatch(e -> e.writableChecks > 0));
+        assertThat(stalled).allMatch(emitter -> emitter.events.isEmpty());
+
+        // The next event finds them behind for longer than the limit
+        Thread.sleep(200);
+        hub.onEnvironmentalReadingsAccepted(event(QUARTER_HOUR.plusMinutes(1)));
+
+        await().atMost(TIMEOUT).until(() -> healthy.events.size() == 2);
+        assertThat(hub.getSubscriberCount()).isOne();
+        assertThat(meterRegistry.get("readings.stream.subscribers.disconnected").counter().count())
+                .isEqualTo(3);
+        assertThat(stalled).allMatch(emitter -> emitter.completed && emitter.events.isEmpty());
+    }
+
+    @Test
+    void shouldResumeSendingOnceTheClientCaughtUp() {
+        RecordingSseEmitter subscriber = new RecordingSseEmitter();
+        subscriber.writable = false;
+        hub.register(sensorSystemId, subscriber, false);
+
+        hub.onEnvironmentalReadingsAccepted(event(QUARTER_HOUR));
+        hub.onEnvironmentalReadingsAccepted(event(QUARTER_HOUR.plusMinutes(1)));
+        await().atMost(TIMEOUT).until(() -> subscriber.writableChecks > 0);
+        assertThat(subscriber.events).isEmpty();
+
+        subscriber.writable = true;
+        subscriber.onWritable.run();
+
+        await().atMost(TIMEOUT).until(() -> subscriber.events.size() == 2);
+        assertThat(subscriber.events)
+                .allMatch(event -> event.startsWith("event:reading\nid:"))
+                .allMatch(event -> event.endsWith("}\n\n"));
+        assertThat(hub.getSubscriberCount()).isOne();
+    }
+
+    @Test
+    void shouldQueryQuarterHourlyAveragesOffTheDispatchThreads() throws InterruptedException {
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(
+                        environmentalReadingRepository.findBySensorSystemIdAndTimestampBetween(
+                                eq(sensorSystemId), any(), any()))
+                .willAnswer(
+                        invocation -> {
+                            querying.countDown();
+                            release.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                            return List.of();
+                        });
+        given(environmentalReadingService.getAverageTempsForQuarterHourly(anyList()))
+                .willReturn(Map.of(QUARTER_HOUR, 21.5));
+        RecordingSseEmitter subscriber = new RecordingSseEmitter();
+        hub.register(sensorSystemId, subscriber, true);
+
+        hub.onEnvironmentalReadingsAccepted(event(QUARTER_HOUR));
+        assertThat(querying.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+        hub.onEnvironmentalReadingsAccepted(event(QUARTER_HOUR.plusMinutes(1)));
+        hub.onEnvironmentalReadingsAccepted(event(QUARTER_HOUR.plusMinutes(2)));
+
+        // Readings keep flowing while the first query is blocked
+        await().atMost(TIMEOUT).until(() -> subscriber.events.size() == 3);
+        assertThat(subscriber.events).allMatch(event -> event.startsWith("event:reading\n"));
+
+        release.countDown();
+
+        // The two buckets requested during the first query are recomputed together
+        await().atMost(TIMEOUT).until(() -> subscriber.events.size() == 5);
+        assertThat(subscriber.events.subList(3, 5))
+                .allMatch(event -> event.startsWith("event:quarter-hourly\n"));
+        verify(environmentalReadingRepository, times(2))
+                .findBySensorSystemIdAndTimestampBetween(eq(sensorSystemId), any(), any());
+    }
+
+    private EnvironmentalReadingsAcceptedEvent event(OffsetDateTime timestamp) {
+        return new EnvironmentalReadingsAcceptedEvent(
+                sensorSystemId,
+                List.of(
+                        new EnvironmentalReadingProjection(
+                                UUID.randomUUID(), 21.5, 48.25, timestamp, sensorSystemId)));
+    }
+
+    static class RecordingSseEmitter extends ReadingStreamEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private volatile boolean writable = true;
+
+        private volatile int writableChecks;
+
+        private volatile Runnable onWritable;
+
+        private volatile boolean completed;
+
+        RecordingSseEmitter() {
+            super(null);
+        }
+
+        @Override
+        void onWritable(Runnable callback) {
+            this.onWritable = callback;
+        }
+
+        @Override
+        synchronized boolean isWritable() {
+            writableChecks++;
+            return writable;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(data -> event.append(data.getData()));
+            events.add(event.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.unconv.spring.service.window;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.unconv.spring.service.aggregate.BucketAggregation;
+import com.unconv.spring.service.aggregate.TimeBuckets;
+import org.junit.jupiter.api.Test;
+
+// Readings are timestamped relative to now, as the window only grows for readings inside its span
+class RecentReadingWindowTest {
+
+    private static final long SPAN_MICROS = 3_600_000_000L;
+
+    private final long now = System.currentTimeMillis() * 1_000;
+
+    @Test
+    void shouldNotAnswerBeforeItIsHydrated() {
+        RecentReadingWindow window = new RecentReadingWindow(1_024, SPAN_MICROS);
+        window.append(secondsAgo(10), 21.0, 50.0);
+
+        assertThat(window.isHydrated()).isFalse();
+        assertThat(window.aggregate(secondsAgo(60), now, aggregation(), null)).isFalse();
+    }
+
+    @Test
+    void shouldMergeReadingsAppendedWhileHydrating() {
+        RecentReadingWindow window = new RecentReadingWindow(1_024, SPAN_MICROS);
+        window.append(secondsAgo(30), 21.0, 50.0);
+        window.append(secondsAgo(10), 23.0, 52.0);
+        RecentReadingWindow loaded = new RecentReadingWindow(1_024, SPAN_MICROS);
+        loaded.append(secondsAgo(40), 20.0, 49.0);
+        loaded.append(secondsAgo(30), 21.0, 50.0);
+
+        window.hydrate(loaded, secondsAgo(3_600));
+
+        BucketAggregation temperatures = aggregation();
+        BucketAggregation humidities = aggregation();
+        assertThat(window.isHydrated()).isTrue();
+        assertThat(window.aggregate(secondsAgo(3_600), now, temperatures, humidities)).isTrue();
+        assertThat(count(temperatures)).isEqualTo(3);
+        assertThat(sum(temperatures)).isEqualTo(64.0);
+        assertThat(sum(humidities)).isEqualTo(151.0);
+    }
+
+    @Test
+    void shouldOnlyDropPendingReadingsThatWereLoadedWithTheSameValues() {
+        RecentReadingWindow window = new RecentReadingWindow(1_024, SPAN_MICROS);
+        window.append(secondsAgo(30), 22.0, 50.0);
+        window.append(secondsAgo(30), 24.0, 50.0);
+        window.append(secondsAgo(20), 23.0, 50.0);
+        window.append(secondsAgo(50), 19.0, 50.0);
+        RecentReadingWindow loaded = new RecentReadingWindow(1_024, SPAN_MICROS);
+        loaded.append(secondsAgo(40), 20.0, 50.0);
+        loaded.append(secondsAgo(30), 21.0, 50.0);
+        loaded.append(secondsAgo(30), 22.0, 50.0);
+        loaded.append(secondsAgo(20), 23.0, 50.0);
+
+        window.hydrate(loaded, secondsAgo(3_600));
+
+        BucketAggregation temperatures = aggregation();
+        assertThat(window.aggregate(secondsAgo(3_600), now, temperatures, null)).isTrue();
+        assertThat(count(temperatures)).isEqualTo(6);
+        assertThat(sum(temperatures)).isEqualTo(129.0);
+    }
+
+    @Test
+    void shouldFindLoadedReadingsInAWrappedRing() {
+        RecentReadingWindow window = new RecentReadingWindow(4, SPAN_MICROS);
+        window.append(secondsAgo(20), 5.0, 50.0);
+        window.append(secondsAgo(10), 6.0, 50.0);
+        RecentReadingWindow loaded = new RecentReadingWindow(4, SPAN_MICROS);
+        for (int i = 1; i <= 6; i++) {
+            loaded.append(secondsAgo(70 - i * 10), i, 50.0);
+        }
+
+        window.hydrate(loaded, secondsAgo(3_600));
+
+        BucketAggregation temperatures = aggregation();
+        assertThat(window.aggregate(secondsAgo(40), now, temperatures, null)).isTrue();
+        assertThat(count(temperatures)).isEqualTo(4);
+        assertThat(sum(temperatures)).isEqualTo(18.0);
+        // Readings 1 and 2 were overwritten while loading
+        assertThat(window.aggregate(secondsAgo(50), now, aggregation(), null)).isFalse();
+    }
+
+    @Test
+    void shouldGrowWhileTheOldestReadingIsInsideTheSpan() {
+        RecentReadingWindow window = hydratedWindow(4 * RecentReadingWindow.INITIAL_CAPACITY);
+        for (int i = 0; i < RecentReadingWindow.INITIAL_CAPACITY; i++) {
+            assertThat(window.append(secondsAgo(2_000 - i), i, 50.0)).isFalse();
+        }
+
+        assertThat(window.append(now, RecentReadingWindow.INITIAL_CAPACITY, 50.0)).isTrue();
+
+        BucketAggregation temperatures = aggregation();
+        assertThat(window.capacity()).isEqualTo(2 * RecentReadingWindow.INITIAL_CAPACITY);
+        assertThat(window.aggregate(secondsAgo(3_600), now + 1, temperatures, null)).isTrue();
+        assertThat(count(temperatures)).isEqualTo(RecentReadingWindow.INITIAL_CAPACITY + 1);
+        assertThat(temperatures.last(0)).isEqualTo(RecentReadingWindow.INITIAL_CAPACITY);
+    }
+
+    @Test
+    void shouldOverwriteReadingsOlderThanTheSpanInsteadOfGrowing() {
+        RecentReadingWindow window = hydratedWindow(4 * RecentReadingWindow.INITIAL_CAPACITY);
+        for (int i = 0; i < 10; i++) {
+            window.append(secondsAgo(7_200 - i), -1.0, 50.0);
+        }
+        for (int i = 10; i < RecentReadingWindow.INITIAL_CAPACITY + 10; i++) {
+            window.append(secondsAgo(2_000 - i), 1.0, 50.0);
+        }
+        assertThat(window.capacity()).isEqualTo(RecentReadingWindow.INITIAL_CAPACITY);
+
+        // The ring is unrolled starting from a slot other than 0
+        assertThat(window.append(now, 2.0, 50.0)).isTrue();
+
+        BucketAggregation temperatures = aggregation();
+        assertThat(window.aggregate(secondsAgo(3_600), now + 1, temperatures, null)).isTrue();
+        assertThat(count(temperatures)).isEqualTo(RecentReadingWindow.INITIAL_CAPACITY + 1);
+        assertThat(sum(temperatures)).isEqualTo(RecentReadingWindow.INITIAL_CAPACITY + 2.0);
+        assertThat(window.aggregate(secondsAgo(7_200), now, aggregation(), null)).isFalse();
+    }
+
+    @Test
+    void shouldMoveCoveredRangePastReadingsOverwrittenAtMaxCapacity() {
+        RecentReadingWindow window = hydratedWindow(RecentReadingWindow.INITIAL_CAPACITY);
+        for (int i = 0; i <= RecentReadingWindow.INITIAL_CAPACITY; i++) {
+            assertThat(window.append(secondsAgo(2_000 - i), 1.0, 50.0)).isFalse();
+        }
+
+        BucketAggregation temperatures = aggregation();
+        assertThat(window.capacity()).isEqualTo(RecentReadingWindow.INITIAL_CAPACITY);
+        assertThat(window.aggregate(secondsAgo(2_000), now, aggregation(), null)).isFalse();
+        assertThat(window.aggregate(secondsAgo(2_000) + 1, now, temperatures, null)).isTrue();
+        assertThat(count(temperatures)).isEqualTo(RecentReadingWindow.INITIAL_CAPACITY);
+    }
+
+    private RecentReadingWindow hydratedWindow(int maxCapacity) {
+        RecentReadingWindow window = new RecentReadingWindow(maxCapacity, SPAN_MICROS);
+        window.hydrate(new RecentReadingWindow(maxCapacity, SPAN_MICROS), secondsAgo(3_600));
+        return window;
+    }
+
+    private long secondsAgo(long seconds) {
+        return now - seconds * 1_000_000;
+    }
+
+    // A single bucket from the epoch up to now
+    private BucketAggregation aggregation() {
+        long nowSecond = now / 1_000_000;
+        return new BucketAggregation(TimeBuckets.of(0, nowSecond, nowSecond + 1));
+    }
+
+    private static long count(BucketAggregation aggregation) {
+        return aggregation.count(0);
+    }
+
+    private static double sum(BucketAggregation aggregation) {
+        return aggregation.sum(0);
+    }
+}
@@ -0,0 +1,159 @@
+package com.unconv.spring.service.window;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.consts.CachedEntity;
+import com.unconv.spring.persistence.EnvironmentalReadingRepository;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.service.cache.EntityChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class RecentReadingWindowsTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final EnvironmentalReadingRepository environmentalReadingRepository =
+            mock(EnvironmentalReadingRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UUID sensorSystemId = UUID.randomUUID();
+
+    private final OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+
+    private RecentReadingWindows recentReadingWindows;
+
+    @BeforeEach
+    void setUp() {
+        applicationProperties.getRecentWindow().setSpan(Duration.ofHours(1));
+        recentReadingWindows =
+                new RecentReadingWindows(
+                        applicationProperties,
+                        environmentalReadingRepository,
+                        mock(PlatformTransactionManager.class),
+                        meterRegistry);
+    }
+
+    @Test
+    void shouldAnswerFromTheWindowLoadedOnFirstQuery() {
+        givenStoredReadings(2);
+
+        Optional<Map<OffsetDateTime, Double>> first = averages(now.minusHours(1));
+        Optional<Map<OffsetDateTime, Double>> second = averages(now.minusMinutes(30));
+
+        assertThat(first).hasValueSatisfying(means -> assertThat(means).isNotEmpty());
+        assertThat(second).isEqualTo(first);
+        verify(environmentalReadingRepository, times(1))
+                .streamProjectedBySensorSystemIdAndTimestampBetween(
+                        eq(sensorSystemId), any(), any());
+        assertThat(counter("readings.window.hydrations")).isOne();
+        assertThat(counter("readings.window.fallbacks")).isZero();
+    }
+
+    @Test
+    void shouldFallBackToTheDatabaseWhenTheWindowOverflowedWhileLoading() {
+        applicationProperties.getRecentWindow().setMaxReadingsPerSensor(4);
+        givenStoredReadings(6);
+
+        assertThat(averages(now.minusHours(1))).isEmpty();
+        assertThat(counter("readings.window.fallbacks")).isOne();
+        // The newest four readings are still held
+        assertThat(averages(now.minusMinutes(20))).isPresent();
+    }
+
+    @Test
+    void shouldNotQueryTheDatabaseForRangesBeyondTheSpan() {
+        givenStoredReadings(2);
+
+        assertThat(averages(now.minusHours(2))).isEmpty();
+        assertThat(
+                        recentReadingWindows.getAverageTemperatures(
+                                sensorSystemId,
+                                now.minusHours(3),
+                                now.minusHours(2),
+                                Duration.ofMinutes(15)))
+                .isEmpty();
+        verify(environmentalReadingRepository, never())
+                .streamProjectedBySensorSystemIdAndTimestampBetween(any(), any(), any());
+    }
+
+    @Test
+    void shouldLoadTheWindowAgainAfterItsReadingsChanged() {
+        givenStoredReadings(2);
+        averages(now.minusHours(1));
+
+        recentReadingWindows.onEntityChanged(
+                new EntityChange(CachedEntity.SENSOR_READINGS, sensorSystemId.toString(), "node"));
+        averages(now.minusHours(1));
+
+        verify(environmentalReadingRepository, times(2))
+                .streamProjectedBySensorSystemIdAndTimestampBetween(
+                        eq(sensorSystemId), any(), any());
+    }
+
+    @Test
+    void shouldForgetTheWindowWhenLoadingItFails() {
+        given(
+                        environmentalReadingRepository
+                                .streamProjectedBySensorSystemIdAndTimestampBetween(
+                                        eq(sensorSystemId), any(), any()))
+                .willThrow(new QueryTimeoutException("timeout"))
+                .willAnswer(invocation -> readings(2));
+
+        assertThatThrownBy(() -> averages(now.minusHours(1)))
+                .isInstanceOf(QueryTimeoutException.class);
+        assertThat(averages(now.minusHours(1))).isPresent();
+        assertThat(counter("readings.window.hydrations")).isOne();
+    }
+
+    private Optional<Map<OffsetDateTime, Double>> averages(OffsetDateTime from) {
+        return recentReadingWindows.getAverageTemperatures(
+                sensorSystemId, from, now, Duration.ofMinutes(15));
+    }
+
+    private void givenStoredReadings(int count) {
+        given(
+                        environmentalReadingRepository
+                                .streamProjectedBySensorSystemIdAndTimestampBetween(
+                                        eq(sensorSystemId), any(), any()))
+                .willAnswer(invocation -> readings(count));
+    }
+
+    // One reading every five minutes, the newest five minutes ago
+    private Stream<EnvironmentalReadingProjection> readings(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(
+                        i ->
+                                new EnvironmentalReadingProjection(
+                                        UUID.randomUUID(),
+                                        20 + i,
+                                        50,
+                                        now.minusMinutes(5L * (count - i)),
+                                        sensorSystemId));
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
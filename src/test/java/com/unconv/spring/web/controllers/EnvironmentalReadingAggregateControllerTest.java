@@ -0,0 +1,240 @@
+package com.unconv.spring.web.controllers;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.unconv.spring.consts.AggregateFunction;
+import com.unconv.spring.consts.ReadingMetric;
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.model.response.ReadingAggregateBucket;
+import com.unconv.spring.model.response.ReadingAggregates;
+import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.aggregate.EnvironmentalReadingAggregator;
+import com.unconv.spring.service.cache.SensorSystemVersions;
+import com.unconv.spring.web.rest.EnvironmentalReadingAggregateController;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@WebMvcTest(controllers = EnvironmentalReadingAggregateController.class)
+@ActiveProfiles(PROFILE_TEST)
+class EnvironmentalReadingAggregateControllerTest {
+
+    @Autowired private WebApplicationContext webApplicationContext;
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockBean private SensorSystemService sensorSystemService;
+
+    @MockBean private EnvironmentalReadingAggregator environmentalReadingAggregator;
+
+    @MockBean private SensorSystemVersions sensorSystemVersions;
+
+    private final SensorLocation sensorLocation =
+            new SensorLocation(
+                    UUID.randomUUID(), "Parthenon", 37.9715, 23.7269, SensorLocationType.OUTDOOR);
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor ABCD", sensorLocation, null);
+
+    @BeforeEach
+    void setUp() {
+        mockMvc =
+                MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                        .defaultRequest(
+                                MockMvcRequestBuilders.get("/EnvironmentalReading/Aggregate")
+                                        .with(user("username").roles("USER")))
+                        .apply(springSecurity())
+                        .build();
+    }
+
+    @Test
+    void shouldAggregateReadingsOfSensorSystem() throws Exception {
+        OffsetDateTime from = OffsetDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime to = OffsetDateTime.of(2023, 1, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+        given(
+                        environmentalReadingAggregator.aggregate(
+                                sensorSystem.getId(),
+                                from,
+                                to,
+                                Duration.ofDays(1),
+                                EnumSet.allOf(ReadingMetric.class),
+                                EnumSet.of(AggregateFunction.AVG, AggregateFunction.COUNT)))
+                .willReturn(
+                        new ReadingAggregates(
+                                sensorSystem.getId(),
+                                from,
+                                to,
+                                "PT24H",
+                                EnvironmentalReadingAggregator.SOURCE_DATABASE,
+                                List.of(
+                                        new ReadingAggregateBucket(
+                                                from,
+                                                Map.of("avg", 21.5, "count", 12L),
+                                                Map.of("avg", 48.25, "count", 12L)))));
+
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Aggregate/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .param("from", from.toString())
+                                .param("to", to.toString())
+                                .param("interval", "1d")
+                                .param("metrics", "temperature,humidity")
+                                .param("functions", "avg,count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source", is("database")))
+                .andExpect(jsonPath("$.buckets.size()", is(1)))
+                .andExpect(jsonPath("$.buckets[0].temperature.avg", is(21.5)))
+                .andExpect(jsonPath("$.buckets[0].humidity.count", is(12)));
+    }
+
+    @Test
+    void shouldReturn400ForUnknownFunction() throws Exception {
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Aggregate/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .param("functions", "avg,median"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn400WhenAggregatorRejectsRange() throws Exception {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+        given(
+                        environmentalReadingAggregator.aggregate(
+                                eq(sensorSystem.getId()),
+                                any(OffsetDateTime.class),
+                                any(OffsetDateTime.class),
+                                eq(Duration.ofSeconds(1)),
+                                any(),
+                                any()))
+                .willThrow(new IllegalArgumentException("Too many buckets"));
+
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Aggregate/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .param("interval", "1s"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn404WhenAggregatingNonExistingSensorSystem() throws Exception {
+        UUID sensorSystemId = UUID.randomUUID();
+        given(sensorSystemService.findSensorSystemById(sensorSystemId))
+                .willReturn(Optional.empty());
+
+        this.mockMvc
+                .perform(
+                        get(
+                                "/EnvironmentalReading/Aggregate/SensorSystem/{sensorSystemId}",
+                                sensorSystemId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldAggregateReadingsOfAllSensorSystemsOfUser() throws Exception {
+        UUID unconvUserId = UUID.randomUUID();
+        UUID otherSensorSystemId = UUID.randomUUID();
+        OffsetDateTime from = OffsetDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime to = OffsetDateTime.of(2023, 1, 2, 0, 0, 0, 0, ZoneOffset.UTC);
+        given(sensorSystemService.findSensorSystemIdsByUnconvUserId(unconvUserId))
+                .willReturn(List.of(sensorSystem.getId(), otherSensorSystemId));
+        given(
+                        environmentalReadingAggregator.aggregate(
+                                List.of(sensorSystem.getId(), otherSensorSystemId),
+                                from,
+                                to,
+                                Duration.ofHours(1),
+                                EnumSet.of(ReadingMetric.TEMPERATURE),
+                                EnumSet.of(AggregateFunction.AVG)))
+                .willReturn(
+                        List.of(
+                                new ReadingAggregates(
+                                        sensorSystem.getId(),
+                                        from,
+                                        to,
+                                        "PT1H",
+                                        EnvironmentalReadingAggregator.SOURCE_RECENT_WINDOW,
+                                        List.of(
+                                                new ReadingAggregateBucket(
+                                                        from, Map.of("avg", 21.5), null))),
+                                new ReadingAggregates(
+                                        otherSensorSystemId,
+                                        from,
+                                        to,
+                                        "PT1H",
+                                        EnvironmentalReadingAggregator.SOURCE_DATABASE,
+                                        List.of())));
+
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Aggregate/UnconvUser/{unconvUserId}",
+                                        unconvUserId)
+                                .param("from", from.toString())
+                                .param("to", to.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.interval", is("PT1H")))
+                .andExpect(jsonPath("$.sensorSystems.size()", is(2)))
+                .andExpect(jsonPath("$.sensorSystems[0].source", is("recent-window")))
+                .andExpect(jsonPath("$.sensorSystems[0].buckets[0].temperature.avg", is(21.5)))
+                .andExpect(jsonPath("$.sensorSystems[1].buckets.size()", is(0)));
+    }
+
+    @Test
+    void shouldReturn400WhenUserHasTooManySensorSystems() throws Exception {
+        UUID unconvUserId = UUID.randomUUID();
+        given(sensorSystemService.findSensorSystemIdsByUnconvUserId(unconvUserId))
+                .willReturn(List.of(sensorSystem.getId()));
+        given(
+                        environmentalReadingAggregator.aggregate(
+                                eq(List.of(sensorSystem.getId())),
+                                any(OffsetDateTime.class),
+                                any(OffsetDateTime.class),
+                                any(Duration.class),
+                                any(),
+                                any()))
+                .willThrow(new IllegalArgumentException("Too many sensors"));
+
+        this.mockMvc
+                .perform(
+                        get(
+                                "/EnvironmentalReading/Aggregate/UnconvUser/{unconvUserId}",
+                                unconvUserId))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,17 +1,21 @@
 package com.unconv.spring.web.controllers;
 
 import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_ACCEPTED;
-import static com.unconv.spring.consts.MessageConstants.ENVT_VALID_SENSOR_SYSTEM;
+import static com.unconv.spring.consts.MessageConstants.ENVT_VALID_SENSOR_SYSTEM_REFERENCE;
 import static com.unconv.spring.utils.AppConstants.DEFAULT_ER_SORT_BY;
 import static com.unconv.spring.utils.AppConstants.DEFAULT_ER_SORT_DIRECTION;
 import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.hasSize;
 import static org.instancio.Select.field;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
@@ -19,35 +23,48 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.unconv.spring.consts.SensorLocationType;
 import com.unconv.spring.domain.EnvironmentalReading;
 import com.unconv.spring.domain.SensorLocation;
 import com.unconv.spring.domain.SensorSystem;
 import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.MessageResponse;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.model.response.SensorSystemPagedResult;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.projection.SensorSystemProjection;
 import com.unconv.spring.service.EnvironmentalReadingService;
+import com.unconv.spring.service.cache.SensorSystemVersions;
 import com.unconv.spring.web.rest.EnvironmentalReadingController;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -70,9 +87,11 @@ class EnvironmentalReadingControllerTest {
 
     @MockBean private EnvironmentalReadingService environmentalReadingService;
 
+    @MockBean private SensorSystemVersions sensorSystemVersions;
+
     @Autowired private ObjectMapper objectMapper;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     private List<EnvironmentalReading> environmentalReadingList;
 
@@ -105,8 +124,13 @@ class EnvironmentalReadingControllerTest {
 
     @Test
     void shouldFetchAllEnvironmentalReadings() throws Exception {
-        Page<EnvironmentalReading> page = new PageImpl<>(environmentalReadingList);
-        PagedResult<EnvironmentalReading> environmentalReadingPagedResult = new PagedResult<>(page);
+        Page<EnvironmentalReadingProjection> page =
+                new PageImpl<>(
+                        environmentalReadingList.stream()
+                                .map(this::toEnvironmentalReadingProjection)
+                                .toList());
+        PagedResult<EnvironmentalReadingProjection> environmentalReadingPagedResult =
+                new PagedResult<>(page);
         given(
                         environmentalReadingService.findAllEnvironmentalReadings(
                                 0, 10, DEFAULT_ER_SORT_BY, DEFAULT_ER_SORT_DIRECTION))
@@ -125,6 +149,49 @@ class EnvironmentalReadingControllerTest {
                 .andExpect(jsonPath("$.hasPrevious", is(false)));
     }
 
+    @Test
+    void shouldFetchAllEnvironmentalReadingsOfSpecificSensorWithSensorSystemOnce()
+            throws Exception {
+        SensorSystemProjection sensorSystemProjection =
+                new SensorSystemProjection(
+                        sensorSystem.getId(),
+                        sensorSystem.getSensorName(),
+                        sensorSystem.getDescription(),
+                        sensorSystem.isDeleted(),
+                        sensorSystem.getSensorStatus(),
+                        null,
+                        UUID.randomUUID());
+        Page<EnvironmentalReadingProjection> page =
+                new PageImpl<>(
+                        environmentalReadingList.stream()
+                                .map(this::toEnvironmentalReadingProjection)
+                                .toList());
+        given(
+                        environmentalReadingService.findAllEnvironmentalReadingsBySensorSystemId(
+                                sensorSystem.getId(),
+                                0,
+                                10,
+                                DEFAULT_ER_SORT_BY,
+                                DEFAULT_ER_SORT_DIRECTION))
+                .willReturn(
+                        new SensorSystemPagedResult<>(
+                                sensorSystemProjection, new PagedResult<>(page)));
+
+        this.mockMvc
+                .perform(
+                        get(
+                                "/EnvironmentalReading/SensorSystem/{sensorSystemId}",
+                                sensorSystem.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sensorSystem.id", is(sensorSystem.getId().toString())))
+                .andExpect(jsonPath("$.sensorSystem.sensorName", is(sensorSystem.getSensorName())))
+                .andExpect(jsonPath("$.data.size()", is(environmentalReadingList.size())))
+                .andExpect(jsonPath("$.data[0].sensorSystem").doesNotExist())
+                .andExpect(jsonPath("$.totalElements", is(environmentalReadingList.size())))
+                .andExpect(jsonPath("$.pageNumber", is(1)))
+                .andExpect(jsonPath("$.isFirst", is(true)));
+    }
+
     @Test
     void shouldFindEnvironmentalReadingById() throws Exception {
         UUID environmentalReadingId = UUID.randomUUID();
@@ -195,6 +262,96 @@ class EnvironmentalReadingControllerTest {
                                 is(environmentalReadingDTO.getTemperature())));
     }
 
+    @Test
+    void shouldCreateNewEnvironmentalReadingFromCborReferencingSensorSystemById() throws Exception {
+        CBORMapper cborMapper = new CBORMapper();
+        byte[] environmentalReading =
+                cborMapper.writeValueAsBytes(
+                        Map.of(
+                                "temperature", -3.0,
+                                "humidity", 53.0,
+                                "sensorSystemId", sensorSystem.getId().toString()));
+
+        given(
+                        environmentalReadingService
+                                .generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
+                                        any(EnvironmentalReadingDTO.class),
+                                        any(Authentication.class)))
+                .willAnswer(
+                        (invocation) ->
+                                new ResponseEntity<>(
+                                        new MessageResponse<>(
+                                                invocation.<EnvironmentalReadingDTO>getArgument(0),
+                                                ENVT_RECORD_ACCEPTED),
+                                        HttpStatus.CREATED));
+
+        byte[] response =
+                this.mockMvc
+                        .perform(
+                                post("/EnvironmentalReading")
+                                        .with(csrf())
+                                        .contentType(MediaType.APPLICATION_CBOR)
+                                        .accept(MediaType.APPLICATION_CBOR)
+                                        .content(environmentalReading))
+                        .andExpect(status().isCreated())
+                        .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsByteArray();
+
+        JsonNode entity = cborMapper.readTree(response).get("entity");
+        assertThat(entity.get("temperature").asDouble()).isEqualTo(-3.0);
+        // UUIDs are written as 16 byte binary values in CBOR
+        assertThat(cborMapper.convertValue(entity.get("sensorSystemId"), UUID.class))
+                .isEqualTo(sensorSystem.getId());
+        assertThat(entity.has("sensorSystem")).isFalse();
+    }
+
+    @Test
+    void shouldEchoSensorSystemByIdWhenReadingReferencedItById() throws Exception {
+        given(
+                        environmentalReadingService
+                                .generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
+                                        any(EnvironmentalReadingDTO.class),
+                                        any(Authentication.class)))
+                .willAnswer(
+                        (invocation) ->
+                                new ResponseEntity<>(
+                                        new MessageResponse<>(
+                                                invocation.<EnvironmentalReadingDTO>getArgument(0),
+                                                ENVT_RECORD_ACCEPTED),
+                                        HttpStatus.CREATED));
+
+        this.mockMvc
+                .perform(
+                        post("/EnvironmentalReading")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                Map.of(
+                                                        "temperature", -3.0,
+                                                        "humidity", 53.0,
+                                                        "sensorSystemId", sensorSystem.getId()))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.entity.sensorSystemId", is(sensorSystem.getId().toString())))
+                .andExpect(jsonPath("$.entity.sensorSystem").doesNotExist());
+        this.mockMvc
+                .perform(
+                        post("/EnvironmentalReading")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                Map.of(
+                                                        "temperature", -3.0,
+                                                        "humidity", 53.0,
+                                                        "sensorSystem", sensorSystem))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.entity.sensorSystem.sensorName", is("Sensor ABCD")))
+                .andExpect(jsonPath("$.entity.sensorSystemId").doesNotExist());
+    }
+
     @Test
     void shouldReturn400WhenCreateNewEnvironmentalReadingWithoutText() throws Exception {
         EnvironmentalReading environmentalReading =
@@ -215,11 +372,103 @@ class EnvironmentalReadingControllerTest {
                 .andExpect(jsonPath("$.title", is("Constraint Violation")))
                 .andExpect(jsonPath("$.status", is(400)))
                 .andExpect(jsonPath("$.violations", hasSize(1)))
-                .andExpect(jsonPath("$.violations[0].field", is("sensorSystem")))
-                .andExpect(jsonPath("$.violations[0].message", is(ENVT_VALID_SENSOR_SYSTEM)))
+                .andExpect(jsonPath("$.violations[0].field", is("sensorSystemReferencedOnce")))
+                .andExpect(
+                        jsonPath("$.violations[0].message", is(ENVT_VALID_SENSOR_SYSTEM_REFERENCE)))
                 .andReturn();
     }
 
+    @Test
+    void shouldReturn400WhenSensorSystemIdIsNull() throws Exception {
+        this.mockMvc
+                .perform(
+                        post("/EnvironmentalReading")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        "{\"temperature\": -3.0, \"humidity\": 53.0,"
+                                                + " \"sensorSystemId\": null}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.violations", hasSize(1)))
+                .andExpect(jsonPath("$.violations[0].field", is("sensorSystemReferencedOnce")));
+    }
+
+    @Test
+    void shouldReturn400WhenSensorSystemIsSentWholeAndById() throws Exception {
+        this.mockMvc
+                .perform(
+                        post("/EnvironmentalReading")
+                                .with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                Map.of(
+                                                        "temperature",
+                                                        -3.0,
+                                                        "humidity",
+                                                        53.0,
+                                                        "sensorSystem",
+                                                        sensorSystem,
+                                                        "sensorSystemId",
+                                                        UUID.randomUUID()))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.violations", hasSize(1)))
+                .andExpect(jsonPath("$.violations[0].field", is("sensorSystemReferencedOnce")));
+    }
+
+    @Test
+    void shouldDecompressGzippedCsvUpload() throws Exception {
+        String csv = "temperature,humidity,timestamp\n21.5,48.25,2023-01-17T17:39:00Z\n";
+        ByteArrayOutputStream gzippedCsv = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzippedCsv)) {
+            gzipOutputStream.write(csv.getBytes(StandardCharsets.UTF_8));
+        }
+
+        given(
+                        environmentalReadingService
+                                .validateSensorSystemAndParseEnvironmentalReadings(
+                                        eq(sensorSystem.getId()), any(InputStream.class)))
+                .willAnswer(
+                        (invocation) ->
+                                ResponseEntity.status(HttpStatus.CREATED)
+                                        .body(
+                                                new String(
+                                                        invocation
+                                                                .<InputStream>getArgument(1)
+                                                                .readAllBytes(),
+                                                        StandardCharsets.UTF_8)));
+
+        this.mockMvc
+                .perform(
+                        post(
+                                        "/EnvironmentalReading/Bulk/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .with(csrf())
+                                .contentType("text/csv")
+                                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                                .content(gzippedCsv.toByteArray()))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(csv));
+    }
+
+    @Test
+    void shouldReturn415WhenCsvUploadHasUnsupportedContentEncoding() throws Exception {
+        this.mockMvc
+                .perform(
+                        post(
+                                        "/EnvironmentalReading/Bulk/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .with(csrf())
+                                .contentType("text/csv")
+                                .header(HttpHeaders.CONTENT_ENCODING, "br")
+                                .content(new byte[] {1, 2, 3}))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verify(environmentalReadingService, never())
+                .validateSensorSystemAndParseEnvironmentalReadings(
+                        any(UUID.class), any(InputStream.class));
+    }
+
     @Test
     void shouldUpdateEnvironmentalReading() throws Exception {
         UUID environmentalReadingId = UUID.randomUUID();
@@ -301,4 +550,48 @@ class EnvironmentalReadingControllerTest {
                 .perform(delete("/EnvironmentalReading/{id}", environmentalReadingId).with(csrf()))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void shouldReturnDailyAveragesWithEtagAndCacheControl() throws Exception {
+        OffsetDateTime day = OffsetDateTime.of(2023, 1, 17, 0, 0, 0, 0, ZoneOffset.UTC);
+        given(sensorSystemVersions.etag(eq(sensorSystem.getId()), any())).willReturn("v1");
+        given(environmentalReadingService.getAverageTempsForDaily(sensorSystem.getId()))
+                .willReturn(Map.of(day, 21.5));
+
+        this.mockMvc
+                .perform(
+                        get(
+                                "/EnvironmentalReading/Daily/SensorSystem/{sensorSystemId}",
+                                sensorSystem.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"v1\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=600, private"))
+                .andExpect(jsonPath("$.size()", is(1)));
+    }
+
+    @Test
+    void shouldReturn304ForDailyAveragesWithoutComputingThem() throws Exception {
+        given(sensorSystemVersions.etag(eq(sensorSystem.getId()), any())).willReturn("v1");
+
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Daily/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .header(HttpHeaders.IF_NONE_MATCH, "\"v0\", \"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"v1\""));
+
+        verify(environmentalReadingService, never()).getAverageTempsForDaily(any(UUID.class));
+    }
+
+    private EnvironmentalReadingProjection toEnvironmentalReadingProjection(
+            EnvironmentalReading environmentalReading) {
+        return new EnvironmentalReadingProjection(
+                environmentalReading.getId(),
+                environmentalReading.getTemperature(),
+                environmentalReading.getHumidity(),
+                environmentalReading.getTimestamp(),
+                sensorSystem.getId());
+    }
 }
@@ -0,0 +1,213 @@
+package com.unconv.spring.web.controllers;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.unconv.spring.config.http.CompressionThresholdFilter;
+import com.unconv.spring.consts.ExportFormat;
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.export.EnvironmentalReadingExporter;
+import com.unconv.spring.web.rest.EnvironmentalReadingExportController;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@WebMvcTest(controllers = EnvironmentalReadingExportController.class)
+@ActiveProfiles(PROFILE_TEST)
+class EnvironmentalReadingExportControllerTest {
+
+    private static final String CSV_EXPORT =
+            "id,temperature,humidity,timestamp\n"
+                    + "9f4c2f0e-1f0a-4a46-9d0b-3d6b2f1c2a11,21.5,48.25,2023-01-17T17:39Z\n";
+
+    @Autowired private WebApplicationContext webApplicationContext;
+
+    @Autowired private CompressionThresholdFilter compressionThresholdFilter;
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockBean private SensorSystemService sensorSystemService;
+
+    @MockBean private EnvironmentalReadingExporter environmentalReadingExporter;
+
+    private final SensorLocation sensorLocation =
+            new SensorLocation(
+                    UUID.randomUUID(), "Parthenon", 37.9715, 23.7269, SensorLocationType.OUTDOOR);
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor ABCD", sensorLocation, null);
+
+    // Holds the export back until the first dispatch has returned. The async thread would
+    // otherwise write to the mock response while that dispatch is still finishing
+    private final CountDownLatch exportMayStart = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        mockMvc =
+                MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                        .defaultRequest(
+                                MockMvcRequestBuilders.get("/EnvironmentalReading/Export")
+                                        .with(user("username").roles("USER")))
+                        .addFilters(compressionThresholdFilter)
+                        .apply(springSecurity())
+                        .build();
+    }
+
+    @Test
+    void shouldExportReadingsOfSensorSystemAsCsv() throws Exception {
+        OffsetDateTime from = OffsetDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        OffsetDateTime to = OffsetDateTime.of(2023, 2, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+        willAnswer(
+                        invocation -> {
+                            assertThat(exportMayStart.await(10, TimeUnit.SECONDS)).isTrue();
+                            invocation
+                                    .getArgument(4, OutputStream.class)
+                                    .write(CSV_EXPORT.getBytes(StandardCharsets.UTF_8));
+                            return null;
+                        })
+                .given(environmentalReadingExporter)
+                .export(
+                        eq(sensorSystem.getId()),
+                        eq(from),
+                        eq(to),
+                        eq(ExportFormat.CSV),
+                        any(OutputStream.class));
+
+        MvcResult mvcResult =
+                this.mockMvc
+                        .perform(
+                                get(
+                                                "/EnvironmentalReading/Export/SensorSystem/{sensorSystemId}",
+                                                sensorSystem.getId())
+                                        .param("from", from.toString())
+                                        .param("to", to.toString()))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+        // Committed on the request thread although text/csv is compressible
+        assertThat(mvcResult.getResponse().isCommitted()).isTrue();
+        exportMayStart.countDown();
+
+        this.mockMvc
+                .perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv"))
+                .andExpect(
+                        header().string(
+                                        HttpHeaders.CONTENT_DISPOSITION,
+                                        "attachment; filename=\""
+                                                + sensorSystem.getId()
+                                                + ".csv\""))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string(CSV_EXPORT));
+    }
+
+    @Test
+    void shouldGzipExportWhenClientAcceptsIt() throws Exception {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+        willAnswer(
+                        invocation -> {
+                            assertThat(exportMayStart.await(10, TimeUnit.SECONDS)).isTrue();
+                            invocation
+                                    .getArgument(4, OutputStream.class)
+                                    .write(CSV_EXPORT.getBytes(StandardCharsets.UTF_8));
+                            return null;
+                        })
+                .given(environmentalReadingExporter)
+                .export(
+                        eq(sensorSystem.getId()),
+                        any(OffsetDateTime.class),
+                        any(OffsetDateTime.class),
+                        eq(ExportFormat.NDJSON),
+                        any(OutputStream.class));
+
+        MvcResult mvcResult =
+                this.mockMvc
+                        .perform(
+                                get(
+                                                "/EnvironmentalReading/Export/SensorSystem/{sensorSystemId}",
+                                                sensorSystem.getId())
+                                        .param("format", "ndjson")
+                                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+        exportMayStart.countDown();
+
+        MvcResult exportResult =
+                this.mockMvc
+                        .perform(asyncDispatch(mvcResult))
+                        .andExpect(status().isOk())
+                        .andExpect(
+                                header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                        .andReturn();
+
+        byte[] export =
+                new GZIPInputStream(
+                                new ByteArrayInputStream(
+                                        exportResult.getResponse().getContentAsByteArray()))
+                        .readAllBytes();
+        assertThat(new String(export, StandardCharsets.UTF_8)).isEqualTo(CSV_EXPORT);
+    }
+
+    @Test
+    void shouldReturn400ForUnknownExportFormat() throws Exception {
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Export/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn404WhenExportingNonExistingSensorSystem() throws Exception {
+        UUID sensorSystemId = UUID.randomUUID();
+        given(sensorSystemService.findSensorSystemById(sensorSystemId))
+                .willReturn(Optional.empty());
+
+        this.mockMvc
+                .perform(
+                        get(
+                                "/EnvironmentalReading/Export/SensorSystem/{sensorSystemId}",
+                                sensorSystemId))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,110 @@
+package com.unconv.spring.web.controllers;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.stream.EnvironmentalReadingBroadcastHub;
+import com.unconv.spring.web.rest.EnvironmentalReadingStreamController;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@WebMvcTest(controllers = EnvironmentalReadingStreamController.class)
+@ActiveProfiles(PROFILE_TEST)
+class EnvironmentalReadingStreamControllerTest {
+
+    @Autowired private WebApplicationContext webApplicationContext;
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockBean private SensorSystemService sensorSystemService;
+
+    @MockBean private EnvironmentalReadingBroadcastHub environmentalReadingBroadcastHub;
+
+    private final SensorLocation sensorLocation =
+            new SensorLocation(
+                    UUID.randomUUID(), "Parthenon", 37.9715, 23.7269, SensorLocationType.OUTDOOR);
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor ABCD", sensorLocation, null);
+
+    @BeforeEach
+    void setUp() {
+        mockMvc =
+                MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                        .defaultRequest(
+                                MockMvcRequestBuilders.get("/EnvironmentalReading/Stream")
+                                        .with(user("username").roles("USER")))
+                        .apply(springSecurity())
+                        .build();
+    }
+
+    @Test
+    void shouldOpenReadingStreamOfSensorSystem() throws Exception {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+        given(environmentalReadingBroadcastHub.subscribe(sensorSystem.getId(), true))
+                .willReturn(Optional.of(new SseEmitter()));
+
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Stream/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .param("quarterHourly", "true")
+                                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void shouldReturn404WhenStreamingNonExistingSensorSystem() throws Exception {
+        UUID sensorSystemId = UUID.randomUUID();
+        given(sensorSystemService.findSensorSystemById(sensorSystemId))
+                .willReturn(Optional.empty());
+
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Stream/SensorSystem/{sensorSystemId}",
+                                        sensorSystemId)
+                                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturn503WhenSubscriberLimitIsReached() throws Exception {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+        given(environmentalReadingBroadcastHub.subscribe(sensorSystem.getId(), false))
+                .willReturn(Optional.empty());
+
+        this.mockMvc
+                .perform(
+                        get(
+                                        "/EnvironmentalReading/Stream/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId())
+                                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -0,0 +1,171 @@
+package com.unconv.spring.web.controllers;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.projection.EnvironmentalReadingProjection;
+import com.unconv.spring.security.filter.JWTUtil;
+import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.stream.EnvironmentalReadingBroadcastHub;
+import com.unconv.spring.service.stream.EnvironmentalReadingsAcceptedEvent;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+// A client that stops reading only fills the socket buffers of a real connection. One send
+// thread serves both clients, so the reading one starves if a write waits for the other
+@SpringBootTest(
+        webEnvironment = RANDOM_PORT,
+        properties = {
+            "spring.datasource.url=jdbc:h2:mem:stream;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "application.stream.send-threads=1",
+            "application.stream.send-time-limit=1s",
+            "application.stream.heartbeat-interval=200ms"
+        })
+@ActiveProfiles(PROFILE_TEST)
+class EnvironmentalReadingStreamIT {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @LocalServerPort private int port;
+
+    @Autowired private JWTUtil jwtUtil;
+
+    @Autowired private EnvironmentalReadingBroadcastHub environmentalReadingBroadcastHub;
+
+    @MockBean private SensorSystemService sensorSystemService;
+
+    private final UUID sensorSystemId = UUID.randomUUID();
+
+    @Test
+    void shouldDisconnectAClientThatStopsReadingWithoutHoldingTheSendThread() throws Exception {
+        given(sensorSystemService.findSensorSystemById(sensorSystemId))
+                .willReturn(
+                        Optional.of(new SensorSystem(sensorSystemId, "Sensor ABCD", null, null)));
+        AtomicInteger readingEvents = new AtomicInteger();
+
+        try (Socket stalled = subscribe();
+                Socket reading = subscribe()) {
+            Thread reader = new Thread(() -> countReadingEvents(reading, readingEvents));
+            reader.setDaemon(true);
+            reader.start();
+            await().atMost(TIMEOUT)
+                    .until(() -> environmentalReadingBroadcastHub.getSubscriberCount() == 2);
+
+            // Far more than the socket buffers hold, until the client that reads nothing is
+            // dropped
+            EnvironmentalReadingsAcceptedEvent event = event();
+            await().atMost(TIMEOUT)
+                    .pollInterval(Duration.ofMillis(1))
+                    .until(
+                            () -> {
+                                for (int i = 0; i < 100; i++) {
+                                    environmentalReadingBroadcastHub
+                                            .onEnvironmentalReadingsAccepted(event);
+                                }
+                                return environmentalReadingBroadcastHub.getSubscriberCount() == 1;
+                            });
+
+            // The send thread is free to serve the other client
+            int delivered = readingEvents.get();
+            environmentalReadingBroadcastHub.onEnvironmentalReadingsAccepted(event);
+            await().atMost(TIMEOUT).until(() -> readingEvents.get() > delivered);
+            assertThat(sendThreadsWaitingForASocket()).isEmpty();
+        }
+    }
+
+    private Socket subscribe() throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress("localhost", port));
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(
+                ("GET /EnvironmentalReading/Stream/SensorSystem/"
+                                + sensorSystemId
+                                + " HTTP/1.1\r\n"
+                                + "Host: localhost\r\n"
+                                + "Accept: text/event-stream\r\n"
+                                + "Authorization: Bearer "
+                                + jwtUtil.generateToken("username")
+                                + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+        outputStream.flush();
+        InputStream inputStream = socket.getInputStream();
+        byte[] statusLine = new byte["HTTP/1.1 200".length()];
+        assertThat(inputStream.readNBytes(statusLine, 0, statusLine.length))
+                .isEqualTo(statusLine.length);
+        assertThat(new String(statusLine, StandardCharsets.US_ASCII)).isEqualTo("HTTP/1.1 200");
+        return socket;
+    }
+
+    private static void countReadingEvents(Socket socket, AtomicInteger readingEvents) {
+        try {
+            BufferedReader reader =
+                    new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("event:reading")) {
+                    readingEvents.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            // Closed at the end of the test
+        }
+    }
+
+    private static List<Thread> sendThreadsWaitingForASocket() {
+        return Thread.getAllStackTraces().entrySet().stream()
+                .filter(entry -> entry.getKey().getName().startsWith("reading-stream-send-"))
+                .filter(
+                        entry ->
+                                Arrays.stream(entry.getValue())
+                                        .anyMatch(
+                                                frame ->
+                                                        frame.getMethodName().equals("doWrite")
+                                                                && frame.getClassName()
+                                                                        .startsWith(
+                                                                                "org.apache.tomcat")))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private EnvironmentalReadingsAcceptedEvent event() {
+        return new EnvironmentalReadingsAcceptedEvent(
+                sensorSystemId,
+                List.of(
+                        new EnvironmentalReadingProjection(
+                                UUID.randomUUID(),
+                                21.5,
+                                48.25,
+                                OffsetDateTime.of(2023, 1, 17, 17, 39, 0, 0, ZoneOffset.UTC),
+                                sensorSystemId)));
+    }
+}
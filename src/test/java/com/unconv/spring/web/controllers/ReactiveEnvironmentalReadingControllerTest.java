@@ -0,0 +1,172 @@
+package com.unconv.spring.web.controllers;
+
+import static com.unconv.spring.consts.MessageConstants.ENVT_RECORD_ACCEPTED;
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unconv.spring.consts.SensorLocationType;
+import com.unconv.spring.domain.SensorLocation;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.dto.EnvironmentalReadingDTO;
+import com.unconv.spring.model.response.MessageResponse;
+import com.unconv.spring.service.ReactiveEnvironmentalReadingService;
+import com.unconv.spring.web.rest.ReactiveEnvironmentalReadingController;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import reactor.core.publisher.Mono;
+
+@WebMvcTest(
+        controllers = ReactiveEnvironmentalReadingController.class,
+        properties = "application.reactive.enabled=true")
+@ActiveProfiles(PROFILE_TEST)
+class ReactiveEnvironmentalReadingControllerTest {
+
+    @Autowired private WebApplicationContext webApplicationContext;
+
+    @Autowired private MockMvc mockMvc;
+
+    @Autowired private ObjectMapper objectMapper;
+
+    @MockBean private ReactiveEnvironmentalReadingService reactiveEnvironmentalReadingService;
+
+    private final SensorLocation sensorLocation =
+            new SensorLocation(
+                    UUID.randomUUID(), "Parthenon", 37.9715, 23.7269, SensorLocationType.OUTDOOR);
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor ABCD", sensorLocation, null);
+
+    @BeforeEach
+    void setUp() {
+        mockMvc =
+                MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                        .defaultRequest(
+                                MockMvcRequestBuilders.get("/EnvironmentalReading/Reactive")
+                                        .with(user("username").roles("USER")))
+                        .apply(springSecurity())
+                        .build();
+    }
+
+    @Test
+    void shouldCreateNewEnvironmentalReadingAsynchronously() throws Exception {
+        EnvironmentalReadingDTO environmentalReadingDTO =
+                new EnvironmentalReadingDTO(
+                        UUID.randomUUID(),
+                        -3L,
+                        53L,
+                        OffsetDateTime.of(2023, 3, 7, 7, 56, 0, 0, ZoneOffset.UTC),
+                        sensorSystem);
+        given(
+                        reactiveEnvironmentalReadingService
+                                .generateTimestampIfRequiredAndValidatedUnconvUserAndSaveEnvironmentalReading(
+                                        any(EnvironmentalReadingDTO.class), eq("username")))
+                .willReturn(
+                        Mono.just(
+                                new ResponseEntity<>(
+                                        new MessageResponse<>(
+                                                environmentalReadingDTO, ENVT_RECORD_ACCEPTED),
+                                        HttpStatus.CREATED)));
+
+        MvcResult mvcResult =
+                this.mockMvc
+                        .perform(
+                                post("/EnvironmentalReading/Reactive")
+                                        .with(csrf())
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content(
+                                                objectMapper.writeValueAsString(
+                                                        environmentalReadingDTO)))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+
+        this.mockMvc
+                .perform(asyncDispatch(mvcResult))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.message", is(ENVT_RECORD_ACCEPTED)))
+                .andExpect(jsonPath("$.entity.temperature", is(-3.0)));
+    }
+
+    @Test
+    void shouldReturn400WhenAggregateRangeIsRejected() throws Exception {
+        given(
+                        reactiveEnvironmentalReadingService.aggregateEnvironmentalReadings(
+                                eq(sensorSystem.getId()), any(), any(), any(), any(), any()))
+                .willThrow(new IllegalArgumentException("from must be before to"));
+
+        MvcResult mvcResult =
+                this.mockMvc
+                        .perform(
+                                get(
+                                        "/EnvironmentalReading/Reactive/Aggregate/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId()))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn404WhenAggregatingUnknownSensorSystem() throws Exception {
+        given(
+                        reactiveEnvironmentalReadingService.aggregateEnvironmentalReadings(
+                                eq(sensorSystem.getId()), any(), any(), any(), any(), any()))
+                .willReturn(Mono.empty());
+
+        MvcResult mvcResult =
+                this.mockMvc
+                        .perform(
+                                get(
+                                        "/EnvironmentalReading/Reactive/Aggregate/SensorSystem/{sensorSystemId}",
+                                        sensorSystem.getId()))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturn404WhenStreamingUnknownSensorSystem() throws Exception {
+        given(reactiveEnvironmentalReadingService.existsSensorSystemById(sensorSystem.getId()))
+                .willReturn(Mono.just(false));
+
+        MvcResult mvcResult =
+                this.mockMvc
+                        .perform(
+                                get(
+                                                "/EnvironmentalReading/Reactive/Stream/SensorSystem/{sensorSystemId}",
+                                                sensorSystem.getId())
+                                        .accept(MediaType.TEXT_EVENT_STREAM))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isNotFound());
+    }
+}
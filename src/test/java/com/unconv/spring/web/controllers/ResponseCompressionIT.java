@@ -0,0 +1,101 @@
+package com.unconv.spring.web.controllers;
+
+import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unconv.spring.security.filter.JWTUtil;
+import com.unconv.spring.service.EnvironmentalReadingService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+
+// Compression is applied by Tomcat, so this goes over a real connection. A day of hourly
+// averages is about 1 KB, the threshold is lowered to let it be compressed
+@SpringBootTest(
+        webEnvironment = RANDOM_PORT,
+        properties = {
+            "spring.datasource.url=jdbc:h2:mem:compression;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "server.compression.enabled=true",
+            "server.compression.min-response-size=256B",
+            "application.http2.enabled=true"
+        })
+@ActiveProfiles(PROFILE_TEST)
+class ResponseCompressionIT {
+
+    @LocalServerPort private int port;
+
+    @Autowired private JWTUtil jwtUtil;
+
+    @Autowired private ObjectMapper objectMapper;
+
+    @MockBean private EnvironmentalReadingService environmentalReadingService;
+
+    @ParameterizedTest
+    @EnumSource(HttpClient.Version.class)
+    void shouldGzipHourlyAveragesDespiteTheirEtag(HttpClient.Version version)
+            throws IOException, InterruptedException {
+        UUID sensorSystemId = UUID.randomUUID();
+        Map<OffsetDateTime, Double> averages = new LinkedHashMap<>();
+        OffsetDateTime hour = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+        for (int i = 24; i > 0; i--) {
+            averages.put(hour.minusHours(i), 20 + i / 7.0);
+        }
+        given(environmentalReadingService.getAverageTempsForHourly(sensorSystemId))
+                .willReturn(averages);
+        HttpClient httpClient = HttpClient.newBuilder().version(version).build();
+        URI uri =
+                URI.create(
+                        "http://localhost:"
+                                + port
+                                + "/EnvironmentalReading/Hourly/SensorSystem/"
+                                + sensorSystemId);
+
+        HttpResponse<byte[]> response =
+                httpClient.send(
+                        HttpRequest.newBuilder(uri)
+                                .header(
+                                        HttpHeaders.AUTHORIZATION,
+                                        "Bearer " + jwtUtil.generateToken("username"))
+                                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                                .GET()
+                                .build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.version()).isEqualTo(version);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        assertThat(response.headers().firstValue(HttpHeaders.ETAG).orElseThrow())
+                .startsWith("W/\"");
+        JsonNode body;
+        try (GZIPInputStream gzipInputStream =
+                new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            body = objectMapper.readTree(gzipInputStream);
+        }
+        assertThat(body.size()).isEqualTo(24);
+    }
+}
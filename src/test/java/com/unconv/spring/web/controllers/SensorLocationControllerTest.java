@@ -24,6 +24,7 @@ import com.unconv.spring.consts.SensorLocationType;
 import com.unconv.spring.domain.SensorLocation;
 import com.unconv.spring.domain.UnconvUser;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.projection.SensorLocationProjection;
 import com.unconv.spring.service.SensorLocationService;
 import com.unconv.spring.web.rest.SensorLocationController;
 import java.util.ArrayList;
@@ -292,7 +293,17 @@ class SensorLocationControllerTest {
                         .create();
 
         given(sensorLocationService.findAllSensorLocationsByUnconvUserId(unconvUser.getId()))
-                .willReturn(sensorLocations);
+                .willReturn(
+                        sensorLocations.stream()
+                                .map(
+                                        sensorLocation ->
+                                                new SensorLocationProjection(
+                                                        sensorLocation.getId(),
+                                                        sensorLocation.getSensorLocationText(),
+                                                        sensorLocation.getLatitude(),
+                                                        sensorLocation.getLongitude(),
+                                                        sensorLocation.getSensorLocationType()))
+                                .toList());
 
         this.mockMvc
                 .perform(get("/SensorLocation/UnconvUser/{unconvUserId}", unconvUser.getId()))
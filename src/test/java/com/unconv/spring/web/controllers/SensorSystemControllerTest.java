@@ -5,9 +5,12 @@ import static com.unconv.spring.utils.AppConstants.DEFAULT_SS_SORT_DIRECTION;
 import static com.unconv.spring.utils.AppConstants.PROFILE_TEST;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
@@ -26,8 +29,12 @@ import com.unconv.spring.domain.SensorLocation;
 import com.unconv.spring.domain.SensorSystem;
 import com.unconv.spring.domain.UnconvUser;
 import com.unconv.spring.dto.SensorSystemDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.model.response.PagedResult;
+import com.unconv.spring.projection.SensorSystemOverview;
+import com.unconv.spring.projection.SensorSystemProjection;
 import com.unconv.spring.service.SensorSystemService;
+import com.unconv.spring.service.cache.SensorSystemVersions;
 import com.unconv.spring.web.rest.SensorSystemController;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
@@ -38,12 +45,12 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -63,7 +70,9 @@ class SensorSystemControllerTest {
 
     @MockBean private SensorSystemService sensorSystemService;
 
-    @Autowired private ModelMapper modelMapper;
+    @MockBean private SensorSystemVersions sensorSystemVersions;
+
+    @Autowired private DTOMapper dtoMapper;
 
     @Autowired private ObjectMapper objectMapper;
 
@@ -94,12 +103,24 @@ class SensorSystemControllerTest {
 
     @Test
     void shouldFetchAllSensorSystems() throws Exception {
-        Page<SensorSystemDTO> page =
+        Page<SensorSystemOverview> page =
                 new PageImpl<>(
                         sensorSystemList.stream()
-                                .map((element) -> modelMapper.map(element, SensorSystemDTO.class))
+                                .map(
+                                        (element) ->
+                                                new SensorSystemOverview(
+                                                        new SensorSystemProjection(
+                                                                element.getId(),
+                                                                element.getSensorName(),
+                                                                element.getDescription(),
+                                                                element.isDeleted(),
+                                                                element.getSensorStatus(),
+                                                                null,
+                                                                null),
+                                                        0,
+                                                        null))
                                 .collect(Collectors.toList()));
-        PagedResult<SensorSystemDTO> sensorSystemPagedResult = new PagedResult<>(page);
+        PagedResult<SensorSystemOverview> sensorSystemPagedResult = new PagedResult<>(page);
         given(
                         sensorSystemService.findAllSensorSystems(
                                 0, 10, DEFAULT_SS_SORT_BY, DEFAULT_SS_SORT_DIRECTION))
@@ -109,6 +130,9 @@ class SensorSystemControllerTest {
                 .perform(get("/SensorSystem"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.data.size()", is(sensorSystemList.size())))
+                .andExpect(jsonPath("$.data[0].sensorName", is("text 1")))
+                .andExpect(jsonPath("$.data[0].readingCount", is(0)))
+                .andExpect(jsonPath("$.data[0].latestReading").hasJsonPath())
                 .andExpect(jsonPath("$.totalElements", is(3)))
                 .andExpect(jsonPath("$.pageNumber", is(1)))
                 .andExpect(jsonPath("$.totalPages", is(1)))
@@ -126,7 +150,7 @@ class SensorSystemControllerTest {
         EnvironmentalReading environmentalReading =
                 new EnvironmentalReading(
                         UUID.randomUUID(), 32.1, 76.5, OffsetDateTime.now(), sensorSystem);
-        SensorSystemDTO sensorSystemDTO = modelMapper.map(sensorSystem, SensorSystemDTO.class);
+        SensorSystemDTO sensorSystemDTO = dtoMapper.toSensorSystemDTO(sensorSystem);
         sensorSystemDTO.setReadingCount(new Random().nextLong());
         sensorSystemDTO.setLatestReading(environmentalReading);
         given(sensorSystemService.findSensorSystemDTOById(sensorSystemId))
@@ -143,6 +167,50 @@ class SensorSystemControllerTest {
                 .andExpect(jsonPath("$.sensorName", is(sensorSystem.getSensorName())));
     }
 
+    @Test
+    void shouldReturn304WhenSensorSystemIsUnchanged() throws Exception {
+        UUID sensorSystemId = UUID.randomUUID();
+        given(sensorSystemVersions.etag(sensorSystemId)).willReturn("v7");
+
+        this.mockMvc
+                .perform(
+                        get("/SensorSystem/{id}", sensorSystemId)
+                                .header(HttpHeaders.IF_NONE_MATCH, "W/\"v7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"v7\""));
+
+        verify(sensorSystemService, never()).findSensorSystemDTOById(sensorSystemId);
+    }
+
+    @Test
+    void shouldTagEachEncodingOfSensorSystemSeparately() throws Exception {
+        UUID sensorSystemId = UUID.randomUUID();
+        given(sensorSystemVersions.etag(sensorSystemId)).willReturn("v7");
+
+        this.mockMvc
+                .perform(
+                        get("/SensorSystem/{id}", sensorSystemId)
+                                .accept("application/cbor")
+                                .header(HttpHeaders.IF_NONE_MATCH, "W/\"v7-cbor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"v7-cbor\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+        this.mockMvc
+                .perform(
+                        get("/SensorSystem/{id}", sensorSystemId)
+                                .accept("application/x-jackson-smile;q=0.5, application/json")
+                                .header(HttpHeaders.IF_NONE_MATCH, "W/\"v7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+        // A JSON tag does not match the CBOR encoding
+        this.mockMvc
+                .perform(
+                        get("/SensorSystem/{id}", sensorSystemId)
+                                .accept("application/cbor")
+                                .header(HttpHeaders.IF_NONE_MATCH, "W/\"v7\""))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void shouldReturn404WhenFetchingNonExistingSensorSystem() throws Exception {
         UUID sensorSystemId = UUID.randomUUID();
@@ -212,7 +280,7 @@ class SensorSystemControllerTest {
         given(sensorSystemService.saveSensorSystem(any(SensorSystem.class)))
                 .willAnswer((invocation) -> invocation.getArgument(0));
 
-        SensorSystemDTO sensorSystemDTO = modelMapper.map(sensorSystem, SensorSystemDTO.class);
+        SensorSystemDTO sensorSystemDTO = dtoMapper.toSensorSystemDTO(sensorSystem);
 
         this.mockMvc
                 .perform(
@@ -21,6 +21,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.unconv.spring.common.AbstractIntegrationTest;
 import com.unconv.spring.domain.UnconvUser;
 import com.unconv.spring.dto.UnconvUserDTO;
+import com.unconv.spring.mapper.DTOMapper;
 import com.unconv.spring.persistence.UnconvUserRepository;
 import com.unconv.spring.service.UnconvUserService;
 import java.util.ArrayList;
@@ -29,7 +30,6 @@ import java.util.UUID;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -43,7 +43,7 @@ class UnconvUserControllerIT extends AbstractIntegrationTest {
 
     @Autowired private UnconvUserService unconvUserService;
 
-    @Autowired private ModelMapper modelMapper;
+    @Autowired private DTOMapper dtoMapper;
 
     private List<UnconvUser> unconvUserList = null;
 
@@ -121,7 +121,7 @@ class UnconvUserControllerIT extends AbstractIntegrationTest {
         UnconvUser unconvUser =
                 new UnconvUser(null, "New UnconvUser", "newuser@email.com", "password");
 
-        UnconvUserDTO unconvUserDTO = modelMapper.map(unconvUser, UnconvUserDTO.class);
+        UnconvUserDTO unconvUserDTO = dtoMapper.toUnconvUserDTO(unconvUser);
         this.mockMvc
                 .perform(
                         post("/UnconvUser")
@@ -139,7 +139,7 @@ class UnconvUserControllerIT extends AbstractIntegrationTest {
         UnconvUser unconvUser = new UnconvUser(null, "new_user", "newuser@gmail.com", rawPassword);
         unconvUserService.saveUnconvUser(unconvUser, rawPassword);
 
-        UnconvUserDTO unconvUserDTO = modelMapper.map(unconvUser, UnconvUserDTO.class);
+        UnconvUserDTO unconvUserDTO = dtoMapper.toUnconvUserDTO(unconvUser);
         unconvUserDTO.setId(null);
 
         this.mockMvc
@@ -166,7 +166,7 @@ class UnconvUserControllerIT extends AbstractIntegrationTest {
         userToLogin.setUsername(unconvUser.getUsername());
         userToLogin.setPassword(rawPassword);
 
-        UnconvUserDTO unconvUserDTO = modelMapper.map(userToLogin, UnconvUserDTO.class);
+        UnconvUserDTO unconvUserDTO = dtoMapper.toUnconvUserDTO(userToLogin);
 
         this.mockMvc
                 .perform(
@@ -185,7 +185,7 @@ class UnconvUserControllerIT extends AbstractIntegrationTest {
         userToLogin.setUsername(unconvUserList.get(0).getUsername());
         userToLogin.setPassword("JTIzIdXRoh");
 
-        UnconvUserDTO unconvUserDTO = modelMapper.map(userToLogin, UnconvUserDTO.class);
+        UnconvUserDTO unconvUserDTO = dtoMapper.toUnconvUserDTO(userToLogin);
 
         this.mockMvc
                 .perform(
@@ -224,7 +224,7 @@ class UnconvUserControllerIT extends AbstractIntegrationTest {
     @Test
     void shouldUpdateUnconvUser() throws Exception {
         UnconvUser unconvUser = unconvUserList.get(0);
-        UnconvUserDTO unconvUserDTO = modelMapper.map(unconvUser, UnconvUserDTO.class);
+        UnconvUserDTO unconvUserDTO = dtoMapper.toUnconvUserDTO(unconvUser);
         unconvUserDTO.setUsername("Updated UnconvUser");
 
         this.mockMvc
@@ -261,7 +261,7 @@ class UnconvUserControllerIT extends AbstractIntegrationTest {
     void shouldReturn404WhenUpdatingNonExistingUnconvUser() throws Exception {
         UUID unconvUserId = UUID.randomUUID();
         UnconvUser unconvUser = unconvUserList.get(1);
-        UnconvUserDTO unconvUserDTO = modelMapper.map(unconvUser, UnconvUserDTO.class);
+        UnconvUserDTO unconvUserDTO = dtoMapper.toUnconvUserDTO(unconvUser);
         unconvUserDTO.setPassword("New password");
 
         this.mockMvc
@@ -0,0 +1,220 @@
+package com.unconv.spring.web.socket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unconv.spring.config.ApplicationProperties;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.service.ingest.EnvironmentalReadingBatchWriter;
+import com.unconv.spring.service.ingest.IngestFrame;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+class EnvironmentalReadingIngestHandlerTest {
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    private final EnvironmentalReadingBatchWriter batchWriter =
+            mock(EnvironmentalReadingBatchWriter.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor", null, null);
+
+    private EnvironmentalReadingIngestHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        applicationProperties.getIngest().setMaxInFlightPerConnection(4);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(SensorSystemHandshakeInterceptor.SENSOR_SYSTEM_ATTRIBUTE, sensorSystem);
+        given(session.getId()).willReturn("session");
+        given(session.getAttributes()).willReturn(attributes);
+        given(session.isOpen()).willReturn(true);
+        given(batchWriter.getRemainingCapacity()).willReturn(100);
+        given(batchWriter.offer(any())).willReturn(true);
+        handler =
+                new EnvironmentalReadingIngestHandler(
+                        applicationProperties,
+                        batchWriter,
+                        objectMapper,
+                        Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Test
+    void shouldAnnounceTheWindowOnConnect() throws IOException {
+        handler.afterConnectionEstablished(session);
+
+        assertThat(replies()).singleElement().isEqualTo(reply("{\"type\":\"ready\",\"window\":4}"));
+        assertThat(handler.getConnectionCount()).isOne();
+    }
+
+    @Test
+    void shouldQueueFrameAndAcknowledgeItOnceWritten() throws IOException {
+        handler.afterConnectionEstablished(session);
+
+        handler.handleTextMessage(session, new TextMessage("@frame-1\n21.5,48.25,1673977140000\n"));
+
+        IngestFrame frame = offeredFrame();
+        assertThat(frame.frameId()).isEqualTo("frame-1");
+        assertThat(frame.sensorSystemId()).isEqualTo(sensorSystem.getId());
+        assertThat(frame.readings())
+                .singleElement()
+                .satisfies(
+                        reading -> {
+                            assertThat(reading.getTemperature()).isEqualTo(21.5);
+                            assertThat(reading.getHumidity()).isEqualTo(48.25);
+                            assertThat(reading.getTimestamp().toInstant().toEpochMilli())
+                                    .isEqualTo(1673977140000L);
+                            assertThat(reading.getSensorSystem()).isSameAs(sensorSystem);
+                        });
+
+        frame.listener().onFramesPersisted(List.of(frame));
+
+        assertThat(replies())
+                .last()
+                .isEqualTo(
+                        reply(
+                                "{\"type\":\"ack\",\"frames\":[\"frame-1\"],\"readings\":1,"
+                                        + "\"window\":4}"));
+    }
+
+    @Test
+    void shouldRejectFrameWithInvalidLinesWithoutQueueingIt() throws IOException {
+        handler.afterConnectionEstablished(session);
+
+        handler.handleTextMessage(session, new TextMessage("@frame-1\n21.5,48.25\nwarm\n20,101"));
+
+        verify(batchWriter, never()).offer(any());
+        assertThat(replies())
+                .last()
+                .isEqualTo(
+                        reply(
+                                "{\"type\":\"rejected\",\"frames\":[\"frame-1\"],"
+                                        + "\"lines\":[3,4],\"reason\":\"invalid-readings\"}"));
+    }
+
+    @Test
+    void shouldRejectReadingsOutsideTheBoundsOfTheRestApi() throws IOException {
+        handler.afterConnectionEstablished(session);
+
+        handler.handleTextMessage(
+                session, new TextMessage("@frame-1\n-9999,0\n9999.5,50\nNaN,50\n20,100"));
+
+        verify(batchWriter, never()).offer(any());
+        assertThat(replies())
+                .last()
+                .isEqualTo(
+                        reply(
+                                "{\"type\":\"rejected\",\"frames\":[\"frame-1\"],"
+                                        + "\"lines\":[3,4],\"reason\":\"invalid-readings\"}"));
+    }
+
+    @Test
+    void shouldRefuseFramesBeyondTheWindowOfTheConnection() throws IOException {
+        handler.afterConnectionEstablished(session);
+
+        handler.handleTextMessage(session, new TextMessage("@frame-1\n20,50\n21,50\n22,50"));
+        handler.handleTextMessage(session, new TextMessage("@frame-2\n20,50\n21,50"));
+
+        verify(batchWriter, times(1)).offer(any());
+        assertThat(replies())
+                .last()
+                .isEqualTo(
+                        reply(
+                                "{\"type\":\"nack\",\"frames\":[\"frame-2\"],"
+                                        + "\"reason\":\"overloaded\",\"window\":1}"));
+    }
+
+    @Test
+    void shouldReturnCreditOfFramesThatFailedToBeWritten() throws IOException {
+        handler.afterConnectionEstablished(session);
+        handler.handleTextMessage(session, new TextMessage("@frame-1\n20,50\n21,50\n22,50"));
+        IngestFrame frame = offeredFrame();
+
+        frame.listener()
+                .onFramesFailed(List.of(frame), new DataIntegrityViolationException("foreign key"));
+
+        assertThat(replies())
+                .last()
+                .isEqualTo(
+                        reply(
+                                "{\"type\":\"nack\",\"frames\":[\"frame-1\"],"
+                                        + "\"reason\":\"write-failed\",\"window\":4}"));
+    }
+
+    @Test
+    void shouldNackFramesTheBatchWriterRefuses() throws IOException {
+        given(batchWriter.offer(any())).willReturn(false);
+        handler.afterConnectionEstablished(session);
+
+        handler.handleTextMessage(session, new TextMessage("20,50"));
+
+        assertThat(replies())
+                .last()
+                .isEqualTo(
+                        reply(
+                                "{\"type\":\"nack\",\"frames\":[\"1\"],"
+                                        + "\"reason\":\"overloaded\",\"window\":4}"));
+    }
+
+    @Test
+    void shouldStopReplyingOnceTheConnectionIsClosed() throws IOException {
+        handler.afterConnectionEstablished(session);
+        handler.handleTextMessage(session, new TextMessage("20,50"));
+        IngestFrame frame = offeredFrame();
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        frame.listener().onFramesPersisted(List.of(frame));
+
+        assertThat(replies()).hasSize(1);
+        assertThat(handler.getConnectionCount()).isZero();
+    }
+
+    private IngestFrame offeredFrame() {
+        ArgumentCaptor<IngestFrame> frame = ArgumentCaptor.forClass(IngestFrame.class);
+        verify(batchWriter).offer(frame.capture());
+        return frame.getValue();
+    }
+
+    private List<JsonNode> replies() throws IOException {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<WebSocketMessage<?>> messages =
+                ArgumentCaptor.forClass((Class<WebSocketMessage<?>>) (Class<?>) TextMessage.class);
+        verify(session, atLeastOnce()).sendMessage(messages.capture());
+        return messages.getAllValues().stream()
+                .map(message -> reply(((TextMessage) message).getPayload()))
+                .toList();
+    }
+
+    private JsonNode reply(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.unconv.spring.web.socket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.unconv.spring.consts.SensorStatus;
+import com.unconv.spring.domain.SensorSystem;
+import com.unconv.spring.domain.UnconvUser;
+import com.unconv.spring.service.SensorSystemService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.WebSocketHandler;
+
+class SensorSystemHandshakeInterceptorTest {
+
+    private final SensorSystemService sensorSystemService = mock(SensorSystemService.class);
+
+    private final SensorSystemHandshakeInterceptor interceptor =
+            new SensorSystemHandshakeInterceptor(sensorSystemService);
+
+    private final UnconvUser owner =
+            new UnconvUser(UUID.randomUUID(), "owner", "owner@email.com", "password");
+
+    private final SensorSystem sensorSystem =
+            new SensorSystem(UUID.randomUUID(), "Sensor", null, owner);
+
+    private final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    @Test
+    void shouldKeepTheSensorOfItsOwnerOnTheSession() {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+
+        assertThat(handshake(sensorSystem.getId().toString(), "owner")).isTrue();
+
+        assertThat(attributes)
+                .containsEntry(
+                        SensorSystemHandshakeInterceptor.SENSOR_SYSTEM_ATTRIBUTE, sensorSystem);
+    }
+
+    @Test
+    void shouldRefuseMalformedSensorId() {
+        assertThat(handshake("not-a-uuid", "owner")).isFalse();
+
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        verifyNoInteractions(sensorSystemService);
+    }
+
+    @Test
+    void shouldRefuseAnonymousHandshake() {
+        assertThat(handshake(sensorSystem.getId().toString(), null)).isFalse();
+
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+        verifyNoInteractions(sensorSystemService);
+    }
+
+    @Test
+    void shouldRefuseUnknownSensor() {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.empty());
+
+        assertThat(handshake(sensorSystem.getId().toString(), "owner")).isFalse();
+
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
+    }
+
+    @Test
+    void shouldRefuseSensorOfAnotherUser() {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+
+        assertThat(handshake(sensorSystem.getId().toString(), "someone-else")).isFalse();
+
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+        assertThat(attributes).isEmpty();
+    }
+
+    @Test
+    void shouldRefuseInactiveOrDeletedSensor() {
+        given(sensorSystemService.findSensorSystemById(sensorSystem.getId()))
+                .willReturn(Optional.of(sensorSystem));
+
+        sensorSystem.setSensorStatus(SensorStatus.INACTIVE);
+        assertThat(handshake(sensorSystem.getId().toString(), "owner")).isFalse();
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+
+        sensorSystem.setSensorStatus(SensorStatus.ACTIVE);
+        sensorSystem.setDeleted(true);
+        assertThat(handshake(sensorSystem.getId().toString(), "owner")).isFalse();
+        assertThat(attributes).isEmpty();
+    }
+
+    private boolean handshake(String sensorSystemId, String username) {
+        MockHttpServletRequest servletRequest =
+                new MockHttpServletRequest(
+                        "GET", "/EnvironmentalReading/Ingest/SensorSystem/" + sensorSystemId);
+        if (username != null) {
+            servletRequest.setUserPrincipal(
+                    new UsernamePasswordAuthenticationToken(username, "password"));
+        }
+        return interceptor.beforeHandshake(
+                new ServletServerHttpRequest(servletRequest),
+                new ServletServerHttpResponse(servletResponse),
+                mock(WebSocketHandler.class),
+                attributes);
+    }
+}